@@ -0,0 +1,212 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.benchmark;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hit.communicator.BinaryMessage;
+import org.hit.communicator.BinarySerializer;
+import org.hit.communicator.Message;
+import org.hit.communicator.MessageSerializer;
+import org.hit.communicator.NodeID;
+import org.hit.communicator.ObjectStreamSerializer;
+import org.hit.communicator.nio.IPNodeID;
+import org.hit.db.sql.operators.ComparisionOperator;
+import org.hit.db.sql.operators.NumericComparison;
+import org.hit.db.sql.operators.QueryOperator;
+import org.hit.db.sql.operators.Where;
+
+import org.hit.io.binary.Codec;
+import org.hit.io.binary.ExternalizableCodec;
+import org.hit.io.buffer.BufferManager;
+import org.hit.io.buffer.ManagedBuffer;
+import org.hit.io.pool.PoolableIOFactory;
+import org.hit.pool.SimplePoolableRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of serializing and parsing a message through
+ * the <code>ObjectStreamSerializer</code> backed by the 
+ * {@link PoolableIOFactory} and through the {@link BinarySerializer}. The 
+ * encoded size of the message in each format is printed during the setup.
+ * 
+ * @author Balraja Subbiah
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark
+{
+    /**
+     * A {@link Message} carrying a query operator and a map, like the 
+     * messages exchanged between the facade and the servers.
+     */
+    public static class BenchmarkMessage extends Message
+    {
+        private long myTransactionID;
+        
+        private QueryOperator myQuery;
+        
+        private Map<String, Long> myAttributes;
+        
+        /**
+         * CTOR
+         */
+        public BenchmarkMessage()
+        {
+            super();
+        }
+        
+        /**
+         * CTOR
+         */
+        public BenchmarkMessage(NodeID              senderID, 
+                                long                transactionID,
+                                QueryOperator       query,
+                                Map<String, Long>   attributes)
+        {
+            super(senderID);
+            myTransactionID = transactionID;
+            myQuery = query;
+            myAttributes = attributes;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException
+        {
+            super.writeExternal(out);
+            out.writeLong(myTransactionID);
+            out.writeObject(myQuery);
+            out.writeObject(myAttributes);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public void readExternal(ObjectInput in)
+            throws IOException, ClassNotFoundException
+        {
+            super.readExternal(in);
+            myTransactionID = in.readLong();
+            myQuery = (QueryOperator) in.readObject();
+            myAttributes = (Map<String, Long>) in.readObject();
+        }
+    }
+    
+    @Param({"objectstream", "binary"})
+    private String mySerializerType;
+    
+    @Param({"4", "64"})
+    private int myAttributeCount;
+    
+    private MessageSerializer mySerializer;
+    
+    private Message myMessage;
+    
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        System.setProperty(SimplePoolableRegistry.REGISTERED_TYPES_PROPERTY,
+                           BenchmarkMessage.class.getName());
+        Codec.register(
+            BenchmarkMessage.class, 
+            new ExternalizableCodec<BenchmarkMessage>() {
+                @Override
+                protected BenchmarkMessage newInstance()
+                {
+                    return new BenchmarkMessage();
+                }
+            });
+        SimplePoolableRegistry registry = new SimplePoolableRegistry();
+        BufferManager bufferManager = 
+            new BufferManager(64L * 1024 * 1024, false);
+        mySerializer = 
+            "binary".equals(mySerializerType) ? 
+                new BinarySerializer(bufferManager, registry)
+                : new ObjectStreamSerializer(bufferManager, 
+                                             new PoolableIOFactory(registry));
+        
+        Map<String, Long> attributes = new HashMap<>();
+        for (int i = 0; i < myAttributeCount; i++) {
+            attributes.put("attribute" + i, Long.valueOf(i));
+        }
+        myMessage = 
+            new BenchmarkMessage(
+                new IPNodeID(10000),
+                1001L,
+                new Where("airports", 
+                          new NumericComparison("airport.id", 
+                                                ComparisionOperator.GT, 
+                                                10.0)),
+                attributes);
+        ManagedBuffer encoded = 
+            (ManagedBuffer) mySerializer.serialize(myMessage);
+        System.out.println(
+            mySerializerType + " encodes the message in " 
+            + encoded.getSize() + " bytes");
+        encoded.free();
+    }
+    
+    /**
+     * Serializes the message and releases the buffers.
+     */
+    @Benchmark
+    public void serialize()
+    {
+        ((ManagedBuffer) mySerializer.serialize(myMessage)).free();
+    }
+    
+    /**
+     * Serializes the message and parses it back, which releases the 
+     * buffers.
+     */
+    @Benchmark
+    public Collection<Message> roundTrip()
+    {
+        BinaryMessage binaryMessage = mySerializer.serialize(myMessage);
+        return mySerializer.parse(binaryMessage);
+    }
+}
@@ -0,0 +1,276 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft.log.benchmark;
+
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hit.consensus.Proposal;
+import org.hit.consensus.UnitID;
+import org.hit.consensus.raft.log.DurabilityCallback;
+import org.hit.consensus.raft.log.WAL;
+import org.hit.consensus.test.TestWALConfig;
+import org.junit.rules.TemporaryFolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the appends/sec and the latency percentiles of the segmented
+ * {@link WAL} against the object stream based log it has replaced. The
+ * throughput is reported in ops/us and the p99 latency is reported by 
+ * the sample time mode.
+ * 
+ * @author Balraja Subbiah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WALBenchmark
+{
+    /**
+     * A {@link Proposal} with a payload of configurable size.
+     */
+    public static class BenchmarkProposal implements Proposal
+    {
+        private byte[] myPayload;
+        
+        /**
+         * CTOR
+         */
+        public BenchmarkProposal()
+        {
+            this(0);
+        }
+        
+        /**
+         * CTOR
+         */
+        public BenchmarkProposal(int size)
+        {
+            myPayload = new byte[size];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public UnitID getUnitID()
+        {
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException
+        {
+            out.writeInt(myPayload.length);
+            out.write(myPayload);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void readExternal(ObjectInput in)
+            throws IOException, ClassNotFoundException
+        {
+            myPayload = new byte[in.readInt()];
+            in.readFully(myPayload);
+        }
+    }
+    
+    /**
+     * The record format written by the object stream based log.
+     */
+    public static class LegacyRecord implements Externalizable
+    {
+        private long myTermID;
+        
+        private long mySequenceNo;
+        
+        private Proposal myProposal;
+        
+        /**
+         * CTOR
+         */
+        public LegacyRecord()
+        {
+            this(Long.MIN_VALUE, Long.MIN_VALUE, null);
+        }
+        
+        /**
+         * CTOR
+         */
+        public LegacyRecord(long termID, long sequenceNo, Proposal proposal)
+        {
+            myTermID = termID;
+            mySequenceNo = sequenceNo;
+            myProposal = proposal;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException
+        {
+            out.writeLong(myTermID);
+            out.writeLong(mySequenceNo);
+            out.writeObject(myProposal);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void readExternal(ObjectInput in)
+            throws IOException, ClassNotFoundException
+        {
+            myTermID = in.readLong();
+            mySequenceNo = in.readLong();
+            myProposal = (Proposal) in.readObject();
+        }
+    }
+    
+    @Param({"128", "1024"})
+    private int myProposalSize;
+    
+    private final AtomicLong mySequenceNo = new AtomicLong();
+    
+    private TemporaryFolder myFolder;
+    
+    private WAL myWAL;
+    
+    private ObjectOutputStream myLegacyLogStream;
+    
+    private Proposal myProposal;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        myFolder = new TemporaryFolder();
+        myFolder.create();
+        myProposal = new BenchmarkProposal(myProposalSize);
+        myWAL = new WAL(new TestWALConfig(myFolder.getRoot(),
+                                          "benchmark",
+                                          64L * 1024L * 1024L,
+                                          4096,
+                                          256,
+                                          64 * 1024));
+        myLegacyLogStream = 
+            new ObjectOutputStream(
+                new DataOutputStream(
+                    new FileOutputStream(
+                        new File(myFolder.getRoot(), "legacy.transactionLog"))));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        myWAL.close();
+        myLegacyLogStream.close();
+        myFolder.delete();
+    }
+    
+    /**
+     * Appends through an <code>ObjectOutputStream</code> the way the 
+     * log used to, without any checksum or sync.
+     */
+    @Benchmark
+    public void legacyAddProposal() throws IOException
+    {
+        synchronized (myLegacyLogStream) {
+            myLegacyLogStream.writeObject(
+                new LegacyRecord(1L, 
+                                 mySequenceNo.incrementAndGet(), 
+                                 myProposal));
+            // Forget the shared proposal, so that it's written in full 
+            // every time just like distinct proposals are.
+            myLegacyLogStream.reset();
+        }
+    }
+    
+    /**
+     * Appends to the segmented log without waiting for the sync.
+     */
+    @Benchmark
+    public void segmentedAddProposal()
+    {
+        myWAL.addProposal(1L, mySequenceNo.incrementAndGet(), myProposal);
+    }
+    
+    /**
+     * Appends to the segmented log and waits for the record to be synced,
+     * with multiple writers sharing every sync.
+     */
+    @Benchmark
+    @Threads(8)
+    public void segmentedDurableAddProposal() throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        myWAL.addProposal(1L, 
+                          mySequenceNo.incrementAndGet(), 
+                          myProposal,
+                          new DurabilityCallback() {
+                              @Override
+                              public void onDurable(long termID, 
+                                                    long sequenceNo)
+                              {
+                                  latch.countDown();
+                              }
+                              
+                              @Override
+                              public void onFailure(long        termID, 
+                                                    long        sequenceNo,
+                                                    IOException cause)
+                              {
+                                  latch.countDown();
+                              }
+                          });
+        latch.await();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator;
+
+import java.io.ObjectInput;
+
+import org.hit.io.binary.BinaryIOFactory;
+import org.hit.io.binary.BinaryInput;
+import org.hit.io.buffer.BufferManager;
+import org.hit.io.buffer.ManagedBufferInputStream;
+import org.hit.io.pool.PoolableRegistry;
+
+/**
+ * Extends <code>ObjectStreamSerializer</code> to encode the messages 
+ * in the compact binary format of {@link BinaryIOFactory}. As the 
+ * format doesn't carry any state across the messages, the same 
+ * {@link BinaryInput} is reused for decoding all the messages.
+ *
+ * @author Balraja Subbiah
+ */
+public class BinarySerializer extends ObjectStreamSerializer
+{
+    private final PoolableRegistry myRegistry;
+    
+    private BinaryInput myInput;
+    
+    /**
+     * CTOR
+     */
+    public BinarySerializer(BufferManager manager, PoolableRegistry registry)
+    {
+        super(manager, new BinaryIOFactory(registry));
+        myRegistry = registry;
+        myInput = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ObjectInput getInput(ManagedBufferInputStream in)
+    {
+        // The serializer always reads from the same stream.
+        if (myInput == null) {
+            myInput = new BinaryInput(in, myRegistry);
+        }
+        return myInput;
+    }
+}
@@ -29,6 +29,7 @@ import org.hit.actors.EventBus;
 import org.hit.event.Event;
 import org.hit.event.SendMessageEvent;
 import org.hit.pool.PooledObjects;
+import org.hit.time.Clock;
 import org.hit.util.LogFactory;
 
 import com.google.inject.Inject;
@@ -45,20 +46,26 @@ public class CommunicatingActor extends Actor
         LogFactory.getInstance().getLogger(CommunicatingActor.class);
 
     private final Communicator myCommunicator;
+    
+    private final Clock myClock;
 
 
     /**
      * CTOR
      */
     @Inject
-    public CommunicatingActor(EventBus eventBus, Communicator communicator)
+    public CommunicatingActor(EventBus     eventBus, 
+                              Communicator communicator,
+                              Clock        clock)
     {
         super(eventBus, ActorID.COMMUNICATOR);
         myCommunicator = communicator;
+        myClock = clock;
         myCommunicator.addMessageHandler(new MessageHandler() {
             @Override
             public void handle(Message message)
             {
+                myClock.observe(message.getTimestamp());
                 if (LOG.isLoggable(Level.FINE)) {
                     LOG.fine("Received " + message + " from "
                              + message.getSenderId());
@@ -81,6 +88,7 @@ public class CommunicatingActor extends Actor
     {
         if (event instanceof SendMessageEvent) {
             SendMessageEvent sme = (SendMessageEvent) event;
+            sme.getMessage().setTimestamp(myClock.currentTime());
             for (NodeID nodeID : sme.getTargets()) {
                 try {
                     myCommunicator.sendTo(nodeID, sme.getMessage());
@@ -36,12 +36,15 @@ public abstract class Message implements Externalizable, Event
 {
     private NodeID mySenderId;
     
+    private long myTimestamp;
+    
     /**
      * CTOR
      */
     public Message()
     {
         mySenderId = null;
+        myTimestamp = 0L;
     }
 
     /**
@@ -50,6 +53,7 @@ public abstract class Message implements Externalizable, Event
     public Message(NodeID senderId)
     {
         mySenderId = senderId;
+        myTimestamp = 0L;
     }
     
     /**
@@ -69,6 +73,24 @@ public abstract class Message implements Externalizable, Event
     {
         mySenderId = senderID;
     }
+    
+    /**
+     * Returns the time stamp of the sender's clock at the time of 
+     * sending this message.
+     */
+    public long getTimestamp()
+    {
+        return myTimestamp;
+    }
+    
+    /**
+     * A helper method to set the time stamp of the sender's clock 
+     * at the time of sending this message.
+     */
+    public void setTimestamp(long timestamp)
+    {
+        myTimestamp = timestamp;
+    }
 
     /**
      * {@inheritDoc}
@@ -78,6 +100,7 @@ public abstract class Message implements Externalizable, Event
             ClassNotFoundException
     {
         mySenderId = (NodeID) in.readObject();
+        myTimestamp = in.readLong();
     }
 
     /**
@@ -87,6 +110,7 @@ public abstract class Message implements Externalizable, Event
     public void writeExternal(ObjectOutput out) throws IOException
     {
         out.writeObject(mySenderId);
+        out.writeLong(myTimestamp);
     }
 
     /**
@@ -39,6 +39,11 @@ import com.google.common.primitives.Ints;
 /**
  * An implementation of <code>MessageSerializer</code> that uses the
  * Serializable/Externalizable interface for serializing the objects.
+ * <p>
+ * Every message is framed by it's size. The frames are decoded through
+ * an input stream that's reused across the calls, hence a serializer
+ * should be parsing the messages on a single thread, which is the case 
+ * for the session that owns it.
  *
  * @author Balraja Subbiah
  */
@@ -51,6 +56,8 @@ public class ObjectStreamSerializer implements MessageSerializer
     
     private final ObjectIOFactory myIOFactory;
     
+    private final ManagedBufferInputStream myInputStream;
+    
     /**
      * CTOR
      */
@@ -59,6 +66,16 @@ public class ObjectStreamSerializer implements MessageSerializer
     {
         myBufferManager = manager;
         myIOFactory     = ioFactory;
+        myInputStream   = new ManagedBufferInputStream();
+    }
+    
+    /**
+     * Returns the {@link ObjectInput} for reading a message from the 
+     * given stream.
+     */
+    protected ObjectInput getInput(ManagedBufferInputStream in)
+    {
+        return myIOFactory.getInput(in);
     }
 
     /**
@@ -68,26 +85,17 @@ public class ObjectStreamSerializer implements MessageSerializer
     public Collection<Message> parse(BinaryMessage binaryMessage)
     {
         ArrayList<Message> messages = new ArrayList<>();
-        try (
-            ManagedBufferInputStream min = 
-                ManagedBufferInputStream.wrapSerializedData(
-                    (ManagedBuffer) binaryMessage))
-        {
-            
-            byte[] sizeArray = new byte[4];
-            min.read(sizeArray);
-            int size = Ints.fromByteArray(sizeArray);
+        myInputStream.wrap((ManagedBuffer) binaryMessage);
+        try (ManagedBufferInputStream min = myInputStream) {
+            int size = min.readInt();
             if (LOG.isLoggable(Level.FINEST)) {
                 LOG.finest("The message size is " + size);
             }
             while (size > 0) {
                 min.setEOFMark(size);
-                ObjectInput oInput = myIOFactory.getInput(min);
-                messages.add((Message) oInput.readObject());
+                messages.add((Message) getInput(min).readObject());
                 min.unsetEOFMark();
-                
-                int read = min.read(sizeArray);
-                size = read == 4 ? Ints.fromByteArray(sizeArray) : -1;
+                size = min.readInt();
             }
         }
         catch (Exception e) {
@@ -21,7 +21,11 @@
 package org.hit.communicator.nio;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 
 import org.hit.communicator.BinaryMessage;
 import org.hit.io.buffer.BufferManager;
@@ -29,16 +33,31 @@ import org.hit.io.buffer.ManagedBuffer;
 
 /**
  * An abstraction to capture the active connection between two machines.
+ * <p>
+ * The messages to be sent are queued up and written together, with a 
+ * single gathering write of all their buffers, when the channel is 
+ * ready to accept them. The messages are released only after they have
+ * been written completely. The bytes read from the channel are split 
+ * into the frames of the messages by a {@link FrameDecoder}.
  *
  * @author Balraja Subbiah
  */
 public class Connection
 {
+    /** 
+     * The maximum number of buffers gathered in a single write, which is
+     * the limit imposed by most of the operating systems.
+     */
+    private static final int MAX_GATHERED_BUFFERS = 1024;
+    
     private final SocketChannel myChannel;
     
-    private final BufferManager myBufferManager;
+
+    private final Deque<ManagedBuffer> myPendingWrites;
     
-    private ManagedBuffer myReadBuffer;
+    private final ByteBuffer[] myGatheredBuffers;
+    
+    private final FrameDecoder myFrameDecoder;
 
     /**
      * CTOR
@@ -46,16 +65,22 @@ public class Connection
     public Connection(SocketChannel channel, BufferManager bufferManager)
     {
         myChannel = channel;
-        myBufferManager = bufferManager;
-        myReadBuffer = null;
+        myPendingWrites = new ArrayDeque<>();
+        myGatheredBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
+        myFrameDecoder = new FrameDecoder(bufferManager);
     }
 
     /**
-     * Closes the connection.
+     * Closes the connection, discarding the messages that are yet to be 
+     * written.
      */
     public void close() throws IOException
     {
         myChannel.close();
+        while (!myPendingWrites.isEmpty()) {
+            myPendingWrites.removeFirst().free();
+        }
+        myFrameDecoder.close();
     }
 
     public SocketChannel getChannel()
@@ -64,32 +89,69 @@ public class Connection
     }
 
     /**
-     * Reads the value from tcp connection.
+     * Reads the value from tcp connection. Returns the messages whose 
+     * frames have been read completely or null if there aren't any.
      */
     public BinaryMessage read() throws IOException
     {
-        if (myReadBuffer == null) {
-            myReadBuffer = new ManagedBuffer(myBufferManager);
-        }
-        
-        myReadBuffer.readFrom(myChannel);
-        if (myReadBuffer.getBinaryData().isEmpty()) {
-            return null;
-        }
-        else {
-            BinaryMessage readMessage = myReadBuffer;
-            myReadBuffer = null;
-            return readMessage;
-        }
+        return myFrameDecoder.read(myChannel);
     }
 
 
     /**
-     * Sends the message on the channel.
+     * Queues up the message to be written on the channel.
      */
-    public void send(BinaryMessage message) throws IOException
+    public void send(BinaryMessage message)
     {
-        message.writeTo(myChannel);
+        myPendingWrites.addLast((ManagedBuffer) message);
+    }
+    
+    /**
+     * Returns true if some of the messages are yet to be written on the
+     * channel.
+     */
+    public boolean hasPendingWrites()
+    {
+        return !myPendingWrites.isEmpty();
+    }
+    
+    /**
+     * Writes the queued up messages on the channel till all of them are
+     * written or the channel can't accept any more data. Returns the 
+     * number of bytes written.
+     */
+    public long flush() throws IOException
+    {
+        long totalWritten = 0L;
+        while (!myPendingWrites.isEmpty()) {
+            int count = 0;
+            gather:
+            for (ManagedBuffer message : myPendingWrites) {
+                for (ByteBuffer buffer : message.getBinaryData()) {
+                    if (count == myGatheredBuffers.length) {
+                        break gather;
+                    }
+                    if (buffer.hasRemaining()) {
+                        myGatheredBuffers[count++] = buffer;
+                    }
+                }
+            }
+            
+            long written = myChannel.write(myGatheredBuffers, 0, count);
+            Arrays.fill(myGatheredBuffers, 0, count, null);
+            totalWritten += written;
+            
+            while (   !myPendingWrites.isEmpty() 
+                   && !myPendingWrites.peekFirst().hasRemaining())
+            {
+                myPendingWrites.removeFirst().free();
+            }
+            if (written == 0L) {
+                // The socket's send buffer is full.
+                break;
+            }
+        }
+        return totalWritten;
     }
 
     /**
@@ -0,0 +1,210 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hit.io.buffer.BufferManager;
+import org.hit.io.buffer.ManagedBuffer;
+
+/**
+ * Splits the bytes read from a channel into the frames written by the 
+ * serializer, each of which is a message prefixed by it's size as a 
+ * four byte int. 
+ * <p>
+ * The bytes are read into the direct buffers of {@link BufferManager} and
+ * the buffers holding the complete frames are handed over as they are. 
+ * Only the bytes of a frame that straddles the boundary, which have to be
+ * retained till the rest of it is read, are copied to a new buffer. The 
+ * buffers are sized to hold the rest of a large frame once it's length
+ * is known.
+ *
+ * @author Balraja Subbiah
+ */
+public class FrameDecoder
+{
+    private static final int LENGTH_SIZE = 4;
+    
+    private final BufferManager myBufferManager;
+    
+    /** 
+     * The buffers holding the bytes read so far, that are yet to be handed
+     * over. The bytes of a buffer are the ones before it's position.
+     */
+    private final List<ByteBuffer> myBuffers;
+    
+    private long myReadBytes;
+    
+    private long myFrameOffset;
+    
+    private long myRequiredBytes;
+
+    /**
+     * CTOR
+     */
+    public FrameDecoder(BufferManager bufferManager)
+    {
+        myBufferManager = bufferManager;
+        myBuffers = new ArrayList<>();
+        myReadBytes = 0L;
+        myFrameOffset = 0L;
+        myRequiredBytes = 0L;
+    }
+    
+    /**
+     * Reads the bytes available on the channel and returns the complete 
+     * frames read so far as a {@link ManagedBuffer}, or null if none of 
+     * the frames are complete.
+     */
+    public ManagedBuffer read(ReadableByteChannel channel) throws IOException
+    {
+        int read;
+        ByteBuffer buffer;
+        do {
+            buffer = writableBuffer();
+            read = channel.read(buffer);
+            if (read > 0) {
+                myReadBytes += read;
+            }
+        }
+        while (read > 0 && !buffer.hasRemaining());
+        
+        if (read < 0) {
+            throw new EOFException("The channel has been closed by the peer");
+        }
+        
+        while (myFrameOffset + LENGTH_SIZE <= myReadBytes) {
+            int length = getInt(myFrameOffset);
+            if (length < 0) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            long frameEnd = myFrameOffset + LENGTH_SIZE + length;
+            if (frameEnd > myReadBytes) {
+                myRequiredBytes = frameEnd - myReadBytes;
+                break;
+            }
+            myFrameOffset = frameEnd;
+            myRequiredBytes = 0L;
+        }
+        
+        return myFrameOffset > 0L ? removeFrames() : null;
+    }
+    
+    /** 
+     * Returns the buffer into which the bytes are to be read, allocating 
+     * one that can hold the rest of the current frame when the last one 
+     * is full.
+     */
+    private ByteBuffer writableBuffer()
+    {
+        ByteBuffer last = 
+            myBuffers.isEmpty() ? null : myBuffers.get(myBuffers.size() - 1);
+        if (last == null || !last.hasRemaining()) {
+            last = myBufferManager.allocate(
+                (int) Math.min(Math.max(myRequiredBytes, 
+                                        BufferManager.BUFFER_SIZE),
+                               BufferManager.MAX_BUFFER_SIZE));
+            myBuffers.add(last);
+        }
+        return last;
+    }
+    
+    /** Returns the big endian int starting at the given offset */
+    private int getInt(long offset)
+    {
+        int value = 0;
+        int index = 0;
+        long bufferOffset = 0L;
+        for (int i = 0; i < LENGTH_SIZE; i++) {
+            while (offset + i >= bufferOffset + myBuffers.get(index).position())
+            {
+                bufferOffset += myBuffers.get(index).position();
+                index++;
+            }
+            value = (value << 8) 
+                    | (myBuffers.get(index).get((int) (offset + i - bufferOffset))
+                       & 0xFF);
+        }
+        return value;
+    }
+    
+    /**
+     * Removes the bytes of the complete frames from the buffers and wraps
+     * them in a {@link ManagedBuffer}.
+     */
+    private ManagedBuffer removeFrames()
+    {
+        List<ByteBuffer> frames = new ArrayList<>();
+        long remaining = myFrameOffset;
+        while (remaining > 0L) {
+            ByteBuffer buffer = myBuffers.remove(0);
+            int filled = buffer.position();
+            if (filled <= remaining) {
+                buffer.flip();
+                frames.add(buffer);
+                remaining -= filled;
+            }
+            else {
+                // Retain the partial frame at the end of the buffer in a
+                // new one, that can also hold the rest of it.
+                int boundary = (int) remaining;
+                int partial = filled - boundary;
+                ByteBuffer retained = 
+                    myBufferManager.allocate(
+                        (int) Math.min(
+                            Math.max(
+                                partial + (myBuffers.isEmpty() ? 
+                                              myRequiredBytes : 0L),
+                                BufferManager.BUFFER_SIZE),
+                            BufferManager.MAX_BUFFER_SIZE));
+                buffer.limit(filled);
+                buffer.position(boundary);
+                retained.put(buffer);
+                myBuffers.add(0, retained);
+                
+                buffer.position(0);
+                buffer.limit(boundary);
+                frames.add(buffer);
+                remaining = 0L;
+            }
+        }
+        
+        myReadBytes -= myFrameOffset;
+        myFrameOffset = 0L;
+        return new ManagedBuffer(myBufferManager, frames);
+    }
+    
+    /**
+     * Releases the buffers holding the partial frame.
+     */
+    public void close()
+    {
+        if (!myBuffers.isEmpty()) {
+            myBufferManager.free(myBuffers);
+            myBuffers.clear();
+        }
+    }
+}
@@ -26,26 +26,29 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.hit.communicator.BinaryMessage;
 import org.hit.communicator.Communicator;
 import org.hit.communicator.CommunicatorException;
 import org.hit.communicator.Message;
 import org.hit.communicator.MessageHandler;
 import org.hit.communicator.NodeID;
 import org.hit.communicator.SerializerFactory;
-import org.hit.concurrent.CloseableLock;
 import org.hit.io.buffer.BufferManager;
 import org.hit.util.LogFactory;
 import org.hit.util.NamedThreadFactory;
@@ -57,6 +60,13 @@ import com.google.inject.name.Named;
  * Implements <code>Communicator</code> using NIO's nonblocking channels. By
  * default it binds to the IpAddress specified via {@link IPNodeID}
  *  and starts listening for incoming connections.
+ * <p>
+ * The incoming connections are accepted on a dedicated thread and the 
+ * sessions are pinned, in a round robin fashion, to one of the 
+ * {@link Reactor}s that read from and write to them. The data read from
+ * a session is decoded and dispatched to the handlers on one of the 
+ * dispatcher threads, which is again fixed per session to preserve the 
+ * order of the messages received on it.
  *
  * @author Balraja Subbiah
  */
@@ -75,27 +85,35 @@ public class NIOCommunicator implements Communicator
 
     private final IPNodeID myId;
 
-    private final Map<NodeID, SelectionKey> myIdSelectKeyMap;
+    private final ConcurrentMap<NodeID, Session> myIdSessionMap;
 
-    private final ExecutorService mySelectableExecutor;
+    private final ExecutorService myAcceptorExecutor;
 
-    private final Selector mySelector;
+    private final Selector myAcceptSelector;
+    
+    private final Reactor[] myReactors;
+    
+    private final ExecutorService myReactorExecutor;
+    
+    private final ExecutorService[] myDispatchers;
+    
+    private final AtomicInteger myNextReactor;
 
     private final SerializerFactory mySerializerFactory;
 
     private final ServerSocketChannel myServerSocketChannel;
 
-    private final CloseableLock mySessionMapLock;
-
     private final AtomicBoolean myShouldStop;
     
     private final BufferManager myBufferManager;
     
+    private final long myMaxPendingBytes;
+    
     /**
-     * A simple task to take care of selecting keys from the selector and
-     * scheduling tasks for further work.
+     * A simple task to take care of accepting the incoming connections and
+     * handing them over to the reactors.
      */
-    private class SelectTask implements Runnable
+    private class AcceptTask implements Runnable
     {
         /**
          * {@inheritDoc}
@@ -103,83 +121,165 @@ public class NIOCommunicator implements Communicator
         @Override
         public void run()
         {
-            LOG.info("The NIO selector has been started");
+            LOG.info("The NIO acceptor has been started");
             while (!myShouldStop.get()) {
                 try {
-                    int n = mySelector.select(SELECTION_WAIT_TIME_MILLIS);
+                    int n = myAcceptSelector.select(SELECTION_WAIT_TIME_MILLIS);
                     if (n == 0) {
                         continue;
                     }
-                    Set<SelectionKey> selectedKeys = mySelector.selectedKeys();
-                    Iterator<SelectionKey> keyIterator = selectedKeys.iterator();
-
-                    while(keyIterator.hasNext()) {
-
+                    Iterator<SelectionKey> keyIterator = 
+                        myAcceptSelector.selectedKeys().iterator();
+                    while (keyIterator.hasNext()) {
                         SelectionKey sKey = keyIterator.next();
-
-                        if (!sKey.isValid()) {
+                        keyIterator.remove();
+                        if (!sKey.isValid() || !sKey.isAcceptable()) {
+                            continue;
+                        }
+                        
+                        ServerSocketChannel serverSocketChannel =
+                            (ServerSocketChannel) sKey.channel();
+                        SocketChannel channel = serverSocketChannel.accept();
+                        if (channel == null) {
                             continue;
                         }
 
-                        if (sKey.isAcceptable()) {
-
-                            ServerSocketChannel serverSocketChannel =
-                                (ServerSocketChannel) sKey.channel();
-
-                            SocketChannel channel = serverSocketChannel.accept();
-
-                            if (channel == null) {
-                                continue;
-                            }
+                        if (LOG.isLoggable(Level.FINE)) {
+                            LOG.fine("Acceping connection from "
+                                     + channel.getRemoteAddress());
+                        }
 
-                            if (LOG.isLoggable(Level.FINE)) {
-                                LOG.fine("Acceping connection from "
-                                         + channel.getRemoteAddress());
-                            }
+                        channel.configureBlocking(false);
+                        Session session =
+                            new Session(channel,
+                                        mySerializerFactory.makeSerializer(),
+                                        myBufferManager,
+                                        myMaxPendingBytes);
+                        nextReactor().register(
+                            channel, session, SelectionKey.OP_READ);
+                    }
+                }
+                catch (Throwable e)
+                {
+                    LOG.log(Level.SEVERE, e.getMessage(), e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Selects the sessions pinned to it for reading and writing. The 
+     * channels are registered with the selector on the reactor's thread, 
+     * as registering from other threads blocks while it's selecting.
+     */
+    private class Reactor implements Runnable
+    {
+        private final Selector mySelector;
+        
+        private final Queue<Runnable> myPendingRegistrations;
+        
+        /**
+         * CTOR
+         */
+        public Reactor() throws IOException
+        {
+            mySelector = Selector.open();
+            myPendingRegistrations = new ConcurrentLinkedQueue<>();
+        }
+        
+        /**
+         * Registers the channel of the given session with this reactor.
+         */
+        public void register(final SocketChannel channel, 
+                             final Session       session,
+                             final int           operations)
+        {
+            myPendingRegistrations.offer(new Runnable() {
+                @Override
+                public void run()
+                {
+                    try {
+                        SelectionKey key = 
+                            channel.register(mySelector, operations);
+                        key.attach(session);
+                        session.setSelectionKey(key);
+                    }
+                    catch (IOException e) {
+                        LOG.log(Level.SEVERE, e.getMessage(), e);
+                        closeSession(session);
+                    }
+                }
+            });
+            mySelector.wakeup();
+        }
+        
+        /**
+         * Closes the selector of this reactor.
+         */
+        public void close() throws IOException
+        {
+            mySelector.close();
+        }
 
-                            channel.configureBlocking(false);
-                            Session session =
-                                    new Session(channel,
-                                                mySerializerFactory.makeSerializer(),
-                                                myBufferManager);
-                            SelectionKey key =
-                                channel.register(mySelector,
-                                                 SelectionKey.OP_READ);
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            LOG.info("The NIO reactor has been started");
+            while (!myShouldStop.get()) {
+                try {
+                    Runnable registration;
+                    while ((registration = myPendingRegistrations.poll()) 
+                              != null)
+                    {
+                        registration.run();
+                    }
+                    
+                    int n = mySelector.select(SELECTION_WAIT_TIME_MILLIS);
+                    if (n == 0) {
+                        continue;
+                    }
+                    Set<SelectionKey> selectedKeys = mySelector.selectedKeys();
+                    Iterator<SelectionKey> keyIterator = selectedKeys.iterator();
 
-                            key.attach(session);
+                    while(keyIterator.hasNext()) {
+                        SelectionKey sKey = keyIterator.next();
+                        // It's very important to remove the keys
+                        // after processing. Otherwise channel
+                        // will not be selected next time.
+                        keyIterator.remove();
+                        Session session = (Session) sKey.attachment();
+                        if (!sKey.isValid() || session == null) {
+                            continue;
                         }
-                        else if (sKey.isWritable()) {
-                            Session session = (Session) sKey.attachment();
-                            if (session != null) {
+                        try {
+                            if (sKey.isWritable()) {
                                 session.write();
                             }
-                        }
-                        else if (sKey.isReadable()) {
-                            if (LOG.isLoggable(Level.FINEST)) {
-                                LOG.finest("The channel "
-                                           + sKey.channel() + " is readable");
-                            }
-                            Session session = (Session) sKey.attachment();
-                            if (session != null) {
-                                Collection<Message> messages = session.readMessage();
-                                if (messages == null) {
-                                    continue;
+                            if (sKey.isReadable()) {
+                                if (LOG.isLoggable(Level.FINEST)) {
+                                    LOG.finest("The channel "
+                                               + sKey.channel() 
+                                               + " is readable");
                                 }
-                                for (Message message : messages) {
-                                    if (message == null) {
-                                        continue;
-                                    }
-                                    for (MessageHandler handler : myHandlers)
-                                    {
-                                        handler.handle(message);
-                                    }
+                                BinaryMessage binaryMessage = 
+                                    session.readBinaryMessage();
+                                if (binaryMessage != null) {
+                                    dispatcherOf(session).execute(
+                                        new DispatchTask(session, 
+                                                         binaryMessage));
                                 }
                             }
                         }
-                        // It's very important to remove the keys
-                        // after processing. Otherwise channel
-                        // will not be selected next time.
-                        keyIterator.remove();
+                        catch (CommunicatorException e) {
+                            LOG.log(Level.SEVERE, 
+                                    "Closing the session " + session, 
+                                    e);
+                            sKey.cancel();
+                            closeSession(session);
+                        }
                     }
                 }
                 catch (Throwable e)
@@ -189,34 +289,127 @@ public class NIOCommunicator implements Communicator
             }
         }
     }
+    
+    /**
+     * A task to decode the data read from a session and to dispatch the 
+     * messages to the handlers.
+     */
+    private class DispatchTask implements Runnable
+    {
+        private final Session mySession;
+        
+        private final BinaryMessage myBinaryMessage;
+        
+        /**
+         * CTOR
+         */
+        public DispatchTask(Session session, BinaryMessage binaryMessage)
+        {
+            mySession = session;
+            myBinaryMessage = binaryMessage;
+        }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            try {
+                for (Message message : mySession.parse(myBinaryMessage)) {
+                    if (message == null) {
+                        continue;
+                    }
+                    for (MessageHandler handler : myHandlers) {
+                        handler.handle(message);
+                    }
+                }
+            }
+            catch (Throwable e) {
+                LOG.log(Level.SEVERE, e.getMessage(), e);
+            }
+        }
+    }
 
     /** CTOR */
-    @Inject
     public NIOCommunicator(SerializerFactory  factory,
-                           @Named("communicator")
                            BufferManager      bufferManager,
                            NodeID             nodeID)
+    {
+        this(factory, 
+             bufferManager, 
+             nodeID, 
+             new NIOCommunicatorPropertyConfig());
+    }
+
+    /** CTOR */
+    @Inject
+    public NIOCommunicator(SerializerFactory     factory,
+                           @Named("communicator")
+                           BufferManager         bufferManager,
+                           NodeID                nodeID,
+                           NIOCommunicatorConfig config)
     {
         try {
             myServerSocketChannel = ServerSocketChannel.open();
-            mySelector = Selector.open();
+            myAcceptSelector = Selector.open();
             mySerializerFactory = factory;
-            myHandlers = new ArrayList<>();
+            myHandlers = new CopyOnWriteArrayList<>();
             myId       = (IPNodeID) nodeID;
-            mySelectableExecutor =
+            myAcceptorExecutor =
                 Executors.newSingleThreadExecutor(
                     new NamedThreadFactory(NIOCommunicator.class, true));
+            
+            myReactors = new Reactor[Math.max(1, config.getReactorCount())];
+            for (int i = 0; i < myReactors.length; i++) {
+                myReactors[i] = new Reactor();
+            }
+            myReactorExecutor = 
+                Executors.newFixedThreadPool(
+                    myReactors.length, 
+                    new NamedThreadFactory(Reactor.class, true));
+            
+            myDispatchers = 
+                new ExecutorService[Math.max(1, config.getDispatcherCount())];
+            for (int i = 0; i < myDispatchers.length; i++) {
+                myDispatchers[i] = 
+                    Executors.newSingleThreadExecutor(
+                        new NamedThreadFactory(DispatchTask.class, true));
+            }
+            myNextReactor = new AtomicInteger(0);
             myShouldStop = new AtomicBoolean(false);
-            mySessionMapLock = new CloseableLock(new ReentrantLock());
-            myIdSelectKeyMap = new ConcurrentHashMap<>();
+            myIdSessionMap = new ConcurrentHashMap<>();
             myBufferManager = bufferManager;
+            myMaxPendingBytes = config.getMaxPendingBytesPerSession();
         }
         catch (IOException e) {
             LOG.log(Level.SEVERE, e.getMessage(), e);
             throw new RuntimeException(e);
         }
     }
+    
+    private Reactor nextReactor()
+    {
+        int index = myNextReactor.getAndIncrement() % myReactors.length;
+        return myReactors[index < 0 ? index + myReactors.length : index];
+    }
+    
+    private ExecutorService dispatcherOf(Session session)
+    {
+        int index = session.getSessionID() % myDispatchers.length;
+        return myDispatchers[index < 0 ? index + myDispatchers.length 
+                                       : index];
+    }
+    
+    private void closeSession(Session session)
+    {
+        session.close();
+        for (Map.Entry<NodeID, Session> entry : myIdSessionMap.entrySet()) {
+            if (entry.getValue() == session) {
+                myIdSessionMap.remove(entry.getKey(), session);
+            }
+        }
+    }
 
     /**
      * {@inheritDoc}
@@ -237,40 +430,44 @@ public class NIOCommunicator implements Communicator
             LOG.fine("Sending message " + m + " to node "  + node);
         }
         
-        try (CloseableLock lock = mySessionMapLock.open()) {
-            
-            SelectionKey selectionKey = myIdSelectKeyMap.get(node);
-            if (selectionKey == null) {
+        Session session = myIdSessionMap.get(node);
+        if (session == null) {
+            try {
                 LOG.info("Creating new session for " + node);
                 SocketChannel socketChannel =
                     SocketChannel.open(((IPNodeID) node).getIPAddress());
                 socketChannel.configureBlocking(false);
-                Session session =
+                Session newSession =
                     new Session(socketChannel,
                                 mySerializerFactory.makeSerializer(),
                                 myBufferManager,
-                                m);
-                selectionKey =
-                    socketChannel.register(mySelector,
-                                           SelectionKey.OP_READ
-                                           | SelectionKey.OP_WRITE);
-                
-                selectionKey.attach(session);
-                myIdSelectKeyMap.put(node, selectionKey);
+                                myMaxPendingBytes);
+                session = myIdSessionMap.putIfAbsent(node, newSession);
+                if (session == null) {
+                    session = newSession;
+                    // It's selected for writing once a message is cached.
+                    nextReactor().register(socketChannel,
+                                           session,
+                                           SelectionKey.OP_READ);
+                }
+                else {
+                    // Lost the race to another sender.
+                    newSession.close();
+                }
             }
-                
-            if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("Adding message to the cache");
+            catch(IOException e) {
+                throw new CommunicatorException(e);
             }
+        }
             
-            Session session = (Session) selectionKey.attachment();
-            session.cacheForWrite(m);
-            if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("Successfully added message to the cache");
-            }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Adding message to the cache");
         }
-        catch(IOException e) {
-            throw new CommunicatorException(e);
+        
+        // Waits if the session has too many messages to be written.
+        session.cacheForWrite(m);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Successfully added message to the cache");
         }
     }
 
@@ -283,12 +480,17 @@ public class NIOCommunicator implements Communicator
             ServerSocket serverSocket = myServerSocketChannel.socket();
             serverSocket.bind(myId.getIPAddress());
             myServerSocketChannel.configureBlocking(false);
-            myServerSocketChannel.register(mySelector,
+            myServerSocketChannel.register(myAcceptSelector,
                                            SelectionKey.OP_ACCEPT);
             LOG.info("Bound server to the address "
                      + myId.getIPAddress());
             
-            mySelectableExecutor.execute(new SelectTask());
+            for (Reactor reactor : myReactors) {
+                myReactorExecutor.execute(reactor);
+            }
+            myAcceptorExecutor.execute(new AcceptTask());
+            LOG.info("Started " + myReactors.length + " reactors and " 
+                     + myDispatchers.length + " dispatchers");
         }
         catch (IOException e) {
             LOG.log(Level.SEVERE, e.getMessage(), e);
@@ -306,14 +508,18 @@ public class NIOCommunicator implements Communicator
                  myId.getIPAddress());
         try {
             myShouldStop.set(true);
-            mySelectableExecutor.shutdownNow();
-            mySelector.close();
+            myAcceptorExecutor.shutdownNow();
+            myReactorExecutor.shutdownNow();
+            for (ExecutorService dispatcher : myDispatchers) {
+                dispatcher.shutdownNow();
+            }
+            myAcceptSelector.close();
+            for (Reactor reactor : myReactors) {
+                reactor.close();
+            }
             myServerSocketChannel.close();
-            for (SelectionKey key : myIdSelectKeyMap.values()) {
-                Session session = (Session) key.attachment();
-                if (session != null) {
-                    session.close();
-                }
+            for (Session session : myIdSessionMap.values()) {
+                session.close();
             }
         }
         catch (IOException e) {
@@ -0,0 +1,49 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.nio;
+
+/**
+ * Defines the configuration for the threads used by the 
+ * {@link NIOCommunicator}.
+ * 
+ * @author Balraja Subbiah
+ */
+public interface NIOCommunicatorConfig
+{
+    /**
+     * Returns the number of threads that select the sessions for 
+     * reading and writing.
+     */
+    public int getReactorCount();
+    
+    /**
+     * Returns the number of threads that decode the received messages 
+     * and dispatch them to the handlers.
+     */
+    public int getDispatcherCount();
+    
+    /**
+     * Returns the maximum number of serialized bytes that can be waiting 
+     * to be written on a session, beyond which the senders are made to 
+     * wait.
+     */
+    public long getMaxPendingBytesPerSession();
+}
@@ -0,0 +1,82 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.nio;
+
+import org.hit.util.ApplicationProperties;
+
+/**
+ * Implements {@link NIOCommunicatorConfig} by reading values from the
+ * <code>ApplicationProperties</code>. The number of threads defaults to 
+ * the number of available processors.
+ * 
+ * @author Balraja Subbiah
+ */
+public class NIOCommunicatorPropertyConfig implements NIOCommunicatorConfig
+{
+    private static final String REACTOR_COUNT_PROPERTY = 
+        "org.hit.communicator.reactorCount";
+    
+    private static final String DISPATCHER_COUNT_PROPERTY = 
+        "org.hit.communicator.dispatcherCount";
+    
+    private static final String MAX_PENDING_BYTES_PROPERTY = 
+        "org.hit.communicator.maxPendingBytesPerSession";
+    
+    private static final long DEFAULT_MAX_PENDING_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getReactorCount()
+    {
+        String reactorCount = 
+            ApplicationProperties.getProperty(REACTOR_COUNT_PROPERTY);
+        return reactorCount != null 
+            ? Integer.parseInt(reactorCount)
+            : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDispatcherCount()
+    {
+        String dispatcherCount = 
+            ApplicationProperties.getProperty(DISPATCHER_COUNT_PROPERTY);
+        return dispatcherCount != null 
+            ? Integer.parseInt(dispatcherCount)
+            : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxPendingBytesPerSession()
+    {
+        String maxPendingBytes = 
+            ApplicationProperties.getProperty(MAX_PENDING_BYTES_PROPERTY);
+        return maxPendingBytes != null ? Long.parseLong(maxPendingBytes)
+                                       : DEFAULT_MAX_PENDING_BYTES;
+    }
+}
@@ -21,10 +21,14 @@
 package org.hit.communicator.nio;
 
 import java.io.IOException;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.Collection;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,10 +37,18 @@ import org.hit.communicator.CommunicatorException;
 import org.hit.communicator.Message;
 import org.hit.communicator.MessageSerializer;
 import org.hit.io.buffer.BufferManager;
+import org.hit.io.buffer.ManagedBuffer;
 import org.hit.util.LogFactory;
 
 /**
  * Defines the contract for a communication session open with other node.
+ * <p>
+ * The messages are serialized by the threads that send them and are 
+ * written by the reactor that selects this session. The session is 
+ * selected for writing only while there are messages to be written. 
+ * When the serialized messages waiting to be written exceed the 
+ * configured limit, the senders are made to wait till the reactor 
+ * catches up.
  *
  * @author Balraja Subbiah
  */
@@ -44,54 +56,160 @@ public class Session
 {
     private static final Logger LOG =
         LogFactory.getInstance().getLogger(Session.class);
+    
+    private static final AtomicInteger ourSessionCounter = 
+        new AtomicInteger(0);
+    
+    /** The time to wait before checking whether the session is closed */
+    private static final long BACKPRESSURE_WAIT_MILLIS = 100L;
 
-    private final Queue<Message> myBufferredMessages;
+    private final Queue<BinaryMessage> myBufferredMessages;
 
     private final Connection myConnection;
 
     private final MessageSerializer mySerializer;
     
+    private final int mySessionID;
+    
+    private final long myMaxPendingBytes;
+    
+    private final AtomicLong myPendingBytes;
+    
+    private final AtomicBoolean myWriteScheduled;
+    
+    private final Object myBackpressureMonitor;
+    
+    private volatile SelectionKey mySelectionKey;
+    
+    private volatile boolean myClosed;
+    
     /**
      * CTOR
+     * 
+     * @param maxPendingBytes The maximum number of serialized bytes that
+     *                        can be waiting to be written.
      */
     public Session(SocketChannel     socketChannel,
                    MessageSerializer serializer,
-                   BufferManager      bufferManager)
+                   BufferManager     bufferManager,
+                   long              maxPendingBytes)
     {
         myConnection = new Connection(socketChannel, bufferManager);
         mySerializer = serializer;
         myBufferredMessages = new ConcurrentLinkedQueue<>();
+        mySessionID = ourSessionCounter.getAndIncrement();
+        myMaxPendingBytes = maxPendingBytes;
+        myPendingBytes = new AtomicLong(0L);
+        myWriteScheduled = new AtomicBoolean(false);
+        myBackpressureMonitor = new Object();
+        mySelectionKey = null;
+        myClosed = false;
     }
     
     /**
-     * CTOR
+     * Returns the id that uniquely identifies this session within the
+     * process.
      */
-    public Session(SocketChannel     socketChannel,
-                   MessageSerializer serializer,
-                   BufferManager     manager,
-                   Message           message)
+    public int getSessionID()
+    {
+        return mySessionID;
+    }
+    
+    /**
+     * Returns the number of serialized bytes waiting to be written.
+     */
+    public long getPendingBytes()
     {
-        this(socketChannel, serializer, manager);
-        myBufferredMessages.add(message);
+        return myPendingBytes.get();
+    }
+    
+    /**
+     * Sets the key with which the session is registered with a reactor's
+     * selector. It's selected for writing if messages are waiting already.
+     */
+    public void setSelectionKey(SelectionKey key)
+    {
+        mySelectionKey = key;
+        if (myWriteScheduled.get()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            key.selector().wakeup();
+        }
     }
 
     /**
-     * Adds to the write cache.
+     * Serializes the message and adds it to the write cache. Waits while
+     * the messages yet to be written exceed the allowed limit.
      */
-    public void cacheForWrite(Message message)
+    public void cacheForWrite(Message message) throws CommunicatorException
     {
-        myBufferredMessages.offer(message);
+        BinaryMessage binaryMessage = mySerializer.serialize(message);
+        if (binaryMessage == null) {
+            throw new CommunicatorException(
+                new IOException("Unable to serialize " + message));
+        }
+        long size = ((ManagedBuffer) binaryMessage).getSize();
+        synchronized (myBackpressureMonitor) {
+            // A message that's larger than the limit is let through when 
+            // nothing else is waiting.
+            while (   myPendingBytes.get() > 0L 
+                   && myPendingBytes.get() + size > myMaxPendingBytes)
+            {
+                if (myClosed) {
+                    ((ManagedBuffer) binaryMessage).free();
+                    throw new CommunicatorException(
+                        new IOException(this + " is closed"));
+                }
+                try {
+                    myBackpressureMonitor.wait(BACKPRESSURE_WAIT_MILLIS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ((ManagedBuffer) binaryMessage).free();
+                    throw new CommunicatorException(e);
+                }
+            }
+            myPendingBytes.addAndGet(size);
+        }
+        myBufferredMessages.offer(binaryMessage);
+        scheduleWrite();
+    }
+    
+    private void scheduleWrite()
+    {
+        if (myWriteScheduled.compareAndSet(false, true)) {
+            SelectionKey key = mySelectionKey;
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                key.selector().wakeup();
+            }
+        }
+    }
+    
+    private void releasePendingBytes(long written)
+    {
+        myPendingBytes.addAndGet(-written);
+        synchronized (myBackpressureMonitor) {
+            myBackpressureMonitor.notifyAll();
+        }
     }
 
     /** Closes the session with remote node */
     public void close()
     {
+        myClosed = true;
         try {
             myConnection.close();
         }
         catch (IOException e) {
             LOG.log(Level.SEVERE, e.getMessage(), e);
         }
+        BinaryMessage binaryMessage;
+        while ((binaryMessage = myBufferredMessages.poll()) != null) {
+            ((ManagedBuffer) binaryMessage).free();
+        }
+        synchronized (myBackpressureMonitor) {
+            myBackpressureMonitor.notifyAll();
+        }
     }
 
     /**
@@ -110,44 +228,64 @@ public class Session
     }
 
     /**
-     * Reads the <code>Message</code> published by the target node from the
-     * underlying session.
+     * Reads the data published by the target node from the underlying 
+     * session. Returns null if the data read so far doesn't make up a 
+     * <code>BinaryMessage</code>.
      */
-    public Collection<Message> readMessage() throws CommunicatorException
+    public BinaryMessage readBinaryMessage() throws CommunicatorException
     {
         try {
-            BinaryMessage binaryMessage  = myConnection.read();
-            return binaryMessage != null ? mySerializer.parse(binaryMessage)
-                                         : null;
+            return myConnection.read();
         }
         catch (IOException e) {
             throw new CommunicatorException(e);
         }
     }
     
+    /**
+     * Decodes the <code>Message</code>s from the data read from the 
+     * underlying session.
+     */
+    public Collection<Message> parse(BinaryMessage binaryMessage)
+    {
+        return mySerializer.parse(binaryMessage);
+    }
+    
     public boolean hasMessagesToBeSent()
     {
-        return !myBufferredMessages.isEmpty();
+        return !myBufferredMessages.isEmpty() 
+               || myConnection.hasPendingWrites();
     }
 
     /**
-     * Writes message to the target node when the channel is selected by
-     * the <code>Selector</code>.
+     * Writes the cached messages to the target node, when the channel is 
+     * selected by the <code>Selector</code>. The session is no longer 
+     * selected for writing once all the messages have been written.
      */
     public void write() throws CommunicatorException
     {
         try {
-            if (myBufferredMessages.isEmpty()) {
-                return;
+            BinaryMessage binaryMessage;
+            while ((binaryMessage = myBufferredMessages.poll()) != null) {
+                myConnection.send(binaryMessage);
             }
             
-            while (!myBufferredMessages.isEmpty()) {
-                Message message = myBufferredMessages.poll();
-                if (message != null) {
-                    myConnection.send(mySerializer.serialize(message));
-                }
-                if (LOG.isLoggable(Level.FINE)) {
-                    LOG.fine("Successfully sent the  " + message);
+            long written = myConnection.flush();
+            if (written > 0L) {
+                releasePendingBytes(written);
+            }
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Wrote " + written + " bytes to " + this);
+            }
+            
+            if (!myConnection.hasPendingWrites()) {
+                SelectionKey key = mySelectionKey;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                myWriteScheduled.set(false);
+                // Reschedule if a message has been cached after the queue
+                // has been drained.
+                if (!myBufferredMessages.isEmpty()) {
+                    scheduleWrite();
                 }
             }
         }
@@ -43,6 +43,19 @@ public interface HashTable<K,V>
      */
     public Iterator<V> getAllValues();
     
+    /**
+     * Returns the number of buckets in the table. 
+     */
+    public int getBucketCount();
+    
+    /**
+     * Returns the values in the given bucket of the table, as it was when 
+     * it had the given number of buckets. The table grows by doubling it's
+     * buckets, so the values of a bucket stay together as the table grows,
+     * which allows the table to be visited one bucket at a time.
+     */
+    public List<V> getBucket(int bucket, int bucketCount);
+    
     /**
      * Removes the given key value pair from the map.
      */
@@ -248,6 +248,26 @@ public class LocklessHashTable<K,V> implements HashTable<K, V>
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBucketCount()
+    {
+        throw new UnsupportedOperationException(
+            "Bucket wise traversal is not supported");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<V> getBucket(int bucket, int bucketCount)
+    {
+        throw new UnsupportedOperationException(
+            "Bucket wise traversal is not supported");
+    }
+
     /**
      * {@inheritDoc}
      */
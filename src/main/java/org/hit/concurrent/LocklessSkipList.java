@@ -196,18 +196,12 @@ public class LocklessSkipList<K extends Comparable<? super K>,V>
         {
             List<V> result = myNode.getValues();
 
-            Node<K,V> pred = myNode;
-            Node<K,V> curr = null;
-            while (true) {
-                curr = pred.getNext().get(0).getReference();
-                // if the reference is marked just skip through it.
-                if (pred != null && pred.getNext().get(0).isMarked()) {
-                    pred = curr;
-                    continue;
-                }
-                else {
-                    break;
-                }
+            // The node being visited might have been removed meanwhile, 
+            // hence only the nodes following it which have been marked 
+            // for removal are skipped.
+            Node<K,V> curr = myNode.getNext().get(0).getReference();
+            while (curr != null && curr.getNext().get(0).isMarked()) {
+                curr = curr.getNext().get(0).getReference();
             }
             myNode = curr;
             return result;
@@ -295,59 +289,48 @@ public class LocklessSkipList<K extends Comparable<? super K>,V>
             preds.add(null);
             succs.add(null);
         }
-        boolean isThere = find(key, preds, succs);
-        if (isThere) {
-           succs.get(0).getValues().add(value);
-           myCount.incrementAndGet();
-        }
-        else {
+        
+        while (true) {
+            if (find(key, preds, succs)) {
+                succs.get(0).getValues().add(value);
+                break;
+            }
             
-            boolean myShouldFindAgain = false;
-            Node<K,V> newNode = null;
-            do {
-                if (myShouldFindAgain) {
-                    find(key, preds, succs);
-                    myShouldFindAgain = false;
-                    newNode = null;
-                }
-                
-                int nodeLevel = 
-                    Math.abs(myLocalRandom.get().nextInt()) % myListLevel;
-                newNode = new Node<>(key, value, nodeLevel, myListLevel);
-                for (int i = 0; i < nodeLevel; i++) {
-                    newNode.getNext()
-                           .get(i)
-                           .compareAndSet(null, succs.get(i), false, false);
-                }
-    
-                if (!preds.get(0)
-                          .getNext()
-                          .get(0)
-                          .compareAndSet(succs.get(0), newNode, false, false))
+            // Every node is linked at the bottom level, which defines the
+            // linearization point for add.
+            int nodeLevel = 
+                1 + (myLocalRandom.get().nextInt() & Integer.MAX_VALUE) 
+                        % myListLevel;
+            Node<K,V> newNode = new Node<>(key, value, nodeLevel, myListLevel);
+            for (int i = 0; i < nodeLevel; i++) {
+                newNode.getNext().get(i).set(succs.get(i), false);
+            }
+            
+            if (!preds.get(0)
+                      .getNext()
+                      .get(0)
+                      .compareAndSet(succs.get(0), newNode, false, false))
+            {
+                continue;
+            }
+            
+            // The node is already in the list, so linking it at the
+            // upper levels is retried till it succeeds instead of adding
+            // the node again.
+            for (int i = 1; i < nodeLevel; i++) {
+                while (!preds.get(i)
+                             .getNext()
+                             .get(i)
+                             .compareAndSet(succs.get(i), 
+                                            newNode, 
+                                            false, 
+                                            false))
                 {
-                    myShouldFindAgain = true;
-                }
-                else {
-                    for (int i = 1; i < nodeLevel; i++) {
-                        if (!preds.get(i)
-                                  .getNext()
-                                  .get(i)
-                                  .compareAndSet(succs.get(i),
-                                                 newNode,
-                                                 false,
-                                                 false))
-                        {
-                            for (int j = 1; j < i; j++) {
-                                preds.get(i).getNext().get(i).set(succs.get(i),
-                                                                  false);
-                            }
-                            myShouldFindAgain = true;
-                            break;
-                        }
-                    }
+                    find(key, preds, succs);
+                    newNode.getNext().get(i).set(succs.get(i), false);
                 }
-            } while(myShouldFindAgain);
-            
+            }
+            break;
         }
         myCount.incrementAndGet();
     }
@@ -358,37 +341,44 @@ public class LocklessSkipList<K extends Comparable<? super K>,V>
      */
     private boolean find(K key, List<Node<K,V>> preds, List<Node<K,V>> succs)
     {
-        Node<K,V> pred = myHead;
-        for (int level = myListLevel - 1; level >= 0; level--) {
-            boolean[] mark = new boolean[]{false};
-            while (true) {
+        retry:
+        while (true) {
+            Node<K,V> pred = myHead;
+            for (int level = myListLevel - 1; level >= 0; level--) {
+                boolean[] mark = new boolean[]{false};
                 Node<K,V> curr = pred.getNext().get(level).getReference();
-                Node<K,V> succ =
+                while (true) {
+                    Node<K,V> succ =
                         curr != null ? curr.getNext().get(level).get(mark)
                                      : null;
-                if (mark[0]) {
-                    curr.getNext()
-                        .get(level)
-                        .compareAndSet(succ,
-                                       succ.getNext().get(level).getReference(),
-                                       true,
-                                       succ.getNext().get(level).isMarked());
-                    continue;
-                }
+                    if (curr != null && mark[0]) {
+                        // The current node has been marked for removal, 
+                        // so unlink it from it's predecessor. Start over 
+                        // if the predecessor has been changed meanwhile.
+                        if (!pred.getNext()
+                                 .get(level)
+                                 .compareAndSet(curr, succ, false, false))
+                        {
+                            continue retry;
+                        }
+                        curr = succ;
+                        continue;
+                    }
 
-                if (curr != null && curr.getKey().compareTo(key) < 0) {
-                    pred = curr;
-                    curr = curr.getNext().get(level).getReference();
-                }
-                else {
-                    preds.set(level, pred);
-                    succs.set(level, curr);
-                    break;
+                    if (curr != null && curr.getKey().compareTo(key) < 0) {
+                        pred = curr;
+                        curr = succ;
+                    }
+                    else {
+                        preds.set(level, pred);
+                        succs.set(level, curr);
+                        break;
+                    }
                 }
             }
-
+            return    succs.get(0) != null 
+                   && succs.get(0).getKey().compareTo(key) == 0;
         }
-        return succs.get(0) != null && succs.get(0).getKey().compareTo(key) == 0;
     }
 
     /**
@@ -488,6 +478,15 @@ public class LocklessSkipList<K extends Comparable<? super K>,V>
     {
         return new SkipListRangeIterator(start, end);
     }
+    
+    /**
+     * Returns an <code>Iterator</code> over values starting from the given
+     * key till the end of the skip list.
+     */
+    public SkipListIterator lookupValuesFrom(K start)
+    {
+        return new SkipListIterator(lookupNode(start));
+    }
 
     /**
      * Removes the given key value pair from the skip list.
@@ -514,7 +513,9 @@ public class LocklessSkipList<K extends Comparable<? super K>,V>
         }
         else {
             Node<K, V> nodeToBeRemoved = succs.get(0);
-            nodeToBeRemoved.getValues().remove(value);
+            if (!nodeToBeRemoved.getValues().remove(value)) {
+                return false;
+            }
             if (nodeToBeRemoved.getValues().isEmpty()) {
                 for (int i = 1; i < nodeToBeRemoved.getLevel(); i++) {
                     boolean[] marked = new boolean[] {false};
@@ -21,14 +21,18 @@
 package org.hit.concurrent;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicMarkableReference;
 import java.util.concurrent.locks.ReentrantLock;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 
@@ -87,6 +91,16 @@ public class RefinableHashTable<K, V> implements HashTable<K, V>
     }
 
     private int acquireLock(K key)
+    {
+        int tablePos = tryAcquireLock(key);
+        while (tablePos == NO_POSITION) {
+            // The table is being resized or scanned. Retry once it's done.
+            tablePos = tryAcquireLock(key);
+        }
+        return tablePos;
+    }
+
+    private int tryAcquireLock(K key)
     {
         boolean[] mark = new boolean[] { false };
         Thread currentThread = Thread.currentThread();
@@ -116,18 +130,14 @@ public class RefinableHashTable<K, V> implements HashTable<K, V>
     public boolean add(K key, V value)
     {
         int tablePos = acquireLock(key);
-        if (tablePos == NO_POSITION) {
-            return false;
-        }
         ListMultimap<K, V> posData = myData.get(tablePos);
         posData.put(key, value);
+        myCount.incrementAndGet();
         int size = mySize.getAndIncrement();
+        releaseLock(tablePos);
         if (size / myData.size() > THRESHOLD) {
             resize();
         }
-        posData.put(key, value);
-        myCount.incrementAndGet();
-        releaseLock(tablePos);
         return true;
     }
 
@@ -136,35 +146,100 @@ public class RefinableHashTable<K, V> implements HashTable<K, V>
     public List<V> get(K key)
     {
         int tablePos = acquireLock(key);
-        if (tablePos == NO_POSITION) {
-            return null;
-        }
         ListMultimap<K, V> posData = myData.get(tablePos);
-        return posData.get(key);
+        try {
+            // Return a copy as the underlying list is a view that changes
+            // once the lock is released.
+            return new ArrayList<>(posData.get(key));
+        }
+        finally {
+            releaseLock(tablePos);
+        }
     }
 
     /**
      * {@inheritDoc}
      *
-     * Please note that this is a very costly operation to be performed.
+     * The values are copied one bucket at a time as the iterator advances,
+     * so the writers are blocked only on the bucket being copied.
      */
     @Override
     public Iterator<V> getAllValues()
     {
-        ArrayList<V> values = new ArrayList<>();
-        Thread currentThread = Thread.currentThread();
-        if (myOwner.compareAndSet(null, currentThread, false, true)) {
-            // Spin till we acquire all the locks.
-            for (ReentrantLock lock : myLocks) {
-                while (lock.isLocked()) {
+        final int bucketCount = getBucketCount();
+        return new AbstractIterator<V>() {
+            
+            private int myBucket = 0;
+            
+            private Iterator<V> myBucketValues = 
+                Collections.<V>emptyList().iterator();
+            
+            @Override
+            protected V computeNext()
+            {
+                while (!myBucketValues.hasNext()) {
+                    if (myBucket >= bucketCount) {
+                        return endOfData();
+                    }
+                    myBucketValues = 
+                        getBucket(myBucket++, bucketCount).iterator();
                 }
+                return myBucketValues.next();
             }
+        };
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBucketCount()
+    {
+        return myData.size();
+    }
 
-            for (ListMultimap<K, V> multimap : myData) {
-                values.addAll(multimap.values());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<V> getBucket(int bucket, int bucketCount)
+    {
+        while (true) {
+            boolean[] mark = new boolean[] { false };
+            Thread currentThread = Thread.currentThread();
+            Thread owner = myOwner.get(mark);
+            while (owner != null && owner != currentThread && mark[0]) {
+                // Some other thread is resizing. Spin till resizing is over.
+                owner = myOwner.get(mark);
+            }
+            
+            // A bucket of a smaller table is split among the buckets 
+            // having the same remainder when divided by it's size.
+            List<ListMultimap<K, V>> data = myData;
+            List<ReentrantLock> locks = myLocks;
+            SortedSet<Integer> lockPositions = new TreeSet<>();
+            for (int i = bucket; i < data.size(); i += bucketCount) {
+                lockPositions.add(Integer.valueOf(i % locks.size()));
+            }
+            for (Integer lockPosition : lockPositions) {
+                locks.get(lockPosition.intValue()).lock();
+            }
+            try {
+                myOwner.get(mark);
+                if (!mark[0] && myData == data && myLocks == locks) {
+                    List<V> values = new ArrayList<>();
+                    for (int i = bucket; i < data.size(); i += bucketCount) {
+                        values.addAll(data.get(i).values());
+                    }
+                    return values;
+                }
+            }
+            finally {
+                for (Integer lockPosition : lockPositions) {
+                    locks.get(lockPosition.intValue()).unlock();
+                }
             }
         }
-        return values.iterator();
     }
 
     private void releaseLock(int tablePos)
@@ -180,14 +255,12 @@ public class RefinableHashTable<K, V> implements HashTable<K, V>
     public boolean remove(K key, V value)
     {
         int tablePos = acquireLock(key);
-        if (tablePos == NO_POSITION) {
-            return false;
-        }
         ListMultimap<K, V> posData = myData.get(tablePos);
         boolean isRemoved = posData.remove(key, value);
         if (isRemoved) {
             myCount.decrementAndGet();
         }
+        releaseLock(tablePos);
         return isRemoved;
     }
 
@@ -87,4 +87,13 @@ public abstract class AbstractConsensusProtocol implements ConsensusProtocol
     {
         return myIsProposer;
     }
+    
+    /**
+     * Stops the protocol. Most of the protocols don't hold any resources
+     * beyond their state, hence the default implementation does nothing.
+     */
+    @Override
+    public void stop()
+    {
+    }
 }
@@ -20,6 +20,7 @@
 
 package org.hit.consensus;
 
+import java.io.File;
 import java.util.Set;
 
 import org.hit.actors.EventBus;
@@ -61,4 +62,14 @@ public abstract class ConsensusLeader extends AbstractConsensusProtocol
      * Use the protocol to achieve consensus for the given proposal.
      */
     public abstract void getConsensus(Proposal proposal);
+    
+    /**
+     * Notifies the leader that a snapshot of the unit has been taken at 
+     * the given time. The protocols that keep a log can discard the 
+     * proposals captured in the snapshot, hence the default 
+     * implementation does nothing.
+     */
+    public void compactLog(long snapshotTime, File snapshotDirectory)
+    {
+    }
 }
@@ -33,6 +33,8 @@ import org.hit.event.ConsensusRequestEvent;
 import org.hit.event.CreateConsensusAcceptorEvent;
 import org.hit.event.CreateConsensusLeaderEvent;
 import org.hit.event.Event;
+import org.hit.event.LogCompactionEvent;
+import org.hit.event.PeriodicTaskNotification;
 import org.hit.event.ProposalNotificationResponse;
 import org.hit.messages.ConsensusMessage;
 import org.hit.pool.PooledObjects;
@@ -71,6 +73,19 @@ public class ConsensusManager extends Actor
     {
         return unitID.getConsensusType().makeProvider();
     }
+    
+    /**
+     * Registers the given protocol for the unit, stopping the protocol 
+     * it replaces if any.
+     */
+    private void register(UnitID unitID, ConsensusProtocol protocol)
+    {
+        ConsensusProtocol replaced = 
+            myUnitToConsensusProtocolMap.put(unitID, protocol);
+        if (replaced != null) {
+            replaced.stop();
+        }
+    }
 
     /**
      * {@inheritDoc}
@@ -82,7 +97,7 @@ public class ConsensusManager extends Actor
             CreateConsensusLeaderEvent ccle =
                 (CreateConsensusLeaderEvent) event;
             LOG.info("Creating consenus leader for " + ccle.getUnitID());
-            myUnitToConsensusProtocolMap.put(
+            register(
                 ccle.getUnitID(),
                 makeProvider(ccle.getUnitID()).makeLeader(
                     ccle,
@@ -93,7 +108,7 @@ public class ConsensusManager extends Actor
             CreateConsensusAcceptorEvent ccae =
                 (CreateConsensusAcceptorEvent) event;
             LOG.info("Creating consenus acceptor for " + ccae.getUnitID());
-            myUnitToConsensusProtocolMap.put(
+            register(
                 ccae.getUnitID(),
                 makeProvider(ccae.getUnitID()).makeAcceptor(
                     ccae,
@@ -141,12 +156,25 @@ public class ConsensusManager extends Actor
             }
             consensusProtocol.handle(message);
         }
+        else if (event instanceof PeriodicTaskNotification) {
+            PeriodicTaskNotification periodicTaskNotification =
+                (PeriodicTaskNotification) event;
+            periodicTaskNotification.getPeriodicTask().run();
+            PooledObjects.freeInstance(periodicTaskNotification);
+        }
+        else if (event instanceof LogCompactionEvent) {
+            LogCompactionEvent lce = (LogCompactionEvent) event;
+            ConsensusProtocol consensusProtocol = 
+                myUnitToConsensusProtocolMap.get(lce.getUnitID());
+            if (consensusProtocol instanceof ConsensusLeader) {
+                ((ConsensusLeader) consensusProtocol).compactLog(
+                    lce.getSnapshotTime(), lce.getSnapshotDirectory());
+            }
+        }
         else if (event instanceof ChangeAcceptorToLeaderEvent) {
             ChangeAcceptorToLeaderEvent cale = 
                 (ChangeAcceptorToLeaderEvent) event;
-            myUnitToConsensusProtocolMap.remove(
-                cale.getNewCreateLeaderEvent().getUnitID());
-            myUnitToConsensusProtocolMap.put(
+            register(
                 cale.getNewCreateLeaderEvent().getUnitID(),
                 makeProvider(cale.getNewCreateLeaderEvent().getUnitID())
                 .makeLeader(
@@ -172,6 +200,8 @@ public class ConsensusManager extends Actor
                                        getActorID());
         getEventBus().registerForEvent(ProposalNotificationResponse.class,
                                        getActorID());
+        getEventBus().registerForEvent(LogCompactionEvent.class,
+                                       getActorID());
         
     }
 }
@@ -47,4 +47,10 @@ public interface ConsensusProtocol
      * acts as an acceptor.
      */
     public boolean isProposer();
+    
+    /**
+     * Stops the protocol when it's replaced by another one for the same
+     * unit, releasing the resources held by it.
+     */
+    public void stop();
 }
@@ -0,0 +1,35 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus;
+
+/**
+ * Extends {@link Proposal} to support the proposals of changes that have
+ * been committed locally at a known time before being proposed. It lets 
+ * a protocol discard the proposals captured in a snapshot taken after 
+ * that time.
+ * 
+ * @author Balraja Subbiah
+ */
+public interface TimestampedProposal extends Proposal
+{
+    /** Returns the time at which the proposed change has been committed */
+    public long getTimestamp();
+}
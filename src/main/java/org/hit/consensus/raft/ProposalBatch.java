@@ -0,0 +1,163 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hit.consensus.Proposal;
+import org.hit.consensus.TimestampedProposal;
+import org.hit.consensus.UnitID;
+import org.hit.pool.PoolConfiguration;
+import org.hit.pool.Poolable;
+import org.hit.pool.PooledObjects;
+
+/**
+ * Extends {@link Proposal} to support coalescing multiple proposals 
+ * into a single entry of the raft log, so that they are written to the
+ * log and replicated to the followers together.
+ * 
+ * @author Balraja Subbiah
+ */
+@PoolConfiguration(size=1000,initialSize=10)
+public class ProposalBatch implements TimestampedProposal, Poolable
+{
+    private UnitID myUnitID;
+    
+    private final List<Proposal> myProposals;
+    
+    /**
+     * CTOR
+     */
+    public ProposalBatch()
+    {
+        myUnitID = null;
+        myProposals = new ArrayList<>();
+    }
+    
+    /**
+     * Factory method for creating an instance of 
+     * <code>ProposalBatch</code> from the given proposals.
+     */
+    public static ProposalBatch create(UnitID unitID, List<Proposal> proposals)
+    {
+        ProposalBatch batch = PooledObjects.getInstance(ProposalBatch.class);
+        batch.myUnitID = unitID;
+        batch.myProposals.addAll(proposals);
+        return batch;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UnitID getUnitID()
+    {
+        return myUnitID;
+    }
+    
+    /**
+     * Returns the proposals coalesced into this batch.
+     */
+    public List<Proposal> getProposals()
+    {
+        return Collections.unmodifiableList(myProposals);
+    }
+    
+    /**
+     * Returns the latest of the times at which the proposals in this 
+     * batch have been committed. As the time of a proposal that's not
+     * a {@link TimestampedProposal} is not known, the batch containing 
+     * it is never considered to be older than a given time.
+     */
+    @Override
+    public long getTimestamp()
+    {
+        long timestamp = Long.MIN_VALUE;
+        for (Proposal proposal : myProposals) {
+            if (!(proposal instanceof TimestampedProposal)) {
+                return Long.MAX_VALUE;
+            }
+            timestamp = Math.max(
+                timestamp, ((TimestampedProposal) proposal).getTimestamp());
+        }
+        return timestamp;
+    }
+    
+    /**
+     * Returns the number of proposals in this batch.
+     */
+    public int size()
+    {
+        return myProposals.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeObject(myUnitID);
+        out.writeInt(myProposals.size());
+        for (Proposal proposal : myProposals) {
+            out.writeObject(proposal);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        myUnitID = (UnitID) in.readObject();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            myProposals.add((Proposal) in.readObject());
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "ProposalBatch [myUnitID=" + myUnitID + ", mySize=" 
+               + myProposals.size() + "]";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void free()
+    {
+        myUnitID = null;
+        myProposals.clear();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft;
+
+/**
+ * Defines the configuration for coalescing the proposals submitted to 
+ * a {@link RaftLeader} into batches.
+ * 
+ * @author Balraja Subbiah
+ */
+public interface ProposalBatchConfig
+{
+    /**
+     * Returns the maximum time in milliseconds for which a proposal 
+     * waits to be batched with the other proposals.
+     */
+    public int getBatchWindowMillis();
+    
+    /**
+     * Returns the maximum number of proposals to be coalesced into 
+     * a single batch.
+     */
+    public int getMaxBatchSize();
+    
+    /**
+     * Returns the maximum number of batches that can be replicated to the
+     * followers without waiting for them to be committed.
+     */
+    public int getMaxInFlightBatches();
+}
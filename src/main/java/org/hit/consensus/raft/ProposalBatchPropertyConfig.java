@@ -0,0 +1,83 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft;
+
+import org.hit.util.ApplicationProperties;
+
+/**
+ * Implements {@link ProposalBatchConfig} by reading values from the
+ * <code>ApplicationProperties</code>.
+ * 
+ * @author Balraja Subbiah
+ */
+public class ProposalBatchPropertyConfig implements ProposalBatchConfig
+{
+    private static final String BATCH_WINDOW_PROPERTY = 
+        "org.hit.raft.batchWindowInMillis";
+    
+    private static final String MAX_BATCH_SIZE_PROPERTY = 
+        "org.hit.raft.maxBatchSize";
+    
+    private static final String MAX_INFLIGHT_BATCHES_PROPERTY = 
+        "org.hit.raft.maxInFlightBatches";
+    
+    private static final int DEFAULT_BATCH_WINDOW = 2;
+    
+    private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    
+    private static final int DEFAULT_MAX_INFLIGHT_BATCHES = 1024;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBatchWindowMillis()
+    {
+        String window = 
+            ApplicationProperties.getProperty(BATCH_WINDOW_PROPERTY);
+        return window != null ? Integer.parseInt(window)
+                              : DEFAULT_BATCH_WINDOW;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxBatchSize()
+    {
+        String batchSize = 
+            ApplicationProperties.getProperty(MAX_BATCH_SIZE_PROPERTY);
+        return batchSize != null ? Integer.parseInt(batchSize)
+                                 : DEFAULT_MAX_BATCH_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxInFlightBatches()
+    {
+        String inFlightBatches = 
+            ApplicationProperties.getProperty(MAX_INFLIGHT_BATCHES_PROPERTY);
+        return inFlightBatches != null ? Integer.parseInt(inFlightBatches)
+                                       : DEFAULT_MAX_INFLIGHT_BATCHES;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft;
+
+import gnu.trove.list.array.TLongArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.consensus.Proposal;
+import org.hit.consensus.UnitID;
+import org.hit.util.LogFactory;
+
+/**
+ * Coalesces the proposals submitted to a {@link RaftLeader} into 
+ * {@link ProposalBatch}es, so that a single log entry and a single 
+ * replication message is used for all the proposals that arrive within 
+ * the batch window. It also keeps track of the size of the batches and 
+ * the delay added to the proposals while waiting in a batch.
+ * <p>
+ * This class is not thread safe and is expected to be accessed from the
+ * thread that runs the consensus protocol.
+ * 
+ * @author Balraja Subbiah
+ */
+public class ProposalBatcher
+{
+    /** LOGGER */
+    private static final Logger LOG =
+        LogFactory.getInstance().getLogger(ProposalBatcher.class);
+    
+    private final UnitID myUnitID;
+    
+    private final ProposalBatchConfig myConfig;
+    
+    private final List<Proposal> myPendingProposals;
+    
+    private final TLongArrayList myArrivalNanos;
+    
+    private long myFirstArrivalNanos;
+    
+    private long myBatchCount;
+    
+    private long myProposalCount;
+    
+    private long myTotalDelayNanos;
+    
+    private long myMaxDelayNanos;
+    
+    /**
+     * CTOR
+     */
+    public ProposalBatcher(UnitID unitID, ProposalBatchConfig config)
+    {
+        myUnitID = unitID;
+        myConfig = config;
+        myPendingProposals = new ArrayList<>();
+        myArrivalNanos = new TLongArrayList();
+        myFirstArrivalNanos = -1L;
+        myBatchCount = 0L;
+        myProposalCount = 0L;
+        myTotalDelayNanos = 0L;
+        myMaxDelayNanos = 0L;
+    }
+    
+    /**
+     * Adds the given proposal to the current batch. Returns true if the 
+     * batch has reached it's maximum size and has to be drained.
+     */
+    public boolean add(Proposal proposal)
+    {
+        long arrivalNanos = System.nanoTime();
+        if (myPendingProposals.isEmpty()) {
+            myFirstArrivalNanos = arrivalNanos;
+        }
+        myPendingProposals.add(proposal);
+        myArrivalNanos.add(arrivalNanos);
+        return myPendingProposals.size() >= myConfig.getMaxBatchSize();
+    }
+    
+    /**
+     * Returns true if there are enough proposals waiting to make a batch
+     * of the maximum size.
+     */
+    public boolean isFull()
+    {
+        return myPendingProposals.size() >= myConfig.getMaxBatchSize();
+    }
+    
+    /**
+     * Returns true if there are no proposals waiting to be batched.
+     */
+    public boolean isEmpty()
+    {
+        return myPendingProposals.isEmpty();
+    }
+    
+    /**
+     * Returns a {@link ProposalBatch} of the proposals waiting to be 
+     * batched or null if there are no such proposals. A batch has at most
+     * the maximum number of proposals, as the proposals accumulate when 
+     * the replication is held back.
+     */
+    public ProposalBatch drain()
+    {
+        if (myPendingProposals.isEmpty()) {
+            return null;
+        }
+        long delay = System.nanoTime() - myFirstArrivalNanos;
+        List<Proposal> drained = 
+            myPendingProposals.subList(
+                0, 
+                Math.min(myPendingProposals.size(), 
+                         myConfig.getMaxBatchSize()));
+        ProposalBatch batch = ProposalBatch.create(myUnitID, drained);
+        
+        myBatchCount++;
+        myProposalCount += drained.size();
+        myTotalDelayNanos += delay;
+        myMaxDelayNanos = Math.max(myMaxDelayNanos, delay);
+        
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Batched " + drained.size() 
+                     + " proposals for " + myUnitID 
+                     + " after waiting for " 
+                     + TimeUnit.NANOSECONDS.toMicros(delay) + " us."
+                     + " The average batch size is " + getAverageBatchSize()
+                     + " and the average delay is " 
+                     + getAverageDelayMicros() + " us");
+        }
+        
+        myArrivalNanos.remove(0, drained.size());
+        drained.clear();
+        // The delay of the next batch is measured from the arrival of the 
+        // first proposal left behind.
+        myFirstArrivalNanos = 
+            myArrivalNanos.isEmpty() ? -1L : myArrivalNanos.get(0);
+        return batch;
+    }
+    
+    /**
+     * Returns the number of batches drained so far.
+     */
+    public long getBatchCount()
+    {
+        return myBatchCount;
+    }
+    
+    /**
+     * Returns the number of proposals batched so far.
+     */
+    public long getProposalCount()
+    {
+        return myProposalCount;
+    }
+    
+    /**
+     * Returns the average number of proposals per batch.
+     */
+    public double getAverageBatchSize()
+    {
+        return myBatchCount > 0 ? ((double) myProposalCount) / myBatchCount
+                                : 0.0D;
+    }
+    
+    /**
+     * Returns the average time in micro seconds for which the first 
+     * proposal of a batch waited before the batch was drained.
+     */
+    public long getAverageDelayMicros()
+    {
+        return myBatchCount > 0 
+            ? TimeUnit.NANOSECONDS.toMicros(myTotalDelayNanos / myBatchCount)
+            : 0L;
+    }
+    
+    /**
+     * Returns the maximum time in micro seconds for which the first 
+     * proposal of a batch waited before the batch was drained.
+     */
+    public long getMaxDelayMicros()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(myMaxDelayNanos);
+    }
+}
@@ -19,6 +19,7 @@
 */
 package org.hit.consensus.raft;
 
+import gnu.trove.iterator.TLongObjectIterator;
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.procedure.TLongObjectProcedure;
@@ -26,6 +27,9 @@ import gnu.trove.procedure.TLongProcedure;
 import gnu.trove.set.TLongSet;
 import gnu.trove.set.hash.TLongHashSet;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Level;
@@ -38,8 +42,11 @@ import org.hit.communicator.NodeID;
 import org.hit.consensus.ConsensusAcceptor;
 import org.hit.consensus.Proposal;
 import org.hit.consensus.UnitID;
+import org.hit.consensus.raft.log.DurabilityCallback;
 import org.hit.consensus.raft.log.WAL;
+import org.hit.consensus.raft.log.WALConfig;
 import org.hit.consensus.raft.log.WALPropertyConfig;
+import org.hit.event.InstallSnapshotEvent;
 import org.hit.event.ProposalNotificationEvent;
 import org.hit.event.ProposalNotificationResponse;
 import org.hit.event.SendMessageEvent;
@@ -49,6 +56,11 @@ import org.hit.util.LogFactory;
 /**
  * Extends {@link ConsensusAcceptor} to play it's role in the raft protocol
  * to receive and process the replication requests.
+ * <p>
+ * The log is compacted upto the last committed proposal advertised by 
+ * the leader, as the committed proposals have been applied to the 
+ * replicated data. When the acceptor has fallen behind the compacted log 
+ * of the leader, it receives the snapshot of the unit instead.
  * 
  * @author Balraja Subbiah
  */
@@ -59,6 +71,8 @@ public class RaftAcceptor extends ConsensusAcceptor
     private static final Logger LOG =
         LogFactory.getInstance().getLogger(RaftAcceptor.class);
                 
+    private static final String SNAPSHOT_SUFFIX = "_snapshot";
+    
     private long myTermID;
     
     private final TLongObjectMap<TreeMap<Long,Proposal>> myProposalLog;
@@ -67,6 +81,16 @@ public class RaftAcceptor extends ConsensusAcceptor
     
     private final WAL myWAL;
     
+    private final File mySnapshotDirectory;
+    
+    private long myInstallingSnapshotTime;
+    
+    private int myNextSnapshotChunk;
+    
+    private long myDiscardedTermID;
+    
+    private long myDiscardedSeqNo;
+    
     /**
      * CTOR
      */
@@ -80,7 +104,16 @@ public class RaftAcceptor extends ConsensusAcceptor
         super(consensusUnitID, leader, eventBus, myID);
         myTermID = termID;
         myProposalLog = new TLongObjectHashMap<>();
-        myWAL = new WAL(new WALPropertyConfig(consensusUnitID.toString()));
+        WALConfig walConfig = 
+            new WALPropertyConfig(consensusUnitID.toString());
+        myWAL = new WAL(walConfig);
+        mySnapshotDirectory = 
+            new File(walConfig.getBaseDirectoryPath(), 
+                     walConfig.getLogName() + SNAPSHOT_SUFFIX);
+        myInstallingSnapshotTime = Long.MIN_VALUE;
+        myNextSnapshotChunk = 0;
+        myDiscardedTermID = Long.MIN_VALUE;
+        myDiscardedSeqNo = Long.MIN_VALUE;
         myQueuedProposals = new TreeMap<>();
     }
 
@@ -125,8 +158,14 @@ public class RaftAcceptor extends ConsensusAcceptor
                 myProposalLog.put(
                     replicationMessage.getTermID(), seqMap);
             }
-            else {
-                long maxSequenceNumber = seqMap.lastKey();
+            else if (   !seqMap.isEmpty() 
+                     || replicationMessage.getTermID() == myDiscardedTermID)
+            {
+                // The proposals of the term might have been discarded 
+                // upto the one that couldn't be persisted.
+                long maxSequenceNumber = 
+                    seqMap.isEmpty() ? myDiscardedSeqNo - 1 
+                                     : seqMap.lastKey();
                 
                 // Queue up proposal if we receive a request whose  
                 // sequence number is not equal to 1 + the max sequence
@@ -181,21 +220,14 @@ public class RaftAcceptor extends ConsensusAcceptor
                         + replicationMessage.getLastCommittedSeqNo());
             }
             
+            // The proposal is accepted only after it has been synced 
+            // to the disk.
             myWAL.addProposal(
                 replicationMessage.getTermID(),
                 replicationMessage.getSequenceNumber(),
-                replicationMessage.getProposal());
-            
-            getEventBus().publish(
-                ActorID.CONSENSUS_MANAGER,
-                SendMessageEvent.create(
-                    replicationMessage.getSenderId(),
-                    RaftReplicationResponse.create(
-                        getNodeID(),
-                        replicationMessage.getUnitID(),
-                        true,
-                        replicationMessage.getTermID(),
-                        replicationMessage.getSequenceNumber())));
+                replicationMessage.getProposal(),
+                makeDurabilityCallback(replicationMessage.getSenderId(),
+                                       replicationMessage.getUnitID()));
             
             final TreeMap<Long, Proposal> termLog = 
                 myProposalLog.get(
@@ -208,9 +240,7 @@ public class RaftAcceptor extends ConsensusAcceptor
                     if (entry.getKey() <= 
                             replicationMessage.getLastCommittedSeqNo())
                     {
-                        getEventBus().publish(
-                            ActorID.CONSENSUS_MANAGER,
-                            ProposalNotificationEvent.create(entry.getValue()));
+                        notifyCommitted(entry.getValue());
                         
                         if (LOG.isLoggable(Level.FINE)) {
                             LOG.fine("The replication proposal : " 
@@ -235,9 +265,14 @@ public class RaftAcceptor extends ConsensusAcceptor
                     }
                 });
                 
+                compactLog(replicationMessage.getLastCommittedTermID(),
+                           replicationMessage.getLastCommittedSeqNo());
                 PooledObjects.freeInstance(replicationMessage);
             }
         }
+        else if (message instanceof RaftInstallSnapshotMessage) {
+            installSnapshot((RaftInstallSnapshotMessage) message);
+        }
         else if (message instanceof RaftReplayMessage) {
             RaftReplayMessage replayMessage = (RaftReplayMessage) message;
             replayMessage.getReplayedProposals().forEachEntry(
@@ -253,15 +288,36 @@ public class RaftAcceptor extends ConsensusAcceptor
             
             TreeMap<Long, Proposal> termLog = 
                 myProposalLog.get(replayMessage.getTermID());
-            long lastProcessedSequenceNumber = termLog.lastKey();
+            if (termLog == null) {
+                termLog = new TreeMap<>();
+                myProposalLog.put(replayMessage.getTermID(), termLog);
+            }
+            if (myQueuedProposals.isEmpty()) {
+                return;
+            }
+            long lastProcessedSequenceNumber = 
+                termLog.isEmpty() ? myQueuedProposals.firstKey() - 1
+                                  : termLog.lastKey();
             TLongSet removedKeys = new TLongHashSet();
             for (Map.Entry<Long, Proposal> entry : myQueuedProposals.entrySet())
             {
-                if (entry.getKey() == lastProcessedSequenceNumber + 1) {
+                if (entry.getKey() <= lastProcessedSequenceNumber) {
+                    // The proposal has been replayed already, when the 
+                    // leader restarts a replay that wasn't acknowledged.
+                    removedKeys.add(entry.getKey());
+                }
+                else if (entry.getKey() == lastProcessedSequenceNumber + 1) {
+                    // The replayed proposals are accepted too only after 
+                    // they have been synced to the disk.
                     myWAL.addProposal(
-                        replayMessage.getTermID(), entry.getKey(), entry.getValue());
+                        replayMessage.getTermID(), 
+                        entry.getKey(), 
+                        entry.getValue(),
+                        makeDurabilityCallback(replayMessage.getSenderId(),
+                                               replayMessage.getUnitID()));
                     termLog.put(entry.getKey(), entry.getValue());
                     removedKeys.add(entry.getKey());
+                    lastProcessedSequenceNumber = entry.getKey();
                 }
                 else {
                     break;
@@ -279,19 +335,250 @@ public class RaftAcceptor extends ConsensusAcceptor
                         return true;
                     }
                 });
-                
+            }
+
+        }
+        else if (   message instanceof RaftReplicationResponse
+                 && getNodeID().equals(message.getSenderId()))
+        {
+            RaftReplicationResponse response = 
+                (RaftReplicationResponse) message;
+            discardUnpersisted(response.getAcceptedTermID(), 
+                               response.getAcceptedSeqNo());
+        }
+    }
+    
+    /**
+     * Returns the {@link DurabilityCallback} that accepts a proposal once 
+     * it has been synced to the disk. A proposal that couldn't be 
+     * persisted is reported back to the acceptor itself.
+     */
+    private DurabilityCallback makeDurabilityCallback(final NodeID leaderID,
+                                                      final UnitID unitID)
+    {
+        return new DurabilityCallback() {
+            @Override
+            public void onDurable(long termID, long sequenceNo)
+            {
                 getEventBus().publish(
                     ActorID.CONSENSUS_MANAGER,
                     SendMessageEvent.create(
-                        replayMessage.getSenderId(),
+                        leaderID,
                         RaftReplicationResponse.create(
                             getNodeID(),
-                            replayMessage.getUnitID(),
+                            unitID,
                             true,
-                            replayMessage.getTermID(),
-                            lastProcessedSequenceNumber)));
+                            termID,
+                            sequenceNo)));
             }
+            
+            @Override
+            public void onFailure(long        termID, 
+                                  long        sequenceNo, 
+                                  IOException cause)
+            {
+                getEventBus().publish(
+                    ActorID.CONSENSUS_MANAGER,
+                    ActorID.CONSENSUS_MANAGER,
+                    RaftReplicationResponse.create(
+                        getNodeID(),
+                        unitID,
+                        false,
+                        termID,
+                        sequenceNo));
+            }
+        };
+    }
+    
+    /**
+     * Discards the proposals of a term from the one that couldn't be 
+     * persisted and rejects it, so that the leader replays them.
+     */
+    private void discardUnpersisted(long termID, long sequenceNo)
+    {
+        TreeMap<Long, Proposal> termLog = myProposalLog.get(termID);
+        if (termLog != null) {
+            termLog.tailMap(Long.valueOf(sequenceNo), true).clear();
+            if (termLog.isEmpty()) {
+                myDiscardedTermID = termID;
+                myDiscardedSeqNo = sequenceNo;
+            }
+        }
+        LOG.severe("The proposal " + termID + " : " + sequenceNo 
+                   + " couldn't be persisted, hence requesting "
+                   + getLeader() + " to replay it");
+        
+        getEventBus().publish(
+            ActorID.CONSENSUS_MANAGER,
+            SendMessageEvent.create(
+                getLeader(),
+                RaftReplicationResponse.create(
+                    getNodeID(),
+                    getConsensusUnitID(),
+                    false,
+                    termID,
+                    sequenceNo - 1)));
+    }
 
+    /**
+     * Discards the proposals upto the given committed proposal from the 
+     * log, along with the proposals of the preceding terms.
+     */
+    private void compactLog(long committedTermID, long committedSeqNo)
+    {
+        myWAL.truncateBefore(committedTermID, committedSeqNo + 1);
+        TLongObjectIterator<TreeMap<Long, Proposal>> itr = 
+            myProposalLog.iterator();
+        while (itr.hasNext()) {
+            itr.advance();
+            if (itr.key() < committedTermID) {
+                itr.remove();
+            }
+        }
+    }
+    
+    /**
+     * Writes the chunk of the snapshot to the disk and acknowledges it, 
+     * so that the leader sends the chunks that follow. Once the last 
+     * chunk is received the snapshot is handed over to be installed, and 
+     * the leader is asked to replay the proposals following the snapshot.
+     */
+    private void installSnapshot(RaftInstallSnapshotMessage message)
+    {
+        File snapshotDirectory = 
+            new File(mySnapshotDirectory, 
+                     String.valueOf(message.getSnapshotTime()));
+        if (message.getChunkNo() == 0) {
+            // The leader sends the snapshot afresh, hence discard the
+            // chunks received earlier.
+            deleteRecursively(mySnapshotDirectory);
+            myInstallingSnapshotTime = message.getSnapshotTime();
+            myNextSnapshotChunk = 0;
+        }
+        else if (   message.getSnapshotTime() != myInstallingSnapshotTime
+                 || message.getChunkNo() != myNextSnapshotChunk) 
+        {
+            // The chunks are installed only in order, the leader resends
+            // the snapshot when the chunks following the one that has 
+            // been lost aren't acknowledged.
+            return;
+        }
+        snapshotDirectory.mkdirs();
+        
+        try (RandomAccessFile snapshotFile = 
+                 new RandomAccessFile(
+                     new File(snapshotDirectory, message.getFileName()), 
+                     "rw"))
+        {
+            snapshotFile.seek(message.getOffset());
+            snapshotFile.write(message.getData());
+        }
+        catch (IOException e) {
+            LOG.log(Level.SEVERE, 
+                    "Exception when writing the snapshot chunk of " 
+                    + message.getFileName(), 
+                    e);
+            myInstallingSnapshotTime = Long.MIN_VALUE;
+            return;
+        }
+        
+        myNextSnapshotChunk++;
+        getEventBus().publish(
+            ActorID.CONSENSUS_MANAGER,
+            SendMessageEvent.create(
+                message.getSenderId(),
+                new RaftInstallSnapshotAck(getNodeID(),
+                                           message.getUnitID(),
+                                           message.getSnapshotTime(),
+                                           message.getChunkNo())));
+        if (!message.isLast()) {
+            return;
+        }
+        
+        LOG.info("Received the snapshot taken at " 
+                 + message.getSnapshotTime() + " covering upto " 
+                 + message.getTermID() + " : " + message.getSequenceNo()
+                 + " from " + message.getSenderId());
+        myProposalLog.clear();
+        myQueuedProposals.clear();
+        myWAL.truncateBefore(message.getTermID(), 
+                             message.getSequenceNo() + 1);
+        myInstallingSnapshotTime = Long.MIN_VALUE;
+        
+        getEventBus().publish(
+            ActorID.CONSENSUS_MANAGER,
+            new InstallSnapshotEvent(message.getUnitID(), 
+                                     message.getSnapshotTime(), 
+                                     snapshotDirectory));
+        
+        // Ask the leader to replay the proposals that follow the snapshot.
+        getEventBus().publish(
+            ActorID.CONSENSUS_MANAGER,
+            SendMessageEvent.create(
+                message.getSenderId(),
+                RaftReplicationResponse.create(
+                    getNodeID(),
+                    message.getUnitID(),
+                    false,
+                    message.getTermID(),
+                    message.getSequenceNo())));
+    }
+    
+    private static void deleteRecursively(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+    
+    /**
+     * Returns the number of bytes occupied by the log on the disk.
+     */
+    public long getLogSize()
+    {
+        return myWAL.getSizeOnDisk();
+    }
+    
+    /**
+     * Returns the number of proposals held in the memory, that are yet
+     * to be committed.
+     */
+    public int getPendingProposalCount()
+    {
+        int count = myQueuedProposals.size();
+        TLongObjectIterator<TreeMap<Long, Proposal>> itr = 
+            myProposalLog.iterator();
+        while (itr.hasNext()) {
+            itr.advance();
+            count += itr.value().size();
+        }
+        return count;
+    }
+    
+    /**
+     * Notifies the other components about a committed proposal. The 
+     * proposals coalesced into a {@link ProposalBatch} are notified 
+     * individually.
+     */
+    private void notifyCommitted(Proposal proposal)
+    {
+        if (proposal instanceof ProposalBatch) {
+            ProposalBatch batch = (ProposalBatch) proposal;
+            for (Proposal batchedProposal : batch.getProposals()) {
+                getEventBus().publish(
+                    ActorID.CONSENSUS_MANAGER,
+                    ProposalNotificationEvent.create(batchedProposal));
+            }
+            PooledObjects.freeInstance(batch);
+        }
+        else {
+            getEventBus().publish(
+                ActorID.CONSENSUS_MANAGER,
+                ProposalNotificationEvent.create(proposal));
         }
     }
 
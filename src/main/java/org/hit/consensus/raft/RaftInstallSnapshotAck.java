@@ -0,0 +1,105 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.hit.communicator.NodeID;
+import org.hit.consensus.UnitID;
+import org.hit.messages.ConsensusMessage;
+
+/**
+ * Extends {@link ConsensusMessage} to acknowledge a chunk of the snapshot
+ * that has been written by the {@link RaftAcceptor}, so that the leader 
+ * can send the chunks that follow it.
+ * 
+ * @author Balraja Subbiah
+ */
+public class RaftInstallSnapshotAck extends ConsensusMessage
+{
+    private long mySnapshotTime;
+    
+    private int myChunkNo;
+    
+    /**
+     * CTOR
+     */
+    public RaftInstallSnapshotAck()
+    {
+        super();
+    }
+
+    /**
+     * CTOR
+     */
+    public RaftInstallSnapshotAck(NodeID senderID,
+                                  UnitID unitID,
+                                  long   snapshotTime,
+                                  int    chunkNo)
+    {
+        setSenderID(senderID);
+        setUnitID(unitID);
+        mySnapshotTime = snapshotTime;
+        myChunkNo = chunkNo;
+    }
+
+    /**
+     * Returns the time at which the snapshot has been taken
+     */
+    public long getSnapshotTime()
+    {
+        return mySnapshotTime;
+    }
+
+    /**
+     * Returns the position of the acknowledged chunk among all the 
+     * chunks of the snapshot
+     */
+    public int getChunkNo()
+    {
+        return myChunkNo;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in) 
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        mySnapshotTime = in.readLong();
+        myChunkNo = in.readInt();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeLong(mySnapshotTime);
+        out.writeInt(myChunkNo);
+    }
+}
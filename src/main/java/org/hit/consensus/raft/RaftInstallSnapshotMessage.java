@@ -0,0 +1,194 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.hit.communicator.NodeID;
+import org.hit.consensus.UnitID;
+import org.hit.messages.ConsensusMessage;
+
+/**
+ * Extends {@link ConsensusMessage} to support sending a chunk of the 
+ * snapshot files to a {@link RaftAcceptor} that has fallen behind the
+ * compacted log of the leader. The snapshot covers the proposals upto 
+ * the given term and sequence number, from where the replication 
+ * resumes once the last chunk is received.
+ * 
+ * @author Balraja Subbiah
+ */
+public class RaftInstallSnapshotMessage extends ConsensusMessage
+{
+    private long myTermID;
+    
+    private long mySequenceNo;
+    
+    private long mySnapshotTime;
+    
+    private String myFileName;
+    
+    private int myChunkNo;
+    
+    private long myOffset;
+    
+    private byte[] myData;
+    
+    private boolean myIsLast;
+    
+    /**
+     * CTOR
+     */
+    public RaftInstallSnapshotMessage()
+    {
+        super();
+    }
+
+    /**
+     * CTOR
+     */
+    public RaftInstallSnapshotMessage(NodeID  senderID,
+                                      UnitID  unitID,
+                                      long    termID,
+                                      long    sequenceNo,
+                                      long    snapshotTime,
+                                      String  fileName,
+                                      int     chunkNo,
+                                      long    offset,
+                                      byte[]  data,
+                                      boolean isLast)
+    {
+        setSenderID(senderID);
+        setUnitID(unitID);
+        myTermID = termID;
+        mySequenceNo = sequenceNo;
+        mySnapshotTime = snapshotTime;
+        myFileName = fileName;
+        myChunkNo = chunkNo;
+        myOffset = offset;
+        myData = data;
+        myIsLast = isLast;
+    }
+
+    /**
+     * Returns the term of the last proposal covered by the snapshot
+     */
+    public long getTermID()
+    {
+        return myTermID;
+    }
+
+    /**
+     * Returns the sequence number of the last proposal covered by the
+     * snapshot
+     */
+    public long getSequenceNo()
+    {
+        return mySequenceNo;
+    }
+
+    /**
+     * Returns the time at which the snapshot has been taken
+     */
+    public long getSnapshotTime()
+    {
+        return mySnapshotTime;
+    }
+
+    /**
+     * Returns the name of the snapshot file to which the chunk belongs
+     */
+    public String getFileName()
+    {
+        return myFileName;
+    }
+
+    /**
+     * Returns the position of the chunk among all the chunks of the 
+     * snapshot
+     */
+    public int getChunkNo()
+    {
+        return myChunkNo;
+    }
+
+    /**
+     * Returns the offset of the chunk in the file
+     */
+    public long getOffset()
+    {
+        return myOffset;
+    }
+
+    /**
+     * Returns the bytes of the chunk
+     */
+    public byte[] getData()
+    {
+        return myData;
+    }
+
+    /**
+     * Returns true if this is the last chunk of the snapshot
+     */
+    public boolean isLast()
+    {
+        return myIsLast;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in) 
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        myTermID = in.readLong();
+        mySequenceNo = in.readLong();
+        mySnapshotTime = in.readLong();
+        myFileName = in.readUTF();
+        myChunkNo = in.readInt();
+        myOffset = in.readLong();
+        myData = new byte[in.readInt()];
+        in.readFully(myData);
+        myIsLast = in.readBoolean();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeLong(myTermID);
+        out.writeLong(mySequenceNo);
+        out.writeLong(mySnapshotTime);
+        out.writeUTF(myFileName);
+        out.writeInt(myChunkNo);
+        out.writeLong(myOffset);
+        out.writeInt(myData.length);
+        out.write(myData);
+        out.writeBoolean(myIsLast);
+    }
+}
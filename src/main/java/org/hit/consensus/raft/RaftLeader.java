@@ -19,16 +19,26 @@
 */
 package org.hit.consensus.raft;
 
-import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.impl.Constants;
 import gnu.trove.map.TLongObjectMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.map.TObjectLongMap;
+import gnu.trove.map.hash.TObjectLongHashMap;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,17 +49,40 @@ import org.hit.communicator.NodeID;
 import org.hit.consensus.ConsensusLeader;
 import org.hit.consensus.Proposal;
 import org.hit.consensus.UnitID;
+import org.hit.consensus.raft.log.DurabilityCallback;
 import org.hit.consensus.raft.log.WAL;
+import org.hit.consensus.raft.log.WALConfig;
+import org.hit.consensus.raft.log.WALCursor;
 import org.hit.consensus.raft.log.WALPropertyConfig;
+import org.hit.consensus.raft.log.WALRecord;
+import org.hit.consensus.raft.log.WALSegment;
+import org.hit.event.ConsensusResponseEvent;
+import org.hit.event.PeriodicTaskCancelRequest;
+import org.hit.event.PeriodicTaskScheduleRequest;
 import org.hit.event.SendMessageEvent;
 import org.hit.pool.PoolConfiguration;
 import org.hit.pool.PoolUtils;
 import org.hit.pool.Poolable;
 import org.hit.pool.PooledObjects;
 import org.hit.util.LogFactory;
+import org.hit.util.NamedThreadFactory;
 
 /**
  * Extends {@link ConsensusLeader} to support raft specific version.
+ * <p>
+ * The proposals are replicated through a sliding window of the batches
+ * in flight, which are sent to the followers without waiting for the 
+ * earlier ones to be acknowledged. The leader keeps track of the match 
+ * index of every follower, and of itself once the batch is synced to it's
+ * log, and commits the batches as soon as they are acknowledged by a 
+ * quorum. The batches wait in the {@link ProposalBatcher} when the window 
+ * is full.
+ * <p>
+ * The log is compacted whenever a snapshot of the unit is taken, by 
+ * discarding the committed proposals that have been captured in the 
+ * snapshot. A follower that has fallen behind the compacted log is sent 
+ * the snapshot in chunks, after which the proposals that follow the 
+ * snapshot are replayed to it.
  * 
  * @author Balraja Subbiah
  */
@@ -58,6 +91,21 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
     /** LOGGER */
     private static final Logger LOG =
         LogFactory.getInstance().getLogger(RaftLeader.class);
+    
+    /** 
+     * The time after which a replay, whose last chunk hasn't been 
+     * acknowledged by the follower, is started afresh.
+     */
+    private static final long REPLAY_ACK_TIMEOUT_MILLIS = 10000L;
+    
+    /** The number of snapshot chunks sent ahead of the acknowledgements */
+    private static final int SNAPSHOT_WINDOW_CHUNKS = 4;
+    
+    /** 
+     * The time after which a snapshot, whose chunks haven't been 
+     * acknowledged by the follower, is sent afresh.
+     */
+    private static final long SNAPSHOT_ACK_TIMEOUT_MILLIS = 10000L;
                 
     /**
      * A simple class to keep track of progress of a {@link Proposal}
@@ -66,7 +114,9 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
     @PoolConfiguration(size=10000, initialSize=100)
     public static class ProposalTracker implements Poolable
     {
-        private final Set<NodeID> myLogAcceptors = new HashSet<>();
+        private final Set<NodeID> myAcceptors = new HashSet<>();
+        
+        private final List<Proposal> myBatchedProposals = new ArrayList<>();
         
         private WAL myWriteAheadLog;
         
@@ -78,8 +128,6 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
         
         private UnitID myConsensusUnitID;
         
-        private State myState;
-        
         private long myTermID;
         
         private long mySequenceNO;
@@ -101,8 +149,7 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
              long        termID,
              long        sequenceNO,
              long        lcTermID,
-             long        lcSeqNo,
-             State       state)
+             long        lcSeqNo)
         {
             ProposalTracker tracker = 
                 PooledObjects.getInstance(ProposalTracker.class);
@@ -111,25 +158,70 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
             tracker.myEventBus        = eventBus;
             tracker.myWriteAheadLog   = wal;
             tracker.myProposal        = proposal;
-            tracker.myLogAcceptors.addAll(acceptors);
+            if (proposal instanceof ProposalBatch) {
+                // Keep track of the batched proposals, as the batch gets
+                // recycled once it's serialized.
+                tracker.myBatchedProposals.addAll(
+                    ((ProposalBatch) proposal).getProposals());
+            }
+            tracker.myAcceptors.addAll(acceptors);
             tracker.myTermID          = termID;
             tracker.mySequenceNO      = sequenceNO;
             tracker.myLCTermNo        = lcTermID;
             tracker.myLCSeqNo         = lcSeqNo;
-            tracker.myState           = state;
             return tracker;
         }
         
         /**
-         * Starts the commit process.
+         * Starts the commit process. The leader acknowledges the proposal
+         * to itself once it has been synced to the log.
          */
         public void start()
         {
-            myWriteAheadLog.addProposal(myTermID, mySequenceNO, myProposal);
+            final EventBus eventBus = myEventBus;
+            final NodeID leaderID = myNodeID;
+            final UnitID unitID = myConsensusUnitID;
+            myWriteAheadLog.addProposal(
+                myTermID, 
+                mySequenceNO, 
+                myProposal,
+                new DurabilityCallback() {
+                    @Override
+                    public void onDurable(long termID, long sequenceNo)
+                    {
+                        eventBus.publish(
+                            ActorID.CONSENSUS_MANAGER,
+                            ActorID.CONSENSUS_MANAGER,
+                            RaftReplicationResponse.create(
+                                leaderID,
+                                unitID,
+                                true,
+                                termID,
+                                sequenceNo));
+                    }
+                    
+                    @Override
+                    public void onFailure(long        termID, 
+                                          long        sequenceNo,
+                                          IOException cause)
+                    {
+                        // The leader rejects it's own proposal, since 
+                        // it's missing from the log.
+                        eventBus.publish(
+                            ActorID.CONSENSUS_MANAGER,
+                            ActorID.CONSENSUS_MANAGER,
+                            RaftReplicationResponse.create(
+                                leaderID,
+                                unitID,
+                                false,
+                                termID,
+                                sequenceNo));
+                    }
+                });
             myEventBus.publish(
                 ActorID.CONSENSUS_MANAGER,
                 SendMessageEvent.create(                   
-                    myLogAcceptors,
+                    myAcceptors,
                     RaftReplicationMessage.create(
                         myNodeID,
                         myConsensusUnitID,
@@ -140,21 +232,22 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
                         myLCSeqNo)));
         }
         
-        public void receivedAcceptance(NodeID acceptedNodeID)
+        /**
+         * Completes the commit process by fanning out the result to the 
+         * individual proposals coalesced into the batch.
+         */
+        public void complete(boolean committed)
         {
             if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("Received acceptance for " 
-                         + myTermID 
-                         + " : " 
-                         + mySequenceNO
-                         + " from " + acceptedNodeID);
+                LOG.fine("The proposal " + myTermID + " : " + mySequenceNO
+                         + (committed ? " is committed" : " is abandoned"));
             }
-            myLogAcceptors.remove(acceptedNodeID);
-            if (myLogAcceptors.isEmpty()) {
-                myState.setCommitted(myTermID, mySequenceNO);
-                myState.deleteTracker(myTermID, mySequenceNO);
-                PoolUtils.free(myProposal);
+            for (Proposal proposal : myBatchedProposals) {
+                myEventBus.publish(
+                    ActorID.CONSENSUS_MANAGER,
+                    ConsensusResponseEvent.create(proposal, committed));
             }
+            PoolUtils.free(myProposal);
         }
 
         /**
@@ -163,9 +256,10 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
         @Override
         public void free()
         {
-            myLogAcceptors.clear();
+            myAcceptors.clear();
+            myBatchedProposals.clear();
+            myProposal = null;
             myWriteAheadLog = null;
-            myState = null;
             myNodeID = null;
             myConsensusUnitID = null;
             myEventBus = null;
@@ -173,13 +267,207 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
         }
     }
     
+    /**
+     * Captures the position of a proposal in the log along with the time
+     * at which it has been committed locally.
+     */
+    private static class LogEntry
+    {
+        private final long myTermID;
+        
+        private final long mySequenceNo;
+        
+        private final long myTimestamp;
+
+        /**
+         * CTOR
+         */
+        public LogEntry(long termID, long sequenceNo, long timestamp)
+        {
+            myTermID = termID;
+            mySequenceNo = sequenceNo;
+            myTimestamp = timestamp;
+        }
+    }
+    
+    /**
+     * Captures the progress of the proposals being replayed to a 
+     * follower, which are sent a chunk at a time.
+     */
+    private static class Replay
+    {
+        private final WALCursor myCursor;
+        
+        private final long myTermID;
+        
+        private long myLastSentSeqNo;
+        
+        private long mySentTime;
+
+        /**
+         * CTOR
+         */
+        public Replay(WALCursor cursor, long termID)
+        {
+            myCursor = cursor;
+            myTermID = termID;
+            myLastSentSeqNo = Long.MIN_VALUE;
+            mySentTime = Long.MIN_VALUE;
+        }
+    }
+    
+    /**
+     * Captures the progress of the snapshot being sent to a follower. The
+     * chunks are read from the disk and sent by the snapshot reader, 
+     * while this keeps track of the chunks acknowledged by the follower.
+     */
+    private class SnapshotTransfer
+    {
+        private final NodeID myFollower;
+        
+        private final long myTermID;
+        
+        private final long mySequenceNo;
+        
+        private final long mySnapshotTime;
+        
+        private final File[] myFiles;
+        
+        private int myFileIndex;
+        
+        private long myOffset;
+        
+        private int mySentChunks;
+        
+        private int myAckedChunks;
+        
+        private long myAckTime;
+
+        /**
+         * CTOR
+         */
+        public SnapshotTransfer(NodeID follower,
+                                long   termID,
+                                long   sequenceNo,
+                                long   snapshotTime,
+                                File[] files)
+        {
+            myFollower = follower;
+            myTermID = termID;
+            mySequenceNo = sequenceNo;
+            mySnapshotTime = snapshotTime;
+            myFiles = files;
+            myFileIndex = 0;
+            myOffset = 0L;
+            mySentChunks = 0;
+            myAckedChunks = 0;
+            myAckTime = System.currentTimeMillis();
+        }
+        
+        /**
+         * Hands over the chunks that fit in the window to the snapshot
+         * reader.
+         */
+        public void sendChunks()
+        {
+            while (   myFileIndex < myFiles.length
+                   && mySentChunks - myAckedChunks < SNAPSHOT_WINDOW_CHUNKS)
+            {
+                File file = myFiles[myFileIndex];
+                long length = file.length();
+                int chunkSize = 
+                    (int) Math.min(mySnapshotChunkSize, length - myOffset);
+                boolean isFileEnd = myOffset + chunkSize >= length;
+                mySnapshotReader.execute(
+                    new SendSnapshotChunkTask(
+                        myFollower,
+                        new RaftInstallSnapshotMessage(
+                            getNodeID(),
+                            getConsensusUnitID(),
+                            myTermID,
+                            mySequenceNo,
+                            mySnapshotTime,
+                            file.getName(),
+                            mySentChunks,
+                            myOffset,
+                            new byte[chunkSize],
+                            isFileEnd && myFileIndex == myFiles.length - 1),
+                        file));
+                mySentChunks++;
+                if (isFileEnd) {
+                    myFileIndex++;
+                    myOffset = 0L;
+                }
+                else {
+                    myOffset += chunkSize;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Implements {@link Runnable} to read a chunk of the snapshot file 
+     * from the disk and send it to the follower, off the thread that 
+     * handles the consensus messages.
+     */
+    private class SendSnapshotChunkTask implements Runnable
+    {
+        private final NodeID myFollower;
+        
+        private final RaftInstallSnapshotMessage myMessage;
+        
+        private final File myFile;
+
+        /**
+         * CTOR
+         */
+        public SendSnapshotChunkTask(NodeID                     follower,
+                                     RaftInstallSnapshotMessage message,
+                                     File                       file)
+        {
+            myFollower = follower;
+            myMessage = message;
+            myFile = file;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            try (RandomAccessFile in = new RandomAccessFile(myFile, "r")) {
+                in.seek(myMessage.getOffset());
+                in.readFully(myMessage.getData());
+            }
+            catch (IOException e) {
+                // The chunk isn't acknowledged, hence the snapshot is
+                // sent afresh once the follower is found to lag again.
+                LOG.log(Level.SEVERE, 
+                        "Exception when reading the snapshot chunk of " 
+                        + myFile + " to be sent to " + myFollower, 
+                        e);
+                return;
+            }
+            getEventBus().publish(ActorID.CONSENSUS_MANAGER,
+                                  SendMessageEvent.create(myFollower, 
+                                                          myMessage));
+        }
+    }
+    
     /**
      * This class tracks the progress of all {@link Proposal}s submitted
      * using their {@link ProposalTracker}s.
      */
     private static class State
     {
-        private final TLongObjectMap<TLongObjectMap<ProposalTracker>> myProposalLog;
+        private final ReplicationWindow<ProposalTracker> myInFlightProposals;
+        
+        private final TObjectLongMap<NodeID> myMatchIndex;
+        
+        private final int myQuorum;
+        
+        private final Deque<LogEntry> myUncompactedEntries;
         
         private long myTermNo;
         
@@ -191,14 +479,27 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
         
         /**
          * CTOR
+         * 
+         * @param termNo The term in which the leader is elected.
+         * @param quorum The number of nodes, including the leader, that 
+         *               should accept a proposal for it to be committed.
+         * @param maxInFlight The maximum number of proposals that can be 
+         *                    in flight.
          */
-        public State(long termNo)
+        public State(long termNo, int quorum, int maxInFlight)
         {
-            myProposalLog = new TLongObjectHashMap<>();
+            myUncompactedEntries = new ArrayDeque<>();
             myTermNo      = termNo;
             mySequenceNo  = -1L;
             myLastCommittedSeqNo = -1L;
             myLastCommittedTermNo = -1L;
+            myQuorum = quorum;
+            myInFlightProposals = 
+                new ReplicationWindow<>(maxInFlight, mySequenceNo);
+            myMatchIndex = 
+                new TObjectLongHashMap<>(Constants.DEFAULT_CAPACITY, 
+                                         Constants.DEFAULT_LOAD_FACTOR, 
+                                         Long.MIN_VALUE);
         }
 
         /**
@@ -210,14 +511,18 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
         }
 
         /**
-         * Sets the value of termNo
+         * Sets the value of termNo and returns the proposals that were in 
+         * flight in the previous term, which can't be committed anymore.
          */
-        public void setTermNo(long termNo)
+        public List<ProposalTracker> setTermNo(long termNo)
         {
             if (termNo != myTermNo) {
                 myTermNo = termNo;
                 mySequenceNo = 1L;
+                myMatchIndex.clear();
+                return myInFlightProposals.reset(mySequenceNo);
             }
+            return new ArrayList<>();
         }
         
         public long incAndGetSeqNum()
@@ -246,43 +551,122 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
             return myLastCommittedSeqNo;
         }
 
-        public Collection<ProposalTracker> 
-            getTracker(long termID, long sequenceNo)
-        {
-            TLongObjectMap<ProposalTracker> seqMap = myProposalLog.get(termID);
-            if (seqMap != null) {
-                TLongObjectIterator<ProposalTracker> itr = seqMap.iterator();
-                List<ProposalTracker> proposalTrackers = new ArrayList<>();
-                while (itr.hasNext()) {
-                    if (itr.key() <= sequenceNo) {
-                        proposalTrackers.add(itr.value());
-                    }
-                }
-                return proposalTrackers;
+        /**
+         * Returns true if no more proposals can be sent till the oldest 
+         * ones in flight are committed.
+         */
+        public boolean isWindowFull()
+        {
+            return myInFlightProposals.isFull();
+        }
+        
+        /**
+         * Returns the number of proposals that are in flight.
+         */
+        public int getInFlightCount()
+        {
+            return myInFlightProposals.size();
+        }
+        
+        /**
+         * Adds the tracker of a proposal that's being sent to the 
+         * followers.
+         */
+        public void addTracker(long sequenceNo, ProposalTracker tracker)
+        {
+            myInFlightProposals.add(sequenceNo, tracker);
+        }
+        
+        /**
+         * Raises the match index of the given node, as it has accepted 
+         * all the proposals upto the given sequence number.
+         */
+        public void acknowledge(NodeID nodeID, long termNo, long sequenceNo)
+        {
+            if (termNo != myTermNo) {
+                return;
             }
-            else{
-                return Collections.<ProposalTracker>emptyList();
+            long matchIndex = myMatchIndex.get(nodeID);
+            if (sequenceNo > matchIndex) {
+                myMatchIndex.put(nodeID, sequenceNo);
+                myInFlightProposals.acknowledge(matchIndex, sequenceNo);
             }
         }
         
-        public void setTracker(
-            long termID, long sequenceNo, ProposalTracker supervisor)
+        /**
+         * Returns the tracker of the oldest proposal in flight, after 
+         * marking it as committed, if it has been accepted by a quorum.
+         * Returns null otherwise.
+         */
+        public ProposalTracker pollCommitted()
         {
-            TLongObjectMap<ProposalTracker> seqMap = myProposalLog.get(termID);
-            if (seqMap == null) {
-                seqMap = new TLongObjectHashMap<>();
-                myProposalLog.put(termID, seqMap);
+            ProposalTracker tracker = 
+                myInFlightProposals.pollCommitted(myQuorum);
+            if (tracker != null) {
+                setCommitted(tracker.myTermID, tracker.mySequenceNO);
             }
-            seqMap.put(sequenceNo, supervisor);
+            return tracker;
         }
         
-        public void deleteTracker(long termID, long sequenceNo)
+        /**
+         * Removes all the proposals in flight and returns them in the 
+         * order of their sequence numbers.
+         */
+        public List<ProposalTracker> abandonInFlight()
         {
-            TLongObjectMap<ProposalTracker> seqMap =
-                myProposalLog.get(termID);
-            if (seqMap != null) {
-                seqMap.remove(sequenceNo);
+            return myInFlightProposals.reset(
+                myInFlightProposals.getCommittedSeqNo());
+        }
+        
+        /**
+         * Keeps track of an entry added to the log till it's compacted.
+         */
+        public void addEntry(long termID, long sequenceNo, long timestamp)
+        {
+            myUncompactedEntries.addLast(
+                new LogEntry(termID, sequenceNo, timestamp));
+        }
+        
+        private boolean isCommitted(LogEntry entry)
+        {
+            return WALSegment.compare(entry.myTermID, 
+                                      entry.mySequenceNo, 
+                                      myLastCommittedTermNo, 
+                                      myLastCommittedSeqNo) <= 0;
+        }
+        
+        /**
+         * Stops tracking the committed entries, from the oldest, that have
+         * been committed before the given snapshot time and returns the 
+         * oldest of the remaining entries. Returns null if no entry 
+         * remains.
+         */
+        public LogEntry compact(long snapshotTime)
+        {
+            while (!myUncompactedEntries.isEmpty()) {
+                LogEntry entry = myUncompactedEntries.peekFirst();
+                if (!isCommitted(entry) || entry.myTimestamp > snapshotTime) {
+                    return entry;
+                }
+                myUncompactedEntries.removeFirst();
+            }
+            return null;
+        }
+        
+        /**
+         * Returns the number of committed entries that are yet to be 
+         * compacted.
+         */
+        public int getCompactionLag()
+        {
+            int lag = 0;
+            for (LogEntry entry : myUncompactedEntries) {
+                if (!isCommitted(entry)) {
+                    break;
+                }
+                lag++;
             }
+            return lag;
         }
         
         public void setCommitted(long termNo, long sequenceNo)
@@ -303,6 +687,48 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
     
     private final WAL myWAL;
     
+    private final int myReplayChunkSize;
+    
+    private final int mySnapshotChunkSize;
+    
+    private final Map<NodeID, SnapshotTransfer> mySnapshotTransfers;
+    
+    private ExecutorService mySnapshotReader;
+    
+    private final Map<NodeID, Replay> myReplays;
+    
+    private long mySnapshotTime;
+    
+    private File mySnapshotDirectory;
+    
+    private final ProposalBatcher myBatcher;
+    
+    private boolean myIsLogFailed;
+    
+    private final FlushBatchTask myFlushBatchTask;
+    
+    private boolean myIsStopped;
+    
+    /**
+     * Implements {@link Runnable} to replicate the proposals that have 
+     * been waiting in the batch for the batch window.
+     */
+    private class FlushBatchTask implements Runnable
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            // The notifications published before the task got cancelled
+            // might still be delivered.
+            if (!myIsStopped) {
+                replicateBatches(true);
+            }
+        }
+    }
+    
     /**
      * CTOR
      */
@@ -312,10 +738,100 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
         EventBus eventBus,
         NodeID myID,
         long termID)
+    {
+        this(consensusUnitID, 
+             acceptors, 
+             eventBus, 
+             myID, 
+             termID, 
+             new ProposalBatchPropertyConfig());
+    }
+    
+    /**
+     * CTOR
+     */
+    public RaftLeader(
+        UnitID consensusUnitID,
+        Set<NodeID> acceptors,
+        EventBus eventBus,
+        NodeID myID,
+        long termID,
+        ProposalBatchConfig batchConfig)
     {
         super(consensusUnitID, acceptors, eventBus, myID);
-        myProtocolState = new State(termID);
-        myWAL = new WAL(new WALPropertyConfig(consensusUnitID.toString()));
+        // A majority of the followers and the leader.
+        myProtocolState = 
+            new State(termID, 
+                      (acceptors.size() + 1) / 2 + 1, 
+                      batchConfig.getMaxInFlightBatches());
+        WALConfig walConfig = 
+            new WALPropertyConfig(consensusUnitID.toString());
+        myWAL = new WAL(walConfig);
+        myReplayChunkSize = walConfig.getReplayChunkSize();
+        mySnapshotChunkSize = walConfig.getSnapshotChunkSize();
+        mySnapshotTransfers = new HashMap<>();
+        mySnapshotReader = null;
+        myReplays = new HashMap<>();
+        mySnapshotTime = Long.MIN_VALUE;
+        mySnapshotDirectory = null;
+        myBatcher = new ProposalBatcher(consensusUnitID, batchConfig);
+        myIsLogFailed = false;
+        myFlushBatchTask = new FlushBatchTask();
+        myIsStopped = false;
+        eventBus.publish(
+            ActorID.CONSENSUS_MANAGER,
+            new PeriodicTaskScheduleRequest(
+                ActorID.CONSENSUS_MANAGER,
+                myFlushBatchTask,
+                batchConfig.getBatchWindowMillis(),
+                TimeUnit.MILLISECONDS));
+    }
+    
+    /**
+     * Returns the {@link ProposalBatcher} that coalesces the proposals
+     * submitted to this leader.
+     */
+    public ProposalBatcher getBatcher()
+    {
+        return myBatcher;
+    }
+    
+    /**
+     * Returns the number of batches that have been replicated but are 
+     * yet to be committed.
+     */
+    public int getInFlightCount()
+    {
+        return myProtocolState.getInFlightCount();
+    }
+    
+    /**
+     * Returns the number of bytes occupied by the log on the disk.
+     */
+    public long getLogSize()
+    {
+        return myWAL.getSizeOnDisk();
+    }
+    
+    /**
+     * Returns the number of committed proposals in the log that are 
+     * yet to be captured in a snapshot, and hence can't be compacted.
+     */
+    public int getCompactionLag()
+    {
+        return myProtocolState.getCompactionLag();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop()
+    {
+        myIsStopped = true;
+        getEventBus().publish(
+            ActorID.CONSENSUS_MANAGER,
+            new PeriodicTaskCancelRequest(myFlushBatchTask));
     }
 
     /**
@@ -343,17 +859,28 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
                           + response.isAccepted());
             } 
             
-            if (response.isAccepted()) {
-                Collection<ProposalTracker> trackers = 
-                    myProtocolState.getTracker(
-                        response.getAcceptedTermID(),
-                        response.getAcceptedSeqNo());
+            if (   !response.isAccepted() 
+                && getNodeID().equals(response.getSenderId()))
+            {
+                abandonOnLogFailure(response.getAcceptedTermID(),
+                                    response.getAcceptedSeqNo());
+            }
+            else if (response.isAccepted()) {
+                mySnapshotTransfers.remove(response.getSenderId());
+                continueReplay(response.getSenderId(),
+                               response.getAcceptedTermID(),
+                               response.getAcceptedSeqNo());
+                myProtocolState.acknowledge(response.getSenderId(),
+                                            response.getAcceptedTermID(),
+                                            response.getAcceptedSeqNo());
                 
-                if (!trackers.isEmpty()) {
-                    for (ProposalTracker tracker : trackers) {
-                        tracker.receivedAcceptance(response.getSenderId());
-                    }
+                ProposalTracker tracker;
+                while ((tracker = myProtocolState.pollCommitted()) != null) {
+                    tracker.complete(true);
+                    PooledObjects.freeInstance(tracker);
                 }
+                // Send the batches held back while the window was full.
+                replicateBatches(false);
             }
             else {
                 // It can fail because:
@@ -361,28 +888,247 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
                 // XXX We have to fix this.
                 // b. Last seen sequence number by that server doesn't match
                 //    the current sequence number.
-                if (response.getAcceptedSeqNo() 
-                        < myProtocolState.getSeqNumber())
+                if (   response.getAcceptedSeqNo() 
+                           < myProtocolState.getSeqNumber()
+                    && mySnapshotDirectory != null
+                    && myWAL.isCompacted(response.getAcceptedTermID(), 
+                                         response.getAcceptedSeqNo() + 1))
                 {
-                    TLongObjectMap<Proposal> replayedProposals = 
-                        myWAL.readProposalsFromLog(
-                            response.getAcceptedTermID(),
-                            response.getAcceptedSeqNo(),
-                            myProtocolState.getSeqNumber());
-                    
-                    RaftReplayMessage replayMessage = 
-                        new RaftReplayMessage(getNodeID(), 
-                                              getConsensusUnitID(),
-                                              response.getAcceptedTermID(), 
-                                              replayedProposals);
-                    
-                    getEventBus().publish(ActorID.CONSENSUS_MANAGER,
-                                          SendMessageEvent.create(
-                                              response.getSenderId(), 
-                                              replayMessage));
+                    // The proposals missing at the follower have been 
+                    // discarded, hence send the snapshot unless it's 
+                    // being sent already.
+                    SnapshotTransfer transfer = 
+                        mySnapshotTransfers.get(response.getSenderId());
+                    if (   transfer == null 
+                        || transfer.mySnapshotTime != mySnapshotTime
+                        || System.currentTimeMillis() - transfer.myAckTime
+                               >= SNAPSHOT_ACK_TIMEOUT_MILLIS) 
+                    {
+                        installSnapshot(response.getSenderId());
+                    }
+                }
+                else if (response.getAcceptedSeqNo() 
+                             < myProtocolState.getSeqNumber())
+                {
+                    startReplay(response.getSenderId(),
+                                response.getAcceptedTermID(),
+                                response.getAcceptedSeqNo());
                 }
             }
         }
+        else if (message instanceof RaftInstallSnapshotAck) {
+            handleSnapshotAck((RaftInstallSnapshotAck) message);
+        }
+    }
+    
+    /**
+     * Starts replaying the proposals missing at the follower, which 
+     * follow the given proposal, unless they are being replayed already. 
+     * Every append sent while the follower has a gap in it's log is 
+     * rejected, hence the replay is started afresh only when the 
+     * follower hasn't acknowledged the last chunk for a while.
+     */
+    private void startReplay(NodeID follower, long termID, long sequenceNo)
+    {
+        Replay replay = myReplays.get(follower);
+        long now = System.currentTimeMillis();
+        if (   replay != null 
+            && now - replay.mySentTime < REPLAY_ACK_TIMEOUT_MILLIS) 
+        {
+            return;
+        }
+        
+        replay = new Replay(myWAL.openCursor(termID, 
+                                             sequenceNo + 1,
+                                             myProtocolState.getSeqNumber()),
+                            termID);
+        myReplays.put(follower, replay);
+        sendReplayChunk(follower, replay);
+    }
+    
+    /**
+     * Sends the next chunk of the proposals being replayed to the 
+     * follower, once it has acknowledged the last chunk sent to it.
+     */
+    private void continueReplay(NodeID follower, long termID, long sequenceNo)
+    {
+        Replay replay = myReplays.get(follower);
+        if (   replay != null
+            && replay.myTermID == termID
+            && sequenceNo >= replay.myLastSentSeqNo)
+        {
+            sendReplayChunk(follower, replay);
+        }
+    }
+    
+    /**
+     * Reads the next chunk of the proposals being replayed from the log 
+     * and sends it to the follower. The replay is over when there are no
+     * more proposals to be sent.
+     */
+    private void sendReplayChunk(NodeID follower, Replay replay)
+    {
+        TLongObjectMap<Proposal> replayedProposals = 
+            replay.myCursor.nextChunk(myReplayChunkSize);
+        if (replayedProposals.isEmpty()) {
+            myReplays.remove(follower);
+            return;
+        }
+        
+        long lastSeqNo = Long.MIN_VALUE;
+        for (long sequenceNo : replayedProposals.keys()) {
+            lastSeqNo = Math.max(lastSeqNo, sequenceNo);
+        }
+        replay.myLastSentSeqNo = lastSeqNo;
+        replay.mySentTime = System.currentTimeMillis();
+        
+        getEventBus().publish(ActorID.CONSENSUS_MANAGER,
+                              SendMessageEvent.create(
+                                  follower, 
+                                  new RaftReplayMessage(getNodeID(), 
+                                                        getConsensusUnitID(),
+                                                        replay.myTermID, 
+                                                        replayedProposals)));
+    }
+
+    /**
+     * Stops replicating once a proposal couldn't be persisted to the log 
+     * of the leader, as the log can't be replayed to the followers 
+     * anymore. The proposals in flight are abandoned, so that the clients 
+     * waiting on them are notified, and so are the ones submitted later. 
+     * The followers never apply the abandoned proposals, as the commit 
+     * index advertised to them doesn't advance anymore.
+     */
+    private void abandonOnLogFailure(long termID, long sequenceNo)
+    {
+        if (myIsLogFailed) {
+            return;
+        }
+        myIsLogFailed = true;
+        LOG.severe("The proposal " + termID + " : " + sequenceNo 
+                   + " couldn't be persisted to the log of " 
+                   + getConsensusUnitID() 
+                   + ", hence abandoning the proposals in flight");
+        
+        for (ProposalTracker tracker : myProtocolState.abandonInFlight()) {
+            tracker.complete(false);
+            PooledObjects.freeInstance(tracker);
+        }
+        while (!myBatcher.isEmpty()) {
+            abandon(myBatcher.drain());
+        }
+    }
+    
+    /**
+     * Notifies the clients that the proposals of a batch that's not 
+     * replicated are not committed.
+     */
+    private void abandon(ProposalBatch batch)
+    {
+        for (Proposal proposal : batch.getProposals()) {
+            getEventBus().publish(
+                ActorID.CONSENSUS_MANAGER,
+                ConsensusResponseEvent.create(proposal, false));
+        }
+        PoolUtils.free(batch);
+    }
+
+    /**
+     * Sends the files of the latest snapshot to the follower in chunks.
+     * The snapshot covers all the proposals that precede the first one 
+     * in the log, from where the replication resumes. The chunks are 
+     * read from the disk by the snapshot reader, and only a window of 
+     * them is sent ahead of the follower's acknowledgements.
+     */
+    private void installSnapshot(NodeID follower)
+    {
+        mySnapshotTransfers.remove(follower);
+        long termID = myProtocolState.getTermNo();
+        long sequenceNo = myProtocolState.getSeqNumber();
+        WALCursor cursor = 
+            myWAL.openCursor(Long.MIN_VALUE, 
+                             Long.MIN_VALUE, 
+                             Long.MAX_VALUE, 
+                             Long.MAX_VALUE);
+        if (cursor.hasNext()) {
+            WALRecord firstRecord = cursor.next();
+            termID = firstRecord.getTermID();
+            sequenceNo = firstRecord.getSequenceNo() - 1;
+            PoolUtils.free(firstRecord.getProposal());
+        }
+        
+        File[] snapshotFiles = mySnapshotDirectory.listFiles();
+        if (snapshotFiles == null || snapshotFiles.length == 0) {
+            LOG.warning("The snapshot under " + mySnapshotDirectory 
+                        + " is not available to be sent to " + follower);
+            return;
+        }
+        Arrays.sort(snapshotFiles);
+        
+        LOG.info("Sending the snapshot taken at " + mySnapshotTime 
+                 + " covering upto " + termID + " : " + sequenceNo 
+                 + " to " + follower);
+        if (mySnapshotReader == null) {
+            mySnapshotReader = 
+                Executors.newSingleThreadExecutor(
+                    new NamedThreadFactory(
+                        getConsensusUnitID() + "-SnapshotReader", true));
+        }
+        SnapshotTransfer transfer = 
+            new SnapshotTransfer(follower, 
+                                 termID, 
+                                 sequenceNo, 
+                                 mySnapshotTime, 
+                                 snapshotFiles);
+        mySnapshotTransfers.put(follower, transfer);
+        transfer.sendChunks();
+    }
+    
+    /**
+     * Sends the chunks of the snapshot that follow the one acknowledged 
+     * by the follower.
+     */
+    private void handleSnapshotAck(RaftInstallSnapshotAck ack)
+    {
+        SnapshotTransfer transfer = 
+            mySnapshotTransfers.get(ack.getSenderId());
+        if (   transfer != null 
+            && transfer.mySnapshotTime == ack.getSnapshotTime()
+            && ack.getChunkNo() >= transfer.myAckedChunks)
+        {
+            transfer.myAckedChunks = ack.getChunkNo() + 1;
+            transfer.myAckTime = System.currentTimeMillis();
+            transfer.sendChunks();
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void compactLog(long snapshotTime, File snapshotDirectory)
+    {
+        mySnapshotTime = snapshotTime;
+        mySnapshotDirectory = snapshotDirectory;
+        // The entries written before this leader has been created are 
+        // discarded too, as the snapshot is taken after the database has 
+        // been recovered from them.
+        LogEntry firstEntry = myProtocolState.compact(snapshotTime);
+        if (firstEntry != null) {
+            myWAL.truncateBefore(firstEntry.myTermID, 
+                                 firstEntry.mySequenceNo);
+        }
+        else {
+            myWAL.truncateBefore(myProtocolState.getTermNo(), 
+                                 myProtocolState.getSeqNumber() + 1);
+        }
+        
+        LOG.info("Compacting the log of " + getConsensusUnitID() 
+                 + " with the snapshot taken at " + snapshotTime 
+                 + ". The log has " + myWAL.getSegmentCount() 
+                 + " segments of " + getLogSize() + " bytes and "
+                 + getCompactionLag() + " committed proposals are yet to" 
+                 + " be compacted");
     }
 
     /**
@@ -393,6 +1139,50 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
     {
         if (LOG.isLoggable(Level.FINE)) {
             LOG.fine("Received " + proposal + " for replication");
+        }
+        if (myIsLogFailed) {
+            getEventBus().publish(
+                ActorID.CONSENSUS_MANAGER,
+                ConsensusResponseEvent.create(proposal, false));
+            return;
+        }
+        // The proposals are replicated when the batch is full or when 
+        // the batch window expires.
+        if (myBatcher.add(proposal)) {
+            replicateBatches(false);
+        }
+    }
+    
+    /**
+     * Replicates the batches waiting in the {@link ProposalBatcher} as 
+     * long as there's room in the window. The batches that aren't full 
+     * are replicated only when asked for.
+     */
+    private void replicateBatches(boolean includePartialBatch)
+    {
+        while (   !myIsLogFailed
+               && !myBatcher.isEmpty()
+               && (includePartialBatch || myBatcher.isFull()))
+        {
+            if (myProtocolState.isWindowFull()) {
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.fine("Holding back the proposals of " 
+                             + getConsensusUnitID() + " as "
+                             + myProtocolState.getInFlightCount() 
+                             + " batches are in flight");
+                }
+                return;
+            }
+            replicate(myBatcher.drain());
+        }
+    }
+    
+    /**
+     * Replicates the given batch of proposals across the followers.
+     */
+    private void replicate(ProposalBatch batch)
+    {
+        if (LOG.isLoggable(Level.FINE)) {
             LOG.fine("The current term-number:seq-no is  " 
                      + myProtocolState.getTermNo()
                      + " : "
@@ -402,15 +1192,14 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
            ProposalTracker.create(
                getEventBus(),
                myWAL, 
-               proposal,
+               batch,
                getNodeID(), 
                getAcceptors(),
                getConsensusUnitID(), 
                myProtocolState.getTermNo(),
                myProtocolState.incAndGetSeqNum(),
                myProtocolState.getLastCommittedTermNo(),
-               myProtocolState.getLastCommittedSeqNo(),
-               myProtocolState);
+               myProtocolState.getLastCommittedSeqNo());
         
         if (LOG.isLoggable(Level.FINE)) {
             LOG.fine("The term-number:seq-no assigned is  " 
@@ -421,8 +1210,9 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
                      + getAcceptors());
         }
         
-        myProtocolState.setTracker(
-            trace.myTermID, trace.mySequenceNO, trace);
+        myProtocolState.addTracker(trace.mySequenceNO, trace);
+        myProtocolState.addEntry(
+            trace.myTermID, trace.mySequenceNO, batch.getTimestamp());
         
         trace.start();
     }
@@ -433,6 +1223,10 @@ public class RaftLeader extends ConsensusLeader implements RaftProtocol
     @Override
     public void handleTermChange(long newTermID)
     {
-        myProtocolState.setTermNo(newTermID);
+        for (ProposalTracker tracker : myProtocolState.setTermNo(newTermID))
+        {
+            tracker.complete(false);
+            PooledObjects.freeInstance(tracker);
+        }
     }
 }
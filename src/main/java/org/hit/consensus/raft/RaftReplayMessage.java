@@ -106,6 +106,7 @@ public class RaftReplayMessage extends ConsensusMessage
         throws IOException, ClassNotFoundException
     {
         super.readExternal(in);
+        myTermID = in.readLong();
         int size = in.readInt();
         for (int i = 0; i < size; i++) {
             long key = in.readLong();
@@ -121,9 +122,11 @@ public class RaftReplayMessage extends ConsensusMessage
     public void writeExternal(ObjectOutput out) throws IOException
     {
         super.writeExternal(out);
+        out.writeLong(myTermID);
         out.writeInt(myReplayedProposals.size());
         TLongObjectIterator<Proposal> itr = myReplayedProposals.iterator();
         while (itr.hasNext()) {
+            itr.advance();
             out.writeLong(itr.key());
             out.writeObject(itr.value());
         }
@@ -0,0 +1,217 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ring buffer of the entries that have been sent to the followers but
+ * are yet to be committed, indexed by their sequence numbers. Along with 
+ * every entry it keeps a count of the nodes that have acknowledged it, so 
+ * that the commit index can be advanced as soon as an entry has been 
+ * acknowledged by a quorum.
+ * <p>
+ * Since an acknowledgement for a sequence number implies that all the 
+ * preceding entries have been accepted too, every node acknowledges an 
+ * entry exactly once while raising it's match index. Hence the work done
+ * per acknowledgement is constant when amortized over the entries.
+ * <p>
+ * This class is not thread safe and is expected to be accessed from the
+ * thread that runs the consensus protocol.
+ * 
+ * @author Balraja Subbiah
+ */
+public class ReplicationWindow<T>
+{
+    private final Object[] myEntries;
+    
+    private final int[] myAckCounts;
+    
+    private final int myMask;
+    
+    private long myCommittedSeqNo;
+    
+    private long myLastSeqNo;
+    
+    /**
+     * CTOR
+     * 
+     * @param capacity The maximum number of entries that can be in flight,
+     *                 rounded up to the next power of two.
+     * @param committedSeqNo The sequence number of the last committed 
+     *                       entry.
+     */
+    public ReplicationWindow(int capacity, long committedSeqNo)
+    {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                "The capacity of the window should be positive " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        myEntries = new Object[size];
+        myAckCounts = new int[size];
+        myMask = size - 1;
+        myCommittedSeqNo = committedSeqNo;
+        myLastSeqNo = committedSeqNo;
+    }
+    
+    private int indexOf(long sequenceNo)
+    {
+        return (int) (sequenceNo & myMask);
+    }
+    
+    /**
+     * Returns the maximum number of entries that can be in flight.
+     */
+    public int getCapacity()
+    {
+        return myEntries.length;
+    }
+    
+    /**
+     * Returns the number of entries that are yet to be committed.
+     */
+    public int size()
+    {
+        return (int) (myLastSeqNo - myCommittedSeqNo);
+    }
+    
+    /**
+     * Returns true if no more entries can be added till the oldest ones 
+     * are committed.
+     */
+    public boolean isFull()
+    {
+        return size() >= myEntries.length;
+    }
+    
+    /**
+     * Returns the sequence number of the last committed entry.
+     */
+    public long getCommittedSeqNo()
+    {
+        return myCommittedSeqNo;
+    }
+    
+    /**
+     * Returns the sequence number of the last entry added to the window.
+     */
+    public long getLastSeqNo()
+    {
+        return myLastSeqNo;
+    }
+    
+    /**
+     * Adds the entry with the given sequence number to the window, which 
+     * should be the one that follows the last entry.
+     */
+    public void add(long sequenceNo, T entry)
+    {
+        if (sequenceNo != myLastSeqNo + 1) {
+            throw new IllegalStateException(
+                "Expected the sequence number " + (myLastSeqNo + 1) 
+                + " but got " + sequenceNo);
+        }
+        if (isFull()) {
+            throw new IllegalStateException(
+                "The window is full with " + size() + " entries");
+        }
+        int index = indexOf(sequenceNo);
+        myEntries[index] = entry;
+        myAckCounts[index] = 0;
+        myLastSeqNo = sequenceNo;
+    }
+    
+    /**
+     * Returns the entry with the given sequence number or null if it's 
+     * not in flight.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long sequenceNo)
+    {
+        if (sequenceNo <= myCommittedSeqNo || sequenceNo > myLastSeqNo) {
+            return null;
+        }
+        return (T) myEntries[indexOf(sequenceNo)];
+    }
+    
+    /**
+     * Records the acknowledgement of a node, whose match index has been 
+     * raised from <code>fromSeqNo</code> to <code>toSeqNo</code>, against
+     * the entries in between that are still in flight.
+     */
+    public void acknowledge(long fromSeqNo, long toSeqNo)
+    {
+        long start = Math.max(fromSeqNo, myCommittedSeqNo) + 1;
+        long end = Math.min(toSeqNo, myLastSeqNo);
+        for (long sequenceNo = start; sequenceNo <= end; sequenceNo++) {
+            myAckCounts[indexOf(sequenceNo)]++;
+        }
+    }
+    
+    /**
+     * Removes and returns the oldest entry, if it has been acknowledged by
+     * the given number of nodes. Returns null otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    public T pollCommitted(int quorum)
+    {
+        if (myCommittedSeqNo == myLastSeqNo) {
+            return null;
+        }
+        int index = indexOf(myCommittedSeqNo + 1);
+        if (myAckCounts[index] < quorum) {
+            return null;
+        }
+        T entry = (T) myEntries[index];
+        myEntries[index] = null;
+        myAckCounts[index] = 0;
+        myCommittedSeqNo++;
+        return entry;
+    }
+    
+    /**
+     * Removes all the entries in flight and returns them in the order of 
+     * their sequence numbers. The window continues from the given 
+     * sequence number.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> reset(long committedSeqNo)
+    {
+        List<T> entries = new ArrayList<>(size());
+        for (long sequenceNo = myCommittedSeqNo + 1; 
+             sequenceNo <= myLastSeqNo; 
+             sequenceNo++) 
+        {
+            int index = indexOf(sequenceNo);
+            entries.add((T) myEntries[index]);
+            myEntries[index] = null;
+            myAckCounts[index] = 0;
+        }
+        myCommittedSeqNo = committedSeqNo;
+        myLastSeqNo = committedSeqNo;
+        return entries;
+    }
+}
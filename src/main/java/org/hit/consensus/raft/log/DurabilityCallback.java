@@ -0,0 +1,45 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft.log;
+
+import java.io.IOException;
+
+/**
+ * Defines the contract for a callback that's notified once a record 
+ * appended to the {@link WAL} has been synced to the disk, or once it's 
+ * known that the record couldn't be persisted.
+ * 
+ * @author Balraja Subbiah
+ */
+public interface DurabilityCallback
+{
+    /**
+     * Notifies that the record with the given term and sequence number 
+     * is durable.
+     */
+    public void onDurable(long termID, long sequenceNo);
+    
+    /**
+     * Notifies that the record with the given term and sequence number 
+     * couldn't be serialized, appended or synced to the disk.
+     */
+    public void onFailure(long termID, long sequenceNo, IOException cause);
+}
@@ -20,38 +20,56 @@
 
 package org.hit.consensus.raft.log;
 
-import gnu.trove.map.TLongObjectMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
-
-import java.io.DataInputStream;
-import java.io.Externalizable;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.hit.consensus.Proposal;
-import org.hit.di.HitServerModule;
-import org.hit.fs.FileSystemFacacde;
+import org.hit.io.buffer.ByteBufferInputStream;
+import org.hit.io.pool.PoolableInput;
+import org.hit.io.pool.PoolableOutput;
+import org.hit.io.pool.PoolableRegistry;
+import org.hit.pool.SimplePoolableRegistry;
 import org.hit.util.LogFactory;
-
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterators;
-import com.google.inject.Guice;
-import com.google.inject.Injector;
+import org.hit.util.NamedThreadFactory;
 
 /**
  * Defines the contract for the write ahead logs to which mutations are
- * pesisted before they are committed. It stores
- * {@link WALConfig#getTransactionsPerFile()} number of mutations in a file.
- * Each record is stored as Double.NaN,record_size_as_int,serialized_format.
+ * pesisted before they are committed. The log is stored as a sequence of
+ * preallocated {@link WALSegment}s of {@link WALConfig#getSegmentSize()} 
+ * bytes each, where every record is framed with it's length and 
+ * checksum. The records are read back through {@link WALCursor}s.
+ * <p>
+ * The records are written to the segment by the caller, while a 
+ * background flusher syncs all the records written since the last sync 
+ * to the disk at once and notifies the {@link DurabilityCallback}s of 
+ * those records. The callbacks are notified of the records that 
+ * couldn't be persisted too, so that the callers never wait on them.
+ * <p>
+ * The flusher also preallocates the segment that follows the one being 
+ * appended to, so that the appends don't wait for the segment to be 
+ * zero filled when the log rolls over.
+ * <p>
+ * The log is compacted by discarding the segments whose records all 
+ * precede a given position, which is also done by the flusher so that 
+ * a segment is never discarded while it's being synced.
  *
  * @author Balraja Subbiah
  */
@@ -62,142 +80,224 @@ public class WAL
 
     private static final char HYPHEN = '_';
     
-    private static final String TRANSACTION_LOG_SUFFIX = ".transactionLog";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    
+    private static final String SEGMENT_INDEX_FORMAT = "%020d";
     
-    private static final String TERM_PREFIX = "term";
-
     /**
-     * Type for capturing the necessary information to be written into a
-     * write ahead log.
+     * Type for capturing a callback waiting for a record to be synced.
      */
-    public static class WALRecord implements Externalizable
+    private static class PendingSync
     {
-        private Proposal myProposal;
-
-        private long myTermID;
+        private final DurabilityCallback myCallback;
         
-        private long mySequenceNo;
-
-        /**
-         * CTOR
-         */
-        public WALRecord()
-        {
-            this(Long.MIN_VALUE, Long.MIN_VALUE, null);
-        }
+        private final long myTermID;
+        
+        private final long mySequenceNo;
 
         /**
          * CTOR
          */
-        public WALRecord(long termID, long sequenceNo, Proposal proposal)
+        public PendingSync(DurabilityCallback callback, 
+                           long               termID, 
+                           long               sequenceNo)
         {
-            super();
+            myCallback = callback;
             myTermID = termID;
             mySequenceNo = sequenceNo;
         }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void readExternal(ObjectInput in)
-            throws IOException, ClassNotFoundException
-        {
-            myTermID = in.readLong();
-            mySequenceNo = in.readLong();
-            myProposal = (Proposal) in.readObject();
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void writeExternal(ObjectOutput out) throws IOException
-        {
-            out.writeLong(myTermID);
-            out.writeLong(mySequenceNo);
-            out.writeObject(myProposal);
-        }
     }
     
-    private static class FileIterator implements Iterator<WALRecord>
+    /**
+     * Syncs the records appended to the log in batches.
+     */
+    private class Flusher implements Runnable
     {
-        private final ObjectInputStream myInStream;
-        
-        private WALRecord myWALRecord;
-        
-        /**
-         * CTOR
-         */
-        public FileIterator(DataInputStream inStream) throws IOException
-        {
-            myInStream = new ObjectInputStream(inStream);
-        }
-
         /**
          * {@inheritDoc}
          */
         @Override
-        public boolean hasNext()
+        public void run()
         {
-            try {
-                myWALRecord = (WALRecord) myInStream.readObject();
-            }
-            catch (ClassNotFoundException | IOException e) {
-                myWALRecord = null;
-                return false;
+            while (true) {
+                List<WALSegment> rolledSegments;
+                List<PendingSync> pendingSyncs;
+                WALSegment activeSegment;
+                boolean truncate;
+                long truncateTermID;
+                long truncateSequenceNo;
+                long preallocatedIndex;
+                myLock.lock();
+                try {
+                    while (myIsOpen
+                           && !myIsDirty
+                           && myRolledSegments.isEmpty()
+                           && !myIsTruncationRequested
+                           && !isPreallocationNeeded())
+                    {
+                        mySyncRequested.awaitUninterruptibly();
+                    }
+                    if (!myIsOpen
+                        && !myIsDirty
+                        && myRolledSegments.isEmpty()
+                        && !myIsTruncationRequested)
+                    {
+                        return;
+                    }
+                    rolledSegments = new ArrayList<>(myRolledSegments);
+                    myRolledSegments.clear();
+                    pendingSyncs = myPendingSyncs;
+                    myPendingSyncs = new ArrayList<>();
+                    activeSegment = myActiveSegment;
+                    myIsDirty = false;
+                    truncate = myIsTruncationRequested;
+                    truncateTermID = myTruncateTermID;
+                    truncateSequenceNo = myTruncateSequenceNo;
+                    myIsTruncationRequested = false;
+                    preallocatedIndex = Long.MIN_VALUE;
+                    if (isPreallocationNeeded()) {
+                        preallocatedIndex = myActiveSegment.getIndex() + 1;
+                        myPreallocatingIndex = preallocatedIndex;
+                    }
+                }
+                finally {
+                    myLock.unlock();
+                }
+                
+                IOException syncException = null;
+                try {
+                    for (WALSegment segment : rolledSegments) {
+                        segment.force();
+                    }
+                    if (activeSegment != null) {
+                        activeSegment.force();
+                    }
+                }
+                catch (IOException e) {
+                    LOG.log(Level.SEVERE, 
+                            "Exception when syncing the WAL to the disk", 
+                            e);
+                    syncException = e;
+                }
+                
+                for (PendingSync pendingSync : pendingSyncs) {
+                    if (syncException == null) {
+                        pendingSync.myCallback.onDurable(
+                            pendingSync.myTermID, pendingSync.mySequenceNo);
+                    }
+                    else {
+                        pendingSync.myCallback.onFailure(
+                            pendingSync.myTermID, 
+                            pendingSync.mySequenceNo,
+                            syncException);
+                    }
+                }
+                
+                if (preallocatedIndex != Long.MIN_VALUE) {
+                    preallocate(preallocatedIndex);
+                }
+                
+                if (truncate) {
+                    discardSegmentsBefore(truncateTermID, truncateSequenceNo);
+                }
             }
-            return true;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public WALRecord next()
-        {
-            return myWALRecord;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void remove()
-        {
-            throw new UnsupportedOperationException();
         }
     }
 
     private final WALConfig myConfig;
-
-    private final FileSystemFacacde myFacacde;
+    
+    private final File myDirectory;
+    
+    private final PoolableRegistry myRegistry;
 
     private final Lock myLock;
+    
+    private final Condition mySyncRequested;
+    
+    private final List<WALSegment> mySegments;
+    
+    private final List<WALSegment> myRolledSegments;
+    
+    private final ExecutorService myFlusher;
+    
+    private final Condition myPreallocationDone;
+    
+    private List<PendingSync> myPendingSyncs;
 
-    private ObjectOutputStream myLogStream;
+    private WALSegment myActiveSegment;
+    
+    private WALSegment myNextSegment;
+    
+    private long myPreallocatingIndex;
+    
+    private boolean myIsDirty;
+    
+    private boolean myIsOpen;
     
-    private long myLastTermID;
+    private boolean myIsTruncationRequested;
+    
+    private long myTruncateTermID;
+    
+    private long myTruncateSequenceNo;
     
     /**
      * CTOR
      */
     public WAL(WALConfig config)
     {
-        Injector injector = Guice.createInjector(new HitServerModule());
-        myFacacde = injector.getInstance(FileSystemFacacde.class);
-        myLock = new ReentrantLock();
         myConfig = config;
-        myFacacde.makeDirectory(myConfig.getBaseDirectoryPath());
+        myDirectory = 
+            new File(myConfig.getBaseDirectoryPath(), myConfig.getLogName());
+        myDirectory.mkdirs();
+        myRegistry = new SimplePoolableRegistry();
+        myLock = new ReentrantLock();
+        mySyncRequested = myLock.newCondition();
+        myPreallocationDone = myLock.newCondition();
+        myNextSegment = null;
+        myPreallocatingIndex = Long.MIN_VALUE;
+        mySegments = new CopyOnWriteArrayList<>();
+        myRolledSegments = new ArrayList<>();
+        myPendingSyncs = new ArrayList<>();
+        myIsDirty = false;
+        myIsOpen = true;
+        myIsTruncationRequested = false;
+        
+        long[] segmentIndices = listSegmentIndices();
+        for (int i = 0; i < segmentIndices.length; i++) {
+            File segmentFile = makeSegmentFile(segmentIndices[i]);
+            try {
+                if (i < segmentIndices.length - 1) {
+                    mySegments.add(
+                        WALSegment.openForRead(
+                            segmentFile, 
+                            segmentIndices[i], 
+                            myConfig.getIndexInterval()));
+                }
+                else {
+                    myActiveSegment = 
+                        WALSegment.open(segmentFile, 
+                                        segmentIndices[i], 
+                                        myConfig.getIndexInterval());
+                    mySegments.add(myActiveSegment);
+                }
+            }
+            catch (IOException e) {
+                LOG.log(Level.SEVERE, 
+                        "Exception when opening the WAL segment " 
+                        + segmentFile,
+                        e);
+            }
+        }
+        
         LOG.info("Persisting transaction logs under " 
-                 + myConfig.getBaseDirectoryPath()
-                 + " with " + myConfig.getTransactionsPerFile()
-                 + " transactions per file to the "
-                 + myFacacde.getClass().getSimpleName() 
-                 + " file system");
+                 + myDirectory.getAbsolutePath()
+                 + " in segments of " + myConfig.getSegmentSize()
+                 + " bytes");
         
-        myLastTermID = -1L;
-        myLogStream = null;
+        myFlusher = 
+            Executors.newSingleThreadExecutor(
+                new NamedThreadFactory(WAL.class, true));
+        myFlusher.submit(new Flusher());
     }
 
     /**
@@ -206,119 +306,417 @@ public class WAL
      */
     public void addProposal(long termID, long sequenceNO, Proposal proposal)
     {
+        addProposal(termID, sequenceNO, proposal, null);
+    }
+    
+    /**
+     * Persists the given mutation to a file system and notifies the 
+     * given callback once it has been synced to the disk.
+     */
+    public void addProposal(long               termID, 
+                            long               sequenceNO, 
+                            Proposal           proposal,
+                            DurabilityCallback callback)
+    {
+        ByteBuffer frame = null;
         try {
-            myLock.lock();
-            if (myLogStream == null || myLastTermID != termID) {
-                if (myLastTermID != termID) {
-                    myLogStream.flush();
-                    myLogStream.close();
-                }
-                
-                String dirPath = makeTermDirectory(termID);
-                myFacacde.makeDirectory(dirPath);
-                myLogStream = 
-                    new ObjectOutputStream(
-                        myFacacde.createFile(
-                            makeFileName(dirPath, sequenceNO), false));
-                myLastTermID = termID;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PoolableOutput output = 
+                new PoolableOutput(bytes, myRegistry, false);
+            output.writeObject(proposal);
+            output.flush();
+            byte[] payload = bytes.toByteArray();
+            frame = 
+                WALSegment.makeFrame(
+                    termID, sequenceNO, payload, payload.length);
+        }
+        catch (IOException e) {
+            LOG.log(Level.SEVERE,
+                    "Exception when serializing " + proposal, 
+                    e);
+            if (callback != null) {
+                callback.onFailure(termID, sequenceNO, e);
             }
-            else if (sequenceNO % myConfig.getTransactionsPerFile() == 0) {
-                myLogStream.flush();
-                myLogStream.close();
-                myLogStream =
-                    new ObjectOutputStream(
-                        myFacacde.createFile(
-                             makeFileName(
-                                 makeTermDirectory(termID), sequenceNO), false));
+            return;
+        }
+        
+        IOException appendException = null;
+        myLock.lock();
+        try {
+            if (!myIsOpen) {
+                throw new IOException("The WAL has been closed");
+            }
+            if (   myActiveSegment == null 
+                || !myActiveSegment.hasRoomFor(frame.remaining())) 
+            {
+                rollSegment(frame.remaining());
+            }
+            myActiveSegment.append(frame, termID, sequenceNO);
+            myIsDirty = true;
+            if (callback != null) {
+                myPendingSyncs.add(
+                    new PendingSync(callback, termID, sequenceNO));
             }
-            myLogStream.writeObject(
-                new WALRecord(sequenceNO, sequenceNO, proposal));
+            mySyncRequested.signal();
         }
         catch (IOException e) {
             LOG.log(Level.SEVERE,
                     "Exception when persisting a transaction to WAL",
                     e);
-
+            appendException = e;
         }
         finally {
             myLock.unlock();
         }
+        
+        // The callback is notified outside the lock, as it's free to 
+        // append to the log again.
+        if (appendException != null && callback != null) {
+            callback.onFailure(termID, sequenceNO, appendException);
+        }
     }
     
-    private String makeTermDirectory(long termID)
+    /**
+     * Rolls the log over to the next segment, which is usually the one 
+     * preallocated by the flusher. The segment is created here only when 
+     * the preallocated one isn't large enough for the frame or when it 
+     * couldn't be preallocated.
+     */
+    private void rollSegment(int frameSize) throws IOException
     {
-        return myConfig.getBaseDirectoryPath()
-             + File.separator
-             + TERM_PREFIX
-             + HYPHEN
-             + Long.toString(termID);
+        long index = 0L;
+        if (myActiveSegment != null) {
+            index = myActiveSegment.getIndex() + 1;
+        }
+        // Don't race with the flusher in creating the same file.
+        while (myPreallocatingIndex == index) {
+            myPreallocationDone.awaitUninterruptibly();
+        }
+        
+        WALSegment nextSegment = myNextSegment;
+        myNextSegment = null;
+        if (   nextSegment == null 
+            || nextSegment.getIndex() != index
+            || !nextSegment.hasRoomFor(frameSize))
+        {
+            if (nextSegment != null) {
+                discardQuietly(nextSegment);
+            }
+            nextSegment = 
+                WALSegment.create(
+                    makeSegmentFile(index), 
+                    index, 
+                    Math.max(myConfig.getSegmentSize(), frameSize),
+                    myConfig.getIndexInterval());
+        }
+        
+        if (myActiveSegment != null) {
+            myRolledSegments.add(myActiveSegment);
+        }
+        myActiveSegment = nextSegment;
+        mySegments.add(myActiveSegment);
+        // Let the flusher preallocate the segment that follows.
+        mySyncRequested.signal();
+        
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Rolled the WAL over to " + myActiveSegment.getFile());
+        }
     }
-
-    private String makeFileName(String termDirPath, long sequenceNumber)
+    
+    /**
+     * Returns true if the segment that follows the one being appended to
+     * is yet to be preallocated.
+     */
+    private boolean isPreallocationNeeded()
     {
-        return termDirPath
-               + File.separator
-               + myConfig.getLogName()
-               + HYPHEN
-               + Long.toString(sequenceNumber)
-               + TRANSACTION_LOG_SUFFIX;
+        return    myIsOpen 
+               && myActiveSegment != null 
+               && myNextSegment == null
+               && myPreallocatingIndex == Long.MIN_VALUE;
     }
     
     /**
-     * Returns an iterator over the list of proposals between the
-     * sequence numbers specified.
+     * Creates the segment with the given index, to which the log rolls 
+     * over once the active segment is full.
      */
-    public TLongObjectMap<Proposal> readProposalsFromLog(
-        long termID, final long fromSequence, final long toSequence)
+    private void preallocate(long index)
     {
+        WALSegment segment = null;
         try {
-            
-            TLongObjectMap<Proposal> proposals = new TLongObjectHashMap<>();
-            String dirPath = makeTermDirectory(termID);
-            long sequence = 
-                (fromSequence - (fromSequence % myConfig.getTransactionsPerFile()));
-            long endSequence = 
-                 (toSequence 
-                  + (myConfig.getTransactionsPerFile()
-                         - (toSequence % myConfig.getTransactionsPerFile())));
-            
-            Predicate<WALRecord> predicate = new Predicate<WAL.WALRecord>() {
-    
-                @Override
-                public boolean apply(WALRecord record)
-                {
-                    return record.mySequenceNo >= fromSequence
-                        && record.mySequenceNo <= toSequence;
-                }
-            };
-            
-            while (sequence <= endSequence) {
-                
-                DataInputStream inputLogFile = 
-                    myFacacde.openFileForRead(makeFileName(dirPath, sequence));
-                                
-                try {
-                    Iterator<WAL.WALRecord> walRecordIterator = 
-                        Iterators.filter(
-                            new FileIterator(inputLogFile), predicate);
-                    
-                    while (walRecordIterator.hasNext()) {
-                        WAL.WALRecord record = walRecordIterator.next();
-                        proposals.put(record.mySequenceNo, record.myProposal);
-                    }
-                }
-                catch (IOException e) {
-                    LOG.log(Level.SEVERE, 
-                           "Exception while reading data from"
-                            + makeFileName(dirPath, sequence),
-                            e);
+            segment = 
+                WALSegment.create(makeSegmentFile(index), 
+                                  index, 
+                                  myConfig.getSegmentSize(),
+                                  myConfig.getIndexInterval());
+        }
+        catch (IOException e) {
+            LOG.log(Level.SEVERE, 
+                    "Exception when preallocating the WAL segment " 
+                    + makeSegmentFile(index),
+                    e);
+        }
+        
+        myLock.lock();
+        try {
+            myPreallocatingIndex = Long.MIN_VALUE;
+            if (   segment != null
+                && myIsOpen
+                && myActiveSegment.getIndex() + 1 == index)
+            {
+                myNextSegment = segment;
+                segment = null;
+            }
+            myPreallocationDone.signalAll();
+        }
+        finally {
+            myLock.unlock();
+        }
+        
+        if (segment != null) {
+            discardQuietly(segment);
+        }
+    }
+    
+    /**
+     * Requests the segments whose records all precede the record with 
+     * the given term and sequence number to be discarded. The segment to 
+     * which the records are appended is never discarded. The segments 
+     * are discarded asynchronously by the flusher.
+     */
+    public void truncateBefore(long termID, long sequenceNo)
+    {
+        myLock.lock();
+        try {
+            myTruncateTermID = termID;
+            myTruncateSequenceNo = sequenceNo;
+            myIsTruncationRequested = true;
+            mySyncRequested.signal();
+        }
+        finally {
+            myLock.unlock();
+        }
+    }
+    
+    private void discardSegmentsBefore(long termID, long sequenceNo)
+    {
+        WALSegment activeSegment;
+        Set<WALSegment> unsyncedSegments;
+        myLock.lock();
+        try {
+            activeSegment = myActiveSegment;
+            unsyncedSegments = new HashSet<>(myRolledSegments);
+        }
+        finally {
+            myLock.unlock();
+        }
+        
+        int discardedCount = 0;
+        for (WALSegment segment : mySegments) {
+            if (segment == activeSegment 
+                || unsyncedSegments.contains(segment)) 
+            {
+                break;
+            }
+            try {
+                if (!segment.isBefore(termID, sequenceNo)) {
+                    break;
                 }
-                sequence += myConfig.getTransactionsPerFile();
             }
-            return proposals;
+            catch (IOException e) {
+                LOG.log(Level.SEVERE, 
+                        "Exception when reading the WAL segment " 
+                        + segment.getFile(),
+                        e);
+                break;
+            }
+            mySegments.remove(segment);
+            closeQuietly(segment);
+            if (!segment.getFile().delete()) {
+                LOG.warning("Unable to delete the WAL segment " 
+                            + segment.getFile());
+            }
+            discardedCount++;
+        }
+        
+        if (discardedCount > 0) {
+            LOG.info("Discarded " + discardedCount + " segments of " 
+                     + myConfig.getLogName() + " preceding " 
+                     + termID + " : " + sequenceNo);
+        }
+    }
+    
+    /**
+     * Returns true if the record with the given term and sequence number
+     * is no longer available, as the segment holding it has been 
+     * discarded when the log has been compacted.
+     */
+    public boolean isCompacted(long termID, long sequenceNo)
+    {
+        Iterator<WALSegment> segments = mySegments.iterator();
+        if (!segments.hasNext()) {
+            return false;
+        }
+        WALSegment firstSegment = segments.next();
+        try {
+            // The segments are numbered from zero, hence the log has 
+            // been compacted when the first one is missing.
+            return    firstSegment.getIndex() > 0 
+                   && firstSegment.isAfter(termID, sequenceNo);
+        }
+        catch (IOException e) {
+            LOG.log(Level.SEVERE, 
+                    "Exception when reading the WAL segment " 
+                    + firstSegment.getFile(),
+                    e);
+            return false;
+        }
+    }
+    
+    /**
+     * Returns the number of bytes occupied by the log on the disk.
+     */
+    public long getSizeOnDisk()
+    {
+        long size = 0L;
+        for (WALSegment segment : mySegments) {
+            size += segment.getFile().length();
+        }
+        return size;
+    }
+    
+    /**
+     * Returns the number of segments in the log.
+     */
+    public int getSegmentCount()
+    {
+        return mySegments.size();
+    }
+    
+    private File makeSegmentFile(long index)
+    {
+        return new File(myDirectory,
+                        myConfig.getLogName()
+                        + HYPHEN
+                        + String.format(SEGMENT_INDEX_FORMAT, index)
+                        + SEGMENT_SUFFIX);
+    }
+    
+    private long[] listSegmentIndices()
+    {
+        final String prefix = myConfig.getLogName() + HYPHEN;
+        String[] segmentNames = myDirectory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(prefix) 
+                       && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (segmentNames == null) {
+            return new long[0];
+        }
+        long[] indices = new long[segmentNames.length];
+        for (int i = 0; i < segmentNames.length; i++) {
+            indices[i] = 
+                Long.parseLong(
+                    segmentNames[i].substring(
+                        prefix.length(), 
+                        segmentNames[i].length() - SEGMENT_SUFFIX.length()));
+        }
+        Arrays.sort(indices);
+        return indices;
+    }
+    
+    /**
+     * Deserializes the {@link Proposal} from the payload of a record.
+     */
+    Proposal readProposal(ByteBuffer payload) 
+        throws IOException, ClassNotFoundException
+    {
+        PoolableInput input = 
+            new PoolableInput(new ByteBufferInputStream(payload), myRegistry);
+        return (Proposal) input.readObject();
+    }
+    
+    /**
+     * Returns a {@link WALCursor} over the records of the given term 
+     * between the sequence numbers specified.
+     */
+    public WALCursor openCursor(
+        long termID, long fromSequence, long toSequence)
+    {
+        return openCursor(termID, fromSequence, termID, toSequence);
+    }
+    
+    /**
+     * Returns a {@link WALCursor} over the records between the given 
+     * positions in the log.
+     */
+    public WALCursor openCursor(long fromTermID, 
+                                long fromSequence, 
+                                long toTermID, 
+                                long toSequence)
+    {
+        return new WALCursor(this, 
+                             new ArrayList<>(mySegments),
+                             fromTermID, 
+                             fromSequence, 
+                             toTermID, 
+                             toSequence);
+    }
+    
+    /**
+     * Syncs the pending records and closes the log.
+     */
+    public void close()
+    {
+        myLock.lock();
+        try {
+            myIsOpen = false;
+            mySyncRequested.signal();
         }
         finally {
             myLock.unlock();
         }
+        
+        myFlusher.shutdown();
+        try {
+            myFlusher.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (WALSegment segment : mySegments) {
+            closeQuietly(segment);
+        }
+        // The preallocated segment doesn't hold any record.
+        if (myNextSegment != null) {
+            discardQuietly(myNextSegment);
+            myNextSegment = null;
+        }
+    }
+    
+    private static void discardQuietly(WALSegment segment)
+    {
+        closeQuietly(segment);
+        if (!segment.getFile().delete()) {
+            LOG.warning("Unable to delete the WAL segment " 
+                        + segment.getFile());
+        }
+    }
+    
+    private static void closeQuietly(WALSegment segment)
+    {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        }
+        catch (IOException e) {
+            LOG.log(Level.WARNING, 
+                    "Exception when closing " + segment.getFile(), 
+                    e);
+        }
     }
 }
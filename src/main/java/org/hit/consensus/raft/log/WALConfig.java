@@ -38,7 +38,25 @@ public interface WALConfig
     public String getBaseDirectoryPath();
     
     /**
-     * Returns the number of transactions per file.
+     * Returns the size in bytes of a log segment. The segments are 
+     * preallocated to this size when they are created.
      */
-    public int getTransactionsPerFile();
+    public long getSegmentSize();
+    
+    /**
+     * Returns the number of bytes between two consecutive records 
+     * indexed in a segment.
+     */
+    public int getIndexInterval();
+    
+    /**
+     * Returns the maximum number of proposals replayed at a time.
+     */
+    public int getReplayChunkSize();
+    
+    /**
+     * Returns the maximum number of bytes of a snapshot sent at a time 
+     * to a follower that has fallen behind the compacted log.
+     */
+    public int getSnapshotChunkSize();
 }
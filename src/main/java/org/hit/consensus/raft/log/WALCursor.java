@@ -0,0 +1,220 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft.log;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.consensus.Proposal;
+import org.hit.util.LogFactory;
+
+/**
+ * Implements an {@link Iterator} over the records of a {@link WAL} 
+ * between two positions in the log. The records are read lazily from 
+ * the segments, seeking to the first record through the index of the 
+ * segment, so that a range of records can be streamed in bounded chunks.
+ * 
+ * @author Balraja Subbiah
+ */
+public class WALCursor implements Iterator<WALRecord>
+{
+    private static final Logger LOG = 
+        LogFactory.getInstance().getLogger(WALCursor.class);
+    
+    private final WAL myWAL;
+    
+    private final WALSegment.RecordVisitor myVisitor;
+    
+    private final Iterator<WALSegment> mySegments;
+    
+    private final long myFromTermID;
+    
+    private final long myFromSequenceNo;
+    
+    private final long myToTermID;
+    
+    private final long myToSequenceNo;
+    
+    private WALSegment mySegment;
+    
+    private long myPosition;
+    
+    private WALRecord myNext;
+    
+    private boolean myIsDone;
+    
+    private boolean myIsVisited;
+    
+    private long myVisitedTermID;
+    
+    private long myVisitedSequenceNo;
+    
+    private ByteBuffer myVisitedPayload;
+    
+    /**
+     * CTOR
+     */
+    WALCursor(WAL              wal,
+              List<WALSegment> segments,
+              long             fromTermID,
+              long             fromSequenceNo,
+              long             toTermID,
+              long             toSequenceNo)
+    {
+        myWAL = wal;
+        myVisitor = new WALSegment.RecordVisitor() {
+            @Override
+            public boolean visit(
+                long termID, long sequenceNo, ByteBuffer payload)
+            {
+                myIsVisited = true;
+                myVisitedTermID = termID;
+                myVisitedSequenceNo = sequenceNo;
+                myVisitedPayload = payload;
+                // Stop after every record to check it against the range.
+                return false;
+            }
+        };
+        mySegments = segments.iterator();
+        myFromTermID = fromTermID;
+        myFromSequenceNo = fromSequenceNo;
+        myToTermID = toTermID;
+        myToSequenceNo = toSequenceNo;
+        mySegment = null;
+        myPosition = 0L;
+        myNext = null;
+        myIsDone = false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext()
+    {
+        try {
+            while (myNext == null && !myIsDone) {
+                if (mySegment == null && !nextSegment()) {
+                    myIsDone = true;
+                    break;
+                }
+                
+                myIsVisited = false;
+                myPosition = mySegment.scan(myPosition, myVisitor);
+                if (!myIsVisited) {
+                    mySegment = null;
+                    continue;
+                }
+                
+                if (WALSegment.compare(myVisitedTermID, 
+                                       myVisitedSequenceNo,
+                                       myFromTermID,
+                                       myFromSequenceNo) < 0)
+                {
+                    continue;
+                }
+                if (WALSegment.compare(myVisitedTermID, 
+                                       myVisitedSequenceNo,
+                                       myToTermID,
+                                       myToSequenceNo) > 0)
+                {
+                    myIsDone = true;
+                    break;
+                }
+                myNext = new WALRecord(myVisitedTermID, 
+                                       myVisitedSequenceNo, 
+                                       myWAL.readProposal(myVisitedPayload));
+            }
+        }
+        catch (ClassNotFoundException | IOException e) {
+            LOG.log(Level.SEVERE, 
+                    "Exception when reading the record after "
+                    + myPosition + " in " + mySegment.getFile(),
+                    e);
+            myIsDone = true;
+        }
+        finally {
+            myVisitedPayload = null;
+        }
+        return myNext != null;
+    }
+    
+    private boolean nextSegment() throws IOException
+    {
+        while (mySegments.hasNext()) {
+            WALSegment segment = mySegments.next();
+            if (segment.isAfter(myToTermID, myToSequenceNo)) {
+                return false;
+            }
+            if (!segment.isBefore(myFromTermID, myFromSequenceNo)) {
+                mySegment = segment;
+                myPosition = segment.seek(myFromTermID, myFromSequenceNo);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WALRecord next()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        WALRecord record = myNext;
+        myNext = null;
+        return record;
+    }
+    
+    /**
+     * Returns the proposals of next <code>maxSize</code> records keyed 
+     * by their sequence numbers.
+     */
+    public TLongObjectMap<Proposal> nextChunk(int maxSize)
+    {
+        TLongObjectMap<Proposal> chunk = new TLongObjectHashMap<>();
+        while (chunk.size() < maxSize && hasNext()) {
+            WALRecord record = next();
+            chunk.put(record.getSequenceNo(), record.getProposal());
+        }
+        return chunk;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
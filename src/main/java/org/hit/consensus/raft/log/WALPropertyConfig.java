@@ -36,8 +36,25 @@ public class WALPropertyConfig implements WALConfig
     
     public static final String WAL_BASE_DIRECTORY = "org.hit.wal.basePath";
     
-    private static final String WAL_TRANCTIONS_PER_FILE = 
-        "org.hit.wal.transactionsPerFile";
+    private static final String WAL_SEGMENT_SIZE = 
+        "org.hit.wal.segmentSizeInBytes";
+    
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024L * 1024L;
+    
+    private static final String WAL_INDEX_INTERVAL = 
+        "org.hit.wal.indexIntervalInBytes";
+    
+    private static final int DEFAULT_INDEX_INTERVAL = 4096;
+    
+    private static final String WAL_REPLAY_CHUNK_SIZE = 
+        "org.hit.wal.replayChunkSize";
+    
+    private static final int DEFAULT_REPLAY_CHUNK_SIZE = 256;
+    
+    private static final String WAL_SNAPSHOT_CHUNK_SIZE = 
+        "org.hit.wal.snapshotChunkSizeInBytes";
+    
+    private static final int DEFAULT_SNAPSHOT_CHUNK_SIZE = 64 * 1024;
     
     private final String myLogName;
     
@@ -72,12 +89,48 @@ public class WALPropertyConfig implements WALConfig
      * {@inheritDoc}
      */
     @Override
-    public int getTransactionsPerFile()
+    public long getSegmentSize()
+    {
+        String segmentSize = 
+            ApplicationProperties.getProperty(WAL_SEGMENT_SIZE);
+        return segmentSize != null ? Long.parseLong(segmentSize)
+                                   : DEFAULT_SEGMENT_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIndexInterval()
+    {
+        String indexInterval = 
+            ApplicationProperties.getProperty(WAL_INDEX_INTERVAL);
+        return indexInterval != null ? Integer.parseInt(indexInterval)
+                                     : DEFAULT_INDEX_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getReplayChunkSize()
+    {
+        String chunkSize = 
+            ApplicationProperties.getProperty(WAL_REPLAY_CHUNK_SIZE);
+        return chunkSize != null ? Integer.parseInt(chunkSize)
+                                 : DEFAULT_REPLAY_CHUNK_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSnapshotChunkSize()
     {
-        String transactionsPerFile = 
-            ApplicationProperties.getProperty(WAL_TRANCTIONS_PER_FILE);
-        return transactionsPerFile != null ? Integer.valueOf(transactionsPerFile)
-                                           : -1;
+        String chunkSize = 
+            ApplicationProperties.getProperty(WAL_SNAPSHOT_CHUNK_SIZE);
+        return chunkSize != null ? Integer.parseInt(chunkSize)
+                                 : DEFAULT_SNAPSHOT_CHUNK_SIZE;
     }
 
     /**
@@ -0,0 +1,73 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft.log;
+
+import org.hit.consensus.Proposal;
+
+/**
+ * Type for capturing the information stored in a record of the 
+ * {@link WAL}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class WALRecord
+{
+    private final long myTermID;
+    
+    private final long mySequenceNo;
+    
+    private final Proposal myProposal;
+
+    /**
+     * CTOR
+     */
+    public WALRecord(long termID, long sequenceNo, Proposal proposal)
+    {
+        super();
+        myTermID = termID;
+        mySequenceNo = sequenceNo;
+        myProposal = proposal;
+    }
+
+    /**
+     * Returns the value of termID
+     */
+    public long getTermID()
+    {
+        return myTermID;
+    }
+
+    /**
+     * Returns the value of sequenceNo
+     */
+    public long getSequenceNo()
+    {
+        return mySequenceNo;
+    }
+
+    /**
+     * Returns the value of proposal
+     */
+    public Proposal getProposal()
+    {
+        return myProposal;
+    }
+}
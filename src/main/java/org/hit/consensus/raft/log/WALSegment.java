@@ -0,0 +1,487 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.raft.log;
+
+import gnu.trove.list.array.TLongArrayList;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.zip.CRC32;
+
+/**
+ * Defines a fixed size segment of the {@link WAL}. The segments are 
+ * preallocated with zeros when they are created and the records are 
+ * appended one after the other through a <code>FileChannel</code>. Each 
+ * record is framed as
+ * <pre>
+ * length(int) checksum(int) termID(long) sequenceNo(long) payload
+ * </pre>
+ * where the length is the size of the payload and the checksum is the
+ * CRC32 of the term id, sequence number and the payload. A record with 
+ * zero length or a mismatching checksum marks the end of the segment.
+ * <p>
+ * The records are read from a memory mapped view of the segment. A 
+ * sparse index maps the term and sequence number of a record to it's 
+ * offset every {@link WALConfig#getIndexInterval()} bytes, so that a 
+ * range of records can be read by seeking to the closest indexed record
+ * and scanning from there.
+ * 
+ * @author Balraja Subbiah
+ */
+public class WALSegment
+{
+    /** The size of the header preceding the payload of a record */
+    public static final int HEADER_SIZE = 24;
+    
+    private static final int CHECKSUMMED_HEADER_SIZE = 16;
+    
+    private static final int PREALLOCATION_CHUNK_SIZE = 1024 * 1024;
+    
+    /**
+     * Defines the contract for visiting the records stored in a segment.
+     */
+    public static interface RecordVisitor
+    {
+        /**
+         * Visits the record with the given term and sequence number. 
+         * Returns false if the scan has to be stopped. 
+         */
+        public boolean visit(long termID, long sequenceNo, ByteBuffer payload);
+    }
+    
+    private final File myFile;
+    
+    private final long myIndex;
+    
+    private final FileChannel myChannel;
+    
+    private final long mySize;
+    
+    private final int myIndexInterval;
+    
+    private final TLongArrayList myIndexedTerms;
+    
+    private final TLongArrayList myIndexedSequences;
+    
+    private final TLongArrayList myIndexedOffsets;
+    
+    private volatile long myWritePosition;
+    
+    private boolean myIsIndexed;
+    
+    private long myLastTermID;
+    
+    private long myLastSequenceNo;
+    
+    private MappedByteBuffer myMappedBuffer;
+
+    /**
+     * CTOR
+     */
+    private WALSegment(File        file, 
+                       long        index, 
+                       FileChannel channel, 
+                       long        size,
+                       int         indexInterval)
+    {
+        myFile = file;
+        myIndex = index;
+        myChannel = channel;
+        mySize = size;
+        myIndexInterval = indexInterval;
+        myIndexedTerms = new TLongArrayList();
+        myIndexedSequences = new TLongArrayList();
+        myIndexedOffsets = new TLongArrayList();
+        myWritePosition = 0L;
+        myIsIndexed = false;
+        myLastTermID = -1L;
+        myLastSequenceNo = -1L;
+        myMappedBuffer = null;
+    }
+    
+    /**
+     * Creates a new segment of the given size in the given file, filling
+     * it up with zeros.
+     */
+    @SuppressWarnings("resource")
+    public static WALSegment create(
+        File file, long index, long size, int indexInterval)
+        throws IOException
+    {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(
+                "The segment size " + size + " is larger than "
+                + Integer.MAX_VALUE);
+        }
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        ByteBuffer zeros = 
+            ByteBuffer.allocateDirect(
+                (int) Math.min(size, PREALLOCATION_CHUNK_SIZE));
+        long position = 0L;
+        while (position < size) {
+            zeros.clear();
+            zeros.limit((int) Math.min(zeros.capacity(), size - position));
+            while (zeros.hasRemaining()) {
+                position += channel.write(zeros, position);
+            }
+        }
+        channel.force(true);
+        WALSegment segment = 
+            new WALSegment(file, index, channel, size, indexInterval);
+        segment.myIsIndexed = true;
+        return segment;
+    }
+    
+    /**
+     * Opens an existing segment for appending records. The records that
+     * were partially written before a crash are cleared from the 
+     * segment.
+     */
+    @SuppressWarnings("resource")
+    public static WALSegment open(File file, long index, int indexInterval) 
+        throws IOException
+    {
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        WALSegment segment = 
+            new WALSegment(
+                file, index, channel, channel.size(), indexInterval);
+        segment.buildIndex();
+        segment.clearTornRecord();
+        return segment;
+    }
+    
+    /**
+     * Opens an existing segment for reading the records. The index is 
+     * built when the segment is read for the first time.
+     */
+    @SuppressWarnings("resource")
+    public static WALSegment openForRead(
+        File file, long index, int indexInterval) 
+        throws IOException
+    {
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        WALSegment segment = 
+            new WALSegment(
+                file, index, channel, channel.size(), indexInterval);
+        segment.myWritePosition = segment.mySize;
+        return segment;
+    }
+    
+    /**
+     * Returns a frame of the record to be appended to a segment.
+     */
+    public static ByteBuffer makeFrame(
+        long termID, long sequenceNo, byte[] payload, int length)
+    {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + length);
+        frame.putInt(length);
+        frame.putInt(0);
+        frame.putLong(termID);
+        frame.putLong(sequenceNo);
+        frame.put(payload, 0, length);
+        CRC32 checksum = new CRC32();
+        checksum.update(frame.array(), 
+                        HEADER_SIZE - CHECKSUMMED_HEADER_SIZE, 
+                        CHECKSUMMED_HEADER_SIZE + length);
+        frame.putInt(4, (int) checksum.getValue());
+        frame.flip();
+        return frame;
+    }
+    
+    /**
+     * Compares the position of two records in the log by their term and
+     * sequence number.
+     */
+    public static int compare(
+        long termID, long sequenceNo, long otherTermID, long otherSequenceNo)
+    {
+        if (termID != otherTermID) {
+            return termID < otherTermID ? -1 : 1;
+        }
+        else if (sequenceNo != otherSequenceNo) {
+            return sequenceNo < otherSequenceNo ? -1 : 1;
+        }
+        return 0;
+    }
+    
+    /**
+     * Returns the file backing this segment.
+     */
+    public File getFile()
+    {
+        return myFile;
+    }
+    
+    /**
+     * Returns the index of this segment in the log.
+     */
+    public long getIndex()
+    {
+        return myIndex;
+    }
+    
+    /**
+     * Returns the position in the segment at which the next record will 
+     * be appended.
+     */
+    public long getWritePosition()
+    {
+        return myWritePosition;
+    }
+    
+    /**
+     * Returns true if there is enough space left in the segment for 
+     * appending a frame of given size.
+     */
+    public boolean hasRoomFor(int frameSize)
+    {
+        return myWritePosition + frameSize <= mySize;
+    }
+    
+    /**
+     * Appends the given frame of the record with given term and 
+     * sequence number to the segment.
+     */
+    public void append(ByteBuffer frame, long termID, long sequenceNo) 
+        throws IOException
+    {
+        long position = myWritePosition;
+        while (frame.hasRemaining()) {
+            position += myChannel.write(frame, position);
+        }
+        addToIndex(termID, sequenceNo, myWritePosition);
+        myWritePosition = position;
+    }
+    
+    /**
+     * Syncs the records appended to the segment to the disk.
+     */
+    public void force() throws IOException
+    {
+        myChannel.force(false);
+    }
+    
+    /**
+     * Closes the segment.
+     */
+    public void close() throws IOException
+    {
+        myChannel.close();
+    }
+    
+    /**
+     * Returns true if all the records in this segment precede the record
+     * with the given term and sequence number.
+     */
+    public synchronized boolean isBefore(long termID, long sequenceNo) 
+        throws IOException
+    {
+        ensureIndexed();
+        return    myIndexedOffsets.isEmpty()
+               || compare(myLastTermID, myLastSequenceNo, termID, sequenceNo) 
+                      < 0;
+    }
+    
+    /**
+     * Returns true if all the records in this segment follow the record
+     * with the given term and sequence number.
+     */
+    public synchronized boolean isAfter(long termID, long sequenceNo) 
+        throws IOException
+    {
+        ensureIndexed();
+        return    !myIndexedOffsets.isEmpty()
+               && compare(myIndexedTerms.get(0), 
+                          myIndexedSequences.get(0),
+                          termID, 
+                          sequenceNo) > 0;
+    }
+    
+    /**
+     * Returns the position of the closest indexed record that precedes 
+     * or is the same as the record with given term and sequence number.
+     */
+    public synchronized long seek(long termID, long sequenceNo)
+        throws IOException
+    {
+        ensureIndexed();
+        int low = 0;
+        int high = myIndexedOffsets.size() - 1;
+        long position = 0L;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(myIndexedTerms.get(mid), 
+                        myIndexedSequences.get(mid),
+                        termID,
+                        sequenceNo) <= 0)
+            {
+                position = myIndexedOffsets.get(mid);
+                low = mid + 1;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return position;
+    }
+    
+    /**
+     * Scans the records starting from the given position, passing them
+     * to the given visitor. The payload passed to the visitor is a view 
+     * of the mapped segment and is valid only till the segment is open.
+     * Returns the position following the last record that has been 
+     * scanned.
+     */
+    public long scan(long position, RecordVisitor visitor) throws IOException
+    {
+        ByteBuffer buffer = map().duplicate();
+        long end = myWritePosition;
+        CRC32 checksum = new CRC32();
+        while (position + HEADER_SIZE <= end) {
+            int offset = (int) position;
+            int length = buffer.getInt(offset);
+            int expectedChecksum = buffer.getInt(offset + 4);
+            if (length <= 0 || position + HEADER_SIZE + length > end) {
+                break;
+            }
+            
+            buffer.limit(offset + HEADER_SIZE + length);
+            buffer.position(offset + HEADER_SIZE - CHECKSUMMED_HEADER_SIZE);
+            checksum.reset();
+            checksum.update(buffer);
+            if ((int) checksum.getValue() != expectedChecksum) {
+                break;
+            }
+            
+            long termID = buffer.getLong(offset + 8);
+            long sequenceNo = buffer.getLong(offset + 16);
+            buffer.position(offset + HEADER_SIZE);
+            ByteBuffer payload = buffer.slice();
+            buffer.clear();
+            
+            position += HEADER_SIZE + length;
+            if (visitor != null 
+                && !visitor.visit(termID, sequenceNo, payload))
+            {
+                break;
+            }
+        }
+        return position;
+    }
+    
+    private synchronized MappedByteBuffer map() throws IOException
+    {
+        if (myMappedBuffer == null) {
+            myMappedBuffer = myChannel.map(MapMode.READ_ONLY, 0L, mySize);
+        }
+        return myMappedBuffer;
+    }
+    
+    private synchronized void addToIndex(
+        long termID, long sequenceNo, long position)
+    {
+        if (   myIndexedOffsets.isEmpty()
+            || position - myIndexedOffsets.get(myIndexedOffsets.size() - 1)
+                   >= myIndexInterval)
+        {
+            myIndexedTerms.add(termID);
+            myIndexedSequences.add(sequenceNo);
+            myIndexedOffsets.add(position);
+        }
+        myLastTermID = termID;
+        myLastSequenceNo = sequenceNo;
+    }
+    
+    private void ensureIndexed() throws IOException
+    {
+        if (!myIsIndexed) {
+            buildIndex();
+        }
+    }
+    
+    private synchronized void buildIndex() throws IOException
+    {
+        myWritePosition = mySize;
+        final long[] recordPosition = new long[] {0L};
+        myWritePosition = scan(0L, new RecordVisitor() {
+            @Override
+            public boolean visit(long       termID, 
+                                 long       sequenceNo, 
+                                 ByteBuffer payload)
+            {
+                addToIndex(termID, sequenceNo, recordPosition[0]);
+                recordPosition[0] += HEADER_SIZE + payload.remaining();
+                return true;
+            }
+        });
+        myIsIndexed = true;
+    }
+    
+    /**
+     * Clears the record that might have been partially written at the 
+     * write position, so that it isn't mistaken for a valid record 
+     * once the new records are appended over it.
+     */
+    private void clearTornRecord() throws IOException
+    {
+        if (myWritePosition + HEADER_SIZE > mySize) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, myWritePosition);
+        int length = header.getInt(0);
+        long tornSize = 
+            (length > 0 && myWritePosition + HEADER_SIZE + length <= mySize) 
+                ? HEADER_SIZE + length 
+                : Math.min(HEADER_SIZE, mySize - myWritePosition);
+        
+        ByteBuffer zeros = ByteBuffer.allocate(PREALLOCATION_CHUNK_SIZE);
+        long position = myWritePosition;
+        long end = myWritePosition + tornSize;
+        while (position < end) {
+            zeros.clear();
+            zeros.limit((int) Math.min(zeros.capacity(), end - position));
+            while (zeros.hasRemaining()) {
+                position += myChannel.write(zeros, position);
+            }
+        }
+        myChannel.force(false);
+    }
+    
+    private void readFully(ByteBuffer buffer, long position) 
+        throws IOException
+    {
+        while (buffer.hasRemaining()) {
+            int read = myChannel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException(
+                    "Reached the end of " + myFile + " at " + position);
+            }
+            position += read;
+        }
+    }
+}
@@ -20,25 +20,47 @@
 
 package org.hit.db.engine;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.hit.actors.ActorID;
 import org.hit.actors.EventBus;
+import org.hit.communicator.Message;
 import org.hit.communicator.NodeID;
 import org.hit.db.model.DBOperation;
+import org.hit.db.sql.operators.Join;
+import org.hit.db.sql.operators.QueryAdaptor;
 import org.hit.event.ConsensusResponseEvent;
 import org.hit.event.Event;
+import org.hit.event.InstallSnapshotEvent;
+import org.hit.event.JoinInputEvent;
+import org.hit.event.PeriodicTaskNotification;
+import org.hit.event.PeriodicTaskScheduleRequest;
 import org.hit.event.ProposalNotificationEvent;
 import org.hit.event.SendMessageEvent;
 import org.hit.messages.DBOperationFailureMessage;
 import org.hit.messages.DBOperationMessage;
 import org.hit.messages.DataLoadRequest;
+import org.hit.messages.DataLoadResponse;
 import org.hit.messages.DistributedDBOperationMessage;
+import org.hit.messages.DistributedJoinMessage;
+import org.hit.messages.JoinAbortMessage;
+import org.hit.messages.JoinDataAck;
+import org.hit.messages.JoinDataMessage;
+import org.hit.messages.JoinStatisticsMessage;
+import org.hit.messages.PartitionMoveAbort;
+import org.hit.messages.PartitionMoveRequest;
+import org.hit.messages.PartitionMoveResponse;
 import org.hit.pool.PooledObjects;
 import org.hit.server.ServerConfig;
 import org.hit.util.LogFactory;
+import org.hit.util.Range;
 
 /**
  * An abstract implementation of <code>EngineWarden</code> that supports
@@ -64,6 +86,43 @@ public abstract class AbstractJanitor implements EngineJanitor
     
     private final NodeID myServerID;
     
+    private final Map<String, DataLoadProgress> myLoadProgress;
+    
+    private final Map<String, JoinExchange> myJoinExchanges;
+    
+    private final Map<String, Long> myAbortedJoins;
+    
+    /**
+     * Gives up the moves of the ranges to this server that haven't 
+     * completed within their lease.
+     */
+    private class CheckMoveLeaseTask implements Runnable
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            checkMoveLeases();
+        }
+    }
+    
+    /**
+     * Fails the joins whose exchange hasn't completed before its deadline.
+     */
+    private class CheckJoinDeadlineTask implements Runnable
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run()
+        {
+            checkJoinDeadlines();
+        }
+    }
+    
     /**
      * CTOR
      */
@@ -77,6 +136,9 @@ public abstract class AbstractJanitor implements EngineJanitor
         myEventBus = eventBus;
         myIsInitialized = new AtomicBoolean(false);
         myServerID = serverID;
+        myLoadProgress = new HashMap<>();
+        myJoinExchanges = new HashMap<>();
+        myAbortedJoins = new HashMap<>();
     }
 
     /**
@@ -186,12 +248,462 @@ public abstract class AbstractJanitor implements EngineJanitor
             ConsensusResponseEvent cre = (ConsensusResponseEvent) event;
             myTransactionManager.processOperation(cre);
         }
+        else if (event instanceof InstallSnapshotEvent) {
+            myTransactionManager.installSnapshot((InstallSnapshotEvent) event);
+        }
         else if (event instanceof DataLoadRequest) {
-            DataLoadRequest loadRequest = (DataLoadRequest) event;
             myTransactionManager.processQueryAndDeleteOperation(
-                loadRequest.getSenderId(), 
-                loadRequest.getTableName(),
-                loadRequest.getNodeRange());
+                (DataLoadRequest) event);
+        }
+        else if (event instanceof DataLoadResponse) {
+            handleDataLoadResponse((DataLoadResponse) event);
+        }
+        else if (event instanceof PartitionMoveRequest) {
+            handlePartitionMoveRequest((PartitionMoveRequest) event);
+        }
+        else if (event instanceof PartitionMoveAbort) {
+            handlePartitionMoveAbort((PartitionMoveAbort) event);
+        }
+        else if (event instanceof PeriodicTaskNotification) {
+            PeriodicTaskNotification notification = 
+                (PeriodicTaskNotification) event;
+            notification.getPeriodicTask().run();
+            PooledObjects.freeInstance(notification);
+        }
+        else if (event instanceof DistributedJoinMessage) {
+            handleDistributedJoin((DistributedJoinMessage) event);
+        }
+        else if (event instanceof JoinInputEvent) {
+            JoinInputEvent jie = (JoinInputEvent) event;
+            JoinExchange exchange = 
+                myJoinExchanges.get(JoinExchange.makeKey(
+                    jie.getClientID(), jie.getSequenceNumber()));
+            if (exchange != null) {
+                exchange.inputsRead(jie.getInputs());
+                removeIfDone(jie.getClientID(), jie.getSequenceNumber());
+            }
+        }
+        else if (event instanceof JoinStatisticsMessage) {
+            JoinStatisticsMessage jsm = (JoinStatisticsMessage) event;
+            JoinExchange exchange = 
+                getJoinExchange(jsm.getClientID(), jsm.getSequenceNumber());
+            if (exchange != null) {
+                exchange.statisticsReceived(jsm);
+                removeIfDone(jsm.getClientID(), jsm.getSequenceNumber());
+            }
+        }
+        else if (event instanceof JoinDataMessage) {
+            JoinDataMessage jdm = (JoinDataMessage) event;
+            JoinExchange exchange = 
+                getJoinExchange(jdm.getClientID(), jdm.getSequenceNumber());
+            if (exchange != null) {
+                exchange.dataReceived(jdm);
+                removeIfDone(jdm.getClientID(), jdm.getSequenceNumber());
+            }
+        }
+        else if (event instanceof JoinAbortMessage) {
+            JoinAbortMessage jam = (JoinAbortMessage) event;
+            if (!myAbortedJoins.containsKey(JoinExchange.makeKey(
+                    jam.getClientID(), jam.getSequenceNumber())))
+            {
+                abortJoin(jam.getClientID(), 
+                          jam.getSequenceNumber(), 
+                          jam.getReason());
+            }
+        }
+        else if (event instanceof JoinDataAck) {
+            JoinDataAck ack = (JoinDataAck) event;
+            // The acks received after the exchange is done are ignored.
+            JoinExchange exchange = 
+                myJoinExchanges.get(JoinExchange.makeKey(
+                    ack.getClientID(), ack.getSequenceNumber()));
+            if (exchange != null) {
+                exchange.acknowledged(ack);
+                removeIfDone(ack.getClientID(), ack.getSequenceNumber());
+            }
+        }
+    }
+    
+    private void handleDistributedJoin(DistributedJoinMessage message)
+    {
+        LOG.info(String.format(DB_OPERATION_LOG,
+                               message.getSenderId(),
+                               message.getQuery()));
+        Join join = 
+            message.getQuery() instanceof QueryAdaptor ?
+                ((QueryAdaptor) message.getQuery()).getJoin() : null;
+        String key = JoinExchange.makeKey(message.getSenderId(), 
+                                          message.getSequenceNumber());
+        if (   !myIsInitialized.get() 
+            || join == null 
+            || myAbortedJoins.containsKey(key))
+        {
+            String reason = 
+                join == null ? "Query doesn't join tables"
+                    : !myIsInitialized.get() ? "DB not yet initialized"
+                    : "Join has been aborted by another server";
+            myEventBus.publish(
+                ActorID.DB_ENGINE,
+                SendMessageEvent.create(
+                    message.getSenderId(),
+                    DBOperationFailureMessage.create(
+                        myServerID, 
+                        message.getSequenceNumber(),
+                        reason)));
+            
+            // The other servers are told to give up the join, instead of 
+            // waiting for the rows of this server.
+            if (!myAbortedJoins.containsKey(key)) {
+                myAbortedJoins.put(key, 
+                                   Long.valueOf(System.currentTimeMillis()));
+                for (NodeID participant : message.getParticipants()) {
+                    if (!participant.equals(myServerID)) {
+                        sendToNode(participant,
+                                   new JoinAbortMessage(
+                                       myServerID,
+                                       message.getSenderId(),
+                                       message.getSequenceNumber(),
+                                       reason));
+                    }
+                }
+            }
+            return;
+        }
+        
+        getJoinExchange(message.getSenderId(), message.getSequenceNumber())
+            .start(message, join);
+        myTransactionManager.processJoinInputs(message.getSenderId(), 
+                                               message.getSequenceNumber(), 
+                                               join);
+    }
+    
+    /**
+     * Returns the exchange of the given join, which is created if it 
+     * doesn't exist yet. Returns null if the join has been aborted, so 
+     * that the messages arriving late don't create it again.
+     */
+    private JoinExchange getJoinExchange(NodeID clientID, long sequenceNumber)
+    {
+        String key = JoinExchange.makeKey(clientID, sequenceNumber);
+        JoinExchange exchange = myJoinExchanges.get(key);
+        if (exchange == null && !myAbortedJoins.containsKey(key)) {
+            // The other servers might start sending their rows before 
+            // this server has received the request from the client.
+            exchange = new JoinExchange(myServerID, 
+                                        clientID, 
+                                        sequenceNumber, 
+                                        myServerConfig, 
+                                        myEventBus);
+            myJoinExchanges.put(key, exchange);
+        }
+        return exchange;
+    }
+    
+    /**
+     * Fails the join, evicts its exchange and remembers it as aborted 
+     * till the messages of the join still in flight have arrived.
+     */
+    private void abortJoin(NodeID clientID, long sequenceNumber, String reason)
+    {
+        String key = JoinExchange.makeKey(clientID, sequenceNumber);
+        myAbortedJoins.put(key, Long.valueOf(System.currentTimeMillis()));
+        JoinExchange exchange = myJoinExchanges.remove(key);
+        if (exchange != null) {
+            exchange.abort(reason);
+        }
+    }
+    
+    /**
+     * Aborts the joins whose deadline has passed and forgets the joins 
+     * that were aborted a join timeout ago.
+     */
+    private void checkJoinDeadlines()
+    {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, JoinExchange> entry : 
+                new ArrayList<>(myJoinExchanges.entrySet()))
+        {
+            if (entry.getValue().isExpired(now)) {
+                myAbortedJoins.put(entry.getKey(), Long.valueOf(now));
+                myJoinExchanges.remove(entry.getKey());
+                entry.getValue().abort("Join has timed out");
+            }
+        }
+        
+        long timeoutMillis = 
+            TimeUnit.SECONDS.toMillis(myServerConfig.getJoinTimeoutSecs());
+        Iterator<Long> itr = myAbortedJoins.values().iterator();
+        while (itr.hasNext()) {
+            if (now - itr.next().longValue() > timeoutMillis) {
+                itr.remove();
+            }
+        }
+    }
+    
+    private void removeIfDone(NodeID clientID, long sequenceNumber)
+    {
+        String key = JoinExchange.makeKey(clientID, sequenceNumber);
+        JoinExchange exchange = myJoinExchanges.get(key);
+        if (exchange != null && exchange.isDone()) {
+            myJoinExchanges.remove(key);
+        }
+    }
+    
+    /**
+     * Starts fetching the data of a table in the given range from the 
+     * target node. The fetch is resumed from the last loaded key if the
+     * data of the table is already being fetched.
+     */
+    protected void fetchData(String tableName, NodeID targetNode, Range<?> range)
+    {
+        DataLoadProgress progress = myLoadProgress.get(tableName);
+        if (progress != null) {
+            LOG.info("Resuming the fetch of " + tableName + " after "
+                     + progress.getLastLoadedKey());
+        }
+        else {
+            LOG.info("Sending request to " + targetNode + " for fetching "
+                     + " data corresponding to " + tableName 
+                     + " in the range " + range);
+            
+            progress = new DataLoadProgress(tableName, targetNode, range);
+            myLoadProgress.put(tableName, progress);
+        }
+        // The range might have been moved away from this server before.
+        myTransactionManager.unfenceRange(tableName, range);
+        sendChunkRequest(progress);
+    }
+    
+    /**
+     * Subclasses should override this method to act upon the completion
+     * of a fetch started via {@link #fetchData(String, NodeID, Range)}.
+     */
+    protected void onDataLoaded(String tableName)
+    {
+    }
+    
+    private void handlePartitionMoveRequest(PartitionMoveRequest request)
+    {
+        if (myLoadProgress.containsKey(request.getTableName())) {
+            LOG.warning("Ignoring the move of " + request.getRange() + " of " 
+                        + request.getTableName() + " since its data is"
+                        + " already being fetched");
+            return;
+        }
+        
+        LOG.info("Moving " + request.getRange() + " of " 
+                 + request.getTableName() + " from " 
+                 + request.getSourceNode());
+        
+        final DataLoadProgress progress = 
+            new DataLoadProgress(request.getTableName(),
+                                 request.getSourceNode(),
+                                 request.getRange(),
+                                 request.getSenderId());
+        progress.setLeaseExpiryTime(
+            System.currentTimeMillis() 
+            + TimeUnit.SECONDS.toMillis(
+                  myServerConfig.getPartitionMoveTimeoutSecs()));
+        myLoadProgress.put(request.getTableName(), progress);
+        myTransactionManager.unfenceRange(request.getTableName(), 
+                                          request.getRange());
+        
+        // The master has already routed the range to this server, hence 
+        // the transactions on it are held back till its data arrives.
+        progress.setRangeLockID(
+            myTransactionManager.lockRange(request.getTableName(), 
+                                           request.getRange(), 
+                                           new Runnable() {
+                @Override
+                public void run()
+                {
+                    if (!progress.isAborted()) {
+                        sendChunkRequest(progress);
+                    }
+                }
+            }));
+    }
+    
+    /**
+     * The master gives up on a move that hasn't completed in time and 
+     * routes the range back to the node it was moved from. The chunk 
+     * that's already been requested has been deleted from that node, 
+     * hence the move is given up only after it has been loaded.
+     */
+    private void handlePartitionMoveAbort(PartitionMoveAbort abort)
+    {
+        DataLoadProgress progress = myLoadProgress.get(abort.getTableName());
+        if (progress == null) {
+            LOG.info("Handing back " + abort.getRange() + " of " 
+                     + abort.getTableName() + " to " 
+                     + abort.getSourceNode() + " as its move is aborted");
+            handBack(abort.getSenderId(), 
+                     abort.getTableName(), 
+                     abort.getRange(),
+                     abort.getSourceNode());
+            return;
+        }
+        
+        if (progress.getRequester() == null) {
+            LOG.warning("Ignoring the abort of the move of " 
+                        + abort.getRange() + " of " + abort.getTableName()
+                        + " as it's not being moved");
+            return;
+        }
+        
+        progress.abort();
+        if (!progress.isChunkRequested()) {
+            finishAbortedMove(progress);
+        }
+    }
+    
+    /**
+     * Releases the range of an aborted move and hands back the rows 
+     * loaded so far to the node it was moved from.
+     */
+    private void finishAbortedMove(DataLoadProgress progress)
+    {
+        LOG.warning("Giving up the move of " + progress.getRange() + " of "
+                    + progress.getTableName() + " after loading " 
+                    + progress.getLoadedRowCount() + " rows from " 
+                    + progress.getTargetNode());
+        
+        myLoadProgress.remove(progress.getTableName());
+        if (progress.getRangeLockID() != DataLoadProgress.NO_LOCK) {
+            myTransactionManager.unlockRange(progress.getRangeLockID());
+        }
+        handBack(progress.getRequester(), 
+                 progress.getTableName(), 
+                 progress.getRange(), 
+                 progress.getTargetNode());
+    }
+    
+    /**
+     * Asks the node from which a range was moved to take it back on behalf
+     * of the master. That node fetches the rows from this server like any
+     * other move, while this server refuses the writes to the range.
+     */
+    private void handBack(NodeID   masterID, 
+                          String   tableName, 
+                          Range<?> range,
+                          NodeID   sourceNode)
+    {
+        sendToNode(sourceNode, 
+                   new PartitionMoveRequest(masterID, 
+                                            tableName, 
+                                            range, 
+                                            myServerID));
+    }
+    
+    /**
+     * Gives up the moves whose lease has expired. A move waiting for a 
+     * chunk is given another lease to receive it, since that chunk has 
+     * been deleted from the node it was moved from.
+     */
+    private void checkMoveLeases()
+    {
+        long now = System.currentTimeMillis();
+        for (DataLoadProgress progress : 
+                new ArrayList<>(myLoadProgress.values()))
+        {
+            if (   progress.getRequester() == null 
+                || now < progress.getLeaseExpiryTime())
+            {
+                continue;
+            }
+            
+            if (progress.isAborted() || !progress.isChunkRequested()) {
+                finishAbortedMove(progress);
+            }
+            else {
+                progress.abort();
+                progress.setLeaseExpiryTime(
+                    now + TimeUnit.SECONDS.toMillis(
+                              myServerConfig.getPartitionMoveTimeoutSecs()));
+            }
+        }
+    }
+    
+    private void handleDataLoadResponse(DataLoadResponse response)
+    {
+        DataLoadProgress progress = 
+            myLoadProgress.get(response.getTableName());
+        // The chunks are requested one after another, hence anything 
+        // other than the chunk that's expected next is a duplicate.
+        if (   progress == null
+            || progress.getChunkSequenceNumber() 
+                   != response.getChunkSequenceNumber())
+        {
+            LOG.warning("Ignoring the chunk " 
+                        + response.getChunkSequenceNumber() + " of " 
+                        + response.getTableName() + " as it's not expected");
+            return;
+        }
+        
+        myTransactionManager.bulkLoad(response.getTableName(), 
+                                      response.getRows());
+        progress.chunkLoaded(response.getRows());
+        
+        if (progress.isAborted()) {
+            finishAbortedMove(progress);
+            return;
+        }
+        
+        if (!response.isLastChunk()) {
+            // The next chunk is requested only after this chunk has been
+            // loaded, so that we never hold more than a chunk in memory.
+            sendChunkRequest(progress);
+            return;
+        }
+        
+        LOG.info("Loaded " + progress.getLoadedRowCount() + " rows of " 
+                 + progress.getTableName() + " from " 
+                 + progress.getTargetNode());
+        
+        myLoadProgress.remove(response.getTableName());
+        if (progress.getRangeLockID() != DataLoadProgress.NO_LOCK) {
+            myTransactionManager.unlockRange(progress.getRangeLockID());
+        }
+        
+        if (progress.getRequester() != null) {
+            sendToNode(progress.getRequester(),
+                       new PartitionMoveResponse(
+                           myServerID, 
+                           progress.getTableName(),
+                           progress.getLoadedRowCount()));
+        }
+        else {
+            onDataLoaded(progress.getTableName());
+        }
+    }
+    
+    private void sendChunkRequest(DataLoadProgress progress)
+    {
+        progress.chunkRequested();
+        myEventBus.publish(
+            ActorID.DB_ENGINE,
+            SendMessageEvent.create(
+                progress.getTargetNode(),
+                new DataLoadRequest(myServerID, 
+                                    progress.getTableName(),
+                                    progress.getRange(),
+                                    progress.getChunkSequenceNumber(),
+                                    progress.getLastLoadedKey(),
+                                    myServerConfig.getDataLoadChunkSize())));
+    }
+    
+    /**
+     * Sends the message to the given node, which is delivered locally if 
+     * the node is this server itself.
+     */
+    private void sendToNode(NodeID nodeID, Message message)
+    {
+        if (nodeID.equals(myServerID)) {
+            myEventBus.publish(ActorID.DB_ENGINE, message);
+        }
+        else {
+            myEventBus.publish(ActorID.DB_ENGINE,
+                               SendMessageEvent.create(nodeID, message));
         }
     }
 
@@ -206,6 +718,16 @@ public abstract class AbstractJanitor implements EngineJanitor
         myEventBus.registerForEvent(ProposalNotificationEvent.class, actorID);
         myEventBus.registerForEvent(ConsensusResponseEvent.class, actorID);
         myEventBus.registerForEvent(DataLoadRequest.class, actorID);
+        myEventBus.registerForEvent(DataLoadResponse.class, actorID);
+        myEventBus.registerForEvent(PartitionMoveRequest.class, actorID);
+        myEventBus.registerForEvent(PartitionMoveAbort.class, actorID);
+        myEventBus.registerForEvent(InstallSnapshotEvent.class, actorID);
+        myEventBus.registerForEvent(DistributedJoinMessage.class, actorID);
+        myEventBus.registerForEvent(JoinInputEvent.class, actorID);
+        myEventBus.registerForEvent(JoinStatisticsMessage.class, actorID);
+        myEventBus.registerForEvent(JoinDataMessage.class, actorID);
+        myEventBus.registerForEvent(JoinDataAck.class, actorID);
+        myEventBus.registerForEvent(JoinAbortMessage.class, actorID);
     }
     
     /**
@@ -214,5 +736,19 @@ public abstract class AbstractJanitor implements EngineJanitor
     public void start()
     {
         myTransactionManager.initialize(this);
+        myEventBus.publish(
+            ActorID.DB_ENGINE,
+            ActorID.TIME_KEEPER,
+            new PeriodicTaskScheduleRequest(ActorID.DB_ENGINE,
+                                            new CheckMoveLeaseTask(),
+                                            1,
+                                            TimeUnit.SECONDS));
+        myEventBus.publish(
+            ActorID.DB_ENGINE,
+            ActorID.TIME_KEEPER,
+            new PeriodicTaskScheduleRequest(ActorID.DB_ENGINE,
+                                            new CheckJoinDeadlineTask(),
+                                            1,
+                                            TimeUnit.SECONDS));
     }
 }
@@ -30,6 +30,9 @@ import org.hit.event.DBStatEvent;
 import org.hit.event.GossipUpdateEvent;
 import org.hit.messages.Allocation;
 import org.hit.messages.Heartbeat;
+import org.hit.messages.PartitionMoveAbort;
+import org.hit.messages.PartitionMoveRequest;
+import org.hit.util.Pair;
 
 /**
  * Defines an interface that can be used for allocating the keyspace to
@@ -51,9 +54,16 @@ public interface Allocator
     public void initialize(Set<NodeID> nodes);
 
     /**
-     * Returns the <code>Allocation</code> corresponding to the given node.
+     * Returns the <code>Allocation</code> corresponding to the given node
+     * with the given capacity relative to the other nodes.
      */
-    public Allocation getAllocation(NodeID nodeID) throws IllegalAccessException;
+    public Allocation getAllocation(NodeID nodeID, int capacity) 
+        throws IllegalAccessException;
+    
+    /**
+     * Returns the schemas of the tables known to the allocator.
+     */
+    public Map<String, HitTableSchema> getSchemas();
 
     /**
      * Returns an <code>GossipUpdateEvent</code> to get updates about
@@ -77,6 +87,33 @@ public interface Allocator
      */
     public void listenTO(NodeID nodeID, Heartbeat heartbeat);
     
+    /**
+     * Looks for a range of keys to be moved between the nodes to balance 
+     * the load on them and updates the partitions to route the range to 
+     * its new node. 
+     * 
+     * @return The node to which the range is moved along with the request
+     *         to be sent to it, null if no range is to be moved now.
+     */
+    public Pair<NodeID, PartitionMoveRequest> rebalance();
+    
+    /**
+     * Abandons the move of a range of keys that hasn't completed within 
+     * the configured timeout. The range is routed back to the node it was
+     * being moved from by a newer copy of the partitions.
+     * 
+     * @return The node to which the range was being moved along with the
+     *         message asking it to give up the range, null if no move has
+     *         timed out.
+     */
+    public Pair<NodeID, PartitionMoveAbort> abortTimedOutMove();
+    
+    /**
+     * Notifies that the range of keys of a table being moved has reached
+     * the given node.
+     */
+    public void partitionMoved(String tableName, NodeID nodeID);
+    
     /**
      * Returns the list of slave server nodes that are monitored by this master 
      * node.
@@ -21,12 +21,14 @@ package org.hit.db.engine;
 
 import org.hit.consensus.ConsensusType;
 import org.hit.consensus.UnitID;
+import org.hit.pool.InternedBy;
 
 /**
  * Extends {@link UnitID} to create an unique id for replication.
  * 
  * @author Balraja Subbiah
  */
+@InternedBy(interner=ConsensusIDInterner.class)
 public class ConsensusID extends UnitID
 {
     public static final String DELIMITER = ":";
@@ -55,7 +55,7 @@ public class ConsensusIDInterner extends Interner<ConsensusID>
             myConsensusIDMap.put(type, nametoIDMap);
         }
         ConsensusID consensusID = nametoIDMap.get(id);
-        if (id == null) {
+        if (consensusID == null) {
             consensusID = new ConsensusID(type, id);
             nametoIDMap.put(id, consensusID);
         }
@@ -0,0 +1,230 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.engine;
+
+import java.util.List;
+
+import org.hit.communicator.NodeID;
+import org.hit.db.model.Persistable;
+import org.hit.util.Range;
+
+/**
+ * Tracks the progress of fetching a range of keys of a table from another
+ * node, so that the fetch can be resumed from the last loaded key.
+ * 
+ * @author Balraja Subbiah
+ */
+class DataLoadProgress
+{
+    /** Denotes that the range isn't locked while being fetched */
+    public static final long NO_LOCK = Long.MIN_VALUE;
+    
+    private final String myTableName;
+    
+    private final NodeID myTargetNode;
+    
+    private final Range<?> myRange;
+    
+    private final NodeID myRequester;
+    
+    private long myRangeLockID;
+    
+    private long myChunkSequenceNumber;
+    
+    private Comparable<?> myLastLoadedKey;
+    
+    private long myLoadedRowCount;
+    
+    private long myLeaseExpiryTime;
+    
+    private volatile boolean myIsChunkRequested;
+    
+    private volatile boolean myIsAborted;
+
+    /**
+     * CTOR
+     */
+    public DataLoadProgress(String   tableName, 
+                            NodeID   targetNode, 
+                            Range<?> range)
+    {
+        this(tableName, targetNode, range, null);
+    }
+    
+    /**
+     * CTOR
+     */
+    public DataLoadProgress(String   tableName, 
+                            NodeID   targetNode, 
+                            Range<?> range,
+                            NodeID   requester)
+    {
+        myTableName = tableName;
+        myTargetNode = targetNode;
+        myRange = range;
+        myRequester = requester;
+        myRangeLockID = NO_LOCK;
+        myChunkSequenceNumber = 0L;
+        myLastLoadedKey = null;
+        myLoadedRowCount = 0L;
+        myLeaseExpiryTime = Long.MAX_VALUE;
+        myIsChunkRequested = false;
+        myIsAborted = false;
+    }
+    
+    /**
+     * Marks that the next chunk has been requested.
+     */
+    public void chunkRequested()
+    {
+        myIsChunkRequested = true;
+    }
+    
+    /**
+     * Updates the progress with the rows of a chunk that has been 
+     * loaded.
+     */
+    public void chunkLoaded(List<? extends Persistable<?>> rows)
+    {
+        if (!rows.isEmpty()) {
+            myLastLoadedKey = rows.get(rows.size() - 1).primaryKey();
+            myLoadedRowCount += rows.size();
+        }
+        myChunkSequenceNumber++;
+        myIsChunkRequested = false;
+    }
+    
+    /**
+     * Returns true if a chunk has been requested, but not loaded yet.
+     */
+    public boolean isChunkRequested()
+    {
+        return myIsChunkRequested;
+    }
+    
+    /**
+     * Marks the fetch as aborted, after which no more chunks are 
+     * requested.
+     */
+    public void abort()
+    {
+        myIsAborted = true;
+    }
+    
+    /**
+     * Returns true if the fetch has been aborted.
+     */
+    public boolean isAborted()
+    {
+        return myIsAborted;
+    }
+    
+    /**
+     * Returns the time in millis after which the move of the range is 
+     * given up if it hasn't completed by then.
+     */
+    public long getLeaseExpiryTime()
+    {
+        return myLeaseExpiryTime;
+    }
+    
+    /**
+     * Setter for the leaseExpiryTime
+     */
+    public void setLeaseExpiryTime(long leaseExpiryTime)
+    {
+        myLeaseExpiryTime = leaseExpiryTime;
+    }
+
+    /**
+     * Returns the value of tableName
+     */
+    public String getTableName()
+    {
+        return myTableName;
+    }
+
+    /**
+     * Returns the node from which the data is fetched
+     */
+    public NodeID getTargetNode()
+    {
+        return myTargetNode;
+    }
+
+    /**
+     * Returns the range of keys being fetched
+     */
+    public Range<?> getRange()
+    {
+        return myRange;
+    }
+    
+    /**
+     * Returns the node to be notified once the range has been fetched, 
+     * null if there is none.
+     */
+    public NodeID getRequester()
+    {
+        return myRequester;
+    }
+    
+    /**
+     * Returns the id of the lock held on the range while it's being 
+     * fetched or {@link #NO_LOCK} if the range isn't locked.
+     */
+    public long getRangeLockID()
+    {
+        return myRangeLockID;
+    }
+    
+    /**
+     * Setter for the rangeLockID
+     */
+    public void setRangeLockID(long rangeLockID)
+    {
+        myRangeLockID = rangeLockID;
+    }
+
+    /**
+     * Returns the sequence number of the chunk to be loaded next
+     */
+    public long getChunkSequenceNumber()
+    {
+        return myChunkSequenceNumber;
+    }
+
+    /**
+     * Returns the key of the last row loaded so far
+     */
+    public Comparable<?> getLastLoadedKey()
+    {
+        return myLastLoadedKey;
+    }
+
+    /**
+     * Returns the number of rows loaded so far
+     */
+    public long getLoadedRowCount()
+    {
+        return myLoadedRowCount;
+    }
+}
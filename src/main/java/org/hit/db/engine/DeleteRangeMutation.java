@@ -23,16 +23,29 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
+import org.hit.db.keyspace.HashKeyspace;
+import org.hit.db.keyspace.Keyspace;
 import org.hit.db.model.Database;
 import org.hit.db.model.Mutation;
+import org.hit.db.model.Persistable;
 import org.hit.db.model.Predicate;
 import org.hit.db.model.Row;
+import org.hit.db.model.Table;
+import org.hit.db.sql.operators.MatchAllPredicate;
 import org.hit.util.Range;
 
 /**
- * A helper method to delete the specified range on the given table
+ * A helper method to delete the specified range on the given table. The 
+ * range is deleted in chunks of atmost <code>limit</code> rows, each chunk
+ * resuming from the last key of the previous chunk, so that a range can be
+ * handed over to another server without materializing all of it at once.
  * 
  * @author Balraja Subbiah
  */
@@ -42,7 +55,17 @@ public class DeleteRangeMutation implements Mutation
     
     private Range<?> myDeletedRange;
     
+    private Comparable<?> myResumeKey;
+    
+    private int myLimit;
+    
     private List<? extends Object> myData;
+    
+    private boolean myIsExhausted;
+    
+    private Iterator<Comparable<?>> myKeyCursor;
+    
+    private List<Comparable<?>> myDeletedKeys;
 
     /**
      * CTOR
@@ -57,10 +80,60 @@ public class DeleteRangeMutation implements Mutation
      * CTOR
      */
     public DeleteRangeMutation(String tableName, Range<?> deletedRange)
+    {
+        this(tableName, deletedRange, null, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * CTOR
+     */
+    public DeleteRangeMutation(String        tableName, 
+                               Range<?>      deletedRange,
+                               Comparable<?> resumeKey,
+                               int           limit)
     {
         super();
         myTableName = tableName;
         myDeletedRange = deletedRange;
+        myResumeKey = resumeKey;
+        myLimit = limit;
+    }
+    
+    /**
+     * Returns true if there are no more rows left in the range after
+     * deleting this chunk.
+     */
+    public boolean isExhausted()
+    {
+        return myIsExhausted;
+    }
+    
+    /**
+     * Returns the key after which the chunk is deleted, null if it's the
+     * first chunk of the range.
+     */
+    public Comparable<?> getResumeKey()
+    {
+        return myResumeKey;
+    }
+    
+    /**
+     * Returns the cursor over the keys of a range on the hash ring that 
+     * are yet to be deleted, which can be handed over to the mutation 
+     * deleting the next chunk so that the table isn't scanned again.
+     */
+    public Iterator<Comparable<?>> getKeyCursor()
+    {
+        return myKeyCursor;
+    }
+    
+    /**
+     * Sets the cursor over the keys of a range on the hash ring left over 
+     * by the mutation that deleted the previous chunk.
+     */
+    public void setKeyCursor(Iterator<Comparable<?>> keyCursor)
+    {
+        myKeyCursor = keyCursor;
     }
     
     /**
@@ -71,6 +144,14 @@ public class DeleteRangeMutation implements Mutation
         return myData;
     }
     
+    /**
+     * Returns the range of keys to be deleted
+     */
+    public Range<?> getDeletedRange()
+    {
+        return myDeletedRange;
+    }
+    
     /**
      * Returns the value of tableName
      */
@@ -87,45 +168,125 @@ public class DeleteRangeMutation implements Mutation
     {
         out.writeUTF(myTableName);
         out.writeObject(myDeletedRange);
+        out.writeObject(myResumeKey);
+        out.writeInt(myLimit);
+        out.writeObject(myDeletedKeys);
     }
 
     /**
      * {@inheritDoc}
      */
+    @SuppressWarnings("unchecked")
     @Override
     public void readExternal(ObjectInput in) 
          throws IOException, ClassNotFoundException
     {
         myTableName = in.readUTF();
         myDeletedRange = (Range<?>) in.readObject();
+        myResumeKey = (Comparable<?>) in.readObject();
+        myLimit = in.readInt();
+        myDeletedKeys = (List<Comparable<?>>) in.readObject();
     }
 
     /**
      * {@inheritDoc}
      */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     public void update(Database database)
     {
-        if (database.lookUpTable(myTableName).getSchema().isReplicated()) {
-            myData = 
-                new ArrayList<>(
-                    database.lookUpTable(myTableName)
-                            .findMatching(new Predicate() {
-                                
-                                @Override
-                                public boolean isInterested(Row row)
-                                {
-                                    return true;
-                                }
-                            }));
+        Table table = database.lookUpTable(myTableName);
+        if (table.getSchema().isReplicated()) {
+            // The replicated tables are copied instead of being moved, so
+            // the rows past the resume key are picked in the order of 
+            // their keys. A row more than the limit is scanned to find 
+            // whether the range has been exhausted.
+            List<Persistable<?>> rows = 
+                new ArrayList<>(table.findMatching(
+                    MatchAllPredicate.INSTANCE,
+                    myResumeKey,
+                    myLimit == Integer.MAX_VALUE ? myLimit : myLimit + 1));
+            myIsExhausted = rows.size() <= myLimit;
+            myData = myIsExhausted ? rows
+                                   : new ArrayList<>(rows.subList(0, myLimit));
+        }
+        else if (table.getSchema().getKeyspace() instanceof HashKeyspace) {
+            // The range is on the ring to which the keys are hashed, hence
+            // the keys of the range are collected in a single pass over 
+            // the table and the chunks are deleted from the cursor over 
+            // them. The deleted keys are replicated with the mutation, so
+            // that the replicas delete the same rows without a scan.
+            if (myDeletedKeys == null) {
+                myDeletedKeys = new ArrayList<>();
+                if (myKeyCursor == null) {
+                    myKeyCursor = 
+                        findKeys(table, Collections.<Comparable<?>>emptySet());
+                }
+                while (myKeyCursor.hasNext() && myDeletedKeys.size() < myLimit) 
+                {
+                    myDeletedKeys.add(myKeyCursor.next());
+                }
+            }
+            
+            List<Object> deleted = new ArrayList<>();
+            for (Comparable<?> key : myDeletedKeys) {
+                Object deletedRow = table.deleteRow(key);
+                if (deletedRow != null) {
+                    deleted.add(deletedRow);
+                }
+            }
+            myData = deleted;
+            
+            if (myKeyCursor != null && !myKeyCursor.hasNext()) {
+                // Pick the rows written to the range after the keys have
+                // been collected, which excludes the rows deleted by this
+                // chunk as they are removed only when it's committed.
+                myKeyCursor = 
+                    findKeys(table, new HashSet<Comparable<?>>(myDeletedKeys));
+            }
+            myIsExhausted = myKeyCursor == null || !myKeyCursor.hasNext();
         }
         else {
+            // The rows of the previous chunks have already been deleted, 
+            // hence the chunk starts at the resume key.
             myData = 
                 new ArrayList<>(
-                    database.lookUpTable(myTableName)
-                            .deleteRange(myDeletedRange.getMinValue(),
-                                         myDeletedRange.getMaxValue()));
+                    table.deleteRange(myResumeKey != null ? 
+                                          myResumeKey 
+                                          : myDeletedRange.getMinValue(),
+                                      myDeletedRange.getMaxValue(),
+                                      myLimit));
+            myIsExhausted = myData.size() < myLimit;
+        }
+    }
+    
+    /**
+     * Returns a cursor over the keys of the table that are hashed into 
+     * the deleted range, other than the excluded keys.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Iterator<Comparable<?>> findKeys(Table              table,
+                                             Set<Comparable<?>> excludedKeys)
+    {
+        final Keyspace keyspace = table.getSchema().getKeyspace();
+        Collection<Persistable<?>> rows = table.findMatching(new Predicate() {
+            
+            @Override
+            public boolean isInterested(Row row)
+            {
+                Comparable hash = 
+                    keyspace.map(((Persistable<?>) row).primaryKey());
+                return hash.compareTo(myDeletedRange.getMinValue()) >= 0
+                    && hash.compareTo(myDeletedRange.getMaxValue()) <= 0;
+            }
+        });
+        List<Comparable<?>> keys = new ArrayList<>(rows.size());
+        for (Persistable<?> row : rows) {
+            if (!excludedKeys.contains(row.primaryKey())) {
+                keys.add(row.primaryKey());
+            }
         }
+        return keys.iterator();
     }
 
 }
@@ -0,0 +1,565 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.actors.ActorID;
+import org.hit.actors.EventBus;
+import org.hit.communicator.Message;
+import org.hit.communicator.NodeID;
+import org.hit.db.model.Persistable;
+import org.hit.db.model.Query;
+import org.hit.db.sql.operators.Join;
+import org.hit.db.sql.operators.MaterializedDatabase;
+import org.hit.db.sql.operators.MaterializedTable;
+import org.hit.event.SendMessageEvent;
+import org.hit.messages.DBOperationFailureMessage;
+import org.hit.messages.DBOperationSuccessMessage;
+import org.hit.messages.DistributedJoinMessage;
+import org.hit.messages.JoinAbortMessage;
+import org.hit.messages.JoinDataAck;
+import org.hit.messages.JoinDataMessage;
+import org.hit.messages.JoinStatisticsMessage;
+import org.hit.server.ServerConfig;
+import org.hit.util.LogFactory;
+
+/**
+ * Tracks the exchange of the rows of the tables joined by a query between
+ * the servers holding them. Every server reads the rows it holds and shares
+ * their count with the others, after which all the servers agree on how 
+ * the rows are to be distributed:
+ * <ul>
+ * <li>The replicated tables are already available on every server.</li>
+ * <li>When the tables other than the largest one are small, they are 
+ * broadcast to every server, while the largest one stays where it is.</li>
+ * <li>Otherwise the tables are repartitioned on the hash of the columns 
+ * over which they are joined for equality, so that the rows that join with
+ * each other end up on the same server.</li>
+ * </ul>
+ * The rows are sent in batches and a server has only a bounded number of 
+ * batches waiting to be acknowledged by another server. Once a server has
+ * received the rows from all the servers, the query is executed on them 
+ * and the result is sent to the client. The join is failed and the other
+ * servers are told to give it up, if a server fails to read its rows or 
+ * the exchange doesn't complete before its deadline.
+ * 
+ * @author Balraja Subbiah
+ */
+class JoinExchange
+{
+    private static final Logger LOG =
+        LogFactory.getInstance().getLogger(JoinExchange.class);
+    
+    private final NodeID myServerID;
+    
+    private final NodeID myClientID;
+    
+    private final long mySequenceNumber;
+    
+    private final ServerConfig myServerConfig;
+    
+    private final EventBus myEventBus;
+    
+    private final Map<NodeID, Map<String, Long>> myNodeToRowCountMap;
+    
+    private final Map<String, List<Persistable<?>>> myTableToRowsMap;
+    
+    private final Set<NodeID> myFinishedNodes;
+    
+    private final Map<NodeID, Queue<JoinDataMessage>> myPendingBatches;
+    
+    private final Map<NodeID, Integer> myUnacknowledgedBatches;
+    
+    private final long myDeadline;
+    
+    private Query myQuery;
+    
+    private Join myJoin;
+    
+    private List<NodeID> myParticipants;
+    
+    private MaterializedDatabase myInputs;
+    
+    private long myBatchSequenceNumber;
+    
+    private boolean myIsDistributed;
+    
+    private boolean myIsCompleted;
+    
+    private boolean myIsAborted;
+
+    /**
+     * CTOR
+     */
+    public JoinExchange(NodeID       serverID,
+                        NodeID       clientID, 
+                        long         sequenceNumber,
+                        ServerConfig serverConfig,
+                        EventBus     eventBus)
+    {
+        myServerID = serverID;
+        myClientID = clientID;
+        mySequenceNumber = sequenceNumber;
+        myServerConfig = serverConfig;
+        myEventBus = eventBus;
+        myNodeToRowCountMap = new HashMap<>();
+        myTableToRowsMap = new HashMap<>();
+        myFinishedNodes = new HashSet<>();
+        myPendingBatches = new HashMap<>();
+        myUnacknowledgedBatches = new HashMap<>();
+        myQuery = null;
+        myJoin = null;
+        myParticipants = null;
+        myInputs = null;
+        myBatchSequenceNumber = 0L;
+        myIsDistributed = false;
+        myIsCompleted = false;
+        myIsAborted = false;
+        myDeadline = 
+            System.currentTimeMillis() 
+            + TimeUnit.SECONDS.toMillis(serverConfig.getJoinTimeoutSecs());
+    }
+    
+    /**
+     * Returns the key with which the exchange of a join requested by a 
+     * client is identified.
+     */
+    public static String makeKey(NodeID clientID, long sequenceNumber)
+    {
+        return clientID + "/" + sequenceNumber;
+    }
+    
+
+    /**
+     * Starts the exchange for the join requested by the client.
+     */
+    public void start(DistributedJoinMessage message, Join join)
+    {
+        myQuery = message.getQuery();
+        myJoin = join;
+        myParticipants = message.getParticipants();
+        distribute();
+    }
+    
+    /**
+     * Shares the number of rows of the joined tables held by this server
+     * with the other servers, once they have been read.
+     */
+    public void inputsRead(MaterializedDatabase inputs)
+    {
+        myInputs = inputs;
+        Map<String, Long> tableToRowCountMap = new HashMap<>();
+        for (MaterializedTable<?, ?> table : inputs.getTables()) {
+            tableToRowCountMap.put(table.getSchema().getTableName(), 
+                                   Long.valueOf(table.getRows().size()));
+        }
+        myNodeToRowCountMap.put(myServerID, tableToRowCountMap);
+        for (NodeID participant : myParticipants) {
+            if (!participant.equals(myServerID)) {
+                send(participant, 
+                     new JoinStatisticsMessage(myServerID, 
+                                               myClientID, 
+                                               mySequenceNumber, 
+                                               tableToRowCountMap));
+            }
+        }
+        distribute();
+    }
+    
+    /**
+     * Records the number of rows of the joined tables held by another 
+     * server.
+     */
+    public void statisticsReceived(JoinStatisticsMessage message)
+    {
+        myNodeToRowCountMap.put(message.getSenderId(), 
+                                message.getTableToRowCountMap());
+        distribute();
+    }
+    
+    /**
+     * Collects the rows sent by another server and acknowledges them.
+     */
+    public void dataReceived(JoinDataMessage message)
+    {
+        addRows(message.getTableName(), message.getRows());
+        send(message.getSenderId(), 
+             new JoinDataAck(myServerID, 
+                             myClientID, 
+                             mySequenceNumber, 
+                             message.getBatchSequenceNumber()));
+        if (message.isLastBatch()) {
+            myFinishedNodes.add(message.getSenderId());
+            complete();
+        }
+    }
+    
+    /**
+     * Sends the next batches of rows to the server that has acknowledged 
+     * a batch.
+     */
+    public void acknowledged(JoinDataAck ack)
+    {
+        Integer count = myUnacknowledgedBatches.get(ack.getSenderId());
+        if (count != null && count.intValue() > 0) {
+            myUnacknowledgedBatches.put(ack.getSenderId(), 
+                                        Integer.valueOf(count.intValue() - 1));
+        }
+        sendBatches(ack.getSenderId());
+    }
+    
+    /**
+     * Fails the join and tells the other servers to give it up. The rows
+     * yet to be exchanged are dropped.
+     */
+    public void abort(String reason)
+    {
+        if (myIsAborted) {
+            return;
+        }
+        myIsAborted = true;
+        myPendingBatches.clear();
+        myTableToRowsMap.clear();
+        myInputs = null;
+        
+        LOG.warning("Aborting the join " 
+                    + makeKey(myClientID, mySequenceNumber) + " as " 
+                    + reason);
+        
+        // The client hears from this server only if it has requested the
+        // join from it.
+        if (!myIsCompleted && myQuery != null) {
+            send(myClientID, 
+                 DBOperationFailureMessage.create(myServerID, 
+                                                  mySequenceNumber, 
+                                                  reason));
+        }
+        myIsCompleted = true;
+        
+        if (myParticipants != null) {
+            for (NodeID participant : myParticipants) {
+                if (!participant.equals(myServerID)) {
+                    send(participant, 
+                         new JoinAbortMessage(myServerID, 
+                                              myClientID, 
+                                              mySequenceNumber, 
+                                              reason));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns true if the join has been requested by the client.
+     */
+    public boolean isStarted()
+    {
+        return myQuery != null;
+    }
+    
+    /**
+     * Returns true if the deadline of the exchange has passed.
+     */
+    public boolean isExpired(long now)
+    {
+        return now > myDeadline;
+    }
+    
+    /**
+     * Returns true if the query has been executed and all the rows to be
+     * sent to the other servers have been sent.
+     */
+    public boolean isDone()
+    {
+        if (!myIsCompleted) {
+            return false;
+        }
+        for (Queue<JoinDataMessage> batches : myPendingBatches.values()) {
+            if (!batches.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Distributes the rows held by this server once the number of rows 
+     * held by all the servers is known.
+     */
+    private void distribute()
+    {
+        if (   myIsDistributed
+            || myParticipants == null 
+            || myInputs == null
+            || !myNodeToRowCountMap.keySet().containsAll(myParticipants))
+        {
+            return;
+        }
+        myIsDistributed = true;
+        
+        List<String> partitionedTables = new ArrayList<>();
+        String largestTable = null;
+        long largestCount = -1L;
+        long totalCount = 0L;
+        for (String tableName : myJoin.getJoinedTables()) {
+            MaterializedTable<?, ?> table = 
+                (MaterializedTable<?, ?>) myInputs.lookUpTable(tableName);
+            if (table == null || table.getSchema().isReplicated()) {
+                continue;
+            }
+            partitionedTables.add(tableName);
+            long count = 0L;
+            for (Map<String, Long> rowCounts : myNodeToRowCountMap.values()) {
+                Long rowCount = rowCounts.get(tableName);
+                count += rowCount != null ? rowCount.longValue() : 0L;
+            }
+            totalCount += count;
+            if (count > largestCount) {
+                largestTable = tableName;
+                largestCount = count;
+            }
+        }
+        
+        Map<String, String[]> joinColumns = null;
+        if (   partitionedTables.size() > 1
+            && totalCount - largestCount 
+                   > myServerConfig.getJoinBroadcastThreshold())
+        {
+            joinColumns = myJoin.getJoinColumns(partitionedTables);
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Distributing the rows of " + partitionedTables 
+                     + " for " + makeKey(myClientID, mySequenceNumber)
+                     + (joinColumns != null ? " by hashing the join key"
+                                            : " by broadcasting the tables"
+                                              + " other than " 
+                                              + largestTable));
+        }
+        
+        Map<NodeID, List<JoinDataMessage>> nodeToBatchesMap = new HashMap<>();
+        for (NodeID participant : myParticipants) {
+            nodeToBatchesMap.put(participant, 
+                                 new ArrayList<JoinDataMessage>());
+        }
+        for (MaterializedTable<?, ?> table : myInputs.getTables()) {
+            String tableName = table.getSchema().getTableName();
+            List<Persistable<?>> rows = 
+                new ArrayList<Persistable<?>>(table.getRows());
+            if (   !partitionedTables.contains(tableName)
+                || (joinColumns == null && tableName.equals(largestTable)))
+            {
+                addRows(tableName, rows);
+            }
+            else if (joinColumns == null) {
+                for (NodeID participant : myParticipants) {
+                    addBatches(nodeToBatchesMap, participant, tableName, rows);
+                }
+            }
+            else {
+                String[] columnNames = joinColumns.get(tableName);
+                Map<NodeID, List<Persistable<?>>> nodeToRowsMap = 
+                    new HashMap<>();
+                for (Persistable<?> row : rows) {
+                    Object value = Join.getJoinValue(row, columnNames);
+                    if (value == null) {
+                        // The rows without a value for the join key don't
+                        // join with any row.
+                        continue;
+                    }
+                    NodeID participant = 
+                        myParticipants.get(
+                            (value.hashCode() & Integer.MAX_VALUE) 
+                                % myParticipants.size());
+                    List<Persistable<?>> nodeRows = 
+                        nodeToRowsMap.get(participant);
+                    if (nodeRows == null) {
+                        nodeRows = new ArrayList<>();
+                        nodeToRowsMap.put(participant, nodeRows);
+                    }
+                    nodeRows.add(row);
+                }
+                for (Map.Entry<NodeID, List<Persistable<?>>> entry : 
+                        nodeToRowsMap.entrySet())
+                {
+                    addBatches(nodeToBatchesMap, 
+                               entry.getKey(), 
+                               tableName, 
+                               entry.getValue());
+                }
+            }
+        }
+        
+        for (NodeID participant : myParticipants) {
+            if (participant.equals(myServerID)) {
+                continue;
+            }
+            List<JoinDataMessage> batches = nodeToBatchesMap.get(participant);
+            if (batches.isEmpty()) {
+                batches.add(makeBatch(myJoin.getJoinedTables().get(0), 
+                                      new ArrayList<Persistable<?>>(),
+                                      true));
+            }
+            else {
+                JoinDataMessage last = batches.remove(batches.size() - 1);
+                batches.add(makeBatch(last.getTableName(), 
+                                      last.getRows(), 
+                                      true));
+            }
+            myPendingBatches.put(participant, 
+                                 new ArrayDeque<JoinDataMessage>(batches));
+            myUnacknowledgedBatches.put(participant, Integer.valueOf(0));
+            sendBatches(participant);
+        }
+        myFinishedNodes.add(myServerID);
+        complete();
+    }
+    
+    /**
+     * Adds the batches in which the rows of a table are to be sent to the
+     * given server. The rows to be sent to this server are added directly.
+     */
+    private void addBatches(Map<NodeID, List<JoinDataMessage>> nodeToBatchesMap,
+                            NodeID                             participant,
+                            String                             tableName,
+                            List<Persistable<?>>               rows)
+    {
+        if (participant.equals(myServerID)) {
+            addRows(tableName, rows);
+            return;
+        }
+        int batchSize = Math.max(1, myServerConfig.getJoinBatchSize());
+        for (int start = 0; start < rows.size(); start += batchSize) {
+            nodeToBatchesMap.get(participant).add(
+                makeBatch(tableName,
+                          new ArrayList<>(
+                              rows.subList(
+                                  start, 
+                                  Math.min(rows.size(), start + batchSize))),
+                          false));
+        }
+    }
+    
+    private JoinDataMessage makeBatch(String                         tableName,
+                                      List<? extends Persistable<?>> rows,
+                                      boolean                        isLast)
+    {
+        return new JoinDataMessage(myServerID, 
+                                   myClientID, 
+                                   mySequenceNumber, 
+                                   myBatchSequenceNumber++, 
+                                   tableName, 
+                                   rows, 
+                                   isLast);
+    }
+    
+    /**
+     * Sends the pending batches to the server, as long as the number of 
+     * batches that it hasn't acknowledged is within the window.
+     */
+    private void sendBatches(NodeID participant)
+    {
+        Queue<JoinDataMessage> batches = myPendingBatches.get(participant);
+        if (batches == null) {
+            return;
+        }
+        int unacknowledged = myUnacknowledgedBatches.get(participant);
+        while (   !batches.isEmpty() 
+               && unacknowledged < myServerConfig.getJoinWindowSize())
+        {
+            send(participant, batches.poll());
+            unacknowledged++;
+        }
+        myUnacknowledgedBatches.put(participant, 
+                                    Integer.valueOf(unacknowledged));
+    }
+    
+    private void addRows(String                               tableName, 
+                         Collection<? extends Persistable<?>> rows)
+    {
+        List<Persistable<?>> tableRows = myTableToRowsMap.get(tableName);
+        if (tableRows == null) {
+            tableRows = new ArrayList<>();
+            myTableToRowsMap.put(tableName, tableRows);
+        }
+        tableRows.addAll(rows);
+    }
+    
+    /**
+     * Executes the query on the rows gathered on this server, once all 
+     * the servers have sent their rows, and sends the result to the 
+     * client.
+     */
+    private void complete()
+    {
+        if (   myIsCompleted
+            || !myIsDistributed
+            || !myFinishedNodes.containsAll(myParticipants))
+        {
+            return;
+        }
+        myIsCompleted = true;
+        
+        MaterializedDatabase database = new MaterializedDatabase();
+        for (MaterializedTable<?, ?> table : myInputs.getTables()) {
+            String tableName = table.getSchema().getTableName();
+            database.createTable(table.getSchema());
+            List<Persistable<?>> rows = myTableToRowsMap.get(tableName);
+            if (rows != null) {
+                database.addRows(tableName, rows);
+            }
+        }
+        myTableToRowsMap.clear();
+        myInputs = null;
+        
+        try {
+            send(myClientID, 
+                 DBOperationSuccessMessage.create(myServerID, 
+                                                  mySequenceNumber, 
+                                                  myQuery.query(database)));
+        }
+        catch (RuntimeException e) {
+            LOG.log(Level.SEVERE, e.getMessage(), e);
+            send(myClientID, 
+                 DBOperationFailureMessage.create(myServerID, 
+                                                  mySequenceNumber, 
+                                                  e.getMessage(), 
+                                                  e));
+        }
+    }
+    
+    private void send(NodeID nodeID, Message message)
+    {
+        myEventBus.publish(ActorID.DB_ENGINE, 
+                           SendMessageEvent.create(nodeID, message));
+    }
+}
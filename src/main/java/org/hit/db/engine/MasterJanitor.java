@@ -20,10 +20,12 @@
 
 package org.hit.db.engine;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -33,6 +35,7 @@ import java.util.logging.Logger;
 
 import org.hit.actors.ActorID;
 import org.hit.actors.EventBus;
+import org.hit.communicator.Message;
 import org.hit.communicator.NodeID;
 import org.hit.db.model.HitTableSchema;
 import org.hit.db.partitioner.TablePartitionInfo;
@@ -44,8 +47,13 @@ import org.hit.messages.CreateTableMessage;
 import org.hit.messages.CreateTableResponseMessage;
 import org.hit.messages.FacadeInitRequest;
 import org.hit.messages.FacadeInitResponse;
+import org.hit.messages.Heartbeat;
 import org.hit.messages.NodeAdvertisement;
 import org.hit.messages.NodeAdvertisementResponse;
+import org.hit.messages.PartitionMoveAbort;
+import org.hit.messages.PartitionMoveRequest;
+import org.hit.messages.PartitionMoveResponse;
+import org.hit.pool.PooledObjects;
 import org.hit.server.ServerConfig;
 import org.hit.util.LogFactory;
 import org.hit.util.NamedThreadFactory;
@@ -74,6 +82,8 @@ public class MasterJanitor extends AbstractJanitor
     private final ScheduledExecutorService myScheduler;
     
     private final Map<String, Pair<NodeID, Set<NodeID>>> myTableCreationState;
+    
+    private final Set<NodeID> myFacades;
 
     /**
      * CTOR
@@ -93,6 +103,8 @@ public class MasterJanitor extends AbstractJanitor
                 new NamedThreadFactory(MasterJanitor.class));
         ((ThreadPoolExecutor) myScheduler).prestartCoreThread();
         myTableCreationState = new HashMap<>();
+        myFacades = 
+            Collections.newSetFromMap(new ConcurrentHashMap<NodeID, Boolean>());
     }
 
     /**
@@ -192,7 +204,8 @@ public class MasterJanitor extends AbstractJanitor
             else if (event instanceof NodeAdvertisement) {
                 NodeAdvertisement na = (NodeAdvertisement) event;
                 Allocation allocation =
-                    myAllocator.getAllocation(na.getSenderId());
+                    myAllocator.getAllocation(na.getSenderId(), 
+                                              na.getCapacity());
                 if (allocation != null) {
                     getEventBus().publish(
                         ActorID.DB_ENGINE,
@@ -207,6 +220,9 @@ public class MasterJanitor extends AbstractJanitor
             }
             else if (event instanceof FacadeInitRequest) {
                 FacadeInitRequest fir = (FacadeInitRequest) event;
+                // The facades are remembered to push the partitions to 
+                // them when they change.
+                myFacades.add(fir.getSenderId());
                 getEventBus().publish(
                     ActorID.DB_ENGINE,
                     SendMessageEvent.create(
@@ -214,7 +230,21 @@ public class MasterJanitor extends AbstractJanitor
                         new FacadeInitResponse(
                             getServerID(),
                             new TablePartitionInfo(
-                                myAllocator.getPartitions()))));
+                                myAllocator.getPartitions(),
+                                myAllocator.getSchemas()))));
+            }
+            else if (event instanceof Heartbeat) {
+                Heartbeat heartbeat = (Heartbeat) event;
+                myAllocator.listenTO(heartbeat.getSenderId(), heartbeat);
+                PooledObjects.freeInstance(heartbeat);
+            }
+            else if (event instanceof PartitionMoveResponse) {
+                PartitionMoveResponse pmr = (PartitionMoveResponse) event;
+                LOG.info(pmr.getSenderId() + " has received " 
+                         + pmr.getMovedRowCount() + " rows of "
+                         + pmr.getTableName() + " moved to it");
+                myAllocator.partitionMoved(pmr.getTableName(), 
+                                           pmr.getSenderId());
             }
         }
         catch (IllegalAccessException e) {
@@ -237,6 +267,72 @@ public class MasterJanitor extends AbstractJanitor
                                        actorID);
         getEventBus().registerForEvent(CreateTableMessage.class, actorID);
         getEventBus().registerForEvent(CreateTableResponseMessage.class, actorID);
+        getEventBus().registerForEvent(Heartbeat.class, actorID);
+        getEventBus().registerForEvent(PartitionMoveResponse.class, actorID);
+    }
+    
+    /**
+     * Moves a range of keys between the nodes if the allocator finds the 
+     * load on them to be skewed. The node taking over the range is asked 
+     * to lock it before the updated partitions are published, so that the
+     * transactions routed to it wait for the data of the range. A move 
+     * that has timed out is abandoned instead, by publishing the 
+     * partitions routing the range back to the node it was moved from 
+     * and asking the node it was moved to, to release the range.
+     */
+    private void rebalance()
+    {
+        Pair<NodeID, PartitionMoveAbort> abort = 
+            myAllocator.abortTimedOutMove();
+        if (abort != null) {
+            sendToNode(abort.getFirst(), abort.getSecond());
+            publishPartitions();
+            return;
+        }
+        
+        Pair<NodeID, PartitionMoveRequest> move = myAllocator.rebalance();
+        if (move == null) {
+            return;
+        }
+        
+        sendToNode(move.getFirst(), move.getSecond());
+        publishPartitions();
+    }
+    
+    /**
+     * Sends the message to the given node, which is delivered locally if 
+     * the node is the master itself.
+     */
+    private void sendToNode(NodeID nodeID, Message message)
+    {
+        if (nodeID.equals(getServerID())) {
+            getEventBus().publish(ActorID.DB_ENGINE, message);
+        }
+        else {
+            getEventBus().publish(
+                ActorID.DB_ENGINE,
+                SendMessageEvent.create(nodeID, message));
+        }
+    }
+    
+    /**
+     * Publishes the latest partitions to the servers and the facades.
+     */
+    private void publishPartitions()
+    {
+        getEventBus().publish(ActorID.DB_ENGINE, 
+                              myAllocator.getGossipUpdates());
+        if (!myFacades.isEmpty()) {
+            getEventBus().publish(
+                ActorID.DB_ENGINE,
+                SendMessageEvent.create(
+                    new HashSet<>(myFacades),
+                    new FacadeInitResponse(
+                        getServerID(),
+                        new TablePartitionInfo(
+                            myAllocator.getPartitions(),
+                            myAllocator.getSchemas()))));
+        }
     }
 
     /**
@@ -268,6 +364,24 @@ public class MasterJanitor extends AbstractJanitor
             getServerConfig().getGossipUpdateSecs(),
             TimeUnit.SECONDS);
         
+        LOG.info("Scheduling task to rebalance the partitions every "
+                + getServerConfig().getRebalanceIntervalSecs() + " seconds");
+        
+        myScheduler.scheduleAtFixedRate(
+            new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (getIsInitialized().get()) {
+                        rebalance();
+                    }
+                }
+            },
+            getServerConfig().getRebalanceIntervalSecs(),
+            getServerConfig().getRebalanceIntervalSecs(),
+            TimeUnit.SECONDS);
+        
        
         LOG.info("Started master warden");
     }
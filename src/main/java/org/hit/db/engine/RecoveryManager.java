@@ -0,0 +1,368 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.engine;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.consensus.Proposal;
+import org.hit.consensus.raft.ProposalBatch;
+import org.hit.consensus.raft.log.WAL;
+import org.hit.consensus.raft.log.WALConfig;
+import org.hit.consensus.raft.log.WALCursor;
+import org.hit.db.keyspace.Keyspace;
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.model.mutations.SingleKeyMutation;
+import org.hit.db.snapshot.SchemaCatalog;
+import org.hit.db.snapshot.SnapshotConfig;
+import org.hit.db.snapshot.SnapshotDirectory;
+import org.hit.db.snapshot.SnapshotManifest;
+import org.hit.db.snapshot.SnapshotReader;
+import org.hit.db.transactions.IDAssigner;
+import org.hit.db.transactions.ReplicationExecutor;
+import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.WriteTransaction;
+import org.hit.pool.PooledObjects;
+import org.hit.time.Clock;
+import org.hit.util.LogFactory;
+import org.hit.util.NamedThreadFactory;
+
+/**
+ * Rebuilds a {@link TransactableDatabase} from the disk when the server 
+ * is restarted. The tables are recreated from the {@link SchemaCatalog}, 
+ * their rows are loaded from the latest snapshot and the mutations 
+ * committed after the snapshot are replayed from the {@link WAL}.
+ * <p>
+ * The replayed mutations are applied in parallel. The mutations on a 
+ * single key are routed to a lane determined by the table and the 
+ * partition of the key in the keyspace, so that the mutations on a key 
+ * are applied in the order in which they have been logged. The mutations 
+ * spanning multiple keys are applied after draining all the lanes.
+ * 
+ * @author Balraja Subbiah
+ */
+public class RecoveryManager
+{
+    private static final Logger LOG = 
+        LogFactory.getInstance().getLogger(RecoveryManager.class);
+    
+    /** The number of mutations that can be queued up on a lane */
+    private static final int MAX_PENDING_PER_LANE = 1024;
+    
+    private final SnapshotConfig myConfig;
+    
+    private final Clock myClock;
+    
+    private final IDAssigner myIdAssigner;
+    
+    /**
+     * Applies the replayed mutations to a database.
+     */
+    private class Replayer
+    {
+        private final TransactableDatabase myDatabase;
+        
+        private final long mySnapshotTime;
+        
+        private final ExecutorService[] myLanes;
+        
+        private final Future<?>[] myLastApplied;
+        
+        private final Semaphore myPendingPermits;
+        
+        private final AtomicLong myFailureCount;
+        
+        private long myAppliedCount;
+        
+        private long myMaxEndTime;
+        
+        /**
+         * CTOR
+         */
+        public Replayer(TransactableDatabase database, 
+                        long                 snapshotTime, 
+                        int                  parallelism)
+        {
+            myDatabase = database;
+            mySnapshotTime = snapshotTime;
+            myLanes = new ExecutorService[parallelism];
+            for (int i = 0; i < parallelism; i++) {
+                myLanes[i] = 
+                    Executors.newSingleThreadExecutor(
+                        new NamedThreadFactory(RecoveryManager.class));
+            }
+            myLastApplied = new Future<?>[parallelism];
+            myPendingPermits = 
+                new Semaphore(parallelism * MAX_PENDING_PER_LANE);
+            myFailureCount = new AtomicLong(0L);
+            myAppliedCount = 0L;
+            myMaxEndTime = Long.MIN_VALUE;
+        }
+        
+        /**
+         * Applies the mutations contained in the proposal read from the 
+         * log.
+         */
+        public void replay(Proposal proposal) throws InterruptedException
+        {
+            if (proposal instanceof ProposalBatch) {
+                for (Proposal batched : 
+                        ((ProposalBatch) proposal).getProposals())
+                {
+                    replay(batched);
+                }
+                PooledObjects.freeInstance((ProposalBatch) proposal);
+            }
+            else if (proposal instanceof ReplicationProposal) {
+                final ReplicationProposal replicationProposal = 
+                    (ReplicationProposal) proposal;
+                // The mutations committed before the snapshot has been 
+                // taken are already part of the snapshot.
+                if (replicationProposal.getEndTime() <= mySnapshotTime) {
+                    PooledObjects.freeInstance(replicationProposal);
+                    return;
+                }
+                
+                myAppliedCount++;
+                myMaxEndTime = 
+                    Math.max(myMaxEndTime, replicationProposal.getEndTime());
+                
+                if (replicationProposal.getMutation() 
+                        instanceof SingleKeyMutation)
+                {
+                    int lane = 
+                        getLane((SingleKeyMutation<?>) 
+                                    replicationProposal.getMutation());
+                    myPendingPermits.acquire();
+                    myLastApplied[lane] = 
+                        myLanes[lane].submit(new Runnable() {
+                            @Override
+                            public void run()
+                            {
+                                try {
+                                    apply(replicationProposal);
+                                }
+                                finally {
+                                    myPendingPermits.release();
+                                }
+                            }
+                        });
+                }
+                else {
+                    drain();
+                    apply(replicationProposal);
+                }
+            }
+        }
+        
+        /**
+         * Waits for the mutations queued up on all the lanes to be 
+         * applied.
+         */
+        public void drain() throws InterruptedException
+        {
+            for (int i = 0; i < myLastApplied.length; i++) {
+                if (myLastApplied[i] != null) {
+                    try {
+                        myLastApplied[i].get();
+                    }
+                    catch (ExecutionException e) {
+                        LOG.log(Level.SEVERE, e.getMessage(), e);
+                    }
+                    myLastApplied[i] = null;
+                }
+            }
+        }
+        
+        /** Stops the threads applying the mutations */
+        public void shutdown()
+        {
+            for (ExecutorService lane : myLanes) {
+                lane.shutdownNow();
+            }
+        }
+        
+        /** Returns the number of mutations applied to the database */
+        public long getAppliedCount()
+        {
+            return myAppliedCount;
+        }
+        
+        /** Returns the number of mutations that couldn't be applied */
+        public long getFailureCount()
+        {
+            return myFailureCount.get();
+        }
+        
+        /** Returns the latest commit time of the applied mutations */
+        public long getMaxEndTime()
+        {
+            return myMaxEndTime;
+        }
+        
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private int getLane(SingleKeyMutation<?> mutation)
+        {
+            Keyspace keyspace = 
+                myDatabase.lookUpTable(mutation.getTableName())
+                          .getSchema()
+                          .getKeyspace();
+            Object partition = 
+                keyspace != null ? keyspace.map((Comparable) mutation.getKey())
+                                 : mutation.getKey();
+            int hash = 
+                31 * mutation.getTableName().hashCode() + partition.hashCode();
+            return (hash & Integer.MAX_VALUE) % myLanes.length;
+        }
+        
+        private void apply(ReplicationProposal replicationProposal)
+        {
+            WriteTransaction transaction = 
+                WriteTransaction.create(myIdAssigner.getTransactionID(), 
+                                        myDatabase, 
+                                        myClock, 
+                                        replicationProposal.getMutation(),
+                                        false);
+            ReplicationExecutor executor = 
+                ReplicationExecutor.create(
+                    transaction,
+                    replicationProposal.getStart(),
+                    replicationProposal.getEndTime());
+            try {
+                executor.run();
+            }
+            catch (Exception e) {
+                myFailureCount.incrementAndGet();
+                LOG.log(Level.SEVERE, 
+                        "Unable to apply " + replicationProposal,
+                        e);
+            }
+            finally {
+                PooledObjects.freeInstance(executor);
+                PooledObjects.freeInstance(replicationProposal);
+            }
+        }
+    }
+
+    /**
+     * CTOR
+     */
+    public RecoveryManager(SnapshotConfig config, 
+                           Clock          clock, 
+                           IDAssigner     idAssigner)
+    {
+        myConfig = config;
+        myClock = clock;
+        myIdAssigner = idAssigner;
+    }
+    
+    /**
+     * Recovers the database from the snapshots and the log identified by 
+     * the given {@link WALConfig}. Returns the names of the tables that 
+     * have been recovered.
+     */
+    public Set<String> recover(TransactableDatabase database, 
+                               WALConfig            walConfig)
+    {
+        long start = System.currentTimeMillis();
+        SnapshotDirectory directory = 
+            new SnapshotDirectory(myConfig, walConfig.getLogName());
+        
+        Set<String> recoveredTables = new HashSet<>();
+        for (HitTableSchema schema : new SchemaCatalog(directory).load()) {
+            database.createTable(schema);
+            recoveredTables.add(schema.getTableName());
+        }
+        
+        // Without the schemas neither the snapshot nor the log can be 
+        // applied to the database.
+        if (recoveredTables.isEmpty()) {
+            return Collections.emptySet();
+        }
+        
+        long snapshotTime = Long.MIN_VALUE;
+        SnapshotReader reader = 
+            new SnapshotReader(directory, myConfig.getParallelism());
+        SnapshotManifest manifest = reader.readLatestManifest();
+        if (manifest != null) {
+            try {
+                reader.load(manifest, database);
+                snapshotTime = manifest.getTime();
+            }
+            catch (IOException e) {
+                LOG.log(Level.SEVERE, 
+                        "Unable to load the snapshot taken at " 
+                        + manifest.getTime(),
+                        e);
+                return Collections.emptySet();
+            }
+        }
+        
+        Replayer replayer = 
+            new Replayer(database, 
+                         snapshotTime, 
+                         Math.max(1, myConfig.getParallelism()));
+        WAL wal = new WAL(walConfig);
+        try {
+            WALCursor cursor = 
+                wal.openCursor(Long.MIN_VALUE, 
+                               Long.MIN_VALUE, 
+                               Long.MAX_VALUE, 
+                               Long.MAX_VALUE);
+            while (cursor.hasNext()) {
+                replayer.replay(cursor.next().getProposal());
+            }
+            replayer.drain();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.SEVERE, "Interrupted while replaying the log", e);
+        }
+        finally {
+            replayer.shutdown();
+            wal.close();
+        }
+        
+        // The transactions started after the recovery should be ordered
+        // after the recovered ones.
+        if (replayer.getMaxEndTime() != Long.MIN_VALUE) {
+            myClock.observe(replayer.getMaxEndTime());
+        }
+        
+        LOG.info("Recovered " + recoveredTables + " of " 
+                 + walConfig.getLogName() + " in " 
+                 + (System.currentTimeMillis() - start) + " ms by applying "
+                 + replayer.getAppliedCount() + " mutations from the log"
+                 + " over the snapshot " + manifest + ". "
+                 + replayer.getFailureCount() + " mutations have failed");
+        return recoveredTables;
+    }
+}
@@ -25,6 +25,7 @@ import java.io.ObjectOutput;
 import java.util.Date;
 
 import org.hit.consensus.Proposal;
+import org.hit.consensus.TimestampedProposal;
 import org.hit.consensus.UnitID;
 import org.hit.db.model.Mutation;
 import org.hit.pool.PoolConfiguration;
@@ -38,7 +39,7 @@ import org.hit.pool.PooledObjects;
  * @author Balraja Subbiah
  */
 @PoolConfiguration(size=10000,initialSize=100)
-public class ReplicationProposal implements Proposal, Poolable
+public class ReplicationProposal implements TimestampedProposal, Poolable
 {
     private UnitID myUnitID;
     
@@ -123,6 +124,15 @@ public class ReplicationProposal implements Proposal, Poolable
     {
         return myEndTime;
     }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTimestamp()
+    {
+        return myEndTime;
+    }
 
     /**
      * {@inheritDoc}
@@ -24,13 +24,16 @@ import gnu.trove.map.TObjectLongMap;
 import gnu.trove.map.hash.TObjectLongHashMap;
 
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import org.hit.actors.ActorID;
 import org.hit.actors.EventBus;
 import org.hit.communicator.NodeID;
+import org.hit.db.partitioner.DistributedHashTable;
 import org.hit.db.partitioner.Partitioner;
 import org.hit.event.DBStatEvent;
 import org.hit.event.Event;
@@ -41,19 +44,15 @@ import org.hit.gossip.Gossip;
 import org.hit.messages.Allocation;
 import org.hit.messages.CreateTableMessage;
 import org.hit.messages.CreateTableResponseMessage;
-import org.hit.messages.DataLoadRequest;
-import org.hit.messages.DataLoadResponse;
 import org.hit.messages.Heartbeat;
 import org.hit.messages.NodeAdvertisement;
 import org.hit.messages.NodeAdvertisementResponse;
 import org.hit.pool.PooledObjects;
 import org.hit.server.ServerConfig;
 import org.hit.util.LogFactory;
+import org.hit.util.Pair;
 import org.hit.util.Range;
 
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Inject;
 
 /**
@@ -78,61 +77,13 @@ public class SlaveJanitor extends AbstractJanitor
                     SendMessageEvent.create(
                         myMaster,
                         Heartbeat.create(getServerID(), 
-                                         myTableRowCountMap)));
+                                         myTableRowCountMap,
+                                         myTableAccessCountMap,
+                                         myTableAccessLatencyMap)));
             }
         }
     }
     
-    private class LoadAllocationTask implements FutureCallback<DataLoadResponse>
-    {
-        private final Allocation myAllocation;
-
-        /**
-         * CTOR
-         */
-        public LoadAllocationTask(Allocation allocation)
-        {
-            super();
-            myAllocation = allocation;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void onFailure(Throwable e)
-        {
-            throw new RuntimeException(e);
-            
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void onSuccess(DataLoadResponse response)
-        {
-            getTransactionManager().createTable(
-                myAllocation.getTable2SchemaMap().get(
-                    response.getTableName()));
-            
-            getTransactionManager().processOperation(
-                response.getDataLoadResponseMutation());
-            
-            myAllocation.getTableToDataNodeMap().remove(
-                response.getTableName());
-            
-            if (myAllocation.getTableToDataNodeMap().isEmpty()) {
-                getIsInitialized().compareAndSet(false, true);
-                LOG.info(
-                    "Successfully loaded data allocated data for all tables");
-            }
-            else {
-                sendDataFetchRequest(myAllocation);
-            }
-        }
-    }
-
     private static final Logger LOG =
         LogFactory.getInstance().getLogger(SlaveJanitor.class);
 
@@ -142,11 +93,14 @@ public class SlaveJanitor extends AbstractJanitor
 
     private final TObjectLongMap<String> myTableRowCountMap;
     
-    private final Map<NodeID, SettableFuture<DataLoadResponse>> 
-        myNodeToResponseFutureMap;
+    private final TObjectLongMap<String> myTableAccessCountMap;
+    
+    private final TObjectLongMap<String> myTableAccessLatencyMap;
     
     private Allocation myAllocation;
     
+    private final Queue<Pair<NodeID, Range<?>>> myPendingRanges;
+    
     /**
      * CTOR
      */
@@ -159,8 +113,10 @@ public class SlaveJanitor extends AbstractJanitor
         super(transactionManager, serverConfig, eventBus, slaveID);
         myPartitions = new HashMap<>();
         myTableRowCountMap = new TObjectLongHashMap<>();
-        myNodeToResponseFutureMap = new HashMap<>();
+        myTableAccessCountMap = new TObjectLongHashMap<>();
+        myTableAccessLatencyMap = new TObjectLongHashMap<>();
         myAllocation = null;
+        myPendingRanges = new LinkedList<>();
     }
 
     /**
@@ -209,31 +165,31 @@ public class SlaveJanitor extends AbstractJanitor
                 sendDataFetchRequest(myAllocation);
             }
         }
-        else if (event instanceof DataLoadResponse) {
-            DataLoadResponse response = (DataLoadResponse) event;
-            if (myAllocation != null) {
-                getTransactionManager().createTable(
-                        myAllocation.getTable2SchemaMap().get(
-                            response.getTableName()));
-                
-                getTransactionManager().processOperation(
-                    response.getDataLoadResponseMutation());
-                
-                myAllocation.getTableToDataNodeMap().remove(
-                    response.getTableName());
-                
-                if (myAllocation.getTableToDataNodeMap().isEmpty()) {
-                    getIsInitialized().compareAndSet(false, true);
-                    LOG.info(
-                        "Successfully loaded data allocated data for all tables");
-                }
-                else {
-                    sendDataFetchRequest(myAllocation);
-                }
-            }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onDataLoaded(String tableName)
+    {
+        Pair<NodeID, Range<?>> nextRange = myPendingRanges.poll();
+        if (nextRange != null) {
+            fetchData(tableName, nextRange.getFirst(), nextRange.getSecond());
+            return;
+        }
+        
+        myAllocation.getTableToDataNodeMap().remove(tableName);
+        
+        if (myAllocation.getTableToDataNodeMap().isEmpty()) {
+            getIsInitialized().compareAndSet(false, true);
+            LOG.info("Successfully loaded data allocated data for all tables");
+        }
+        else {
+            sendDataFetchRequest(myAllocation);
         }
     }
-
+    
     /**
      * {@inheritDoc}
      */
@@ -244,7 +200,7 @@ public class SlaveJanitor extends AbstractJanitor
         getEventBus().registerForEvent(GossipNotificationEvent.class, actorID);
         getEventBus().registerForEvent(DBStatEvent.class, actorID);
         getEventBus().registerForEvent(NodeAdvertisementResponse.class, actorID);
-        getEventBus().registerForEvent(DataLoadResponse.class, actorID);
+
         getEventBus().registerForEvent(CreateTableMessage.class, actorID);
     }
 
@@ -269,7 +225,9 @@ public class SlaveJanitor extends AbstractJanitor
         getEventBus().publish(
             ActorID.DB_ENGINE,
             SendMessageEvent.create(
-                myMaster, new NodeAdvertisement(getServerID())));
+                myMaster, 
+                new NodeAdvertisement(getServerID(), 
+                                      getServerConfig().getCapacity())));
         
         LOG.info("Scheduling task to publish hearbeats every  "
                  + getServerConfig().getHeartBeatIntervalSecs() + " seconds");
@@ -288,6 +246,17 @@ public class SlaveJanitor extends AbstractJanitor
 
     private void sendDataFetchRequest(Allocation allocation)
     {
+        // The tables recovered from the disk need not be fetched from 
+        // the other nodes.
+        for (String tableName : 
+                getTransactionManager().getRecoveredTables())
+        {
+            if (allocation.getTableToDataNodeMap().remove(tableName) != null) {
+                LOG.info(tableName + " has been recovered from the disk. "
+                         + "So it's not fetched from the other nodes");
+            }
+        }
+        
         if (!allocation.shouldFetchDataFromOtherNodes()) {
             getIsInitialized().compareAndSet(false, true);
             LOG.info("Allocation sent from the master is empty. So we are "
@@ -302,28 +271,30 @@ public class SlaveJanitor extends AbstractJanitor
                                       .next();
         NodeID targetNode = allocation.getTableToDataNodeMap()
                                       .get(tableName);
-        Range<?> range = 
-                allocation.getTable2PartitionMap()
-                          .get(tableName)
-                          .getNodeRange(getServerID());
-                          
-        LOG.info("Sending request to " + targetNode + " for fetching data "
-                 + " corresponding to " + tableName + " in the range "
-                 + range);
         
-        getEventBus().publish(
-            ActorID.DB_ENGINE,
-            SendMessageEvent.create(
-                targetNode,
-                new DataLoadRequest(getServerID(), 
-                                    tableName,
-                                    range)));
+        getTransactionManager().createTable(
+            allocation.getTable2SchemaMap().get(tableName));
         
-        SettableFuture<DataLoadResponse> future = SettableFuture.create();
-        Futures.addCallback(future, new LoadAllocationTask(allocation));
-        myNodeToResponseFutureMap.put(targetNode, future);
+        Partitioner<?, ?> partitioner = 
+            allocation.getTable2PartitionMap().get(tableName);
+        if (partitioner instanceof DistributedHashTable) {
+            // The ranges adjacent to the tokens claimed by this node are 
+            // fetched from the nodes holding the next tokens.
+            for (Pair<? extends Range<?>, NodeID> handoff : 
+                    ((DistributedHashTable<?, ?>) partitioner).getHandoffs(
+                        getServerID()))
+            {
+                myPendingRanges.add(new Pair<NodeID, Range<?>>(
+                    handoff.getSecond(), handoff.getFirst()));
+            }
+        }
+        else {
+            myPendingRanges.add(new Pair<NodeID, Range<?>>(
+                targetNode, partitioner.getNodeRange(getServerID())));
+        }
+        onDataLoaded(tableName);
     }
-
+    
     /**
      * {@inheritDoc}
      */
@@ -331,6 +302,8 @@ public class SlaveJanitor extends AbstractJanitor
     public void handleDbStats(DBStatEvent dbStats)
     {
         myTableRowCountMap.putAll(dbStats.getTableToRowCountMap());
+        myTableAccessCountMap.putAll(dbStats.getTableToAccessCountMap());
+        myTableAccessLatencyMap.putAll(dbStats.getTableToAccessLatencyMap());
         PooledObjects.freeInstance(dbStats);
     }
 
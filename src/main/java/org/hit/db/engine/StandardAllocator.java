@@ -20,28 +20,34 @@
 
 package org.hit.db.engine;
 
-import gnu.trove.iterator.TObjectDoubleIterator;
 import gnu.trove.map.TObjectDoubleMap;
+import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.TObjectLongMap;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 import gnu.trove.map.hash.TObjectLongHashMap;
 import gnu.trove.procedure.TObjectLongProcedure;
 
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import org.hit.communicator.NodeID;
 import org.hit.db.keyspace.domain.DiscreteDomain;
 import org.hit.db.model.HitTableSchema;
+import org.hit.db.partitioner.DistributedHashTable;
 import org.hit.db.partitioner.Partitioner;
 import org.hit.event.DBStatEvent;
 import org.hit.event.GossipUpdateEvent;
 import org.hit.messages.Allocation;
 import org.hit.messages.Heartbeat;
+import org.hit.messages.PartitionMoveAbort;
+import org.hit.messages.PartitionMoveRequest;
 import org.hit.pool.PooledObjects;
 import org.hit.server.ServerConfig;
 import org.hit.util.LogFactory;
@@ -53,6 +59,24 @@ import com.google.inject.Inject;
 /**
  * Defines the contract for a simple allocator that allocates the key space of
  * tables to the incoming node. 
+ * <p>
+ * The load on the partition of a table held by a node is measured as the 
+ * fraction of time spent by the transactions accessing it, which is 
+ * derived from the cumulative access statistics published by the nodes. 
+ * The allocator also rebalances the partitions between the existing nodes
+ * by moving the lower half of the range of a node that's loaded more than
+ * the others to the node holding the previous range, provided that node 
+ * is loaded less than the average. Only one range is moved at a time and
+ * the moves are spaced apart, so that the moves don't overwhelm the nodes
+ * serving the traffic. The partitioners are never updated in place, but 
+ * replaced by their updated copies. A move that doesn't complete within 
+ * the configured timeout is abandoned by routing the range back to the 
+ * node it was moved from with a newer copy of the partitioner.
+ * <p>
+ * The tables whose keys are hashed are partitioned on a ring wherein 
+ * every node claims tokens proportional to it's capacity. A node joining 
+ * the ring only takes over the ranges adjacent to it's tokens, hence these
+ * tables aren't rebalanced by moving the ranges.
  *
  * @author Balraja Subbiah
  */
@@ -66,14 +90,30 @@ public class StandardAllocator implements Allocator
     private final Set<NodeID> myNodes;
 
     private final Map<NodeID, TObjectLongMap<String>> myNodeToRowCountMap;
+    
+    private final Map<NodeID, TObjectLongMap<String>> myNodeToAccessCountMap;
+    
+    private final Map<NodeID, TObjectLongMap<String>> myNodeToAccessLatencyMap;
+    
+    private final TObjectLongMap<NodeID> myNodeToStatTimeMap;
+    
+    private final TObjectIntMap<NodeID> myNodeToCapacityMap;
 
     private final NodeID myServerID;
 
-    private final Map<String, TObjectDoubleMap<NodeID>> myTableFillRateMap;
+    private final Map<String, TObjectDoubleMap<NodeID>> myTableLoadMap;
+    
+    private final Map<String, TObjectDoubleMap<NodeID>> myTableAccessRateMap;
 
     private final Map<String, Partitioner<?, ?>> myTableToPartitionMap;
 
     private final Map<String, HitTableSchema> myTableToSchemaMap;
+    
+    private Pair<NodeID, PartitionMoveRequest> myMove;
+    
+    private long myMoveStartTime;
+    
+    private long myLastMoveTime;
 
     /**
      * CTOR
@@ -83,19 +123,28 @@ public class StandardAllocator implements Allocator
     {
         super();
         myNodeConfig = nodeConfig;
-        myTableFillRateMap = new HashMap<>();
+        myTableLoadMap = new HashMap<>();
+        myTableAccessRateMap = new HashMap<>();
         myNodeToRowCountMap = new HashMap<>();
+        myNodeToAccessCountMap = new HashMap<>();
+        myNodeToAccessLatencyMap = new HashMap<>();
+        myNodeToStatTimeMap = new TObjectLongHashMap<>();
+        myNodeToCapacityMap = new TObjectIntHashMap<>();
+        myNodeToCapacityMap.put(serverID, nodeConfig.getCapacity());
         myTableToSchemaMap = new HashMap<>();
         myTableToPartitionMap = new HashMap<>();
         myNodes = new HashSet<>();
         myServerID = serverID;
+        myMove = null;
+        myMoveStartTime = 0L;
+        myLastMoveTime = 0L;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void addSchema(HitTableSchema tableSchema)
+    public synchronized void addSchema(HitTableSchema tableSchema)
     {
         myTableToSchemaMap.put(tableSchema.getTableName(), tableSchema);
         
@@ -107,6 +156,21 @@ public class StandardAllocator implements Allocator
             tableSchema.getKeyspace().makePartitioner(
                 tableSchema.getTableName());
         
+        if (partitioner instanceof DistributedHashTable) {
+            DistributedHashTable<?, ?> ring = 
+                (DistributedHashTable<?, ?>) partitioner;
+            for (NodeID node : myNodes) {
+                ring.addNode(node, getTokenCount(node));
+            }
+            ring.addNode(myServerID, getTokenCount(myServerID));
+            
+            LOG.info("Added " + myNodes + " and " + myServerID 
+                     + " to the ring of " + tableSchema.getTableName());
+            
+            myTableToPartitionMap.put(tableSchema.getTableName(), ring);
+            return;
+        }
+        
         DiscreteDomain<?> domain = 
             tableSchema.getKeyspace().getDomain();
         
@@ -137,12 +201,14 @@ public class StandardAllocator implements Allocator
      * {@inheritDoc}
      */
     @Override
-    public Allocation getAllocation(NodeID nodeID) throws IllegalAccessException
+    public synchronized Allocation getAllocation(NodeID nodeID, int capacity) 
+        throws IllegalAccessException
     {
         if (!myNodeConfig.isMaster()) {
             throw new IllegalAccessException(
                 "Trying get allocation from a non master node");
         }
+        myNodeToCapacityMap.put(nodeID, capacity);
 
         Map<String, HitTableSchema> tableSchemaMap = new HashMap<>();
         Map<String, Partitioner<?,?>> partitionTableMap = new HashMap<>();
@@ -170,15 +236,37 @@ public class StandardAllocator implements Allocator
                 
                 dataNodeMap.put(entry.getKey(), myServerID);
             }
+            else if (myTableToPartitionMap.get(entry.getKey()) 
+                         instanceof DistributedHashTable)
+            {
+                DistributedHashTable<?, ?> ring = 
+                    (DistributedHashTable<?, ?>) 
+                        myTableToPartitionMap.get(entry.getKey()).copy();
+                ring.addNode(nodeID, getTokenCount(nodeID));
+                myTableToPartitionMap.put(entry.getKey(), ring);
+                partitionTableMap.put(entry.getKey(), ring);
+                
+                // The node fetches the ranges from the nodes that held 
+                // them before, which are derived from the ring.
+                List<? extends Pair<?, NodeID>> handoffs = 
+                    ring.getHandoffs(nodeID);
+                if (!handoffs.isEmpty()) {
+                    dataNodeMap.put(entry.getKey(), 
+                                    handoffs.get(0).getSecond());
+                }
+            }
             else {
-                NodeID maxLoadedNode = lookupMaxLoadedNode(entry.getKey());
                 Partitioner<?, ?> partition =
                     myTableToPartitionMap.get(entry.getKey());
+                NodeID maxLoadedNode = 
+                    lookupMaxLoadedNode(entry.getKey(), partition);
                 Range<?> nodeRange = partition.getNodeRange(maxLoadedNode);
                 Comparable<?> newValue =
                     entry.getValue().getKeyspace().getDomain().getMiddleOf(
                         nodeRange.getMinValue(), nodeRange.getMaxValue());
+                partition = partition.copy();
                 partition.update(new Pair<Comparable<?>, NodeID>(newValue, nodeID));
+                myTableToPartitionMap.put(entry.getKey(), partition);
                 partitionTableMap.put(entry.getKey(), partition);
                 dataNodeMap.put(entry.getKey(), maxLoadedNode);
             }
@@ -191,7 +279,16 @@ public class StandardAllocator implements Allocator
      * {@inheritDoc}
      */
     @Override
-    public GossipUpdateEvent getGossipUpdates()
+    public synchronized Map<String, HitTableSchema> getSchemas()
+    {
+        return new HashMap<>(myTableToSchemaMap);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized GossipUpdateEvent getGossipUpdates()
     {
         return GossipUpdateEvent.create(myTableToPartitionMap.values());
     }
@@ -200,7 +297,7 @@ public class StandardAllocator implements Allocator
      * {@inheritDoc}
      */
     @Override
-    public Map<String, Partitioner<?, ?>> getPartitions()
+    public synchronized Map<String, Partitioner<?, ?>> getPartitions()
     {
         return new HashMap<>(myTableToPartitionMap);
     }
@@ -209,12 +306,12 @@ public class StandardAllocator implements Allocator
      * {@inheritDoc}
      */
     @Override
-    public void listenTO(DBStatEvent dbStats)
+    public synchronized void listenTO(DBStatEvent dbStats)
     {
-        updateFillRate(myServerID,
-                       myNodeToRowCountMap.get(myServerID),
-                       dbStats.getTableToRowCountMap());
-        myNodeToRowCountMap.put(myServerID, dbStats.getTableToRowCountMap());
+        updateStatistics(myServerID,
+                         dbStats.getTableToRowCountMap(),
+                         dbStats.getTableToAccessCountMap(),
+                         dbStats.getTableToAccessLatencyMap());
         PooledObjects.freeInstance(dbStats);
     }
 
@@ -222,68 +319,293 @@ public class StandardAllocator implements Allocator
      * {@inheritDoc}
      */
     @Override
-    public void listenTO(NodeID nodeID, Heartbeat heartbeat)
+    public synchronized void listenTO(NodeID nodeID, Heartbeat heartbeat)
     {
         myNodes.add(nodeID);
-        updateFillRate(nodeID,
-                       myNodeToRowCountMap.get(nodeID),
-                       heartbeat.getTableToRowCountMap());
-        myNodeToRowCountMap.put(nodeID, heartbeat.getTableToRowCountMap());
+        updateStatistics(nodeID,
+                         heartbeat.getTableToRowCountMap(),
+                         heartbeat.getTableToAccessCountMap(),
+                         heartbeat.getTableToAccessLatencyMap());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Pair<NodeID, PartitionMoveRequest> rebalance()
+    {
+        long now = System.currentTimeMillis();
+        if (myMove != null || now - myLastMoveTime < TimeUnit.SECONDS.toMillis(
+                myNodeConfig.getPartitionMoveIntervalSecs()))
+        {
+            return null;
+        }
+        
+        for (Map.Entry<String, Partitioner<?, ?>> entry : 
+                myTableToPartitionMap.entrySet())
+        {
+            Pair<NodeID, PartitionMoveRequest> move = 
+                planMove(entry.getKey(), entry.getValue());
+            if (move != null) {
+                myMove = move;
+                myMoveStartTime = myLastMoveTime = now;
+                return move;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public synchronized Pair<NodeID, PartitionMoveAbort> abortTimedOutMove()
+    {
+        if (   myMove == null
+            || System.currentTimeMillis() - myMoveStartTime 
+                   < TimeUnit.SECONDS.toMillis(
+                         myNodeConfig.getPartitionMoveTimeoutSecs()))
+        {
+            return null;
+        }
+        
+        PartitionMoveRequest request = myMove.getSecond();
+        LOG.warning("Giving up on the move of " + request.getRange() 
+                    + " of " + request.getTableName() + " to " 
+                    + myMove.getFirst() + " started at " + myMoveStartTime);
+        
+        // The range starts at the boundary of the node it was moved to, 
+        // hence moving that boundary back to the lower bound of the range 
+        // hands it back to the node it was moved from.
+        Partitioner partition = 
+            myTableToPartitionMap.get(request.getTableName());
+        myTableToPartitionMap.put(
+            request.getTableName(),
+            partition.moveBoundary(myMove.getFirst(), 
+                                   request.getRange().getMinValue()));
+        
+        Pair<NodeID, PartitionMoveAbort> abort = 
+            new Pair<NodeID, PartitionMoveAbort>(
+                myMove.getFirst(),
+                new PartitionMoveAbort(myServerID, 
+                                       request.getTableName(),
+                                       request.getRange(),
+                                       request.getSourceNode()));
+        myMove = null;
+        return abort;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void partitionMoved(String tableName, NodeID nodeID)
+    {
+        if (   myMove != null
+            && myMove.getFirst().equals(nodeID)
+            && myMove.getSecond().getTableName().equals(tableName))
+        {
+            myMove = null;
+        }
+    }
+    
+    /**
+     * Moves the lower half of the range held by the node that's loaded 
+     * the most to the node holding the previous range. The lower bound of 
+     * a range belongs to the previous range, which makes the moved range 
+     * exact.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private Pair<NodeID, PartitionMoveRequest> planMove(
+        String tableName, Partitioner<?, ?> partition)
+    {
+        TObjectDoubleMap<NodeID> tableLoad = myTableLoadMap.get(tableName);
+        Set<NodeID> nodes = new HashSet<>(partition.getNodes());
+        if (   tableLoad == null 
+            || nodes.size() < 2 
+            || partition instanceof DistributedHashTable) 
+        {
+            return null;
+        }
+        
+        NodeID hotNode = null;
+        double hotLoad = 0.0;
+        double totalLoad = 0.0;
+        for (NodeID node : nodes) {
+            double load = tableLoad.get(node);
+            totalLoad += load;
+            if (load > hotLoad) {
+                hotNode = node;
+                hotLoad = load;
+            }
+        }
+        
+        double averageLoad = totalLoad / nodes.size();
+        if (   hotNode == null
+            || hotLoad <= averageLoad * myNodeConfig.getRebalanceLoadFactor())
+        {
+            return null;
+        }
+        
+        NodeID coldNode = partition.getPreviousNode(hotNode);
+        if (coldNode == null || tableLoad.get(coldNode) >= averageLoad) {
+            return null;
+        }
+        
+        Range<?> hotRange = partition.getNodeRange(hotNode);
+        Comparable newBound = 
+            myTableToSchemaMap.get(tableName)
+                              .getKeyspace()
+                              .getDomain()
+                              .getMiddleOf(hotRange.getMinValue(), 
+                                           hotRange.getMaxValue());
+        
+        if (   newBound.compareTo(hotRange.getMinValue()) <= 0
+            || newBound.compareTo(hotRange.getMaxValue()) >= 0)
+        {
+            // The range is too small to be split.
+            return null;
+        }
+        
+        myTableToPartitionMap.put(tableName, 
+                                  partition.moveBoundary(coldNode, newBound));
+        
+        // The loads of both the nodes change with the move, hence no other 
+        // move involves them till they are published again.
+        tableLoad.remove(hotNode);
+        tableLoad.remove(coldNode);
+        
+        Range<?> movedRange = new Range(hotRange.getMinValue(), newBound);
+        LOG.info("Moving " + movedRange + " of " + tableName + " from "
+                 + hotNode + " with load " + hotLoad + " and access rate " 
+                 + myTableAccessRateMap.get(tableName).get(hotNode) 
+                 + " per second to " + coldNode + " as the average load is "
+                 + averageLoad);
+        
+        return new Pair<NodeID, PartitionMoveRequest>(
+            coldNode,
+            new PartitionMoveRequest(myServerID, 
+                                     tableName, 
+                                     movedRange, 
+                                     hotNode));
     }
 
     /**
-     * A helper method to lookup a node whose partition is filling fast.
+     * A helper method to lookup the node holding a partition of a table 
+     * that's loaded the most. The nodes that aren't loaded are ordered by
+     * the number of rows held by them.
      */
-    private NodeID lookupMaxLoadedNode(String tableName)
+    private NodeID lookupMaxLoadedNode(String            tableName, 
+                                       Partitioner<?, ?> partition)
     {
-        TObjectDoubleMap<NodeID> tableFillRateMap =
-            myTableFillRateMap.get(tableName);
-        TObjectDoubleIterator<NodeID> itr = tableFillRateMap.iterator();
+        TObjectDoubleMap<NodeID> tableLoad = myTableLoadMap.get(tableName);
         NodeID maxLoadedNode = null;
-        double fillRate = 0.0;
-        while (itr.hasNext()) {
-            if (itr.value() > fillRate) {
-                maxLoadedNode = itr.key();
-                fillRate = itr.value();
+        double maxLoad = -1.0;
+        long maxRowCount = -1L;
+        for (NodeID node : partition.getNodes()) {
+            double load = tableLoad != null ? tableLoad.get(node) : 0.0;
+            TObjectLongMap<String> rowCountMap = myNodeToRowCountMap.get(node);
+            long rowCount = 
+                rowCountMap != null ? rowCountMap.get(tableName) : 0L;
+            if (   load > maxLoad 
+                || (load == maxLoad && rowCount > maxRowCount))
+            {
+                maxLoadedNode = node;
+                maxLoad = load;
+                maxRowCount = rowCount;
             }
-            itr.advance();
         }
         return maxLoadedNode;
     }
 
-    private void updateFillRate(final NodeID nodeID,
-                                final TObjectLongMap<String>
-                                    oldNodeRowCountMap,
-                                final TObjectLongMap<String>
-                                    nodeRowCountMap)
+    /**
+     * Updates the load on the partitions held by a node from the 
+     * difference between the cumulative access statistics published by 
+     * it now and the last time.
+     */
+    private void updateStatistics(
+        final NodeID                 nodeID,
+        final TObjectLongMap<String> rowCountMap,
+        final TObjectLongMap<String> accessCountMap,
+        final TObjectLongMap<String> accessLatencyMap)
     {
-        nodeRowCountMap.forEachEntry(new TObjectLongProcedure<String>()
-        {
-            @Override
-            public boolean execute(String tableName, long rowCount)
+        final long now = System.currentTimeMillis();
+        final long lastUpdateTime = myNodeToStatTimeMap.get(nodeID);
+        final TObjectLongMap<String> lastAccessCountMap = 
+            myNodeToAccessCountMap.get(nodeID);
+        final TObjectLongMap<String> lastAccessLatencyMap = 
+            myNodeToAccessLatencyMap.get(nodeID);
+        
+        if (lastAccessCountMap != null && now > lastUpdateTime) {
+            final long elapsedMillis = now - lastUpdateTime;
+            accessLatencyMap.forEachEntry(new TObjectLongProcedure<String>()
             {
-                long oldRowCount = oldNodeRowCountMap != null ?
-                                       oldNodeRowCountMap.get(tableName) : 0;
-                double fillRate =
-                    ((double) (rowCount - oldRowCount)) / ((double) oldRowCount);
-
-                TObjectDoubleMap<NodeID> nodeFillRate =
-                    myTableFillRateMap.get(tableName);
-                if (nodeFillRate == null) {
-                    nodeFillRate = new TObjectDoubleHashMap<>();
-                    myTableFillRateMap.put(tableName, nodeFillRate);
+                @Override
+                public boolean execute(String tableName, long latency)
+                {
+                    // The statistics restart from zero when a node is 
+                    // restarted.
+                    long latencyDelta = 
+                        Math.max(0L, 
+                                 latency - lastAccessLatencyMap.get(tableName));
+                    long countDelta = 
+                        Math.max(0L,
+                                 accessCountMap.get(tableName)
+                                 - lastAccessCountMap.get(tableName));
+                    
+                    tableStatistics(myTableLoadMap, tableName).put(
+                        nodeID,
+                        ((double) latencyDelta) 
+                            / TimeUnit.MILLISECONDS.toNanos(elapsedMillis));
+                    tableStatistics(myTableAccessRateMap, tableName).put(
+                        nodeID, 
+                        (countDelta * 1000.0) / elapsedMillis);
+                    return true;
                 }
-                nodeFillRate.put(nodeID, fillRate);
-                return true;
-            }
-        });
+            });
+        }
+        
+        // The maps are copied since the heartbeats and statistics are 
+        // pooled.
+        myNodeToStatTimeMap.put(nodeID, now);
+        myNodeToRowCountMap.put(nodeID, 
+                                new TObjectLongHashMap<>(rowCountMap));
+        myNodeToAccessCountMap.put(nodeID, 
+                                   new TObjectLongHashMap<>(accessCountMap));
+        myNodeToAccessLatencyMap.put(
+            nodeID, new TObjectLongHashMap<>(accessLatencyMap));
+    }
+    
+    /**
+     * Returns the number of tokens to be claimed by the given node on the 
+     * rings of the tables.
+     */
+    private int getTokenCount(NodeID nodeID)
+    {
+        int capacity = 
+            myNodeToCapacityMap.containsKey(nodeID) ? 
+                myNodeToCapacityMap.get(nodeID) : 1;
+        return myNodeConfig.getVirtualNodeCount() * Math.max(1, capacity);
+    }
+    
+    private static TObjectDoubleMap<NodeID> tableStatistics(
+        Map<String, TObjectDoubleMap<NodeID>> statisticsMap, String tableName)
+    {
+        TObjectDoubleMap<NodeID> tableStatistics = 
+            statisticsMap.get(tableName);
+        if (tableStatistics == null) {
+            tableStatistics = new TObjectDoubleHashMap<>();
+            statisticsMap.put(tableName, tableStatistics);
+        }
+        return tableStatistics;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void initialize(Set<NodeID> nodes)
+    public synchronized void initialize(Set<NodeID> nodes)
     {
         myNodes.addAll(nodes);
         for (NodeID slave : nodes) {
@@ -296,8 +618,8 @@ public class StandardAllocator implements Allocator
      * {@inheritDoc}
      */
     @Override
-    public Set<NodeID> getMonitoredNodes()
+    public synchronized Set<NodeID> getMonitoredNodes()
     {
-        return Collections.unmodifiableSet(myNodes);
+        return Collections.unmodifiableSet(new HashSet<>(myNodes));
     }
 }
@@ -22,14 +22,20 @@ package org.hit.db.engine;
 
 import gnu.trove.set.TLongSet;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,31 +46,62 @@ import org.hit.communicator.Message;
 import org.hit.communicator.NodeID;
 import org.hit.consensus.ConsensusType;
 import org.hit.consensus.UnitID;
+import org.hit.consensus.raft.log.WALPropertyConfig;
+import org.hit.db.keyspace.HashKeyspace;
 import org.hit.db.model.DBOperation;
 import org.hit.db.model.DatabaseException;
 import org.hit.db.model.HitTableSchema;
 import org.hit.db.model.Mutation;
+import org.hit.db.model.Persistable;
 import org.hit.db.model.Query;
-import org.hit.db.model.mutations.MutationWrapper;
+import org.hit.db.model.RangedOperation;
+import org.hit.db.model.mutations.BatchAddMutation;
+import org.hit.db.model.mutations.RangeMutation;
+import org.hit.db.model.mutations.SingleKeyMutation;
+import org.hit.db.snapshot.SchemaCatalog;
+import org.hit.db.snapshot.SnapshotConfig;
+import org.hit.db.snapshot.SnapshotDirectory;
+import org.hit.db.snapshot.SnapshotListener;
+import org.hit.db.snapshot.SnapshotManifest;
+import org.hit.db.snapshot.SnapshotPropertyConfig;
+import org.hit.db.snapshot.SnapshotReader;
+import org.hit.db.snapshot.SnapshotWriter;
+import org.hit.db.sql.operators.Join;
+import org.hit.db.sql.operators.JoinInputs;
+import org.hit.db.sql.operators.KeyBounds;
+import org.hit.db.sql.operators.MaterializedDatabase;
+import org.hit.db.sql.operators.QueryAdaptor;
 import org.hit.db.transactions.AbstractTransaction;
 import org.hit.db.transactions.IDAssigner;
+import org.hit.db.transactions.KeyRangeLockManager;
+import org.hit.db.transactions.LockRange;
 import org.hit.db.transactions.Memento;
 import org.hit.db.transactions.PhasedTransactionExecutor;
 import org.hit.db.transactions.ReadTransaction;
 import org.hit.db.transactions.Registry;
 import org.hit.db.transactions.ReplicationExecutor;
+import org.hit.db.transactions.Transactable;
 import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.TransactableTable;
+import org.hit.db.transactions.TransactionHelper;
 import org.hit.db.transactions.TransactionResult;
+import org.hit.db.transactions.VersionCollector;
+import org.hit.db.transactions.VersionCollectorConfig;
 import org.hit.db.transactions.WriteTransaction;
 import org.hit.event.ConsensusRequestEvent;
 import org.hit.event.ConsensusResponseEvent;
 import org.hit.event.CreateConsensusLeaderEvent;
+import org.hit.event.InstallSnapshotEvent;
+import org.hit.event.JoinInputEvent;
+import org.hit.event.LogCompactionEvent;
 import org.hit.event.ProposalNotificationEvent;
 import org.hit.event.ProposalNotificationResponse;
 import org.hit.event.SendMessageEvent;
 import org.hit.messages.DBOperationFailureMessage;
 import org.hit.messages.DBOperationSuccessMessage;
+import org.hit.messages.DataLoadRequest;
 import org.hit.messages.DataLoadResponse;
+import org.hit.messages.JoinAbortMessage;
 import org.hit.pool.CLQPool;
 import org.hit.pool.Factory;
 import org.hit.pool.Pool;
@@ -109,6 +146,15 @@ public class TransactionManager
         
         /** The actual method via which workflow responds to an event */
         public void respondTO(Object event);
+        
+        /** Returns the ranges of keys accessed by the workflow */
+        public List<LockRange> getLockRanges();
+        
+        /** 
+         * Returns true if the workflow requires exclusive access to its 
+         * range of keys.
+         */
+        public boolean isExclusive();
     }
     
     /**
@@ -116,6 +162,25 @@ public class TransactionManager
      */
     private abstract class AbstractWokflow implements WorkFlow
     {
+        private List<LockRange> myLockRanges;
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<LockRange> getLockRanges()
+        {
+            return myLockRanges;
+        }
+        
+        /**
+         * Setter for lockRanges
+         */
+        public void setLockRanges(List<LockRange> lockRanges)
+        {
+            myLockRanges = lockRanges;
+        }
+        
         /**
          * Schedules the next set of transactions which are dependent
          * on this transaction.
@@ -123,7 +188,7 @@ public class TransactionManager
         protected void scheduleNextTransactions(long transactionID)
         {
             TLongSet toBeProcessedTransactions = 
-                Registry.freeDependentTransactionsOn(transactionID);
+                myLockManager.release(transactionID);
             
             if (!toBeProcessedTransactions.isEmpty()) {
                 myExecutor.submit(new ScheduleDependentTransactionsTask(
@@ -145,6 +210,8 @@ public class TransactionManager
         private boolean myExecutionPhase;
         
         private Memento<Boolean> myMemento;
+        
+        private boolean myIsStarted;
 
         /**
          * {@inheritDoc}
@@ -155,6 +222,15 @@ public class TransactionManager
             return getTransaction().getTransactionID();
         }
         
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isExclusive()
+        {
+            return false;
+        }
+        
         /**
          * Returns the {@link ClientInfo} to which response is to be 
          * sent.
@@ -169,21 +245,42 @@ public class TransactionManager
          */
         protected void sendResponseToClient(TransactionResult result)
         {
-            Message message =
-                result.isCommitted() ?
-                    DBOperationSuccessMessage.create(
-                        myServerID,
-                        getClientInfo().getClientSequenceNumber(), 
-                        result.getResult())
-                    : DBOperationFailureMessage.create(
-                              myServerID,
-                              getClientInfo().getClientSequenceNumber(),
-                              "Failed to apply the transaction on db");
-
+            if (!result.isCommitted()) {
+                sendFailureToClient("Failed to apply the transaction on db", 
+                                    null);
+                return;
+            }
+            
             myEventBus.publish(
                ActorID.DB_ENGINE,
                SendMessageEvent.create(
-                   getClientInfo().getClientID(), message));
+                   getClientInfo().getClientID(), 
+                   DBOperationSuccessMessage.create(
+                       myServerID,
+                       getClientInfo().getClientSequenceNumber(), 
+                       result.getResult())));
+        }
+        
+        /**
+         * A helper method to notify the client that the transaction has 
+         * failed.
+         */
+        protected void sendFailureToClient(String message, Exception exception)
+        {
+            myEventBus.publish(
+               ActorID.DB_ENGINE,
+               SendMessageEvent.create(
+                   getClientInfo().getClientID(),
+                   exception != null ?
+                       DBOperationFailureMessage.create(
+                           myServerID,
+                           getClientInfo().getClientSequenceNumber(),
+                           message,
+                           exception)
+                       : DBOperationFailureMessage.create(
+                           myServerID,
+                           getClientInfo().getClientSequenceNumber(),
+                           message)));
         }
 
         /**
@@ -192,18 +289,11 @@ public class TransactionManager
         protected void sendErrorToClient(Exception exception)
         {
             if (getClientInfo() != null) {
-                myEventBus.publish(
-                   ActorID.DB_ENGINE,
-                   SendMessageEvent.create(
-                       getClientInfo().getClientID(),
-                       DBOperationFailureMessage.create(
-                           myServerID,
-                           getClientInfo().getClientSequenceNumber(),
-                           exception.getMessage(),
-                           exception)));
+                sendFailureToClient(exception.getMessage(), exception);
             }
             
             
+            scheduleNextTransactions(getTransaction().getTransactionID());
             // Remove the workflow as it's no longer needed.
             SimpleWorkflow workflow = 
                 (SimpleWorkflow) 
@@ -231,12 +321,37 @@ public class TransactionManager
             }
         }
         
+        /**
+         * Returns true if the transaction writes to the keys that have 
+         * been moved away from this server.
+         */
+        protected boolean isFenced()
+        {
+            return    getClientInfo() != null
+                   && getClientInfo().getClientID() != null
+                   && getTransaction() instanceof WriteTransaction
+                   && TransactionManager.this.isFenced(getLockRanges());
+        }
+        
         /**
          * {@inheritDoc}
          */
         @Override
-        public void start()
+        public synchronized void start()
         {
+            if (myIsStarted) {
+                return;
+            }
+            myIsStarted = true;
+            if (isFenced()) {
+                // The client has routed the write with the partitions 
+                // published before the move, hence it's refused instead 
+                // of being applied to the rows that are no longer here.
+                sendErrorToClient(new DatabaseException(
+                    "The keys have moved to another server, retry with "
+                    + "the updated partitions"));
+                return;
+            }
             if (isExecutionPhase()) {
                 PhasedTransactionExecutor<Boolean> callable =
                     PhasedTransactionExecutor.<Boolean>create(
@@ -271,7 +386,7 @@ public class TransactionManager
                 if (result.getPhase().getResult()) {
                     myMemento = result;
                     TLongSet precedentTransactions = 
-                        Registry.getPrecedencyFor(getTransactionID());
+                        myRegistry.getPrecedencyFor(getTransactionID());
                     
                     if (   precedentTransactions == null
                         || precedentTransactions.isEmpty())
@@ -381,12 +496,13 @@ public class TransactionManager
             myTransaction = null;
             myMemento = null;
             myExecutionPhase = false;
+            myIsStarted = false;
         }
     }
     
     /**
-     * Defines a workflow to delete the data present in this server and send 
-     * them to the requesting server.
+     * Defines a workflow to delete a chunk of the data present in this 
+     * server and send it to the requesting server.
      */
     public class DeletionWorkflow extends SimpleWorkflow
     {
@@ -396,23 +512,52 @@ public class TransactionManager
          * {@inheritDoc}
          */
         @Override
+        public boolean isExclusive()
+        {
+            return true;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected boolean isFenced()
+        {
+            // The moved keys are handed over to the node taking them.
+            return false;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
         protected void sendResponseToClient(TransactionResult result)
         {
+            // Retain the keys yet to be handed over for the next chunk.
+            if (   result.isCommitted()
+                && !myMutation.isExhausted()
+                && myMutation.getKeyCursor() != null)
+            {
+                myKeyCursors.put(
+                    myMutation.getTableName(),
+                    new KeyCursor(getClientInfo().getClientID(), 
+                                  myMutation.getKeyCursor()));
+            }
+            else {
+                myKeyCursors.remove(myMutation.getTableName());
+            }
             myEventBus.publish(
                 ActorID.DB_ENGINE,
                 SendMessageEvent.create(
                     getClientInfo().getClientID(),
-                    new DataLoadResponse(myServerID,
-                                         myMutation.getTableName(), 
-                                         MutationWrapper.wrapRangeMutation(
-                                             myMutation.getDeletedData()
-                                                       .get(0)
-                                                       .getClass(),
-                                             myMutation.getDeletedData()))));
-            
-            
-            // Remove the workflow as it's no longer needed.
-            myWorkFlowMap.remove(getTransactionID());
+                    new DataLoadResponse(
+                        myServerID,
+                        myMutation.getTableName(), 
+                        getClientInfo().getClientSequenceNumber(),
+                        (List<? extends Persistable<?>>) 
+                            myMutation.getDeletedData(),
+                        myMutation.isExhausted())));
         }
         
         /**
@@ -426,6 +571,143 @@ public class TransactionManager
         }
     }
     
+    /**
+     * Defines a workflow to read the rows of the joined tables held by 
+     * this server, which are handed over to the janitor for being 
+     * exchanged with the other servers instead of being sent to the client.
+     */
+    public class JoinInputWorkflow extends SimpleWorkflow
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void sendResponseToClient(TransactionResult result)
+        {
+            if (result.isCommitted()) {
+                myEventBus.publish(
+                    ActorID.DB_ENGINE,
+                    new JoinInputEvent(
+                        getClientInfo().getClientID(),
+                        getClientInfo().getClientSequenceNumber(),
+                        (MaterializedDatabase) result.getResult()));
+            }
+            else {
+                super.sendResponseToClient(result);
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void sendFailureToClient(String    message, 
+                                           Exception exception)
+        {
+            // The other servers wait for the rows read by this server, 
+            // hence the join is given up on all of them.
+            myEventBus.publish(
+                ActorID.DB_ENGINE,
+                new JoinAbortMessage(myServerID,
+                                     getClientInfo().getClientID(),
+                                     getClientInfo().getClientSequenceNumber(),
+                                     message));
+        }
+    }
+    
+    /**
+     * Defines a workflow that doesn't execute any transaction, but holds an
+     * exclusive lock on a range of keys so that the transactions accessing
+     * the range wait till the lock is released. It's used for holding back
+     * the transactions on a range while its data is being moved to this 
+     * server.
+     */
+    public class RangeLockWorkflow extends AbstractWokflow
+    {
+        private final long myLockID;
+        
+        private final Runnable myLockCallback;
+        
+        private boolean myIsStarted;
+        
+        /**
+         * CTOR
+         */
+        public RangeLockWorkflow(long      lockID, 
+                                 LockRange lockRange,
+                                 Runnable  lockCallback)
+        {
+            myLockID = lockID;
+            myLockCallback = lockCallback;
+            myIsStarted = false;
+            setLockRanges(Collections.singletonList(lockRange));
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getTransactionID()
+        {
+            return myLockID;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isExclusive()
+        {
+            return true;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized void start()
+        {
+            // Started once the transactions already accessing the range 
+            // are done.
+            if (!myIsStarted) {
+                myIsStarted = true;
+                myLockCallback.run();
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void initiateCommit()
+        {
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void respondTO(Object event)
+        {
+        }
+        
+        /**
+         * Releases the lock and schedules the transactions waiting for it.
+         */
+        public void release()
+        {
+            scheduleNextTransactions(myLockID);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void free()
+        {
+        }
+    }
+    
     /**
      * Defines a workflow wherein the transaction is performed across multitude  
      * of servers using two phase commit.
@@ -444,6 +726,8 @@ public class TransactionManager
         
         private Memento<Boolean> myMemento;
         
+        private boolean myIsStarted;
+        
         /**
          * {@inheritDoc}
          */
@@ -457,9 +741,19 @@ public class TransactionManager
          * {@inheritDoc}
          */
         @Override
-        public void start()
+        public boolean isExclusive()
         {
-            if (myDatabase.canProcess(getTransactionID())) {
+            return true;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized void start()
+        {
+            if (!myIsStarted) {
+                myIsStarted = true;
                 if (LOG.isLoggable(Level.FINE)) {
                     LOG.fine("Initiating execution phase for distributed"
                              + " transaction " + getTransactionID());
@@ -479,13 +773,6 @@ public class TransactionManager
                                     WorkflowProcessor.<Memento<Boolean>>create(
                                         callable, DistributedWorkflow.this));
             }
-            else if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("The database is locked by " 
-                         + myDatabase.getLockedTransaction()
-                         + " hence " + getTransactionID() 
-                         + " couldn't proceed ");
-                
-            }
         }
 
         /**
@@ -537,6 +824,10 @@ public class TransactionManager
                     myJanitor.handleDbStats(myDatabase.getStatistics());
                 }
                 
+                // The participants of the transaction should release the 
+                // locks too.
+                scheduleNextTransactions(myTransaction.getTransactionID());
+                
                 if (myTransaction instanceof WriteTransaction) {
                     myEventBus.publish(
                         ActorID.DB_ENGINE,
@@ -573,7 +864,6 @@ public class TransactionManager
                                  + message.getClass().getSimpleName());
                     }
                     
-                    scheduleNextTransactions(myTransaction.getTransactionID());
                     // Remove the workflow as it's no longer needed.
                     myWorkFlowMap.remove(myTransaction.getTransactionID());
                     DistributedWorkflow workflow = 
@@ -631,6 +921,7 @@ public class TransactionManager
             myProposal = null;
             myPne = null;
             myExecutionPhase = false;
+            myIsStarted = false;
         }
     }
     
@@ -737,6 +1028,26 @@ public class TransactionManager
         
     }
     
+    /**
+     * Captures the cursor over the keys of a range on the hash ring, which
+     * are yet to be handed over to the requesting server.
+     */
+    private static class KeyCursor
+    {
+        private final NodeID myRequester;
+        
+        private final Iterator<Comparable<?>> myKeys;
+
+        /**
+         * CTOR
+         */
+        public KeyCursor(NodeID requester, Iterator<Comparable<?>> keys)
+        {
+            myRequester = requester;
+            myKeys = keys;
+        }
+    }
+    
     private class ScheduleDependentTransactionsTask implements Runnable
     {
         private final TLongSet myTransactionSet;
@@ -760,42 +1071,27 @@ public class TransactionManager
                 WorkFlow workFlow = 
                     myWorkFlowMap.get(Long.valueOf(transactionID));
                 if (workFlow != null) {
-                    if (workFlow instanceof SimpleWorkflow)  {
+                    if (myDeferredTransactions.remove(
+                            Long.valueOf(transactionID)))
+                    {
+                        // The lock that it's waiting for has been released.
+                        admit(workFlow);
+                    }
+                    else if (workFlow instanceof SimpleWorkflow) {
+                        // Deletions start executing only after the 
+                        // transactions holding the shared locks are done,
+                        // whereas others wait to commit after the 
+                        // speculative reads.
+                        workFlow.start();
                         workFlow.initiateCommit();
                     }
                     else {
+                        // The transactions holding the shared locks have 
+                        // completed.
                         TLongSet precedents =
-                            Registry.getPrecedencyFor(transactionID);
+                            myRegistry.getPrecedencyFor(transactionID);
                         if (precedents == null || precedents.isEmpty()) {
-                            long lockedTransaction = 
-                                myDatabase.getLockedTransaction();
-                            if (lockedTransaction == transactionID) {
-                                workFlow.start();
-                            }
-                            else if (lockedTransaction == 
-                                        TransactableDatabase.UNLOCKED_VALUE)
-                            {
-                                if (myDatabase.lock(transactionID)) {
-                                    workFlow.start();
-                                }
-                                else {
-                                    while (lockedTransaction == 
-                                              TransactableDatabase.UNLOCKED_VALUE)
-                                    {
-                                        // I am bit nervous about this while
-                                        // loop, but i am sticking with tit right 
-                                        // now.
-                                        lockedTransaction = 
-                                            myDatabase.getLockedTransaction();
-                                    }
-                                    Registry.addDependency(lockedTransaction, 
-                                                           transactionID);
-                                }
-                            }
-                            else {
-                                Registry.addDependency(lockedTransaction, 
-                                                       transactionID);
-                            }
+                            workFlow.start();
                         }
                     }
                 }
@@ -831,18 +1127,71 @@ public class TransactionManager
     
     private final Map<Class<?>, Pool<?>> myWorkflowToPoolMap;
     
+    private final VersionCollector myVersionCollector;
+    
+    private final VersionCollector myReplicatedVersionCollector;
+    
+    private final Registry myRegistry;
+    
+    private final KeyRangeLockManager myLockManager;
+    
+    private final Set<Long> myDeferredTransactions;
+    
+    private final RecoveryManager myRecoveryManager;
+    
+    private final SchemaCatalog mySchemaCatalog;
+    
+    private final SnapshotWriter mySnapshotWriter;
+    
+    private final SnapshotReader mySnapshotReader;
+    
+    private final Map<UnitID, Long> myInstalledSnapshotTimes;
+    
+    private final Map<String, KeyCursor> myKeyCursors;
+    
+    private final List<LockRange> myFencedRanges;
+    
+    private Set<String> myRecoveredTables;
+    
     /**
      * CTOR
      */
     @Inject
-    public TransactionManager(TransactableDatabase database,
-                              TransactableDatabase replicatedDatabase,
-                              Clock                clock,
-                              EventBus             eventBus,
-                              NodeID               serverID,
-                              UnitID               replicationID)
+    public TransactionManager(TransactableDatabase   database,
+                              TransactableDatabase   replicatedDatabase,
+                              Clock                  clock,
+                              EventBus               eventBus,
+                              NodeID                 serverID,
+                              UnitID                 replicationID,
+                              VersionCollectorConfig collectorConfig)
+    {
+        this(database,
+             replicatedDatabase,
+             clock,
+             eventBus,
+             serverID,
+             replicationID,
+             collectorConfig,
+             new SnapshotPropertyConfig());
+    }
+    
+    /**
+     * CTOR
+     */
+    public TransactionManager(TransactableDatabase   database,
+                              TransactableDatabase   replicatedDatabase,
+                              Clock                  clock,
+                              EventBus               eventBus,
+                              NodeID                 serverID,
+                              UnitID                 replicationID,
+                              VersionCollectorConfig collectorConfig,
+                              SnapshotConfig         snapshotConfig)
     {
         myDatabase = database;
+        myRegistry = database.getRegistry();
+        myLockManager = new KeyRangeLockManager(myRegistry);
+        myDeferredTransactions = 
+            Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
         myReplicatedDatabase = replicatedDatabase;
         myClock = clock;
         myIdAssigner = new IDAssigner();
@@ -850,6 +1199,8 @@ public class TransactionManager
         myEventBus = eventBus;
         myWorkFlowMap = new ConcurrentHashMap<>();
         myConsensusToWorkFlowMap = new ConcurrentHashMap<>();
+        myKeyCursors = new ConcurrentHashMap<>();
+        myFencedRanges = new CopyOnWriteArrayList<>();
         myReplicationUnitID = replicationID;
         myWorkflowToPoolMap = new HashMap<>();
         myExecutor =
@@ -857,6 +1208,48 @@ public class TransactionManager
                 Executors.newFixedThreadPool(
                     20,
                     new NamedThreadFactory(TransactionManager.class)));
+        myVersionCollector = 
+            new VersionCollector(database, clock, collectorConfig);
+        myReplicatedVersionCollector = 
+            new VersionCollector(replicatedDatabase, clock, collectorConfig);
+        myRecoveryManager = 
+            new RecoveryManager(snapshotConfig, clock, myIdAssigner);
+        if (replicationID != null) {
+            SnapshotDirectory snapshotDirectory = 
+                new SnapshotDirectory(snapshotConfig, 
+                                      replicationID.toString());
+            mySchemaCatalog = new SchemaCatalog(snapshotDirectory);
+            // The log of the proposals replicated from this server is 
+            // compacted once they have been captured in a snapshot.
+            mySnapshotWriter = 
+                new SnapshotWriter(database, 
+                                   snapshotDirectory, 
+                                   snapshotConfig, 
+                                   clock, 
+                                   myIdAssigner,
+                                   new SnapshotListener() {
+                    @Override
+                    public void onSnapshot(SnapshotManifest manifest, 
+                                           File             directory)
+                    {
+                        myEventBus.publish(
+                            ActorID.DB_ENGINE,
+                            new LogCompactionEvent(myReplicationUnitID,
+                                                   manifest.getTime(),
+                                                   directory));
+                    }
+                });
+            mySnapshotReader = 
+                new SnapshotReader(snapshotDirectory, 
+                                   snapshotConfig.getParallelism());
+        }
+        else {
+            mySchemaCatalog = null;
+            mySnapshotWriter = null;
+            mySnapshotReader = null;
+        }
+        myInstalledSnapshotTimes = new ConcurrentHashMap<>();
+        myRecoveredTables = Collections.emptySet();
     }
     
     /** 
@@ -866,6 +1259,19 @@ public class TransactionManager
     public void initialize(EngineJanitor janitor)
     {
         myJanitor = janitor;
+        // The data of this server is recovered from the disk before 
+        // the transactions are admitted. The log of the proposals 
+        // replicated from this server captures the mutations committed 
+        // on it.
+        if (myReplicationUnitID != null) {
+            myRecoveredTables = 
+                myRecoveryManager.recover(
+                    myDatabase, 
+                    new WALPropertyConfig(myReplicationUnitID.toString()));
+            mySnapshotWriter.start();
+        }
+        myVersionCollector.start();
+        myReplicatedVersionCollector.start();
     }
     
     /**
@@ -875,6 +1281,9 @@ public class TransactionManager
     {
         try {
             myDatabase.createTable(schema);
+            if (mySchemaCatalog != null) {
+                mySchemaCatalog.add(schema);
+            }
             LOG.info("Schema for " + schema.getTableName() +
                      " has been successfully added to the database");
             return true;
@@ -886,30 +1295,225 @@ public class TransactionManager
     }
     
     /**
-     * Creates appropriate <code>Transaction<code> to process the mutations/
-     * queries on the database.
+     * Installs the snapshot received from the leader of an unit into the
+     * replicated database. The proposals of the unit which have been 
+     * captured in the snapshot are ignored hereafter.
+     */
+    public void installSnapshot(InstallSnapshotEvent event)
+    {
+        if (mySnapshotReader == null) {
+            return;
+        }
+        try {
+            mySnapshotReader.install(event.getSnapshotDirectory(), 
+                                     myReplicatedDatabase);
+            myInstalledSnapshotTimes.put(event.getUnitID(), 
+                                         Long.valueOf(event.getSnapshotTime()));
+            LOG.info("Installed the snapshot of " + event.getUnitID() 
+                     + " taken at " + event.getSnapshotTime());
+        }
+        catch (IOException e) {
+            LOG.log(Level.SEVERE, 
+                    "Unable to install the snapshot of " + event.getUnitID(),
+                    e);
+        }
+    }
+    
+    /**
+     * Returns the names of the tables that have been recovered from the 
+     * disk when this manager has been initialized.
+     */
+    public Set<String> getRecoveredTables()
+    {
+        return myRecoveredTables;
+    }
+    
+    /**
+     * Creates a <code>Transaction<code> to delete the chunk of data 
+     * requested by another server and to send it to that server.
      */
-    public void processQueryAndDeleteOperation(
-        NodeID originatorNode, String tableName, Range<?> deletedRange)
+    public void processQueryAndDeleteOperation(DataLoadRequest request)
     {
+        if (request.getChunkSequenceNumber() == 0L) {
+            fenceRange(request.getTableName(), request.getNodeRange());
+        }
+        
         long id = myIdAssigner.getTransactionID();
         DeleteRangeMutation operation = 
-            new DeleteRangeMutation(tableName, deletedRange);
+            new DeleteRangeMutation(request.getTableName(), 
+                                    request.getNodeRange(),
+                                    request.getResumeKey(),
+                                    request.getChunkSize());
+        // The keys left over by the previous chunk are deleted without 
+        // scanning the table again.
+        KeyCursor keyCursor = myKeyCursors.remove(request.getTableName());
+        if (   keyCursor != null 
+            && request.getResumeKey() != null
+            && keyCursor.myRequester.equals(request.getSenderId()))
+        {
+            operation.setKeyCursor(keyCursor.myKeys);
+        }
 
         AbstractTransaction transaction =
             WriteTransaction.create(
                 id, myDatabase, myClock, operation);
         
-        ClientInfo clientInfo = ClientInfo.create(originatorNode, -1L);
+        ClientInfo clientInfo = 
+            ClientInfo.create(request.getSenderId(), 
+                              request.getChunkSequenceNumber());
         WorkFlow workFlow = 
             createDeletionWorkflow(clientInfo, transaction, operation);
         myWorkFlowMap.put(Long.valueOf(id), workFlow);
+        admit(workFlow);
+    }
+    
+    /**
+     * Creates a <code>Transaction</code> to read the rows of the tables 
+     * joined by the query of a client, which are published as a 
+     * {@link JoinInputEvent} once they have been read.
+     */
+    public void processJoinInputs(NodeID clientID, 
+                                  long   sequenceNumber, 
+                                  Join   join)
+    {
+        long id = myIdAssigner.getTransactionID();
+        JoinInputs operation = new JoinInputs(join);
+        AbstractTransaction transaction =
+            ReadTransaction.create(id, myDatabase, myClock, operation);
+        
+        JoinInputWorkflow workFlow = getInstance(JoinInputWorkflow.class);
+        workFlow.setClientInfo(ClientInfo.create(clientID, sequenceNumber));
+        workFlow.setTransaction(transaction);
+        workFlow.setExecutionPhase(true);
+        workFlow.setLockRanges(makeLockRanges(operation));
+        myWorkFlowMap.put(Long.valueOf(id), workFlow);
+        admit(workFlow);
+    }
+    
+    /**
+     * Loads the rows fetched from another server directly into the given
+     * table. The rows are added as versions committed at the current time
+     * without going through a transaction, since the transactions on them 
+     * aren't admitted till they have been loaded; either the database isn't 
+     * initialized yet or their range is locked via 
+     * {@link #lockRange(String, Range, Runnable)}. The rows are replicated 
+     * as a single batch, so that they are still captured by the replicas
+     * and the log of this server.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void bulkLoad(String tableName, List<? extends Persistable<?>> rows)
+    {
+        if (rows.isEmpty()) {
+            return;
+        }
+        TransactableTable table = myDatabase.lookUpTable(tableName);
+        long time = myClock.currentTime();
+        for (Persistable<?> row : rows) {
+            Transactable transactable = Transactable.create(row);
+            transactable.setStart(time);
+            transactable.setEnd(TransactionHelper.INFINITY);
+            table.addToTable(transactable);
+        }
+        
+        if (myJanitor != null) {
+            myJanitor.handleDbStats(myDatabase.getStatistics());
+        }
         
-        if (myDatabase.lock(id)) {
-            // The new distributed transaction will be 
-            // dependent on all other transactions to complete.
-            Registry.addDependencyToAll(id);
+        myEventBus.publish(
+            ActorID.DB_ENGINE,
+            ConsensusRequestEvent.create(
+                ReplicationProposal.create(
+                    myReplicationUnitID,
+                    new BatchAddMutation(tableName, new ArrayList<>(rows)),
+                    time,
+                    time)));
+    }
+    
+    /**
+     * Locks the given range of keys of a table exclusively, so that the 
+     * transactions accessing the range wait till it's unlocked. The 
+     * callback is run once the transactions that are already accessing 
+     * the range are done.
+     * 
+     * @return The id with which the range is to be unlocked.
+     */
+    public long lockRange(String tableName, Range<?> range, Runnable callback)
+    {
+        long id = myIdAssigner.getTransactionID();
+        RangeLockWorkflow workflow = 
+            new RangeLockWorkflow(id, new LockRange(tableName, range), callback);
+        myWorkFlowMap.put(Long.valueOf(id), workflow);
+        admit(workflow);
+        return id;
+    }
+    
+    /**
+     * Unlocks the range locked via {@link #lockRange(String, Range, Runnable)}
+     * and schedules the transactions waiting for it.
+     */
+    public void unlockRange(long lockID)
+    {
+        WorkFlow workflow = myWorkFlowMap.remove(Long.valueOf(lockID));
+        if (workflow instanceof RangeLockWorkflow) {
+            ((RangeLockWorkflow) workflow).release();
+        }
+    }
+    
+    /**
+     * Refuses the writes from the clients to the given range of a table, 
+     * as it's being moved to another server. The tables whose keys are 
+     * hashed are skipped, since their ranges aren't ranges of the keys.
+     */
+    private void fenceRange(String tableName, Range<?> range)
+    {
+        TransactableTable<?, ?> table = myDatabase.lookUpTable(tableName);
+        if (   range == null
+            || table == null
+            || table.getSchema().getKeyspace() instanceof HashKeyspace)
+        {
+            return;
+        }
+        LOG.info("Fencing " + range + " of " + tableName 
+                 + " as it's moved to another server");
+        myFencedRanges.add(new LockRange(tableName, range));
+    }
+    
+    /**
+     * Accepts the writes to the given range of a table again, as it has 
+     * been moved to this server.
+     */
+    public void unfenceRange(String tableName, Range<?> range)
+    {
+        if (range == null) {
+            return;
+        }
+        LockRange lockRange = new LockRange(tableName, range);
+        for (LockRange fencedRange : myFencedRanges) {
+            if (fencedRange.overlaps(lockRange)) {
+                myFencedRanges.remove(fencedRange);
+            }
+        }
+    }
+    
+    /**
+     * Returns true if any of the given ranges overlaps a fenced range.
+     */
+    private boolean isFenced(List<LockRange> lockRanges)
+    {
+        if (myFencedRanges.isEmpty() || lockRanges == null) {
+            return false;
+        }
+        for (LockRange lockRange : lockRanges) {
+            if (lockRange.getKeyRange() == null) {
+                continue;
+            }
+            for (LockRange fencedRange : myFencedRanges) {
+                if (fencedRange.overlaps(lockRange)) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
     
     /**
@@ -940,37 +1544,11 @@ public class TransactionManager
                     id, myDatabase, myClock, (Query) operation);
         
                     
-        WorkFlow workFlow = createSimpleWorkflow(clientInfo, transaction);
+        WorkFlow workFlow = 
+            createSimpleWorkflow(clientInfo, transaction, operation);
         
         myWorkFlowMap.put(Long.valueOf(id), workFlow);
-        
-        if (myDatabase.canProcess(id)) {
-            PhasedTransactionExecutor<Boolean> callable =
-                PhasedTransactionExecutor.<Boolean>create(
-                    transaction,
-                    PhasedTransactionExecutor.ExecutionPhase.create(transaction));
-                              
-            ListenableFuture<Memento<Boolean>> future =
-                myExecutor.submit(callable);
-    
-            Futures.addCallback(future, 
-                                WorkflowProcessor.<Memento<Boolean>>create(
-                                    callable, workFlow));
-        }
-        else {
-            addDependencyToLockedTransaction(id);
-        }
-    }
-    
-    private void addDependencyToLockedTransaction(long dependentID)
-    {
-        long lockedTransaction = myDatabase.getLockedTransaction();
-        while (lockedTransaction != 
-                   TransactableDatabase.UNLOCKED_VALUE)
-        {
-            lockedTransaction = myDatabase.getLockedTransaction();
-        }
-        Registry.addDependency(lockedTransaction, dependentID);
+        admit(workFlow);
     }
 
     /**
@@ -1009,26 +1587,14 @@ public class TransactionManager
             createDistributedWorkflow(
                 transaction, 
                 clientInfo, 
-                DistributedTrnProposal.create(unitID, operations, id));
+                DistributedTrnProposal.create(unitID, operations, id),
+                operation);
         
         myWorkFlowMap.put(Long.valueOf(id), workFlow);
         myConsensusToWorkFlowMap.put(unitID, workFlow);
-        
-        if (myDatabase.lock(id)) {
-            // The new distributed transaction will be 
-            // dependent on all other transactions to complete.
-            if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("Successfully locked the database for " + id);
-            }
-            Registry.addDependencyToAll(id);
-            TLongSet precedents = Registry.getPrecedencyFor(id);
-            if (precedents == null || precedents.isEmpty()) {
-                workFlow.start();
-            }
-        }
-        else {
-            addDependencyToLockedTransaction(id);
-        }
+        // The distributed transaction will wait for the transactions 
+        // accessing the same range of keys to complete.
+        admit(workFlow);
     }
     
     public void processOperation(ConsensusResponseEvent response)
@@ -1038,6 +1604,12 @@ public class TransactionManager
                 myConsensusToWorkFlowMap.get(response.getProposal().getUnitID());
             workflow.respondTO(response);
         }
+        else if (LOG.isLoggable(Level.FINE)) {
+            // The replication proposals are acknowledged by the raft 
+            // leader once the batch containing them has been accepted 
+            // by the followers.
+            LOG.fine(response.getProposal() + " has been replicated");
+        }
         PooledObjects.freeInstance(response);
         // XXX Should handle replication failures.
     }
@@ -1051,6 +1623,14 @@ public class TransactionManager
         if (pne.getProposal() instanceof ReplicationProposal) {
             ReplicationProposal replicationProposal = 
                 (ReplicationProposal) pne.getProposal();
+            Long installedTime = 
+                myInstalledSnapshotTimes.get(replicationProposal.getUnitID());
+            if (   installedTime != null 
+                && replicationProposal.getEndTime() <= installedTime) 
+            {
+                // Already captured in the snapshot.
+                return;
+            }
             long id = myIdAssigner.getTransactionID();
             if (LOG.isLoggable(Level.FINE)) {
                 LOG.fine("Applying " + replicationProposal 
@@ -1095,28 +1675,14 @@ public class TransactionManager
                        id, myDatabase, myClock, (Query) operation);
                        
            WorkFlow workFlow = 
-               createDistributedWorkflow(transaction, pne);
+               createDistributedWorkflow(transaction, pne, operation);
            
            myWorkFlowMap.put(Long.valueOf(id), workFlow);
            myConsensusToWorkFlowMap.put(pne.getProposal().getUnitID(), 
                                         workFlow);
-
-           if (myDatabase.lock(id)) {
-               if (LOG.isLoggable(Level.FINE)) {
-                   LOG.fine("Successfully locked the database. Adding "
-                           + id + " to be dependent on all active transactions");
-               }
-               // The new distributed transaction will be 
-               // dependent on all other transactions to complete.
-               Registry.addDependencyToAll(id);
-               TLongSet precedents = Registry.getPrecedencyFor(id);
-               if (precedents == null || precedents.isEmpty()) {
-                   workFlow.start();
-               }
-           }
-           else {
-               addDependencyToLockedTransaction(id);
-           }
+           // The distributed transaction will wait for the transactions 
+           // accessing the same range of keys to complete.
+           admit(workFlow);
        }
        PooledObjects.freeInstance(pne);
     }
@@ -1126,12 +1692,14 @@ public class TransactionManager
      * and populating with various parameters.
      */
     private SimpleWorkflow createSimpleWorkflow(ClientInfo clientInfo, 
-                                                AbstractTransaction transaction)
+                                                AbstractTransaction transaction,
+                                                DBOperation operation)
     {
         SimpleWorkflow simpleWorkflow = getInstance(SimpleWorkflow.class);
         simpleWorkflow.setClientInfo(clientInfo);
         simpleWorkflow.setTransaction(transaction);
         simpleWorkflow.setExecutionPhase(true);
+        simpleWorkflow.setLockRanges(makeLockRanges(operation));
         return simpleWorkflow;
     }
     
@@ -1149,6 +1717,7 @@ public class TransactionManager
         simpleWorkflow.setClientInfo(clientInfo);
         simpleWorkflow.setTransaction(transaction);
         simpleWorkflow.setExecutionPhase(true);
+        simpleWorkflow.setLockRanges(makeLockRanges(mutation));
         simpleWorkflow.myMutation = mutation;
         return simpleWorkflow;
     }
@@ -1161,7 +1730,8 @@ public class TransactionManager
     private DistributedWorkflow createDistributedWorkflow(
         AbstractTransaction transaction,
         ClientInfo clientInfo,
-        DistributedTrnProposal proposal)
+        DistributedTrnProposal proposal,
+        DBOperation operation)
     {
         DistributedWorkflow distributedWorkflow = 
             getInstance(DistributedWorkflow.class);
@@ -1169,7 +1739,8 @@ public class TransactionManager
         distributedWorkflow.myClientInfo = clientInfo;
         distributedWorkflow.myPne = null;
         distributedWorkflow.myProposal = proposal;
-        distributedWorkflow.myExecutionPhase = false;
+        distributedWorkflow.myExecutionPhase = true;
+        distributedWorkflow.setLockRanges(makeLockRanges(operation));
         return distributedWorkflow;
     }
     
@@ -1180,7 +1751,8 @@ public class TransactionManager
      */
     private DistributedWorkflow createDistributedWorkflow(
         AbstractTransaction transaction,
-        ProposalNotificationEvent pne)
+        ProposalNotificationEvent pne,
+        DBOperation operation)
     {
         DistributedWorkflow distributedWorkflow = 
             getInstance(DistributedWorkflow.class);
@@ -1188,9 +1760,141 @@ public class TransactionManager
         distributedWorkflow.myClientInfo = null;
         distributedWorkflow.myPne = pne;
         distributedWorkflow.myProposal = null;
-        distributedWorkflow.myExecutionPhase = false;
+        distributedWorkflow.myExecutionPhase = true;
+        distributedWorkflow.setLockRanges(makeLockRanges(operation));
         return distributedWorkflow;
     }
+    
+    /**
+     * Returns the ranges of keys that will be accessed by the given 
+     * operation. The queries access the range of primary keys bounded by 
+     * their filters, while the other operations declare their ranges via 
+     * {@link RangedOperation}. The operations whose keys are not known 
+     * upfront are assumed to access all the tables.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<LockRange> makeLockRanges(DBOperation operation)
+    {
+        if (operation instanceof SingleKeyMutation) {
+            SingleKeyMutation<?> mutation = (SingleKeyMutation<?>) operation;
+            return Collections.singletonList(
+                new LockRange(mutation.getTableName(),
+                              new Range(mutation.getKey(), 
+                                        mutation.getKey())));
+        }
+        else if (operation instanceof RangeMutation) {
+            RangeMutation<?, ?> mutation = (RangeMutation<?, ?>) operation;
+            return Collections.singletonList(
+                new LockRange(mutation.getTableName(),
+                              mutation.getKeyRange()));
+        }
+        else if (operation instanceof DeleteRangeMutation) {
+            DeleteRangeMutation mutation = (DeleteRangeMutation) operation;
+            return Collections.singletonList(
+                new LockRange(mutation.getTableName(), 
+                              mutation.getDeletedRange()));
+        }
+        else if (operation instanceof RangedOperation) {
+            List<LockRange> lockRanges = new ArrayList<>();
+            for (Map.Entry<String, Range<?>> entry : 
+                    ((RangedOperation) operation).getAccessedRanges()
+                                                 .entrySet())
+            {
+                lockRanges.add(new LockRange(entry.getKey(), 
+                                             entry.getValue()));
+            }
+            return lockRanges;
+        }
+        else if (operation instanceof JoinInputs) {
+            return makeJoinLockRanges(((JoinInputs) operation).getJoin());
+        }
+        else if (operation instanceof QueryAdaptor) {
+            QueryAdaptor query = (QueryAdaptor) operation;
+            if (query.getJoin() != null) {
+                return makeJoinLockRanges(query.getJoin());
+            }
+            else if (query.getScannedTable() != null) {
+                return makeScanLockRanges(query);
+            }
+        }
+        
+        List<LockRange> lockRanges = new ArrayList<>();
+        for (TransactableTable<?, ?> table : myDatabase.getTables()) {
+            lockRanges.add(
+                new LockRange(table.getSchema().getTableName(), null));
+        }
+        return lockRanges;
+    }
+    
+    /**
+     * Returns the tables joined by the given {@link Join} as the ranges 
+     * accessed by it.
+     */
+    private static List<LockRange> makeJoinLockRanges(Join join)
+    {
+        List<LockRange> lockRanges = new ArrayList<>();
+        for (String tableName : join.getJoinedTables()) {
+            lockRanges.add(new LockRange(tableName, null));
+        }
+        return lockRanges;
+    }
+    
+    /**
+     * Returns the range of primary keys bounded by the filters of a query 
+     * that scans a single table.
+     */
+    private List<LockRange> makeScanLockRanges(QueryAdaptor query)
+    {
+        String tableName = query.getScannedTable();
+        TransactableTable<?, ?> table = myDatabase.lookUpTable(tableName);
+        HitTableSchema schema = table != null ? table.getSchema() : null;
+        if (   schema == null 
+            || schema.getPrimaryKey() == null
+            || schema.getPrimaryKey().size() != 1)
+        {
+            return Collections.singletonList(new LockRange(tableName, null));
+        }
+        
+        KeyBounds bounds = query.getKeyBounds(schema.getPrimaryKey().get(0));
+        if (bounds.isEmpty()) {
+            // No key satisfies the filters.
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(
+            new LockRange(tableName, 
+                          bounds.isUnbounded() ? 
+                              null : bounds.toRange(schema.getKeyClass())));
+    }
+    
+
+    /**
+     * Acquires the locks required by the workflow and starts it if 
+     * there are no conflicting transactions. Otherwise it's deferred till
+     * the conflicting transactions are done.
+     */
+    private void admit(WorkFlow workFlow)
+    {
+        long id = workFlow.getTransactionID();
+        // Mark the workflow as deferred before trying to acquire the lock,
+        // since the conflicting transaction might release the lock before
+        // we get to mark it.
+        myDeferredTransactions.add(Long.valueOf(id));
+        boolean isLocked = 
+            workFlow.isExclusive() ? 
+                myLockManager.acquireExclusive(id, workFlow.getLockRanges())
+                : myLockManager.acquireShared(id, workFlow.getLockRanges());
+        
+        if (isLocked) {
+            myDeferredTransactions.remove(Long.valueOf(id));
+            TLongSet precedents = myRegistry.getPrecedencyFor(id);
+            if (   !workFlow.isExclusive() 
+                || precedents == null 
+                || precedents.isEmpty())
+            {
+                workFlow.start();
+            }
+        }
+    }
 
 
     private <T extends WorkFlow> T getInstance(Class<T> type)
@@ -39,6 +39,14 @@ public class BigIntegerDomain implements DiscreteDomain<BigInteger>
     private BigInteger myMinimum;
     
     private BigInteger myMaximum;
+    
+    /**
+     * CTOR
+     */
+    public BigIntegerDomain()
+    {
+        super();
+    }
 
     /**
      * CTOR
@@ -131,7 +139,7 @@ public class BigIntegerDomain implements DiscreteDomain<BigInteger>
     @Override
     public BigInteger getMiddleOf(BigInteger lowerValue, BigInteger upperValue)
     {
-        return lowerValue.add(upperValue.subtract(lowerValue).shiftLeft(1));
+        return lowerValue.add(upperValue.subtract(lowerValue).shiftRight(1));
     }
 
     /**
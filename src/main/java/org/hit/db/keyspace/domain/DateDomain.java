@@ -124,7 +124,7 @@ public class DateDomain implements DiscreteDomain<Date>
     @Override
     public Date getMiddleOf(Date lowerValue, Date upperValue)
     {
-        long delta = (upperValue.getTime() - lowerValue.getTime()) << 1;
+        long delta = (upperValue.getTime() - lowerValue.getTime()) >> 1;
         return new Date(lowerValue.getTime() + delta);
     }
 
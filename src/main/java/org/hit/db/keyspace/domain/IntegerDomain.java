@@ -120,7 +120,8 @@ public class IntegerDomain implements DiscreteDomain<Integer>
     @Override
     public Integer getMiddleOf(Integer lowerValue, Integer upperValue)
     {
-        return Integer.valueOf(lowerValue + (upperValue - lowerValue / 2));
+        return Integer.valueOf(
+            (int) (((long) lowerValue + (long) upperValue) / 2));
     }
 
     /**
@@ -116,7 +116,11 @@ public class LongDomain implements DiscreteDomain<Long>
     @Override
     public Long getMiddleOf(Long lowerValue, Long upperValue)
     {
-        return Long.valueOf(lowerValue + (upperValue - lowerValue / 2));
+        // Halved before adding, so that it doesn't overflow for the ranges
+        // spanning the whole domain.
+        return Long.valueOf((lowerValue >> 1) 
+                            + (upperValue >> 1) 
+                            + (lowerValue & upperValue & 1L));
     }
 
     /**
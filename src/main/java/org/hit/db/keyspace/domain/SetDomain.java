@@ -125,7 +125,7 @@ public class SetDomain<T extends Comparable<T>>
     {
         int lowerIndex = myElements.indexOf(lowerValue);
         int upperIndex = myElements.indexOf(upperValue);
-        int middle = lowerIndex + (upperIndex - lowerIndex / 2);
+        int middle = lowerIndex + (upperIndex - lowerIndex) / 2;
         return myElements.get(middle);
     }
 
@@ -0,0 +1,43 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.model;
+
+import java.util.Map;
+
+import org.hit.util.Range;
+
+/**
+ * Defines the contract for a {@link DBOperation} that declares upfront the 
+ * ranges of keys accessed by it. The operations of a distributed 
+ * transaction implement it to carry the ranges accessed on every node, 
+ * so that they lock only those ranges instead of the whole database.
+ *
+ * @author Balraja Subbiah
+ */
+public interface RangedOperation extends DBOperation
+{
+    /**
+     * Returns the ranges of keys accessed by the operation keyed by the
+     * name of the table, wherein a <code>null</code> range denotes the 
+     * whole table.
+     */
+    public Map<String, Range<?>> getAccessedRanges();
+}
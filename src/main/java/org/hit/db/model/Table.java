@@ -43,6 +43,16 @@ public interface Table<K extends Comparable<K>, P extends Persistable<K>>
                                       K          start, 
                                       K          end);
     
+    /**
+     * Returns upto <code>limit</code> objects from this table that matches
+     * the predicate and follow the given key, in the order of their keys. 
+     * The objects are matched from the first key when the given key is 
+     * null.
+     */
+    public Collection<P> findMatching(Predicate predicate, 
+                                      K         resumeKey, 
+                                      int       limit);
+    
     /** Returns row corresponding to a primary key */
     public P getRow(K primarykey);
     
@@ -63,6 +73,15 @@ public interface Table<K extends Comparable<K>, P extends Persistable<K>>
      * rows, else returns null.
      */
     public Collection<P> deleteRange(Object primaryKey, Object secondaryKey);
+    
+    /** 
+     * Deletes upto <code>limit</code> rows that falls between the given key
+     * range and returns those rows. The rows are deleted in the order of 
+     * their keys when the table is partitioned on the key range.
+     */
+    public Collection<P> deleteRange(Object primaryKey, 
+                                     Object secondaryKey,
+                                     int    limit);
 
 
     /** Returns schema of the table */
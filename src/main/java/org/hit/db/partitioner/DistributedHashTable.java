@@ -17,17 +17,35 @@
     You should have received a copy of the GNU General Public License
     along with this program.  If not, see <http://www.gnu.org/licenses/>.
 */
-
 package org.hit.db.partitioner;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import org.hit.communicator.NodeID;
 import org.hit.db.keyspace.Keyspace;
+import org.hit.util.Pair;
+import org.hit.util.Range;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 
 /**
  * Extends <code>PartitionTable</code> to support mapping as a DHT.
+ * <p>
+ * Every node claims a number of tokens on the ring, proportional to it's
+ * capacity, and services the keys between the previous token and it's 
+ * token. The tokens of a node are derived from it's id, so that adding 
+ * or removing a node only moves the keys adjacent to it's tokens between
+ * the node and the nodes holding the next tokens. 
+ * <p>
+ * The lookups are served from a sorted array of the leading 64 bits of 
+ * the tokens. The remaining bits of a token are set, so that a key falls
+ * under a token iff it's leading 64 bits don't exceed that of the token.
  * 
  * @author Balraja Subbiah
  */
@@ -35,12 +53,39 @@ public class DistributedHashTable<S extends Comparable<S>,
                                   T extends Comparable<T>> 
     extends Partitioner<S,T>
 {
+    /**
+     * An immutable snapshot of the tokens in the ring.
+     */
+    private static class Ring
+    {
+        private final long[] myPositions;
+        
+        private final Comparable<?>[] myTokens;
+        
+        private final NodeID[] myNodes;
+
+        /**
+         * CTOR
+         */
+        public Ring(long[] positions, Comparable<?>[] tokens, NodeID[] nodes)
+        {
+            myPositions = positions;
+            myTokens = tokens;
+            myNodes = nodes;
+        }
+    }
+    
+    private static final HashFunction TOKEN_HASH = Hashing.murmur3_128();
+    
+    private transient volatile Ring myRing;
+    
     /**
      * CTOR
      */
     public DistributedHashTable()
     {
         super();
+        myRing = null;
     }
 
     /**
@@ -49,27 +94,157 @@ public class DistributedHashTable<S extends Comparable<S>,
     public DistributedHashTable(String tableName, Keyspace<S,T> keyspace)
     {
         super(tableName, keyspace);
+        myRing = null;
+    }
+    
+    /**
+     * Adds the given node to the ring with the given number of tokens. The
+     * tokens claimed earlier by the node are replaced, so that the number
+     * of tokens claimed by a node can be changed with it's capacity.
+     */
+    @SuppressWarnings("unchecked")
+    public void addNode(NodeID nodeID, int tokenCount)
+    {
+        removeNode(nodeID);
+        int shift = getShift();
+        BigInteger lowerBits = 
+            BigInteger.ONE.shiftLeft(shift).subtract(BigInteger.ONE);
+        for (int i = 0; i < tokenCount; i++) {
+            long position = TOKEN_HASH.newHasher()
+                                      .putString(nodeID.toString())
+                                      .putInt(i)
+                                      .hash()
+                                      .asLong();
+            BigInteger token = 
+                BigInteger.valueOf(position).shiftLeft(shift).or(lowerBits);
+            update(new Pair<Comparable<?>, NodeID>((T) token, nodeID));
+        }
+    }
+    
+    /**
+     * Returns the ranges of the ring held by the given node along with the
+     * nodes that held them before the node claimed it's tokens, that is 
+     * the nodes holding the next tokens.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Pair<Range<T>, NodeID>> getHandoffs(NodeID nodeID)
+    {
+        Ring ring = getRing();
+        List<Pair<Range<T>, NodeID>> handoffs = new ArrayList<>();
+        int size = ring.myNodes.length;
+        for (int i = 0; i < size; i++) {
+            if (!ring.myNodes[i].equals(nodeID)) {
+                continue;
+            }
+            
+            NodeID previousHolder = null;
+            for (int j = 1; j < size && previousHolder == null; j++) {
+                NodeID next = ring.myNodes[(i + j) % size];
+                if (!next.equals(nodeID)) {
+                    previousHolder = next;
+                }
+            }
+            if (previousHolder == null) {
+                // The node holds the whole ring.
+                return handoffs;
+            }
+            
+            T token = (T) ring.myTokens[i];
+            if (i > 0) {
+                handoffs.add(new Pair<>(
+                    new Range<>((T) ring.myTokens[i - 1], token),
+                    previousHolder));
+            }
+            else {
+                // The first token also holds the keys past the last token.
+                handoffs.add(new Pair<>(
+                    new Range<>(getKeyspace().getDomain().getMinimum(),
+                                token),
+                    previousHolder));
+                handoffs.add(new Pair<>(
+                    new Range<>((T) ring.myTokens[size - 1],
+                                getKeyspace().getDomain().getMaximum()),
+                    previousHolder));
+            }
+        }
+        return handoffs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void partitionsChanged()
+    {
+        myRing = null;
     }
 
     /**
      * {@inheritDoc}
      */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     protected NodeID doLookup(T                  key,
                               TreeMap<T, NodeID> nodeMap)
     {
-        NodeID holdingNode = nodeMap.get(key);
-        if (holdingNode == null) {
-            Map.Entry<T, NodeID> nextEntry = 
-                nodeMap.ceilingEntry(key);
-            
-            if (nextEntry != null) {
-                holdingNode = nextEntry.getValue();
+        Ring ring = getRing();
+        long position = ((BigInteger) key).shiftRight(getShift()).longValue();
+        int index = Arrays.binarySearch(ring.myPositions, position);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        else {
+            // The tokens that aren't claimed by the nodes can share the 
+            // leading bits with the key.
+            while (   index > 0 
+                   && ring.myPositions[index - 1] == position)
+            {
+                index--;
             }
-            else {
-                holdingNode = nodeMap.firstEntry().getValue();
+            while (   index < ring.myPositions.length
+                   && ring.myPositions[index] == position
+                   && ((Comparable) ring.myTokens[index]).compareTo(key) < 0)
+            {
+                index++;
+            }
+        }
+        return ring.myNodes[index < ring.myNodes.length ? index : 0];
+    }
+    
+    /**
+     * Returns the number of trailing bits of a token that are excluded from
+     * it's position in the ring.
+     */
+    private int getShift()
+    {
+        BigInteger maximum = (BigInteger) getKeyspace().getDomain().getMaximum();
+        return Math.max(0, maximum.bitLength() + 1 - Long.SIZE);
+    }
+    
+    /**
+     * Returns the snapshot of the ring, building it from the partitions if 
+     * they have changed since the last lookup.
+     */
+    private Ring getRing()
+    {
+        Ring ring = myRing;
+        if (ring == null) {
+            TreeMap<T, NodeID> nodeMap = getPartitions();
+            long[] positions = new long[nodeMap.size()];
+            Comparable<?>[] tokens = new Comparable<?>[nodeMap.size()];
+            NodeID[] nodes = new NodeID[nodeMap.size()];
+            int shift = getShift();
+            int i = 0;
+            for (Map.Entry<T, NodeID> entry : nodeMap.entrySet()) {
+                positions[i] = 
+                    ((BigInteger) entry.getKey()).shiftRight(shift).longValue();
+                tokens[i] = entry.getKey();
+                nodes[i] = entry.getValue();
+                i++;
             }
+            ring = new Ring(positions, tokens, nodes);
+            myRing = ring;
         }
-        return holdingNode;
+        return ring;
     }
 }
@@ -23,7 +23,9 @@ package org.hit.db.partitioner;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.Map.Entry;
@@ -76,6 +78,22 @@ public class Partitioner<S extends Comparable<S>,
     protected void doUpdate(Pair<Comparable<?>, NodeID> update)
     {
         myKeyToNodeMap.put(((T)update.getFirst()), update.getSecond());
+        partitionsChanged();
+    }
+    
+    /**
+     * Removes the ranges held by the given node, so that the keys in those
+     * ranges are held by the nodes holding the next ranges.
+     */
+    public void removeNode(NodeID nodeID)
+    {
+        Iterator<NodeID> itr = myKeyToNodeMap.values().iterator();
+        while (itr.hasNext()) {
+            if (itr.next().equals(nodeID)) {
+                itr.remove();
+            }
+        }
+        partitionsChanged();
     }
     
     /**
@@ -112,6 +130,66 @@ public class Partitioner<S extends Comparable<S>,
         return null;
     }
     
+    /**
+     * Returns the node holding the range of keys that lies just below the
+     * range of the given node or null if the given node holds the first 
+     * range.
+     */
+    public NodeID getPreviousNode(NodeID nodeID)
+    {
+        NodeID previousNode = null;
+        for (Map.Entry<T, NodeID> entry : myKeyToNodeMap.entrySet()) {
+            if (entry.getValue().equals(nodeID)) {
+                return previousNode;
+            }
+            previousNode = entry.getValue();
+        }
+        return null;
+    }
+    
+    /**
+     * Returns the nodes among which the keyspace is partitioned.
+     */
+    public Collection<NodeID> getNodes()
+    {
+        return myKeyToNodeMap.values();
+    }
+    
+    /**
+     * Returns a copy of this partitioner. The partitioners are copied 
+     * and updated rather than being updated in place, so that the readers
+     * holding a partitioner always see a consistent set of partitions.
+     */
+    public Partitioner<S, T> copy()
+    {
+        Partitioner<S, T> copy = 
+            myKeyspace.makePartitioner((String) getKey());
+        copy.myKeyToNodeMap.putAll(myKeyToNodeMap);
+        copy.partitionsChanged();
+        return copy;
+    }
+    
+    /**
+     * Returns a copy of this partitioner wherein the upper bound of the 
+     * range held by the given node is moved to the given value. The keys 
+     * between the old and new bound are moved from the node that holds 
+     * the next range to the given node if the bound is increased or 
+     * vice versa.
+     */
+    @SuppressWarnings("unchecked")
+    public Partitioner<S, T> moveBoundary(NodeID        nodeID, 
+                                          Comparable<?> newBound)
+    {
+        Partitioner<S, T> copy = copy();
+        Range<T> range = getNodeRange(nodeID);
+        if (range != null) {
+            copy.myKeyToNodeMap.remove(range.getMaxValue());
+            copy.myKeyToNodeMap.put((T) newBound, nodeID);
+            copy.partitionsChanged();
+        }
+        return copy;
+    }
+    
     /**
      * Returns the map between {@link NodeID} and the sliced key ranges 
      * that map to the nodes.
@@ -151,6 +229,31 @@ public class Partitioner<S extends Comparable<S>,
         return result;
     }
     
+    /**
+     * Returns the keyspace partitioned by this partitioner.
+     */
+    protected Keyspace<S, T> getKeyspace()
+    {
+        return myKeyspace;
+    }
+    
+    /**
+     * Returns the upper bounds of the ranges mapped to the nodes holding 
+     * them.
+     */
+    protected TreeMap<T, NodeID> getPartitions()
+    {
+        return myKeyToNodeMap;
+    }
+    
+    /**
+     * Subclasses should override this method to discard the state derived
+     * from the partitions when they change.
+     */
+    protected void partitionsChanged()
+    {
+    }
+    
     /**
      * Subclasses should override this method for performing node lookup.
      */
@@ -183,5 +286,6 @@ public class Partitioner<S extends Comparable<S>,
         super.readExternal(in);
         myKeyToNodeMap = (TreeMap<T, NodeID>) in.readObject();
         myKeyspace = (Keyspace<S, T>) in.readObject();
+        partitionsChanged();
     }
 }
@@ -28,6 +28,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.hit.db.model.HitTableSchema;
+
 /**
  * A simple class to keep track of the partition information 
  * among the nodes;
@@ -37,6 +39,8 @@ import java.util.Set;
 public class TablePartitionInfo implements Externalizable
 {
     private Map<String, Partitioner<?,?>> myTableToKeyPartitions;
+    
+    private Map<String, HitTableSchema> myTableToSchemaMap;
 
     /**
      * CTOR
@@ -44,6 +48,7 @@ public class TablePartitionInfo implements Externalizable
     public TablePartitionInfo()
     {
         myTableToKeyPartitions = new HashMap<>();
+        myTableToSchemaMap = new HashMap<>();
     }
 
     /**
@@ -51,18 +56,42 @@ public class TablePartitionInfo implements Externalizable
      */
     public TablePartitionInfo(
         Map<String, Partitioner<?, ?>> tableToKeyPartitions)
+    {
+        this(tableToKeyPartitions, new HashMap<String, HitTableSchema>());
+    }
+    
+    /**
+     * CTOR
+     */
+    public TablePartitionInfo(
+        Map<String, Partitioner<?, ?>> tableToKeyPartitions,
+        Map<String, HitTableSchema>    tableToSchemaMap)
     {
         super();
         myTableToKeyPartitions = tableToKeyPartitions;
+        myTableToSchemaMap = tableToSchemaMap;
     }
     
     /**
      * Merges the incoming partition information with the 
-     * existing values.
+     * existing values. A partitioner is replaced as a whole and only by 
+     * a newer one, so that the lookups switch to the new partitions at 
+     * once.
      */
     public synchronized void merge(TablePartitionInfo other) 
     {
-        myTableToKeyPartitions.putAll(other.myTableToKeyPartitions);
+        for (Map.Entry<String, Partitioner<?,?>> entry : 
+                other.myTableToKeyPartitions.entrySet())
+        {
+            Partitioner<?,?> existing = 
+                myTableToKeyPartitions.get(entry.getKey());
+            if (   existing == null 
+                || existing.getTimestamp() <= entry.getValue().getTimestamp())
+            {
+                myTableToKeyPartitions.put(entry.getKey(), entry.getValue());
+            }
+        }
+        myTableToSchemaMap.putAll(other.myTableToSchemaMap);
     }
     
     /**
@@ -75,6 +104,22 @@ public class TablePartitionInfo implements Externalizable
         myTableToKeyPartitions.put(tableName, partitionInfo);
     }
     
+    /**
+     * Adds the schema of a table into the table partition cache.
+     */
+    public synchronized void addSchema(HitTableSchema schema)
+    {
+        myTableToSchemaMap.put(schema.getTableName(), schema);
+    }
+    
+    /**
+     * Returns the {@link HitTableSchema} of the given table.
+     */
+    public synchronized HitTableSchema lookupSchema(String tableName)
+    {
+        return myTableToSchemaMap.get(tableName);
+    }
+    
     /**
      * Returns the {@link Partitioner} for the given table.
      */
@@ -110,6 +155,7 @@ public class TablePartitionInfo implements Externalizable
     public void writeExternal(ObjectOutput out) throws IOException
     {
         out.writeObject(myTableToKeyPartitions);
+        out.writeObject(myTableToSchemaMap);
     }
 
     /**
@@ -122,5 +168,7 @@ public class TablePartitionInfo implements Externalizable
     {
         myTableToKeyPartitions = 
             (Map<String, Partitioner<?, ?>>) in.readObject();
+        myTableToSchemaMap = 
+            (Map<String, HitTableSchema>) in.readObject();
     }
 }
@@ -0,0 +1,135 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.db.model.HitTableSchema;
+import org.hit.io.pool.PoolableInput;
+import org.hit.io.pool.PoolableOutput;
+import org.hit.io.pool.PoolableRegistry;
+import org.hit.pool.SimplePoolableRegistry;
+import org.hit.util.LogFactory;
+
+/**
+ * Stores the schemas of the tables created in a database, so that the 
+ * tables can be recreated when the database is recovered from the disk.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SchemaCatalog
+{
+    private static final Logger LOG = 
+        LogFactory.getInstance().getLogger(SchemaCatalog.class);
+    
+    private static final String SCHEMA_FILE_SUFFIX = ".schema";
+    
+    private final File myDirectory;
+    
+    private final PoolableRegistry myRegistry;
+
+    /**
+     * CTOR
+     */
+    public SchemaCatalog(SnapshotDirectory snapshotDirectory)
+    {
+        this(snapshotDirectory.getSchemaDirectory());
+    }
+    
+    /**
+     * CTOR
+     */
+    public SchemaCatalog(File directory)
+    {
+        myDirectory = directory;
+        myRegistry = new SimplePoolableRegistry();
+    }
+    
+    /**
+     * Adds the schema of a table to the catalog, replacing the schema 
+     * stored earlier for the same table.
+     */
+    public void add(HitTableSchema schema) throws IOException
+    {
+        File tempFile = 
+            new File(myDirectory, schema.getTableName() + ".tmp");
+        try (PoolableOutput out = 
+                 new PoolableOutput(
+                     new BufferedOutputStream(new FileOutputStream(tempFile)),
+                     myRegistry))
+        {
+            out.writeObject(schema);
+        }
+        
+        File schemaFile = makeSchemaFile(schema.getTableName());
+        schemaFile.delete();
+        if (!tempFile.renameTo(schemaFile)) {
+            throw new IOException("Unable to store the schema of " 
+                                  + schema.getTableName());
+        }
+    }
+    
+    /**
+     * Returns the schemas of all the tables in the catalog.
+     */
+    public List<HitTableSchema> load()
+    {
+        List<HitTableSchema> schemas = new ArrayList<>();
+        File[] schemaFiles = myDirectory.listFiles();
+        if (schemaFiles == null) {
+            return schemas;
+        }
+        
+        for (File schemaFile : schemaFiles) {
+            if (!schemaFile.getName().endsWith(SCHEMA_FILE_SUFFIX)) {
+                continue;
+            }
+            try (PoolableInput in = 
+                     new PoolableInput(
+                         new BufferedInputStream(
+                             new FileInputStream(schemaFile)),
+                         myRegistry))
+            {
+                schemas.add((HitTableSchema) in.readObject());
+            }
+            catch (IOException | ClassNotFoundException e) {
+                LOG.log(Level.SEVERE, 
+                        "Unable to read the schema from " + schemaFile,
+                        e);
+            }
+        }
+        return schemas;
+    }
+    
+    private File makeSchemaFile(String tableName)
+    {
+        return new File(myDirectory, tableName + SCHEMA_FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.snapshot;
+
+/**
+ * Defines the configuration for storing the snapshots of a database.
+ * 
+ * @author Balraja Subbiah
+ */
+public interface SnapshotConfig
+{
+    /**
+     * Returns the path to the directory under which the snapshots and 
+     * the schemas of the databases are stored.
+     */
+    public String getBaseDirectoryPath();
+    
+    /**
+     * Returns the number of threads used for loading the tables from a 
+     * snapshot and for applying the proposals replayed from the log.
+     */
+    public int getParallelism();
+    
+    /**
+     * Returns the interval in seconds between two successive snapshots of
+     * a database. The snapshots are not taken periodically when it's not 
+     * positive.
+     */
+    public long getSnapshotIntervalSecs();
+    
+    /**
+     * Returns the number of latest snapshots to be retained on the disk.
+     */
+    public int getRetainedSnapshotCount();
+}
@@ -0,0 +1,139 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.snapshot;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Defines the layout of the directory under which the snapshots and the 
+ * schemas of a database are stored. Every snapshot is stored in a 
+ * directory of it's own, named after the time at which it's taken, with 
+ * a file per table.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SnapshotDirectory
+{
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    
+    private static final String SCHEMA_DIRECTORY = "schemas";
+    
+    private static final String TABLE_FILE_SUFFIX = ".snapshot";
+    
+    private final File myDirectory;
+
+    /**
+     * CTOR
+     */
+    public SnapshotDirectory(SnapshotConfig config, String databaseName)
+    {
+        myDirectory = 
+            new File(config.getBaseDirectoryPath(), databaseName);
+        myDirectory.mkdirs();
+    }
+    
+    /**
+     * Returns the directory under which the schemas of the tables are 
+     * stored.
+     */
+    public File getSchemaDirectory()
+    {
+        File schemaDirectory = new File(myDirectory, SCHEMA_DIRECTORY);
+        schemaDirectory.mkdirs();
+        return schemaDirectory;
+    }
+    
+    /**
+     * Returns the directory for storing the snapshot taken at the given
+     * time.
+     */
+    public File getSnapshotDirectory(long time)
+    {
+        return new File(myDirectory, SNAPSHOT_PREFIX + time);
+    }
+    
+    /**
+     * Returns the file to which the rows of a table are written in a 
+     * snapshot.
+     */
+    public static File getTableFile(File snapshotDirectory, String tableName)
+    {
+        return new File(snapshotDirectory, tableName + TABLE_FILE_SUFFIX);
+    }
+    
+    /**
+     * Returns the snapshot directories ordered from the latest to the 
+     * oldest.
+     */
+    public File[] listSnapshotDirectories()
+    {
+        File[] snapshots = myDirectory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file)
+            {
+                return    file.isDirectory() 
+                       && file.getName().startsWith(SNAPSHOT_PREFIX);
+            }
+        });
+        
+        if (snapshots == null) {
+            return new File[0];
+        }
+        
+        Arrays.sort(snapshots, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second)
+            {
+                return Long.compare(getTime(second), getTime(first));
+            }
+        });
+        return snapshots;
+    }
+    
+    /**
+     * Deletes the snapshot stored in the given directory and returns true
+     * if it's been deleted completely.
+     */
+    public static boolean delete(File snapshotDirectory)
+    {
+        File[] files = snapshotDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        return snapshotDirectory.delete();
+    }
+    
+    private static long getTime(File snapshotDirectory)
+    {
+        try {
+            return Long.parseLong(
+                snapshotDirectory.getName().substring(SNAPSHOT_PREFIX.length()));
+        }
+        catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a snapshot of the database that has been completely written 
+ * to the disk. The manifest is written only after the data of all the 
+ * tables has been written, so a snapshot directory without a manifest 
+ * is an incomplete snapshot.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SnapshotManifest
+{
+    /** The name of the manifest file in a snapshot directory */
+    public static final String MANIFEST_FILE = "manifest";
+    
+    private final long myTime;
+    
+    private final List<String> myTableNames;
+
+    /**
+     * CTOR
+     */
+    public SnapshotManifest(long time, List<String> tableNames)
+    {
+        myTime = time;
+        myTableNames = new ArrayList<>(tableNames);
+    }
+
+    /**
+     * Returns the time at which the versions of the rows are captured in
+     * the snapshot.
+     */
+    public long getTime()
+    {
+        return myTime;
+    }
+
+    /**
+     * Returns the names of the tables captured in the snapshot.
+     */
+    public List<String> getTableNames()
+    {
+        return Collections.unmodifiableList(myTableNames);
+    }
+    
+    /**
+     * Writes the manifest to the given snapshot directory. The manifest is
+     * written to a temporary file first and renamed, so that it's never 
+     * seen partially written.
+     */
+    public void writeTo(File directory) throws IOException
+    {
+        File tempFile = new File(directory, MANIFEST_FILE + ".tmp");
+        try (DataOutputStream out = 
+                 new DataOutputStream(
+                     new BufferedOutputStream(
+                         new FileOutputStream(tempFile))))
+        {
+            out.writeLong(myTime);
+            out.writeInt(myTableNames.size());
+            for (String tableName : myTableNames) {
+                out.writeUTF(tableName);
+            }
+        }
+        
+        if (!tempFile.renameTo(new File(directory, MANIFEST_FILE))) {
+            throw new IOException("Unable to publish the manifest in " 
+                                  + directory);
+        }
+    }
+    
+    /**
+     * Reads the manifest from the given snapshot directory. Returns null 
+     * if the snapshot isn't complete.
+     */
+    public static SnapshotManifest readFrom(File directory) throws IOException
+    {
+        File manifestFile = new File(directory, MANIFEST_FILE);
+        if (!manifestFile.exists()) {
+            return null;
+        }
+        
+        try (DataInputStream in = 
+                 new DataInputStream(
+                     new BufferedInputStream(
+                         new FileInputStream(manifestFile))))
+        {
+            long time = in.readLong();
+            int size = in.readInt();
+            List<String> tableNames = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                tableNames.add(in.readUTF());
+            }
+            return new SnapshotManifest(time, tableNames);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "SnapshotManifest [myTime=" + myTime + ", myTableNames="
+               + myTableNames + "]";
+    }
+}
@@ -0,0 +1,106 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.snapshot;
+
+import java.io.File;
+
+import org.hit.util.ApplicationProperties;
+
+/**
+ * Implements {@link SnapshotConfig} by reading values from the
+ * <code>ApplicationProperties</code>.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SnapshotPropertyConfig implements SnapshotConfig
+{
+    private static final String LOCAL_SNAPSHOT_DIRECTORY = "hitdb_snapshot";
+    
+    private static final String SNAPSHOT_BASE_DIRECTORY = 
+        "org.hit.snapshot.basePath";
+    
+    private static final String PARALLELISM_PROPERTY = 
+        "org.hit.snapshot.parallelism";
+    
+    private static final String INTERVAL_PROPERTY = 
+        "org.hit.snapshot.intervalInSecs";
+    
+    private static final String RETAINED_COUNT_PROPERTY = 
+        "org.hit.snapshot.retainedCount";
+    
+    private static final long DEFAULT_INTERVAL_SECS = 300L;
+    
+    private static final int DEFAULT_RETAINED_COUNT = 2;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getBaseDirectoryPath()
+    {
+        String basePath = 
+            ApplicationProperties.getProperty(SNAPSHOT_BASE_DIRECTORY);
+        
+        if (basePath == null) {
+            basePath = System.getProperty("java.io.tmpdir");
+            basePath += File.separator + LOCAL_SNAPSHOT_DIRECTORY;
+            File file = new File(basePath);
+            file.mkdirs();
+        }
+        return basePath;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getParallelism()
+    {
+        String parallelism = 
+            ApplicationProperties.getProperty(PARALLELISM_PROPERTY);
+        return parallelism != null ? Integer.parseInt(parallelism)
+                                   : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSnapshotIntervalSecs()
+    {
+        String interval = 
+            ApplicationProperties.getProperty(INTERVAL_PROPERTY);
+        return interval != null ? Long.parseLong(interval)
+                                : DEFAULT_INTERVAL_SECS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRetainedSnapshotCount()
+    {
+        String retainedCount = 
+            ApplicationProperties.getProperty(RETAINED_COUNT_PROPERTY);
+        return retainedCount != null ? Integer.parseInt(retainedCount)
+                                     : DEFAULT_RETAINED_COUNT;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.Externalizable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.model.Persistable;
+import org.hit.db.transactions.Transactable;
+import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.TransactableTable;
+import org.hit.db.transactions.TransactionHelper;
+import org.hit.db.transactions.impl.TransactableHitDatabase;
+import org.hit.io.pool.PoolableInput;
+import org.hit.io.pool.PoolableRegistry;
+import org.hit.pool.PooledObjects;
+import org.hit.pool.SimplePoolableRegistry;
+import org.hit.util.LogFactory;
+import org.hit.util.NamedThreadFactory;
+
+/**
+ * Loads the rows of the tables captured in a snapshot into a 
+ * {@link TransactableDatabase}. The tables are loaded in parallel, each 
+ * one being read sequentially from it's file.
+ * <p>
+ * The rows of a table are stored as a sequence of their externalized 
+ * forms, each one preceded by a marker, and the sequence is terminated by
+ * an end marker so that a truncated file can be detected.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SnapshotReader
+{
+    private static final Logger LOG = 
+        LogFactory.getInstance().getLogger(SnapshotReader.class);
+    
+    private final SnapshotDirectory myDirectory;
+    
+    private final int myParallelism;
+    
+    private final PoolableRegistry myRegistry;
+    
+    /**
+     * Loads the rows of a table from it's file in the snapshot.
+     */
+    private class LoadTableTask implements Callable<Long>
+    {
+        private final File myTableFile;
+        
+        private final TransactableTable<?, ?> myTable;
+        
+        private final long myTime;
+
+        /**
+         * CTOR
+         */
+        public LoadTableTask(File                    tableFile, 
+                             TransactableTable<?, ?> table, 
+                             long                    time)
+        {
+            myTableFile = tableFile;
+            myTable = table;
+            myTime = time;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Long call() throws Exception
+        {
+            return Long.valueOf(loadTable(myTableFile, myTable, myTime));
+        }
+    }
+
+    /**
+     * CTOR
+     */
+    public SnapshotReader(SnapshotDirectory directory, int parallelism)
+    {
+        myDirectory = directory;
+        myParallelism = parallelism;
+        myRegistry = new SimplePoolableRegistry();
+    }
+    
+    /**
+     * Returns the manifest of the latest complete snapshot, null if 
+     * there is none.
+     */
+    public SnapshotManifest readLatestManifest()
+    {
+        for (File snapshotDirectory : myDirectory.listSnapshotDirectories()) {
+            try {
+                SnapshotManifest manifest = 
+                    SnapshotManifest.readFrom(snapshotDirectory);
+                if (manifest != null) {
+                    return manifest;
+                }
+                LOG.info("Skipping the incomplete snapshot " 
+                         + snapshotDirectory);
+            }
+            catch (IOException e) {
+                LOG.log(Level.SEVERE, 
+                        "Unable to read the manifest of " + snapshotDirectory,
+                        e);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Loads the tables captured in the snapshot into the database. The
+     * tables should have been created in the database. The rows are 
+     * loaded as versions that have been committed at the time of the 
+     * snapshot.
+     */
+    public void load(SnapshotManifest manifest, TransactableDatabase database)
+        throws IOException
+    {
+        load(myDirectory.getSnapshotDirectory(manifest.getTime()),
+             manifest,
+             database);
+    }
+    
+    /**
+     * Loads the tables captured in the snapshot stored under the given 
+     * directory into the database. 
+     */
+    public void load(File                 snapshotDirectory,
+                     SnapshotManifest     manifest, 
+                     TransactableDatabase database)
+        throws IOException
+    {
+        ExecutorService executor = 
+            Executors.newFixedThreadPool(
+                Math.max(1, 
+                         Math.min(myParallelism, 
+                                  manifest.getTableNames().size())),
+                new NamedThreadFactory(SnapshotReader.class));
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (String tableName : manifest.getTableNames()) {
+                futures.add(executor.submit(new LoadTableTask(
+                    SnapshotDirectory.getTableFile(snapshotDirectory, 
+                                                   tableName),
+                    database.lookUpTable(tableName),
+                    manifest.getTime())));
+            }
+            
+            for (int i = 0; i < futures.size(); i++) {
+                long rowCount = futures.get(i).get().longValue();
+                LOG.info("Loaded " + rowCount + " rows of " 
+                         + manifest.getTableNames().get(i) 
+                         + " from the snapshot taken at " 
+                         + manifest.getTime());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Installs the snapshot stored under the given directory into the 
+     * database, creating the tables from the schemas stored along with 
+     * the snapshot. The snapshot replaces the state of it's tables, hence 
+     * the committed versions that are live in the database are closed at
+     * the time of the snapshot, including those of the rows that are not
+     * present in the snapshot.
+     */
+    public void install(File                 snapshotDirectory, 
+                        TransactableDatabase database)
+        throws IOException
+    {
+        SnapshotManifest manifest = SnapshotManifest.readFrom(snapshotDirectory);
+        if (manifest == null) {
+            throw new IOException(
+                "The snapshot under " + snapshotDirectory + " is incomplete");
+        }
+        
+        // The snapshot is loaded into a database of it's own first, so 
+        // that the tables are left untouched if it can't be read.
+        TransactableDatabase snapshotDatabase = new TransactableHitDatabase();
+        for (HitTableSchema schema : 
+                new SchemaCatalog(snapshotDirectory).load()) 
+        {
+            snapshotDatabase.createTable(schema);
+            database.createTable(schema);
+        }
+        load(snapshotDirectory, manifest, snapshotDatabase);
+        
+        for (String tableName : manifest.getTableNames()) {
+            mergeTable(snapshotDatabase.lookUpTable(tableName),
+                       database.lookUpTable(tableName),
+                       manifest.getTime());
+        }
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void mergeTable(TransactableTable snapshotTable, 
+                            TransactableTable table, 
+                            long              time)
+    {
+        Iterator<Transactable> versions = table.getVersions();
+        while (versions.hasNext()) {
+            Transactable version = versions.next();
+            if (   version.getEnd() == TransactionHelper.INFINITY
+                && !TransactionHelper.isTransactionID(version.getStart()))
+            {
+                version.setEnd(Math.max(version.getStart(), time));
+            }
+        }
+        
+        versions = snapshotTable.getVersions();
+        while (versions.hasNext()) {
+            table.addToTable(versions.next());
+        }
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private long loadTable(File tableFile, TransactableTable table, long time)
+        throws IOException, ClassNotFoundException
+    {
+        Class<?> persistableType = table.getSchema().getPersistableClass();
+        long rowCount = 0L;
+        try (PoolableInput in = 
+                 new PoolableInput(
+                     new BufferedInputStream(new FileInputStream(tableFile)),
+                     myRegistry))
+        {
+            while (in.readBoolean()) {
+                Persistable<?> persistable = 
+                    (Persistable<?>) 
+                        PooledObjects.getUnboundedInstance(persistableType);
+                ((Externalizable) persistable).readExternal(in);
+                
+                Transactable transactable = Transactable.create(persistable);
+                transactable.setStart(time);
+                transactable.setEnd(TransactionHelper.INFINITY);
+                table.addToTable(transactable);
+                rowCount++;
+            }
+        }
+        return rowCount;
+    }
+}
@@ -0,0 +1,355 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.Externalizable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.db.transactions.IDAssigner;
+import org.hit.db.transactions.Transactable;
+import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.TransactableTable;
+import org.hit.db.transactions.TransactionWatermark;
+import org.hit.io.pool.PoolableOutput;
+import org.hit.io.pool.PoolableRegistry;
+import org.hit.pool.SimplePoolableRegistry;
+import org.hit.time.Clock;
+import org.hit.util.LogFactory;
+import org.hit.util.NamedThreadFactory;
+
+/**
+ * Writes the rows of a {@link TransactableDatabase} that are visible at 
+ * a point in time to the disk, in the format understood by 
+ * {@link SnapshotReader}. 
+ * <p>
+ * The snapshot doesn't block the writers. After picking the time of the
+ * snapshot, the writer waits till the transactions that have started 
+ * before that time are done. From then on every version that's visible 
+ * at the snapshot time stays visible, as the transactions which are 
+ * still active can only commit at a later time, and the 
+ * <code>VersionCollector</code> is kept from reclaiming them by 
+ * registering the snapshot with the {@link TransactionWatermark}. The 
+ * tables are then streamed in parallel, each one sequentially to it's 
+ * own file, and the manifest is written last to mark the snapshot as 
+ * complete. The schemas of the tables are stored along with the rows, 
+ * so that the snapshot can be installed on another server.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SnapshotWriter implements Runnable
+{
+    private static final Logger LOG = 
+        LogFactory.getInstance().getLogger(SnapshotWriter.class);
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final long QUIESCE_WAIT_MILLIS = 1L;
+    
+    private final TransactableDatabase myDatabase;
+    
+    private final SnapshotDirectory myDirectory;
+    
+    private final SnapshotConfig myConfig;
+    
+    private final Clock myClock;
+    
+    private final IDAssigner myIDAssigner;
+    
+    private final PoolableRegistry myRegistry;
+    
+    private final ScheduledExecutorService myScheduler;
+    
+    private final SnapshotListener myListener;
+    
+    /**
+     * Writes the rows of a table that are visible at the snapshot time 
+     * to it's file in the snapshot.
+     */
+    private class WriteTableTask implements Callable<Long>
+    {
+        private final File myTableFile;
+        
+        private final TransactableTable<?, ?> myTable;
+        
+        private final long myTime;
+
+        /**
+         * CTOR
+         */
+        public WriteTableTask(File                    tableFile, 
+                              TransactableTable<?, ?> table, 
+                              long                    time)
+        {
+            myTableFile = tableFile;
+            myTable = table;
+            myTime = time;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Long call() throws Exception
+        {
+            return Long.valueOf(writeTable(myTableFile, myTable, myTime));
+        }
+    }
+
+    /**
+     * CTOR
+     */
+    public SnapshotWriter(TransactableDatabase database,
+                          SnapshotDirectory    directory,
+                          SnapshotConfig       config,
+                          Clock                clock,
+                          IDAssigner           idAssigner)
+    {
+        this(database, directory, config, clock, idAssigner, null);
+    }
+    
+    /**
+     * CTOR
+     */
+    public SnapshotWriter(TransactableDatabase database,
+                          SnapshotDirectory    directory,
+                          SnapshotConfig       config,
+                          Clock                clock,
+                          IDAssigner           idAssigner,
+                          SnapshotListener     listener)
+    {
+        myDatabase = database;
+        myListener = listener;
+        myDirectory = directory;
+        myConfig = config;
+        myClock = clock;
+        myIDAssigner = idAssigner;
+        myRegistry = new SimplePoolableRegistry();
+        myScheduler = 
+            Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(SnapshotWriter.class, true));
+    }
+    
+    /**
+     * Schedules the snapshots to be taken periodically in the background.
+     * The snapshots are not taken when the configured interval is not 
+     * positive.
+     */
+    public void start()
+    {
+        long interval = myConfig.getSnapshotIntervalSecs();
+        if (interval > 0) {
+            myScheduler.scheduleWithFixedDelay(
+                this, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * Stops taking the snapshots.
+     */
+    public void stop()
+    {
+        myScheduler.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run()
+    {
+        try {
+            takeSnapshot();
+        }
+        catch (Throwable e) {
+            // Don't let an exception cancel the subsequent runs.
+            LOG.log(Level.SEVERE, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Writes the rows of all the tables that are visible at the current
+     * time to the disk and returns the manifest of the snapshot. The 
+     * snapshots older than the retained ones are deleted once the 
+     * snapshot is complete.
+     */
+    public SnapshotManifest takeSnapshot() throws IOException
+    {
+        long snapshotID = myIDAssigner.getTransactionID();
+        TransactionWatermark watermark = myDatabase.getWatermark();
+        long time = myClock.currentTime();
+        watermark.register(snapshotID, time);
+        try {
+            awaitQuiescence(watermark, time);
+            
+            Collection<TransactableTable<?, ?>> tables = 
+                myDatabase.getTables();
+            File snapshotDirectory = myDirectory.getSnapshotDirectory(time);
+            snapshotDirectory.mkdirs();
+            
+            SchemaCatalog schemaCatalog = new SchemaCatalog(snapshotDirectory);
+            for (TransactableTable<?, ?> table : tables) {
+                schemaCatalog.add(table.getSchema());
+            }
+            
+            List<String> tableNames = new ArrayList<>();
+            long rowCount = writeTables(snapshotDirectory, 
+                                        tables, 
+                                        tableNames, 
+                                        time);
+            
+            SnapshotManifest manifest = new SnapshotManifest(time, tableNames);
+            manifest.writeTo(snapshotDirectory);
+            LOG.info("Snapshot of " + rowCount + " rows from " 
+                     + tableNames.size() + " tables has been taken at " 
+                     + time);
+            
+            deleteOldSnapshots();
+            if (myListener != null) {
+                myListener.onSnapshot(manifest, snapshotDirectory);
+            }
+            return manifest;
+        }
+        finally {
+            watermark.deregister(snapshotID);
+        }
+    }
+    
+    /**
+     * Waits till the transactions that have started before the given 
+     * time are done, as they could commit at a time earlier than that.
+     */
+    private void awaitQuiescence(TransactionWatermark watermark, long time)
+        throws IOException
+    {
+        try {
+            while (watermark.getWatermark(myClock.currentTime()) < time) {
+                Thread.sleep(QUIESCE_WAIT_MILLIS);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+    
+    private long writeTables(File                                snapshotDirectory,
+                             Collection<TransactableTable<?, ?>> tables,
+                             List<String>                        tableNames,
+                             long                                time)
+        throws IOException
+    {
+        ExecutorService executor = 
+            Executors.newFixedThreadPool(
+                Math.max(1, Math.min(myConfig.getParallelism(), 
+                                     tables.size())),
+                new NamedThreadFactory(SnapshotWriter.class));
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (TransactableTable<?, ?> table : tables) {
+                String tableName = table.getSchema().getTableName();
+                tableNames.add(tableName);
+                futures.add(executor.submit(new WriteTableTask(
+                    SnapshotDirectory.getTableFile(snapshotDirectory, 
+                                                   tableName),
+                    table,
+                    time)));
+            }
+            
+            long rowCount = 0L;
+            for (Future<Long> future : futures) {
+                rowCount += future.get().longValue();
+            }
+            return rowCount;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private long writeTable(File tableFile, TransactableTable<?, ?> table, long time)
+        throws IOException
+    {
+        long rowCount = 0L;
+        FileOutputStream fileOut = new FileOutputStream(tableFile);
+        try (PoolableOutput out = 
+                 new PoolableOutput(
+                     new BufferedOutputStream(fileOut, BUFFER_SIZE),
+                     myRegistry))
+        {
+            Iterator<? extends Transactable<?, ?>> versions = 
+                table.getVersions();
+            while (versions.hasNext()) {
+                Transactable<?, ?> version = versions.next();
+                if (version.isVisibleAt(time)) {
+                    out.writeBoolean(true);
+                    ((Externalizable) version.getPersistable())
+                        .writeExternal(out);
+                    rowCount++;
+                }
+            }
+            out.writeBoolean(false);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Wrote " + rowCount + " rows of " 
+                     + table.getSchema().getTableName() 
+                     + " to the snapshot taken at " + time);
+        }
+        return rowCount;
+    }
+    
+    private void deleteOldSnapshots()
+    {
+        File[] snapshots = myDirectory.listSnapshotDirectories();
+        for (int i = Math.max(1, myConfig.getRetainedSnapshotCount()); 
+             i < snapshots.length; 
+             i++) 
+        {
+            if (!SnapshotDirectory.delete(snapshots[i])) {
+                LOG.warning("Unable to delete the snapshot " + snapshots[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.merger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.hit.db.model.Row;
+import org.hit.db.sql.operators.RowComparator;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * Extends {@link QueryResultMerger} to support merging the results of an 
+ * ordered query. The results returned by the nodes are already sorted, 
+ * so they are merged by repeatedly picking the least of the rows at the 
+ * head of each result, until the limit on the number of rows is reached.
+ * The results that have to be aggregated across the nodes are merged 
+ * by a delegate merger and sorted after that.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SortedQueryResultMerger implements QueryResultMerger
+{
+    private final QueryResultMerger myAggregator;
+    
+    private final Comparator<Row> myComparator;
+    
+    private final int myLimit;
+    
+    private final List<Collection<Row>> myPartialResults;
+    
+    /**
+     * CTOR
+     */
+    public SortedQueryResultMerger(Map<String, Boolean> orderByColumns,
+                                   int                  limit)
+    {
+        this(null, orderByColumns, limit);
+    }
+    
+    /**
+     * CTOR
+     */
+    public SortedQueryResultMerger(QueryResultMerger    aggregator,
+                                   Map<String, Boolean> orderByColumns,
+                                   int                  limit)
+    {
+        myAggregator = aggregator;
+        myComparator = new RowComparator(orderByColumns);
+        myLimit = limit;
+        myPartialResults = new ArrayList<>();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addPartialResult(Collection<Row> result)
+    {
+        if (myAggregator != null) {
+            myAggregator.addPartialResult(result);
+        }
+        else if (!result.isEmpty()) {
+            myPartialResults.add(result);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Row> getMergedResult()
+    {
+        if (myAggregator != null) {
+            List<Row> result = new ArrayList<>(myAggregator.getMergedResult());
+            Collections.sort(result, myComparator);
+            return result.size() > myLimit ? 
+                new ArrayList<>(result.subList(0, Math.max(myLimit, 0))) 
+                : result;
+        }
+        
+        PriorityQueue<PeekingIterator<Row>> heads = 
+            new PriorityQueue<>(
+                Math.max(myPartialResults.size(), 1),
+                new Comparator<PeekingIterator<Row>>() {
+                    @Override
+                    public int compare(PeekingIterator<Row> iterator1,
+                                       PeekingIterator<Row> iterator2)
+                    {
+                        return myComparator.compare(iterator1.peek(), 
+                                                    iterator2.peek());
+                    }
+                });
+        for (Collection<Row> partialResult : myPartialResults) {
+            heads.add(Iterators.peekingIterator(partialResult.iterator()));
+        }
+        
+        List<Row> result = new ArrayList<>();
+        while (!heads.isEmpty() && result.size() < myLimit) {
+            PeekingIterator<Row> head = heads.poll();
+            result.add(head.next());
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return result;
+    }
+}
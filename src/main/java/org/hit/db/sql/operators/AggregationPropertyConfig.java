@@ -0,0 +1,66 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import org.hit.util.ApplicationProperties;
+
+/**
+ * Implements {@link AggregationConfig} by reading values from the
+ * <code>ApplicationProperties</code>.
+ * 
+ * @author Balraja Subbiah
+ */
+public class AggregationPropertyConfig implements AggregationConfig
+{
+    private static final String MAX_GROUPS_PROPERTY = 
+        "org.hit.query.maxGroupsInMemory";
+    
+    private static final String SPILL_PARTITIONS_PROPERTY = 
+        "org.hit.query.spillPartitions";
+    
+    private static final int DEFAULT_MAX_GROUPS = 100000;
+    
+    private static final int DEFAULT_SPILL_PARTITIONS = 16;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxGroupsInMemory()
+    {
+        String maxGroups = 
+            ApplicationProperties.getProperty(MAX_GROUPS_PROPERTY);
+        return maxGroups != null ? Integer.parseInt(maxGroups)
+                                 : DEFAULT_MAX_GROUPS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSpillPartitions()
+    {
+        String partitions = 
+            ApplicationProperties.getProperty(SPILL_PARTITIONS_PROPERTY);
+        return partitions != null ? Integer.parseInt(partitions)
+                                  : DEFAULT_SPILL_PARTITIONS;
+    }
+}
@@ -19,6 +19,10 @@
 */
 package org.hit.db.sql.operators;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -30,11 +34,12 @@ import com.google.common.collect.Lists;
 
 /**
  * Defines the contract for a {@link Row} sent in response to an 
- * group by query.
+ * group by query. The aggregates of a group are accumulated in place as 
+ * the rows of the group are scanned.
  * 
  * @author Balraja Subbiah
  */
-public class AggregationResult implements Row
+public class AggregationResult implements Row, Externalizable
 {
     private GroupKey myGroupKey;
     
@@ -61,6 +66,43 @@ public class AggregationResult implements Row
         myColumnToAggregateMap = new HashMap<>();
     }
     
+    /**
+     * CTOR
+     */
+    public AggregationResult(GroupKey                   groupKey, 
+                             Map<String, AggregationID> aggregatingColumns)
+    {
+        this(groupKey, 0);
+        for (Map.Entry<String, AggregationID> entry : 
+                aggregatingColumns.entrySet())
+        {
+            if (entry.getValue() != null) {
+                myColumnToAggregateMap.put(entry.getKey(), 
+                                           new GroupValue(entry.getValue()));
+            }
+        }
+    }
+    
+    /**
+     * Accumulates the values of the aggregated columns of a row that 
+     * belongs to this group.
+     */
+    public void accumulate(Row row)
+    {
+        myGroupCount++;
+        for (Map.Entry<String, GroupValue> entry : 
+                myColumnToAggregateMap.entrySet())
+        {
+            if (entry.getValue().getID() == AggregationID.CNT) {
+                continue;
+            }
+            Object value = row.getFieldValue(entry.getKey());
+            if (value instanceof Number) {
+                entry.getValue().accumulate(((Number) value).doubleValue());
+            }
+        }
+    }
+    
     /**
      * Returns the value of groupKey
      */
@@ -113,6 +155,44 @@ public class AggregationResult implements Row
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeObject(myGroupKey);
+        out.writeLong(myGroupCount);
+        out.writeInt(myColumnToAggregateMap.size());
+        for (Map.Entry<String, GroupValue> entry : 
+                myColumnToAggregateMap.entrySet())
+        {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue().getID().name());
+            out.writeDouble(entry.getValue().getResult());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        myGroupKey = (GroupKey) in.readObject();
+        myGroupCount = in.readLong();
+        int size = in.readInt();
+        myColumnToAggregateMap = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            String columnName = in.readUTF();
+            myColumnToAggregateMap.put(
+                columnName,
+                new GroupValue(AggregationID.valueOf(in.readUTF()), 
+                               in.readDouble()));
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
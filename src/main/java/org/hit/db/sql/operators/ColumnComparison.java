@@ -105,8 +105,8 @@ public class ColumnComparison implements Condition
     @Override
     public void writeExternal(ObjectOutput out) throws IOException
     {
-        out.writeObject(myColumnNames1);
-        out.writeObject(myColumnNames2);
+        ColumnNameUtil.writeColumnName(out, myColumnNames1);
+        ColumnNameUtil.writeColumnName(out, myColumnNames2);
         out.writeUTF(myOperator.name());
     }
 
@@ -117,8 +117,8 @@ public class ColumnComparison implements Condition
     public void readExternal(ObjectInput in)
         throws IOException, ClassNotFoundException
     {
-        myColumnNames1 = (String[]) in.readObject();
-        myColumnNames2 = (String[]) in.readObject();
+        myColumnNames1 = ColumnNameUtil.readColumnName(in);
+        myColumnNames2 = ColumnNameUtil.readColumnName(in);
         myOperator = ComparisionOperator.valueOf(in.readUTF());
     }
 
@@ -130,6 +130,49 @@ public class ColumnComparison implements Condition
     {
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLocalTo(String tableName)
+    {
+        return    ColumnNameUtil.isColumnOf(myColumnNames1, tableName)
+               && ColumnNameUtil.isColumnOf(myColumnNames2, tableName);
+    }
+    
+    /**
+     * Returns the names of the first column compared.
+     */
+    String[] getColumnNames1()
+    {
+        return myColumnNames1;
+    }
+    
+    /**
+     * Returns the names of the second column compared.
+     */
+    String[] getColumnNames2()
+    {
+        return myColumnNames2;
+    }
+    
+    /**
+     * Returns the operator used for comparing the columns.
+     */
+    ComparisionOperator getOperator()
+    {
+        return myOperator;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KeyBounds getKeyBounds(String columnName)
+    {
+        return KeyBounds.UNBOUNDED;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -20,6 +20,10 @@
 
 package org.hit.db.sql.operators;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 import org.hit.db.model.Row;
 
 /**
@@ -43,6 +47,15 @@ public final class ColumnNameUtil
         return columnName.indexOf(".") > 0;    
     }
     
+    /**
+     * Returns true if the given column name is qualified by the given 
+     * table's name.
+     */
+    public static boolean isColumnOf(String[] columnNames, String tableName)
+    {
+        return columnNames.length > 1 && columnNames[0].equals(tableName);
+    }
+    
     public static Object getValue(Row record, String[] columnNames)
     {
         Object result = record;
@@ -59,6 +72,32 @@ public final class ColumnNameUtil
         return newColumnNames;
     }
     
+    /**
+     * Writes the column names as their count followed by the names, so 
+     * that the array need not be serialized as an object.
+     */
+    public static void writeColumnName(ObjectOutput out, String[] columnNames)
+        throws IOException
+    {
+        out.writeInt(columnNames.length);
+        for (String columnName : columnNames) {
+            out.writeUTF(columnName);
+        }
+    }
+    
+    /**
+     * Reads the column names written by 
+     * {@link #writeColumnName(ObjectOutput, String[])}
+     */
+    public static String[] readColumnName(ObjectInput in) throws IOException
+    {
+        String[] columnNames = new String[in.readInt()];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = in.readUTF();
+        }
+        return columnNames;
+    }
+    
     private ColumnNameUtil()
     {
     }
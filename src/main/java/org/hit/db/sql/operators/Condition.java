@@ -39,6 +39,18 @@ public interface Condition extends Externalizable
     /** Updates the filtering condition to use the new range */
     <K extends Comparable<K>> void updateRange(Range<K> newRange);
     
+    /** 
+     * Returns the bounds imposed by this condition on the values of the 
+     * given column.
+     */
+    public KeyBounds getKeyBounds(String columnName);
+    
+    /**
+     * Returns true if the condition only refers to the columns of the 
+     * given table.
+     */
+    public boolean isLocalTo(String tableName);
+    
     /** Defines the contract for cloning  this object*/
     public Condition cloneCondition();
 }
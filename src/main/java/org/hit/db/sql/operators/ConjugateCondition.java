@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.hit.db.model.Row;
@@ -141,6 +142,52 @@ public class ConjugateCondition implements Condition
         }
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLocalTo(String tableName)
+    {
+        for (Condition condition : myConditions) {
+            if (!condition.isLocalTo(tableName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the conditions that should hold together for this condition
+     * to hold.
+     */
+    List<Condition> getConjuncts()
+    {
+        return myConjunctive == Conjunctive.AND ? 
+            myConditions : Collections.<Condition>singletonList(this);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KeyBounds getKeyBounds(String columnName)
+    {
+        KeyBounds bounds = null;
+        for (Condition condition : myConditions) {
+            KeyBounds conditionBounds = condition.getKeyBounds(columnName);
+            if (bounds == null) {
+                bounds = conditionBounds;
+            }
+            else if (myConjunctive == Conjunctive.AND) {
+                bounds = bounds.intersect(conditionBounds);
+            }
+            else {
+                bounds = bounds.span(conditionBounds);
+            }
+        }
+        return bounds != null ? bounds : KeyBounds.UNBOUNDED;
+    }
+    
     /**
      * {@inheritDoc}
      */
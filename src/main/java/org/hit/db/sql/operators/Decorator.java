@@ -103,4 +103,25 @@ public abstract class Decorator implements QueryOperator
     public <K extends Comparable<K>> void updateRange(Range<K> newRange)
     {
     }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getScannedTable()
+    {
+        return myDecoratedOperator != null ? 
+            myDecoratedOperator.getScannedTable() : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KeyBounds getKeyBounds(String columnName)
+    {
+        return myDecoratedOperator != null ? 
+            myDecoratedOperator.getKeyBounds(columnName) 
+            : KeyBounds.UNBOUNDED;
+    }
 }
@@ -33,9 +33,6 @@ import java.util.TreeSet;
 
 import org.hit.db.model.Row;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
-
 /**
  * Defines the contract for an operator that supports grouping operations
  * 
@@ -75,37 +72,15 @@ public class GroupBy extends Decorator
     protected Collection<Row>
         doPerformOperation(Collection<Row> toBeOperatedCollection)
     {
-        ListMultimap<GroupKey, Row> multimap = ArrayListMultimap.create();
-        for (Row row : toBeOperatedCollection) {
-            multimap.put(new GroupingColumnsKey(myGroupingColumns, row),
-                         row);
-        }
+        HashAggregator aggregator = 
+            new HashAggregator(myGroupingColumns, 
+                               myAggregatingColumns, 
+                               new AggregationPropertyConfig());
         
-        List<Row> resultCollection = new ArrayList<>();
-        for (Map.Entry<GroupKey, Collection<Row>> entry :
-               multimap.asMap().entrySet())
-        {
-            AggregationResult row = 
-                new AggregationResult(entry.getKey(), entry.getValue().size());
-            
-            // For each group, we are aggregating values in that 
-            // group.
-            for (Map.Entry<String, AggregationID> columnEntry : 
-                    myAggregatingColumns.entrySet())
-            {
-                if (columnEntry.getValue() != null) {
-                  
-                    Aggregator aggregator = 
-                        new Aggregator(
-                            columnEntry.getValue(), columnEntry.getKey());
-                    
-                    row.setAggregate(columnEntry.getKey(),
-                                     aggregator.apply(entry.getValue()));
-                }
-            }
-            resultCollection.add(row);
+        for (Row row : toBeOperatedCollection) {
+            aggregator.add(row);
         }
-        return resultCollection;
+        return aggregator.getResult();
     }
 
     /**
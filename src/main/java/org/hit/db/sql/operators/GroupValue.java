@@ -39,7 +39,7 @@ public class GroupValue
         myID = id;
         switch(myID) {
         case MAX:
-            myResult = Double.MIN_VALUE;
+            myResult = -Double.MAX_VALUE;
             break;
         case MIN:
             myResult = Double.MAX_VALUE;
@@ -57,21 +57,36 @@ public class GroupValue
         return myID;
     }
 
+    /**
+     * CTOR
+     */
+    public GroupValue(AggregationID id, double result)
+    {
+        myID = id;
+        myResult = result;
+    }
+
     /** Accumulate the given value to the list of old values */
     public void accumulate(Number value)
+    {
+        accumulate(value.doubleValue());
+    }
+    
+    /** Accumulate the given value to the list of old values */
+    public void accumulate(double value)
     {
         switch (myID) {
         case AVG:
         case SUM:
-            myResult += value.doubleValue();
+            myResult += value;
             break;
         case CNT:
             break;
         case MAX:
-            myResult = Math.max(myResult, value.doubleValue());
+            myResult = Math.max(myResult, value);
             break;
         case MIN:
-            myResult = Math.min(myResult, value.doubleValue());
+            myResult = Math.min(myResult, value);
             break;
         }
     }
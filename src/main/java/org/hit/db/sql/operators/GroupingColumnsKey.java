@@ -22,18 +22,23 @@ package org.hit.db.sql.operators;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Arrays;
 import java.util.SortedSet;
 
 import org.hit.db.model.Row;
 
 /**
+ * Defines the key of a group as the values of the grouping columns of a 
+ * row, so that the rows having same values for those columns fall in the 
+ * same group.
+ * 
  * @author Balraja Subbiah
  */
 public class GroupingColumnsKey implements GroupKey
 {
     private SortedSet<String> myGroupingColumns;
     
-    private Row myWrappedObject;
+    private Object[] myValues;
     
     /**
      * CTOR
@@ -51,7 +56,13 @@ public class GroupingColumnsKey implements GroupKey
     {
         super();
         myGroupingColumns = groupingColumns;
-        myWrappedObject = wrappedObject;
+        if (groupingColumns != null && wrappedObject != null) {
+            myValues = new Object[groupingColumns.size()];
+            int index = 0;
+            for (String column : groupingColumns) {
+                myValues[index++] = wrappedObject.getFieldValue(column);
+            }
+        }
     }
     
     /**
@@ -67,7 +78,14 @@ public class GroupingColumnsKey implements GroupKey
      */
     public Object getValue(String fieldName)
     {
-        return myWrappedObject.getFieldValue(fieldName);
+        int index = 0;
+        for (String column : myGroupingColumns) {
+            if (column.equals(fieldName)) {
+                return myValues[index];
+            }
+            index++;
+        }
+        return null;
     }
 
     /**
@@ -77,7 +95,7 @@ public class GroupingColumnsKey implements GroupKey
     public void writeExternal(ObjectOutput out) throws IOException
     {
         out.writeObject(myGroupingColumns);
-        out.writeObject(myWrappedObject);
+        out.writeObject(myValues);
     }
 
     /**
@@ -89,7 +107,7 @@ public class GroupingColumnsKey implements GroupKey
         throws IOException, ClassNotFoundException
     {
         myGroupingColumns = (SortedSet<String>) in.readObject();
-        myWrappedObject   = (Row) in.readObject();
+        myValues          = (Object[]) in.readObject();
     }
 
     /**
@@ -104,8 +122,7 @@ public class GroupingColumnsKey implements GroupKey
                 * result
                 + ((myGroupingColumns == null) ? 0 : myGroupingColumns
                         .hashCode());
-        result = prime * result
-                + ((myWrappedObject == null) ? 0 : myWrappedObject.hashCode());
+        result = prime * result + Arrays.hashCode(myValues);
         return result;
     }
 
@@ -128,11 +145,7 @@ public class GroupingColumnsKey implements GroupKey
         }
         else if (!myGroupingColumns.equals(other.myGroupingColumns))
             return false;
-        if (myWrappedObject == null) {
-            if (other.myWrappedObject != null)
-                return false;
-        }
-        else if (!myWrappedObject.equals(other.myWrappedObject))
+        if (!Arrays.equals(myValues, other.myValues))
             return false;
         return true;
     }
@@ -0,0 +1,201 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.hit.db.model.Row;
+
+/**
+ * Aggregates the rows of a group by query in a single pass, by hashing 
+ * each row to the {@link AggregationResult} of it's group and accumulating
+ * the row's values into it. When the number of groups exceeds the 
+ * configured limit, the partially aggregated groups are hash partitioned 
+ * to temporary files and the partitions are merged one at a time once 
+ * all the rows are consumed.
+ * 
+ * @author Balraja Subbiah
+ */
+class HashAggregator
+{
+    private final SortedSet<String> myGroupingColumns;
+    
+    private final Map<String, AggregationID> myAggregatingColumns;
+    
+    private final int myMaxGroups;
+    
+    private final int myPartitionCount;
+    
+    private final Map<GroupKey, AggregationResult> myGroups;
+    
+    private List<File> mySpillFiles;
+    
+    private List<ObjectOutputStream> mySpillStreams;
+    
+    /**
+     * CTOR
+     */
+    public HashAggregator(SortedSet<String>          groupingColumns,
+                          Map<String, AggregationID> aggregatingColumns,
+                          AggregationConfig          config)
+    {
+        myGroupingColumns = groupingColumns;
+        myAggregatingColumns = aggregatingColumns;
+        myMaxGroups = Math.max(1, config.getMaxGroupsInMemory());
+        myPartitionCount = Math.max(1, config.getSpillPartitions());
+        myGroups = new HashMap<>();
+        mySpillFiles = null;
+        mySpillStreams = null;
+    }
+    
+    /**
+     * Accumulates the given row into the aggregate of it's group.
+     */
+    public void add(Row row)
+    {
+        GroupKey key = new GroupingColumnsKey(myGroupingColumns, row);
+        AggregationResult group = myGroups.get(key);
+        if (group == null) {
+            if (myGroups.size() >= myMaxGroups) {
+                spill();
+            }
+            group = new AggregationResult(key, myAggregatingColumns);
+            myGroups.put(key, group);
+        }
+        group.accumulate(row);
+    }
+    
+    /**
+     * Returns the aggregates of all the groups seen so far.
+     */
+    public Collection<Row> getResult()
+    {
+        if (mySpillFiles == null) {
+            return new ArrayList<Row>(myGroups.values());
+        }
+        
+        spill();
+        List<Row> result = new ArrayList<>();
+        try {
+            for (ObjectOutputStream stream : mySpillStreams) {
+                stream.writeObject(null);
+                stream.close();
+            }
+            for (File spillFile : mySpillFiles) {
+                result.addAll(mergePartition(spillFile));
+            }
+        }
+        catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        finally {
+            for (File spillFile : mySpillFiles) {
+                spillFile.delete();
+            }
+            mySpillFiles = null;
+            mySpillStreams = null;
+        }
+        return result;
+    }
+    
+    /**
+     * Writes the groups held in memory to the partitions on disk.
+     */
+    private void spill()
+    {
+        try {
+            if (mySpillFiles == null) {
+                mySpillFiles = new ArrayList<>(myPartitionCount);
+                mySpillStreams = new ArrayList<>(myPartitionCount);
+                for (int i = 0; i < myPartitionCount; i++) {
+                    File spillFile = 
+                        File.createTempFile("hitdb-group", ".spill");
+                    spillFile.deleteOnExit();
+                    mySpillFiles.add(spillFile);
+                    mySpillStreams.add(new ObjectOutputStream(
+                        new BufferedOutputStream(
+                            new FileOutputStream(spillFile))));
+                }
+            }
+            for (AggregationResult group : myGroups.values()) {
+                ObjectOutputStream stream = 
+                    mySpillStreams.get(partition(group.getGroupKey()));
+                stream.writeObject(group);
+            }
+            // Reset the streams so that the handles to the spilled groups
+            // are released.
+            for (ObjectOutputStream stream : mySpillStreams) {
+                stream.reset();
+            }
+            myGroups.clear();
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Merges the partial aggregates of the groups spilled to a partition.
+     */
+    private Collection<AggregationResult> mergePartition(File spillFile)
+        throws IOException, ClassNotFoundException
+    {
+        Map<GroupKey, AggregationResult> groups = new HashMap<>();
+        try (ObjectInputStream stream = 
+                 new ObjectInputStream(
+                     new BufferedInputStream(new FileInputStream(spillFile))))
+        {
+            AggregationResult partial = null;
+            while ((partial = (AggregationResult) stream.readObject()) != null)
+            {
+                AggregationResult group = groups.get(partial.getGroupKey());
+                if (group == null) {
+                    groups.put(partial.getGroupKey(), partial);
+                }
+                else {
+                    group.merge(partial);
+                }
+            }
+        }
+        return groups.values();
+    }
+    
+    /**
+     * Returns the partition to which the given group is spilled.
+     */
+    private int partition(GroupKey key)
+    {
+        return (key.hashCode() & Integer.MAX_VALUE) % myPartitionCount;
+    }
+}
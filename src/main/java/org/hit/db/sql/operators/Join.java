@@ -24,137 +24,69 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.hit.db.model.Database;
+import org.hit.db.model.HitTableSchema;
 import org.hit.db.model.Persistable;
+import org.hit.db.model.Predicate;
 import org.hit.db.model.Row;
 import org.hit.db.model.Table;
 import org.hit.util.Pair;
 import org.hit.util.Range;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
-
 /**
  * Defines the contract for <code>QueryOperator</code> that can be used 
- * for supporting the joins.
+ * for supporting the joins. 
+ * <p>
+ * The conditions that refer to a single table are pushed down to the scan
+ * of that table, after which the tables are joined from left to right. 
+ * A table is joined with the tables before it by a hash join on the 
+ * columns compared for equality, building the hash table from the smaller 
+ * side. When both the tables are scanned in the order of primary keys and 
+ * are joined on their primary keys, they are merged instead. The tables 
+ * that aren't compared for equality with the tables before them are 
+ * joined by a cross product.
  * 
  * @author Balraja Subbiah
  */
 public class Join implements QueryOperator
 {
     /**
-     * Defines an iterator that generates the cross product of 
-     * objects stored in multiple tables.
+     * Defines the contract for a predicate that evaluates the condition
+     * on a row of the given table.
      */
-    private static class MultiTableIterator implements Iterator<Row>
+    private static class TablePredicate implements Predicate
     {
-        private final List<String> myTables;
-        
-        private final List<List<Row>> myTableData;
-        
-        private final int[] mySizeArray;
-        
-        private int[] myIndex;
+        private final String myTableName;
         
-        private boolean myHasData;
+        private final Condition myCondition;
 
         /**
          * CTOR
          */
-        public MultiTableIterator(List<String> tables, Database database)
-        {
-            myTables = tables;
-            myTableData = new ArrayList<>();
-            for (String tableName : myTables) {
-                Table<? extends Comparable<?>,? extends Persistable<?>> table = 
-                      database.lookUpTable(tableName);
-                myTableData.add(
-                    new ArrayList<>(
-                        Collections2.transform(
-                          table.findMatching(
-                               MatchAllPredicate.INSTANCE),
-                          new Function<Persistable<?>, Row>() 
-                          {
-                              public Row apply(Persistable<?> persistable) {
-                                  return (Row) persistable;
-                              }
-                          })));
-            }
-            myIndex = new int[myTables.size()];
-            Arrays.fill(myIndex, 0);
-            
-            mySizeArray = new int[myTables.size()];
-            for (int i = 0; i < myTables.size(); i++) {
-                mySizeArray[i] = myTableData.get(i).size();
-            }
-            myHasData = true;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean hasNext()
-        {
-            return myHasData;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public Row next()
-        {
-            Map<String, Row> tableQueryableMap = new HashMap<>();
-            for (int tableIndex = 0; tableIndex < myTables.size(); tableIndex++)
-            {
-                tableQueryableMap.put(myTables.get(tableIndex),
-                                      myTableData.get(tableIndex)
-                                                 .get(myIndex[tableIndex]));
-            }
-            
-            myHasData = incrIndex();
-            return new TableIndexedRow(tableQueryableMap);
-        }
-        
-        private boolean incrIndex()
+        public TablePredicate(String tableName, Condition condition)
         {
-            int indexToIncrement = -1;
-            for (int tableIndex = (myIndex.length - 1); 
-                 tableIndex >= 0; 
-                 tableIndex--)
-            {
-                if (myIndex[tableIndex] < (mySizeArray[tableIndex] - 1)) {
-                    indexToIncrement = tableIndex;
-                    break;
-                }
-            }
-            if (indexToIncrement > -1) {
-                myIndex[indexToIncrement]++;
-                for (int i = (indexToIncrement + 1); 
-                     i < myIndex.length;
-                     i++)
-                {
-                    myIndex[i] = 0;
-                }
-                return true;
-            }
-            return false;
+            myTableName = tableName;
+            myCondition = condition;
         }
 
         /**
          * {@inheritDoc}
          */
         @Override
-        public void remove()
+        public boolean isInterested(Row row)
         {
+            return myCondition == null
+                   || myCondition.isValid(new TableIndexedRow(
+                          Collections.singletonMap(myTableName, row)));
         }
     }
     
@@ -168,6 +100,7 @@ public class Join implements QueryOperator
     public Join()
     {
         myJoinCondition = null;
+        myFilter = null;
     }
     
     /**
@@ -181,26 +114,538 @@ public class Join implements QueryOperator
         
     }
 
+    /**
+     * Returns the names of the tables being joined.
+     */
+    public List<String> getJoinedTables()
+    {
+        return myJoinCondition.getFirst();
+    }
+    
+    /**
+     * Returns the rows of the tables being joined that satisfy the 
+     * conditions referring only to those tables, indexed by the table 
+     * names. The tables that aren't present in the database are skipped.
+     */
+    public Map<String, List<Row>> scanTables(Database database)
+    {
+        List<Condition> conditions = getConjuncts();
+        Map<String, List<Row>> tableToRowsMap = new LinkedHashMap<>();
+        for (String tableName : myJoinCondition.getFirst()) {
+            Table<? extends Comparable<?>,? extends Persistable<?>> table = 
+                database.lookUpTable(tableName);
+            if (table == null) {
+                continue;
+            }
+            
+            Condition localCondition = 
+                and(localConditions(tableName, conditions));
+            List<Row> rows = new ArrayList<>();
+            for (Persistable<?> persistable : 
+                    Where.scan(table, 
+                               new TablePredicate(tableName, localCondition), 
+                               localCondition, 
+                               tableName))
+            {
+                rows.add((Row) persistable);
+            }
+            tableToRowsMap.put(tableName, rows);
+        }
+        return tableToRowsMap;
+    }
+    
+    /**
+     * Returns the columns of the given tables that are all compared for
+     * equality with each other, indexed by the table names. The rows 
+     * that join with each other agree on the values of these columns, 
+     * hence the tables can be partitioned on them. Returns null when 
+     * there is no such set of columns.
+     */
+    public Map<String, String[]> getJoinColumns(Collection<String> tables)
+    {
+        Map<String, List<String[]>> adjacentColumns = new HashMap<>();
+        for (Condition condition : getConjuncts()) {
+            if (!(condition instanceof ColumnComparison)) {
+                continue;
+            }
+            ColumnComparison comparison = (ColumnComparison) condition;
+            if (   comparison.getOperator() != ComparisionOperator.EQ
+                || comparison.getColumnNames1().length != 2
+                || comparison.getColumnNames2().length != 2)
+            {
+                continue;
+            }
+            addAdjacent(adjacentColumns, 
+                        comparison.getColumnNames1(), 
+                        comparison.getColumnNames2());
+            addAdjacent(adjacentColumns, 
+                        comparison.getColumnNames2(), 
+                        comparison.getColumnNames1());
+        }
+        
+        Set<String> visited = new HashSet<>();
+        for (List<String[]> columns : adjacentColumns.values()) {
+            String[] start = columns.get(0);
+            if (!visited.add(columnKey(start))) {
+                continue;
+            }
+            
+            // Collect the columns that are transitively equal to the 
+            // start column.
+            Map<String, String[]> tableToColumnMap = new HashMap<>();
+            List<String[]> pending = new ArrayList<>();
+            pending.add(start);
+            while (!pending.isEmpty()) {
+                String[] column = pending.remove(pending.size() - 1);
+                if (!tableToColumnMap.containsKey(column[0])) {
+                    tableToColumnMap.put(column[0], column);
+                }
+                for (String[] adjacent : 
+                        adjacentColumns.get(columnKey(column)))
+                {
+                    if (visited.add(columnKey(adjacent))) {
+                        pending.add(adjacent);
+                    }
+                }
+            }
+            if (tableToColumnMap.keySet().containsAll(tables)) {
+                tableToColumnMap.keySet().retainAll(tables);
+                return tableToColumnMap;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Returns the value of the given column of a row of the table that 
+     * qualifies the column, in the form in which it's compared while 
+     * joining the tables.
+     */
+    public static Object getJoinValue(Row row, String[] columnNames)
+    {
+        return normalize(ColumnNameUtil.getValue(
+            new TableIndexedRow(Collections.singletonMap(columnNames[0], row)),
+            columnNames));
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Collection<Row> getResult(Database database)
     {
-        Iterator<Row> itr = 
-            new MultiTableIterator(myJoinCondition.getFirst(),
-                                   database);
-        List<Row> result = new ArrayList<>();
-        while (itr.hasNext()) {
-            Row row = itr.next();
-            if (   myJoinCondition.getSecond().isValid(row)
-                && (myFilter == null || myFilter.isValid(row))) 
+        List<String> tables = myJoinCondition.getFirst();
+        List<Condition> conditions = getConjuncts();
+        Map<String, List<Row>> tableToRowsMap = scanTables(database);
+        if (tableToRowsMap.size() != tables.size()) {
+            return Collections.emptyList();
+        }
+        
+        List<Condition> residue = new ArrayList<>(conditions);
+        List<Map<String, Row>> result = null;
+        Set<String> joinedTables = new HashSet<>();
+        for (String tableName : tables) {
+            residue.removeAll(localConditions(tableName, conditions));
+            List<Row> rows = tableToRowsMap.get(tableName);
+            if (result == null) {
+                result = new ArrayList<>();
+                for (Row row : rows) {
+                    result.add(Collections.singletonMap(tableName, row));
+                }
+            }
+            else {
+                List<ColumnComparison> equiJoins = new ArrayList<>();
+                for (Condition condition : residue) {
+                    if (isEquiJoin(condition, joinedTables, tableName)) {
+                        equiJoins.add((ColumnComparison) condition);
+                    }
+                }
+                
+                if (equiJoins.isEmpty()) {
+                    result = crossProduct(result, tableName, rows);
+                }
+                else {
+                    ColumnComparison mergeable = 
+                        joinedTables.size() == 1 ? 
+                            findMergeable(database, equiJoins, result, rows)
+                            : null;
+                    if (mergeable != null) {
+                        result = mergeJoin(result, tableName, rows);
+                        residue.remove(mergeable);
+                    }
+                    else {
+                        result = hashJoin(result, tableName, rows, equiJoins);
+                        residue.removeAll(equiJoins);
+                    }
+                }
+            }
+            joinedTables.add(tableName);
+            if (result.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        
+        Condition residualCondition = and(residue);
+        List<Row> joinedRows = new ArrayList<>(result.size());
+        for (Map<String, Row> tableToRowMap : result) {
+            Row row = new TableIndexedRow(tableToRowMap);
+            if (residualCondition == null || residualCondition.isValid(row)) {
+                joinedRows.add(row);
+            }
+        }
+        return joinedRows;
+    }
+    
+    /**
+     * Returns the conditions of the join and the filter that should hold
+     * together for a joined row to be selected.
+     */
+    private List<Condition> getConjuncts()
+    {
+        List<Condition> conditions = new ArrayList<>();
+        addConjuncts(myJoinCondition.getSecond(), conditions);
+        addConjuncts(myFilter, conditions);
+        return conditions;
+    }
+    
+    /** Returns the conditions that only refer to the given table */
+    private static List<Condition> localConditions(String          tableName,
+                                                   List<Condition> conditions)
+    {
+        List<Condition> localConditions = new ArrayList<>();
+        for (Condition condition : conditions) {
+            if (condition.isLocalTo(tableName)) {
+                localConditions.add(condition);
+            }
+        }
+        return localConditions;
+    }
+    
+    /** Records the second column as being equal to the first one */
+    private static void addAdjacent(Map<String, List<String[]>> adjacentColumns,
+                                    String[]                    column,
+                                    String[]                    adjacent)
+    {
+        List<String[]> columns = adjacentColumns.get(columnKey(column));
+        if (columns == null) {
+            columns = new ArrayList<>();
+            columns.add(column);
+            adjacentColumns.put(columnKey(column), columns);
+        }
+        columns.add(adjacent);
+    }
+    
+    private static String columnKey(String[] columnNames)
+    {
+        return columnNames[0] + "." + columnNames[1];
+    }
+    
+    /**
+     * Adds the conditions that should hold together for the given
+     * condition to hold.
+     */
+    private static void addConjuncts(Condition       condition, 
+                                     List<Condition> conjuncts)
+    {
+        if (condition instanceof ConjugateCondition) {
+            List<Condition> children = 
+                ((ConjugateCondition) condition).getConjuncts();
+            if (children.size() == 1 && children.get(0) == condition) {
+                conjuncts.add(condition);
+            }
+            else {
+                for (Condition child : children) {
+                    addConjuncts(child, conjuncts);
+                }
+            }
+        }
+        else if (condition != null) {
+            conjuncts.add(condition);
+        }
+    }
+    
+    /** Returns a condition that holds when all the conditions hold */
+    private static Condition and(List<Condition> conditions)
+    {
+        if (conditions.isEmpty()) {
+            return null;
+        }
+        else if (conditions.size() == 1) {
+            return conditions.get(0);
+        }
+        else {
+            return new ConjugateCondition(
+                ConjugateCondition.Conjunctive.AND, 
+                new ArrayList<>(conditions));
+        }
+    }
+    
+    /**
+     * Returns true if the condition compares a column of the given table 
+     * for equality with a column of the tables that are already joined.
+     */
+    private static boolean isEquiJoin(Condition   condition, 
+                                      Set<String> joinedTables,
+                                      String      tableName)
+    {
+        if (!(condition instanceof ColumnComparison)) {
+            return false;
+        }
+        ColumnComparison comparison = (ColumnComparison) condition;
+        if (comparison.getOperator() != ComparisionOperator.EQ) {
+            return false;
+        }
+        String[] columnNames1 = comparison.getColumnNames1();
+        String[] columnNames2 = comparison.getColumnNames2();
+        if (columnNames1.length < 2 || columnNames2.length < 2) {
+            return false;
+        }
+        return    (   columnNames1[0].equals(tableName)
+                   && joinedTables.contains(columnNames2[0]))
+               || (   columnNames2[0].equals(tableName)
+                   && joinedTables.contains(columnNames1[0]));
+    }
+    
+    /**
+     * Returns the condition that compares the primary keys of the two 
+     * tables being joined, when their rows are ordered by the 
+     * primary keys. Scans over the tables return the rows in the order of 
+     * their keys, hence such tables can be merged without sorting.
+     */
+    private static ColumnComparison findMergeable(
+        Database               database,
+        List<ColumnComparison> equiJoins,
+        List<Map<String, Row>> left,
+        List<Row>              right)
+    {
+        for (ColumnComparison comparison : equiJoins) {
+            String[] columnNames1 = comparison.getColumnNames1();
+            String[] columnNames2 = comparison.getColumnNames2();
+            if (   columnNames1.length == 2
+                && columnNames2.length == 2
+                && isPrimaryKey(database, columnNames1)
+                && isPrimaryKey(database, columnNames2)
+                && database.lookUpTable(columnNames1[0]).getSchema()
+                           .getKeyClass()
+                           .equals(database.lookUpTable(columnNames2[0])
+                                           .getSchema()
+                                           .getKeyClass()))
             {
-                result.add(row);
+                List<Row> leftRows = new ArrayList<>(left.size());
+                for (Map<String, Row> tableToRowMap : left) {
+                    leftRows.add(tableToRowMap.values().iterator().next());
+                }
+                if (isOrdered(leftRows) && isOrdered(right)) {
+                    return comparison;
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    /** 
+     * Returns true if the column is the only column of the primary key of
+     * the table.
+     */
+    private static boolean isPrimaryKey(Database database, 
+                                        String[] columnNames)
+    {
+        Table<? extends Comparable<?>, ? extends Persistable<?>> table =
+            database.lookUpTable(columnNames[0]);
+        HitTableSchema schema = table != null ? table.getSchema() : null;
+        return    schema != null
+               && schema.getPrimaryKey() != null
+               && schema.getPrimaryKey().size() == 1
+               && schema.getPrimaryKey().get(0).equals(columnNames[1]);
+    }
+    
+    /** Returns true if the rows are ordered by their primary keys */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static boolean isOrdered(List<Row> rows)
+    {
+        Comparable previous = null;
+        for (Row row : rows) {
+            Comparable key = ((Persistable<?>) row).primaryKey();
+            if (previous != null && previous.compareTo(key) >= 0) {
+                return false;
+            }
+            previous = key;
+        }
+        return true;
+    }
+    
+    /** 
+     * Merges the rows of the two tables ordered by primary keys, on their 
+     * primary keys.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static List<Map<String, Row>> mergeJoin(
+        List<Map<String, Row>> left,
+        String                 tableName,
+        List<Row>              right)
+    {
+        List<Map<String, Row>> result = new ArrayList<>();
+        int leftIndex = 0;
+        int rightIndex = 0;
+        while (leftIndex < left.size() && rightIndex < right.size()) {
+            Map<String, Row> tableToRowMap = left.get(leftIndex);
+            Comparable leftKey = 
+                ((Persistable<?>) tableToRowMap.values().iterator().next())
+                    .primaryKey();
+            Comparable rightKey = 
+                ((Persistable<?>) right.get(rightIndex)).primaryKey();
+            int comparison = leftKey.compareTo(rightKey);
+            if (comparison < 0) {
+                leftIndex++;
+            }
+            else if (comparison > 0) {
+                rightIndex++;
+            }
+            else {
+                result.add(merge(tableToRowMap, 
+                                 tableName, 
+                                 right.get(rightIndex)));
+                leftIndex++;
+                rightIndex++;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Joins the rows of the table with the joined rows, on the columns 
+     * compared for equality. The hash table is built from the smaller of 
+     * the inputs and probed with the other.
+     */
+    private static List<Map<String, Row>> hashJoin(
+        List<Map<String, Row>> left,
+        String                 tableName,
+        List<Row>              right,
+        List<ColumnComparison> equiJoins)
+    {
+        List<String[]> leftColumns = new ArrayList<>();
+        List<String[]> rightColumns = new ArrayList<>();
+        for (ColumnComparison comparison : equiJoins) {
+            if (comparison.getColumnNames1()[0].equals(tableName)) {
+                rightColumns.add(comparison.getColumnNames1());
+                leftColumns.add(comparison.getColumnNames2());
+            }
+            else {
+                leftColumns.add(comparison.getColumnNames1());
+                rightColumns.add(comparison.getColumnNames2());
+            }
+        }
+        
+        List<Map<String, Row>> result = new ArrayList<>();
+        if (left.size() <= right.size()) {
+            Map<List<Object>, List<Map<String, Row>>> hashTable = 
+                new HashMap<>();
+            for (Map<String, Row> tableToRowMap : left) {
+                List<Object> key = 
+                    joinKey(new TableIndexedRow(tableToRowMap), leftColumns);
+                if (key != null) {
+                    List<Map<String, Row>> bucket = hashTable.get(key);
+                    if (bucket == null) {
+                        bucket = new ArrayList<>(1);
+                        hashTable.put(key, bucket);
+                    }
+                    bucket.add(tableToRowMap);
+                }
+            }
+            for (Row row : right) {
+                List<Object> key = 
+                    joinKey(new TableIndexedRow(
+                                Collections.singletonMap(tableName, row)),
+                            rightColumns);
+                List<Map<String, Row>> bucket = 
+                    key != null ? hashTable.get(key) : null;
+                if (bucket != null) {
+                    for (Map<String, Row> tableToRowMap : bucket) {
+                        result.add(merge(tableToRowMap, tableName, row));
+                    }
+                }
+            }
+        }
+        else {
+            Map<List<Object>, List<Row>> hashTable = new HashMap<>();
+            for (Row row : right) {
+                List<Object> key = 
+                    joinKey(new TableIndexedRow(
+                                Collections.singletonMap(tableName, row)),
+                            rightColumns);
+                if (key != null) {
+                    List<Row> bucket = hashTable.get(key);
+                    if (bucket == null) {
+                        bucket = new ArrayList<>(1);
+                        hashTable.put(key, bucket);
+                    }
+                    bucket.add(row);
+                }
+            }
+            for (Map<String, Row> tableToRowMap : left) {
+                List<Object> key = 
+                    joinKey(new TableIndexedRow(tableToRowMap), leftColumns);
+                List<Row> bucket = key != null ? hashTable.get(key) : null;
+                if (bucket != null) {
+                    for (Row row : bucket) {
+                        result.add(merge(tableToRowMap, tableName, row));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the values of the given columns, with numbers widened to 
+     * doubles so that they hash alike as they compare alike. Returns null
+     * when any of the values is null, since nulls never compare equal.
+     */
+    private static List<Object> joinKey(Row row, List<String[]> columns)
+    {
+        List<Object> key = new ArrayList<>(columns.size());
+        for (String[] columnNames : columns) {
+            Object value = ColumnNameUtil.getValue(row, columnNames);
+            if (value == null) {
+                return null;
+            }
+            key.add(normalize(value));
+        }
+        return key;
+    }
+    
+    private static Object normalize(Object value)
+    {
+        return value instanceof Number ? 
+            Double.valueOf(((Number) value).doubleValue()) : value;
+    }
+    
+    /** Returns the cross product of the joined rows with the table's rows */
+    private static List<Map<String, Row>> crossProduct(
+        List<Map<String, Row>> left,
+        String                 tableName,
+        List<Row>              right)
+    {
+        List<Map<String, Row>> result = 
+            new ArrayList<>(left.size() * right.size());
+        for (Map<String, Row> tableToRowMap : left) {
+            for (Row row : right) {
+                result.add(merge(tableToRowMap, tableName, row));
             }
         }
         return result;
     }
+    
+    /** Returns the joined rows extended by the row of the given table */
+    private static Map<String, Row> merge(Map<String, Row> tableToRowMap,
+                                          String           tableName,
+                                          Row              row)
+    {
+        Map<String, Row> merged = new HashMap<>(tableToRowMap);
+        merged.put(tableName, row);
+        return merged;
+    }
 
     /**
      * {@inheritDoc}
@@ -208,7 +653,11 @@ public class Join implements QueryOperator
     @Override
     public void writeExternal(ObjectOutput out) throws IOException
     {
-        out.writeObject(myJoinCondition);        
+        out.writeObject(myJoinCondition);
+        out.writeBoolean(myFilter != null);
+        if (myFilter != null) {
+            out.writeObject(myFilter);
+        }
     }
 
     /**
@@ -220,6 +669,13 @@ public class Join implements QueryOperator
         throws IOException, ClassNotFoundException
     {
         myJoinCondition = (Pair<List<String>, Condition>) in.readObject();
+        boolean isFilterAvailable = in.readBoolean();
+        if (isFilterAvailable) {
+            myFilter = (Condition) in.readObject();
+        }
+        else {
+            myFilter = null;
+        }
     }
 
     /**
@@ -230,6 +686,24 @@ public class Join implements QueryOperator
     {
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getScannedTable()
+    {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KeyBounds getKeyBounds(String columnName)
+    {
+        return KeyBounds.UNBOUNDED;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -240,6 +714,6 @@ public class Join implements QueryOperator
             new Pair<List<String>, Condition>(
                 new ArrayList<>(myJoinCondition.getFirst()),
                 myJoinCondition.getSecond().cloneCondition()), 
-            myFilter.cloneCondition());
+            myFilter != null ? myFilter.cloneCondition() : null);
     }
 }
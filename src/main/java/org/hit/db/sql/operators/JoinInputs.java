@@ -0,0 +1,109 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+import java.util.Map;
+
+import org.hit.db.model.Database;
+import org.hit.db.model.Persistable;
+import org.hit.db.model.Query;
+import org.hit.db.model.Row;
+
+/**
+ * Defines the <code>Query</code> that reads the rows of the tables of a
+ * {@link Join} held by a node, after filtering them with the conditions 
+ * that refer to a single table. The rows are returned as a 
+ * {@link MaterializedDatabase} so that they can be exchanged with the 
+ * other nodes before being joined.
+ * 
+ * @author Balraja Subbiah
+ */
+public class JoinInputs implements Query
+{
+    private Join myJoin;
+    
+    /**
+     * CTOR
+     */
+    public JoinInputs()
+    {
+        myJoin = null;
+    }
+    
+    /**
+     * CTOR
+     */
+    public JoinInputs(Join join)
+    {
+        myJoin = join;
+    }
+    
+    /**
+     * Returns the {@link Join} whose inputs are read
+     */
+    public Join getJoin()
+    {
+        return myJoin;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object query(Database database)
+    {
+        MaterializedDatabase inputs = new MaterializedDatabase();
+        for (Map.Entry<String, List<Row>> entry : 
+                myJoin.scanTables(database).entrySet())
+        {
+            inputs.createTable(
+                database.lookUpTable(entry.getKey()).getSchema());
+            inputs.addRows(
+                entry.getKey(), 
+                (List<? extends Persistable<?>>) (List<?>) entry.getValue());
+        }
+        return inputs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeObject(myJoin);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        myJoin = (Join) in.readObject();
+    }
+}
@@ -0,0 +1,333 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import org.hit.util.Range;
+
+/**
+ * Defines the bounds imposed by a {@link Condition} on the numeric values 
+ * of a column. The bounds are conservative, that is every row satisfying 
+ * the condition lies within the bounds, but not vice versa.
+ * 
+ * @author Balraja Subbiah
+ */
+public class KeyBounds
+{
+    /** The bounds of a condition that doesn't restrict the column */
+    public static final KeyBounds UNBOUNDED = 
+        new KeyBounds(Double.NEGATIVE_INFINITY, 
+                      true, 
+                      Double.POSITIVE_INFINITY, 
+                      true);
+    
+    private final double myLowerBound;
+    
+    private final boolean myIsLowerInclusive;
+    
+    private final double myUpperBound;
+    
+    private final boolean myIsUpperInclusive;
+
+    /**
+     * CTOR
+     */
+    public KeyBounds(double  lowerBound,
+                     boolean isLowerInclusive,
+                     double  upperBound,
+                     boolean isUpperInclusive)
+    {
+        super();
+        myLowerBound = lowerBound;
+        myIsLowerInclusive = isLowerInclusive;
+        myUpperBound = upperBound;
+        myIsUpperInclusive = isUpperInclusive;
+    }
+    
+    /**
+     * Returns the bounds imposed by comparing the column with the given 
+     * value.
+     */
+    public static KeyBounds of(ComparisionOperator operator, double value)
+    {
+        switch (operator) {
+        case EQ:
+            return new KeyBounds(value, true, value, true);
+        case LT:
+            return new KeyBounds(Double.NEGATIVE_INFINITY, true, value, false);
+        case LE:
+            return new KeyBounds(Double.NEGATIVE_INFINITY, true, value, true);
+        case GT:
+            return new KeyBounds(value, false, Double.POSITIVE_INFINITY, true);
+        case GE:
+            return new KeyBounds(value, true, Double.POSITIVE_INFINITY, true);
+        default:
+            return UNBOUNDED;
+        }
+    }
+
+    /**
+     * Returns the value of lowerBound
+     */
+    public double getLowerBound()
+    {
+        return myLowerBound;
+    }
+
+    /**
+     * Returns the value of upperBound
+     */
+    public double getUpperBound()
+    {
+        return myUpperBound;
+    }
+    
+    /**
+     * Returns true if the column isn't restricted by the bounds.
+     */
+    public boolean isUnbounded()
+    {
+        return    myLowerBound == Double.NEGATIVE_INFINITY 
+               && myUpperBound == Double.POSITIVE_INFINITY;
+    }
+    
+    /**
+     * Returns true if no value lies within the bounds.
+     */
+    public boolean isEmpty()
+    {
+        return    myLowerBound > myUpperBound
+               || (   myLowerBound == myUpperBound 
+                   && !(myIsLowerInclusive && myIsUpperInclusive));
+    }
+    
+    /**
+     * Returns true if only a single value lies within the bounds.
+     */
+    public boolean isPoint()
+    {
+        return myLowerBound == myUpperBound && !isEmpty();
+    }
+    
+    /**
+     * Returns the bounds within which the values satisfying both the 
+     * conditions lie.
+     */
+    public KeyBounds intersect(KeyBounds other)
+    {
+        boolean isLowerInclusive = 
+            myLowerBound == other.myLowerBound ? 
+                myIsLowerInclusive && other.myIsLowerInclusive
+                : myLowerBound > other.myLowerBound ? myIsLowerInclusive 
+                                                    : other.myIsLowerInclusive;
+        boolean isUpperInclusive = 
+            myUpperBound == other.myUpperBound ? 
+                myIsUpperInclusive && other.myIsUpperInclusive
+                : myUpperBound < other.myUpperBound ? myIsUpperInclusive 
+                                                    : other.myIsUpperInclusive;
+        return new KeyBounds(Math.max(myLowerBound, other.myLowerBound),
+                             isLowerInclusive,
+                             Math.min(myUpperBound, other.myUpperBound),
+                             isUpperInclusive);
+    }
+    
+    /**
+     * Returns the bounds within which the values satisfying either of the
+     * conditions lie.
+     */
+    public KeyBounds span(KeyBounds other)
+    {
+        if (isEmpty()) {
+            return other;
+        }
+        else if (other.isEmpty()) {
+            return this;
+        }
+        boolean isLowerInclusive = 
+            myLowerBound == other.myLowerBound ? 
+                myIsLowerInclusive || other.myIsLowerInclusive
+                : myLowerBound < other.myLowerBound ? myIsLowerInclusive 
+                                                    : other.myIsLowerInclusive;
+        boolean isUpperInclusive = 
+            myUpperBound == other.myUpperBound ? 
+                myIsUpperInclusive || other.myIsUpperInclusive
+                : myUpperBound > other.myUpperBound ? myIsUpperInclusive 
+                                                    : other.myIsUpperInclusive;
+        return new KeyBounds(Math.min(myLowerBound, other.myLowerBound),
+                             isLowerInclusive,
+                             Math.max(myUpperBound, other.myUpperBound),
+                             isUpperInclusive);
+    }
+    
+    /**
+     * Returns the range of keys of the given type that lie within the 
+     * bounds, clipped to the given minimum and maximum keys. Returns null
+     * if the keys aren't numeric or if no key lies within the bounds.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public <K extends Comparable<K>> Range<K> toRange(Class<?> keyClass,
+                                                      K        minimum,
+                                                      K        maximum)
+    {
+        if (isEmpty()) {
+            return null;
+        }
+        
+        if (   keyClass == Double.class 
+            || keyClass == Float.class)
+        {
+            Comparable lower = 
+                myLowerBound == Double.NEGATIVE_INFINITY ? 
+                    minimum : toKey(keyClass, myLowerBound);
+            Comparable upper = 
+                myUpperBound == Double.POSITIVE_INFINITY ? 
+                    maximum : toKey(keyClass, myUpperBound);
+            return lower.compareTo(upper) <= 0 ? new Range<K>((K) lower, 
+                                                              (K) upper)
+                                               : null;
+        }
+        else if (   keyClass == Long.class
+                 || keyClass == Integer.class
+                 || keyClass == Short.class
+                 || keyClass == Byte.class)
+        {
+            long minimumValue = ((Number) minimum).longValue();
+            long maximumValue = ((Number) maximum).longValue();
+            long lower = 
+                myLowerBound == Double.NEGATIVE_INFINITY ? 
+                    minimumValue
+                    : (long) (myIsLowerInclusive ? Math.ceil(myLowerBound)
+                                                 : Math.floor(myLowerBound) + 1);
+            long upper = 
+                myUpperBound == Double.POSITIVE_INFINITY ? 
+                    maximumValue
+                    : (long) (myIsUpperInclusive ? Math.floor(myUpperBound)
+                                                 : Math.ceil(myUpperBound) - 1);
+            lower = Math.max(lower, minimumValue);
+            upper = Math.min(upper, maximumValue);
+            return lower <= upper ? 
+                new Range<K>((K) toIntegralKey(keyClass, lower), 
+                             (K) toIntegralKey(keyClass, upper))
+                : null;
+        }
+        return null;
+    }
+    
+    /**
+     * Returns the range of keys of the given type that lie within the 
+     * bounds, wherein the unbounded ends are set to the extremes of the 
+     * type. Returns null if the keys aren't numeric or if no key lies 
+     * within the bounds.
+     */
+    @SuppressWarnings("unchecked")
+    public <K extends Comparable<K>> Range<K> toRange(Class<?> keyClass)
+    {
+        Comparable<?> minimum = null, maximum = null;
+        if (keyClass == Double.class) {
+            minimum = Double.valueOf(Double.NEGATIVE_INFINITY);
+            maximum = Double.valueOf(Double.POSITIVE_INFINITY);
+        }
+        else if (keyClass == Float.class) {
+            minimum = Float.valueOf(Float.NEGATIVE_INFINITY);
+            maximum = Float.valueOf(Float.POSITIVE_INFINITY);
+        }
+        else if (keyClass == Long.class) {
+            minimum = Long.valueOf(Long.MIN_VALUE);
+            maximum = Long.valueOf(Long.MAX_VALUE);
+        }
+        else if (keyClass == Integer.class) {
+            minimum = Integer.valueOf(Integer.MIN_VALUE);
+            maximum = Integer.valueOf(Integer.MAX_VALUE);
+        }
+        else if (keyClass == Short.class) {
+            minimum = Short.valueOf(Short.MIN_VALUE);
+            maximum = Short.valueOf(Short.MAX_VALUE);
+        }
+        else if (keyClass == Byte.class) {
+            minimum = Byte.valueOf(Byte.MIN_VALUE);
+            maximum = Byte.valueOf(Byte.MAX_VALUE);
+        }
+        return minimum != null ? toRange(keyClass, (K) minimum, (K) maximum)
+                               : null;
+    }
+    
+    /**
+     * Returns the only key of the given type that lies within the bounds,
+     * null if the bounds aren't a point or the key isn't numeric.
+     */
+    public Comparable<?> toPoint(Class<?> keyClass)
+    {
+        if (!isPoint()) {
+            return null;
+        }
+        else if (keyClass == Double.class || keyClass == Float.class) {
+            return toKey(keyClass, myLowerBound);
+        }
+        else if (   (   keyClass == Long.class
+                     || keyClass == Integer.class
+                     || keyClass == Short.class
+                     || keyClass == Byte.class)
+                 && myLowerBound == Math.rint(myLowerBound))
+        {
+            return toIntegralKey(keyClass, (long) myLowerBound);
+        }
+        return null;
+    }
+    
+    /**
+     * A helper method to convert the given value to a key of the given 
+     * type.
+     */
+    private static Comparable<?> toKey(Class<?> keyClass, double value)
+    {
+        return keyClass == Double.class ? Double.valueOf(value)
+                                        : Float.valueOf((float) value);
+    }
+    
+    /**
+     * A helper method to convert the given value to an integral key of the
+     * given type.
+     */
+    private static Comparable<?> toIntegralKey(Class<?> keyClass, long value)
+    {
+        if (keyClass == Long.class) {
+            return Long.valueOf(value);
+        }
+        else if (keyClass == Integer.class) {
+            return Integer.valueOf((int) value);
+        }
+        else if (keyClass == Short.class) {
+            return Short.valueOf((short) value);
+        }
+        else {
+            return Byte.valueOf((byte) value);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return (myIsLowerInclusive ? "[" : "(") + myLowerBound + ", " 
+               + myUpperBound + (myIsUpperInclusive ? "]" : ")");
+    }
+}
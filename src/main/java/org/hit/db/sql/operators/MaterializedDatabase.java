@@ -0,0 +1,95 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hit.db.model.Database;
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.model.Persistable;
+import org.hit.db.model.Table;
+
+/**
+ * Defines a <code>Database</code> made of {@link MaterializedTable}s, on 
+ * which a query can be executed once the rows it needs have been 
+ * gathered from the other nodes.
+ * 
+ * @author Balraja Subbiah
+ */
+public class MaterializedDatabase implements Database
+{
+    private final Map<String, MaterializedTable<?, ?>> myNameToTableMap;
+    
+    /**
+     * CTOR
+     */
+    public MaterializedDatabase()
+    {
+        myNameToTableMap = new HashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createTable(HitTableSchema schema)
+    {
+        if (!myNameToTableMap.containsKey(schema.getTableName())) {
+            myNameToTableMap.put(schema.getTableName(), 
+                                 new MaterializedTable<>(schema));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K extends Comparable<K>, P extends Persistable<K>> Table<K, P>
+        lookUpTable(String tableName)
+    {
+        return (Table<K, P>) myNameToTableMap.get(tableName);
+    }
+    
+    /**
+     * Adds the rows to the given table, which should have been created
+     * already.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void addRows(String                            tableName, 
+                        Collection<? extends Persistable<?>> rows)
+    {
+        MaterializedTable table = myNameToTableMap.get(tableName);
+        for (Persistable<?> row : rows) {
+            table.addRow(row);
+        }
+    }
+    
+    /**
+     * Returns the tables of the database.
+     */
+    public Collection<MaterializedTable<?, ?>> getTables()
+    {
+        return myNameToTableMap.values();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.model.Persistable;
+import org.hit.db.model.Predicate;
+import org.hit.db.model.Table;
+
+/**
+ * Defines a read only <code>Table</code> that holds the rows gathered 
+ * for executing a query in memory, in the order of their keys.
+ * 
+ * @author Balraja Subbiah
+ */
+public class MaterializedTable<K extends Comparable<K>, P extends Persistable<K>>
+    implements Table<K, P>
+{
+    private final HitTableSchema mySchema;
+    
+    private final TreeMap<K, P> myRows;
+
+    /**
+     * CTOR
+     */
+    public MaterializedTable(HitTableSchema schema)
+    {
+        mySchema = schema;
+        myRows = new TreeMap<>();
+    }
+    
+    /**
+     * Adds the given row to the table.
+     */
+    public void addRow(P row)
+    {
+        myRows.put(row.primaryKey(), row);
+    }
+    
+    /**
+     * Returns all the rows of the table.
+     */
+    public Collection<P> getRows()
+    {
+        return myRows.values();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<P> findMatching(Predicate predicate)
+    {
+        return filter(myRows.values(), predicate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<P> findMatching(Predicate predicate, K start, K end)
+    {
+        return filter(myRows.subMap(start, true, end, true).values(), 
+                      predicate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<P> findMatching(Predicate predicate, 
+                                      K         resumeKey, 
+                                      int       limit)
+    {
+        List<P> result = new ArrayList<>();
+        for (P row : resumeKey == null ? myRows.values() 
+                         : myRows.tailMap(resumeKey, false).values())
+        {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (predicate.isInterested(row)) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public P getRow(K primarykey)
+    {
+        return myRows.get(primarykey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public P deleteRow(K primaryKey)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<P> deleteRange(K first, K last)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<P> deleteRange(Object primaryKey, Object secondaryKey)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<P> deleteRange(Object primaryKey, 
+                                     Object secondaryKey,
+                                     int    limit)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HitTableSchema getSchema()
+    {
+        return mySchema;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean update(P updated)
+    {
+        throw new UnsupportedOperationException();
+    }
+    
+    private List<P> filter(Collection<P> rows, Predicate predicate)
+    {
+        List<P> result = new ArrayList<>();
+        for (P row : rows) {
+            if (predicate.isInterested(row)) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+}
@@ -23,6 +23,7 @@ package org.hit.db.sql.operators;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Arrays;
 
 import org.hit.db.model.Row;
 import org.hit.util.Range;
@@ -121,7 +122,7 @@ public class NumericComparison implements Condition
     @Override
     public void writeExternal(ObjectOutput out) throws IOException
     {
-        out.writeObject(myColumnNames);
+        ColumnNameUtil.writeColumnName(out, myColumnNames);
         out.writeUTF(myOperator.name());
         out.writeDouble(myComparedValue);
     }
@@ -133,7 +134,7 @@ public class NumericComparison implements Condition
     public void readExternal(ObjectInput in)
         throws IOException, ClassNotFoundException
     {
-        myColumnNames = (String[]) in.readObject();
+        myColumnNames = ColumnNameUtil.readColumnName(in);
         myOperator = ComparisionOperator.valueOf(in.readUTF());
         myComparedValue = in.readDouble();
     }
@@ -164,6 +165,27 @@ public class NumericComparison implements Condition
         }
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLocalTo(String tableName)
+    {
+        return ColumnNameUtil.isColumnOf(myColumnNames, tableName);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KeyBounds getKeyBounds(String columnName)
+    {
+        return Arrays.equals(myColumnNames, 
+                             ColumnNameUtil.nestedColumnNames(columnName)) ?
+            KeyBounds.of(myOperator, myComparedValue)
+            : KeyBounds.UNBOUNDED;
+    }
+    
     public Condition cloneCondition()
     {
         return new NumericComparison(
@@ -82,6 +82,37 @@ public class QueryAdaptor implements Query
         return myQueryOperator.getResult(database);
     }
     
+    /**
+     * Returns the name of the table scanned by the query, null if it 
+     * scans more than one table.
+     */
+    public String getScannedTable()
+    {
+        return myQueryOperator.getScannedTable();
+    }
+    
+    /**
+     * Returns the bounds imposed by the query on the values of the given
+     * column of the scanned table.
+     */
+    public KeyBounds getKeyBounds(String columnName)
+    {
+        return myQueryOperator.getKeyBounds(columnName);
+    }
+    
+    /**
+     * Returns the {@link Join} whose rows are selected by the query, null
+     * if the query doesn't join tables.
+     */
+    public Join getJoin()
+    {
+        QueryOperator operator = myQueryOperator;
+        while (operator instanceof Decorator) {
+            operator = ((Decorator) operator).getDecoratedOperator();
+        }
+        return operator instanceof Join ? (Join) operator : null;
+    }
+    
     protected QueryOperator getOperator()
     {
         return myQueryOperator;
@@ -20,11 +20,14 @@
 
 package org.hit.db.sql.operators;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.hit.db.sql.merger.AggregationMerger;
 import org.hit.db.sql.merger.MergeableHaving;
 import org.hit.db.sql.merger.QueryResultMerger;
+import org.hit.db.sql.merger.SimpleQueryResultMerger;
+import org.hit.db.sql.merger.SortedQueryResultMerger;
 import org.hit.db.sql.parser.QueryAttributes;
 import org.hit.util.Pair;
 
@@ -84,7 +87,10 @@ public class QueryBuilder
             }
         }
         
-        if (hasSelectAggregation && hasNonAggregatedColumns) {
+        if (   hasSelectAggregation 
+            && hasNonAggregatedColumns
+            && myQueryAttributes.getGroupByAttributes() == null) 
+        {
             throw new QueryBuildingException(
                 "Select cann't contain aggregated and non aggregated columns");
         }
@@ -151,12 +157,49 @@ public class QueryBuilder
                                   myQueryAttributes.getSelectedColumns());
         }
         
-        QueryResultMerger queryMerger = 
-            isDistributed ?
-                myQueryAttributes.getHavingCondition() != null ?
-                    new MergeableHaving(myQueryAttributes.getHavingCondition())
-                    : new AggregationMerger()
-            : null;
+        boolean isAggregated = 
+            hasSelectAggregation 
+            || myQueryAttributes.getGroupByAttributes() != null;
+        
+        Map<String, Boolean> orderByColumns = 
+            myQueryAttributes.getOrderByCriterion() != null ?
+                myQueryAttributes.getOrderByCriterion()
+                : Collections.<String, Boolean>emptyMap();
+        boolean isOrdered = 
+            !orderByColumns.isEmpty() 
+            || myQueryAttributes.getLimit() != Integer.MAX_VALUE;
+        
+        // The partial aggregates returned by the nodes can be ordered only 
+        // after they are merged, whereas the rows can be ordered and 
+        // limited by each node and then merged in order.
+        if (isOrdered && (!isDistributed || !isAggregated)) {
+            operator = 
+                myQueryAttributes.getLimit() != Integer.MAX_VALUE ?
+                    new TopN(operator, 
+                             orderByColumns, 
+                             myQueryAttributes.getLimit())
+                    : new Sort(operator, orderByColumns);
+        }
+        
+        QueryResultMerger queryMerger = null;
+        if (isDistributed) {
+            if (isAggregated) {
+                queryMerger = 
+                    myQueryAttributes.getHavingCondition() != null ?
+                        new MergeableHaving(
+                            myQueryAttributes.getHavingCondition())
+                        : new AggregationMerger();
+            }
+            if (isOrdered) {
+                queryMerger = 
+                    new SortedQueryResultMerger(queryMerger, 
+                                                orderByColumns, 
+                                                myQueryAttributes.getLimit());
+            }
+            else if (queryMerger == null) {
+                queryMerger = new SimpleQueryResultMerger();
+            }
+        }
                     
         return new Pair<>(new QueryAdaptor(operator), queryMerger);
     }
@@ -41,6 +41,18 @@ public interface QueryOperator extends Externalizable
     /** Sets the new range whose data is to be queried */
     <K extends Comparable<K>> void updateRange(Range<K> newRange);
     
+    /** 
+     * Returns the name of the table scanned by this operator, null if it
+     * scans more than one table.
+     */
+    public String getScannedTable();
+    
+    /** 
+     * Returns the bounds imposed by this operator on the values of the 
+     * given column of the scanned table.
+     */
+    public KeyBounds getKeyBounds(String columnName);
+    
     /** Defines the contract for cloning */
     public QueryOperator cloneOperator();
 }
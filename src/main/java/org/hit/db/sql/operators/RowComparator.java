@@ -0,0 +1,98 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import java.util.Comparator;
+import java.util.Map;
+
+import org.hit.db.model.Row;
+
+/**
+ * A {@link Comparator} that orders the {@link Row}s by the values of the 
+ * columns specified in an order by clause.
+ * 
+ * @author Balraja Subbiah
+ */
+public class RowComparator implements Comparator<Row>
+{
+    private final String[] myColumns;
+    
+    private final boolean[] myAscending;
+    
+    /**
+     * CTOR
+     * 
+     * @param orderByColumns The columns to be ordered by, mapped to 
+     * <code>Boolean.FALSE</code> when they are to be sorted in descending 
+     * order. The columns are compared in the iteration order of the map.
+     */
+    public RowComparator(Map<String, Boolean> orderByColumns)
+    {
+        myColumns = new String[orderByColumns.size()];
+        myAscending = new boolean[orderByColumns.size()];
+        int index = 0;
+        for (Map.Entry<String, Boolean> entry : orderByColumns.entrySet()) {
+            myColumns[index] = entry.getKey();
+            myAscending[index] = !Boolean.FALSE.equals(entry.getValue());
+            index++;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compare(Row row1, Row row2)
+    {
+        for (int i = 0; i < myColumns.length; i++) {
+            int result = compareValues(row1.getFieldValue(myColumns[i]),
+                                       row2.getFieldValue(myColumns[i]));
+            if (result != 0) {
+                return myAscending[i] ? result : -result;
+            }
+        }
+        return 0;
+    }
+    
+    /** 
+     * Compares the values of a column, where the null values are ordered 
+     * before the others.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static int compareValues(Object value1, Object value2)
+    {
+        if (value1 == null || value2 == null) {
+            return value1 == null ? (value2 == null ? 0 : -1) : 1;
+        }
+        else if (value1 instanceof Number && value2 instanceof Number) {
+            return Double.compare(((Number) value1).doubleValue(),
+                                  ((Number) value2).doubleValue());
+        }
+        else if (   value1 instanceof Comparable
+                 && value1.getClass().equals(value2.getClass()))
+        {
+            return ((Comparable) value1).compareTo(value2);
+        }
+        else {
+            return value1.toString().compareTo(value2.toString());
+        }
+    }
+}
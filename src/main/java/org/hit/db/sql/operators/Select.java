@@ -95,19 +95,10 @@ public class Select extends Decorator
         if (hasAggregation) {
             AggregationResult result = 
                 new AggregationResult(
-                    new SelectAggregateKey(myTableName),
-                    toBeOperatedCollection.size());
+                    new SelectAggregateKey(myTableName), mySelectColumns);
             
-            for (Map.Entry<String, AggregationID> selectedColumn : 
-                     mySelectColumns.entrySet())
-            {
-                Aggregator aggregator = 
-                    new Aggregator(
-                        selectedColumn.getValue(), selectedColumn.getKey());
-                
-                result.setAggregate(selectedColumn.getKey(),
-                                    aggregator.apply(toBeOperatedCollection));
-
+            for (Row row : toBeOperatedCollection) {
+                result.accumulate(row);
             }
             return Lists.<Row>newArrayList(result);
         }
@@ -0,0 +1,175 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hit.db.keyspace.HashKeyspace;
+import org.hit.db.model.Database;
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.model.Persistable;
+import org.hit.db.model.Row;
+import org.hit.db.model.Table;
+
+/**
+ * Defines the contract for an operator that sorts the rows as specified 
+ * in the order by clause of a query.
+ * 
+ * @author Balraja Subbiah
+ */
+public class Sort extends Decorator
+{
+    private LinkedHashMap<String, Boolean> myOrderByColumns;
+    
+    /**
+     * CTOR
+     */
+    public Sort()
+    {
+        myOrderByColumns = null;
+    }
+    
+    /**
+     * CTOR
+     */
+    public Sort(QueryOperator operator, Map<String, Boolean> orderByColumns)
+    {
+        super(operator);
+        myOrderByColumns = new LinkedHashMap<>(orderByColumns);
+    }
+    
+    /**
+     * Returns the columns by which the rows are ordered.
+     */
+    protected Map<String, Boolean> getOrderByColumns()
+    {
+        return myOrderByColumns;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Row> getResult(Database database)
+    {
+        // The rows scanned from a table that's ordered on it's primary key
+        // need not be sorted again.
+        if (isOrderedScan(database)) {
+            return getDecoratedOperator().getResult(database);
+        }
+        return super.getResult(database);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Row>
+        doPerformOperation(Collection<Row> toBeOperatedCollection)
+    {
+        List<Row> result = new ArrayList<>(toBeOperatedCollection);
+        Collections.sort(result, new RowComparator(myOrderByColumns));
+        return result;
+    }
+    
+    /**
+     * Returns true if the rows are scanned from a table, that is held in 
+     * a skip list ordered on it's primary key, and they are ordered by 
+     * that key.
+     */
+    protected boolean isOrderedScan(Database database)
+    {
+        if (myOrderByColumns.size() != 1) {
+            return false;
+        }
+        Map.Entry<String, Boolean> orderBy = 
+            myOrderByColumns.entrySet().iterator().next();
+        if (Boolean.FALSE.equals(orderBy.getValue())) {
+            return false;
+        }
+        
+        // Select either passes the scanned rows through or aggregates them
+        // to a single row, both of which preserve the order.
+        QueryOperator operator = getDecoratedOperator();
+        if (operator instanceof Select) {
+            operator = ((Select) operator).getDecoratedOperator();
+        }
+        if (!(operator instanceof Where)) {
+            return false;
+        }
+        
+        String tableName = operator.getScannedTable();
+        Table<? extends Comparable<?>, ? extends Persistable<?>> table =
+            tableName != null ? database.lookUpTable(tableName) : null;
+        HitTableSchema schema = table != null ? table.getSchema() : null;
+        if (   schema == null
+            || schema.getKeyspace() instanceof HashKeyspace
+            || schema.getPrimaryKey() == null
+            || schema.getPrimaryKey().size() != 1)
+        {
+            return false;
+        }
+        String keyColumn = schema.getPrimaryKey().get(0);
+        return    keyColumn.equals(orderBy.getKey())
+               || (tableName + "." + keyColumn).equals(orderBy.getKey());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeObject(myOrderByColumns);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException,
+            ClassNotFoundException
+    {
+        super.readExternal(in);
+        myOrderByColumns = (LinkedHashMap<String, Boolean>) in.readObject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryOperator cloneOperator()
+    {
+        return new Sort(getDecoratedOperator().cloneOperator(), 
+                        myOrderByColumns);
+    }
+}
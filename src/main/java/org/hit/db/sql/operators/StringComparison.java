@@ -86,7 +86,7 @@ public class StringComparison implements Condition
     @Override
     public void writeExternal(ObjectOutput out) throws IOException
     {
-        out.writeObject(myColumnNames);
+        ColumnNameUtil.writeColumnName(out, myColumnNames);
         out.writeUTF(myPattern.pattern());
     }
 
@@ -97,7 +97,7 @@ public class StringComparison implements Condition
     public void readExternal(ObjectInput in)
         throws IOException, ClassNotFoundException
     {
-        myColumnNames = (String[]) in.readObject();
+        myColumnNames = ColumnNameUtil.readColumnName(in);
         myPattern = Pattern.compile(in.readUTF());
     }
 
@@ -109,6 +109,24 @@ public class StringComparison implements Condition
     {
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLocalTo(String tableName)
+    {
+        return ColumnNameUtil.isColumnOf(myColumnNames, tableName);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KeyBounds getKeyBounds(String columnName)
+    {
+        return KeyBounds.UNBOUNDED;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,160 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.sql.operators;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.hit.db.model.Database;
+import org.hit.db.model.Row;
+
+/**
+ * Extends {@link Sort} to return only the first n rows in the specified 
+ * order. The rows are passed through a heap bounded to n rows, so 
+ * that the rows are not sorted in their entirety.
+ * 
+ * @author Balraja Subbiah
+ */
+public class TopN extends Sort
+{
+    private int myLimit;
+    
+    /**
+     * CTOR
+     */
+    public TopN()
+    {
+        myLimit = 0;
+    }
+    
+    /**
+     * CTOR
+     */
+    public TopN(QueryOperator        operator, 
+                Map<String, Boolean> orderByColumns,
+                int                  limit)
+    {
+        super(operator, orderByColumns);
+        myLimit = limit;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Row> getResult(Database database)
+    {
+        if (getOrderByColumns().isEmpty() || isOrderedScan(database)) {
+            return limit(getDecoratedOperator().getResult(database));
+        }
+        return super.getResult(database);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<Row>
+        doPerformOperation(Collection<Row> toBeOperatedCollection)
+    {
+        if (myLimit <= 0) {
+            return new ArrayList<>();
+        }
+        else if (toBeOperatedCollection.size() <= myLimit) {
+            return super.doPerformOperation(toBeOperatedCollection);
+        }
+        
+        // The head of the heap is the last of the rows seen so far, which
+        // is evicted when a row that precedes it is found.
+        Comparator<Row> comparator = new RowComparator(getOrderByColumns());
+        PriorityQueue<Row> heap = 
+            new PriorityQueue<>(myLimit + 1, 
+                                Collections.reverseOrder(comparator));
+        for (Row row : toBeOperatedCollection) {
+            if (heap.size() < myLimit) {
+                heap.offer(row);
+            }
+            else if (comparator.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.offer(row);
+            }
+        }
+        List<Row> result = new ArrayList<>(heap);
+        Collections.sort(result, comparator);
+        return result;
+    }
+    
+    /** Returns the first n rows of the given collection */
+    private Collection<Row> limit(Collection<Row> rows)
+    {
+        if (rows == null || rows.size() <= myLimit) {
+            return rows;
+        }
+        List<Row> result = new ArrayList<>(Math.max(myLimit, 0));
+        Iterator<Row> iterator = rows.iterator();
+        while (result.size() < myLimit) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeInt(myLimit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException,
+            ClassNotFoundException
+    {
+        super.readExternal(in);
+        myLimit = in.readInt();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryOperator cloneOperator()
+    {
+        return new TopN(getDecoratedOperator().cloneOperator(), 
+                        getOrderByColumns(),
+                        myLimit);
+    }
+}
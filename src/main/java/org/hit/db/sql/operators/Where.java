@@ -27,7 +27,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 
+import org.hit.db.keyspace.HashKeyspace;
+
 import org.hit.db.model.Database;
+import org.hit.db.model.HitTableSchema;
 import org.hit.db.model.Persistable;
 import org.hit.db.model.Predicate;
 import org.hit.db.model.Row;
@@ -39,7 +42,8 @@ import com.google.common.collect.Collections2;
 
 /**
  * Defines the simple select operation that performs a table scan 
- * and filters results based on the predicate.
+ * and filters results based on the predicate. The scan is restricted to
+ * the primary keys allowed by the predicate.
  * 
  * @author Balraja Subbiah
  */
@@ -89,7 +93,7 @@ public class Where implements QueryOperator
                             }
                         };
             return new ArrayList<Row>(Collections2.transform(
-                 table.findMatching(predicate),
+                 scan(table, predicate, myFilteringCondition, null),
                  new Function<Persistable<?>, Row>() 
                  {
                      public Row apply(Persistable<?> persistable) {
@@ -102,6 +106,62 @@ public class Where implements QueryOperator
         }
     }
 
+    /**
+     * Returns the rows of the table that match the predicate. The scan is
+     * limited to the range of primary keys allowed by the filtering 
+     * condition, which turns a query on a key range into a range scan 
+     * over the index and a query on a key into a lookup. The columns
+     * referred by the condition are qualified by the given table name when
+     * it's not null.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Collection<? extends Persistable<?>> scan(Table     table,
+                                                     Predicate predicate,
+                                                     Condition condition,
+                                                     String    qualifier)
+    {
+        HitTableSchema schema = table.getSchema();
+        if (   condition == null
+            || schema == null
+            || schema.getPrimaryKey() == null
+            || schema.getPrimaryKey().size() != 1)
+        {
+            return table.findMatching(predicate);
+        }
+        
+        String keyColumn = schema.getPrimaryKey().get(0);
+        if (qualifier != null) {
+            keyColumn = qualifier + "." + keyColumn;
+        }
+        KeyBounds bounds = condition.getKeyBounds(keyColumn);
+        if (bounds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        else if (bounds.isUnbounded()) {
+            return table.findMatching(predicate);
+        }
+        
+        Comparable key = bounds.toPoint(schema.getKeyClass());
+        if (key != null) {
+            Persistable<?> row = (Persistable<?>) table.getRow(key);
+            return row != null && predicate.isInterested((Row) row) ? 
+                Collections.singletonList(row) 
+                : Collections.<Persistable<?>>emptyList();
+        }
+        
+        if (!(schema.getKeyspace() instanceof HashKeyspace)) {
+            // The keys of a hashed table aren't ordered, hence they can't
+            // be scanned by range.
+            Range range = bounds.toRange(schema.getKeyClass());
+            if (range != null) {
+                return table.findMatching(predicate, 
+                                          range.getMinValue(), 
+                                          range.getMaxValue());
+            }
+        }
+        return table.findMatching(predicate);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -143,6 +203,26 @@ public class Where implements QueryOperator
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getScannedTable()
+    {
+        return myTableName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KeyBounds getKeyBounds(String columnName)
+    {
+        return myFilteringCondition != null ? 
+            myFilteringCondition.getKeyBounds(columnName) 
+            : KeyBounds.UNBOUNDED;
+    }
+
     /**
      * {@inheritDoc}
      */
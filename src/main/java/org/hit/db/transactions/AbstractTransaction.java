@@ -39,6 +39,8 @@ public abstract class AbstractTransaction implements Transaction
     private long myEndTime;
 
     private long myStartTime;
+    
+    private long myInitTime;
 
     private TransactionState myState;
     
@@ -103,6 +105,7 @@ public abstract class AbstractTransaction implements Transaction
     {
         updateState(TransactionState.ABORTED);
         doAbort(myAdaptedDatabase);
+        leaveWatermark();
     }
 
     /**
@@ -113,6 +116,8 @@ public abstract class AbstractTransaction implements Transaction
     {
         doCommit(myAdaptedDatabase);
         updateState(TransactionState.COMMITTED);
+        myAdaptedDatabase.recordAccess(System.nanoTime() - myInitTime);
+        leaveWatermark();
     }
 
     /**
@@ -132,7 +137,12 @@ public abstract class AbstractTransaction implements Transaction
     @Override
     public void init()
     {
+        TransactionWatermark watermark = 
+            myAdaptedDatabase.getDatabase().getWatermark();
+        myInitTime = System.nanoTime();
+        watermark.reserve(myTransactionID);
         myStartTime = makeStartTime();
+        watermark.register(myTransactionID, myStartTime);
         myAdaptedDatabase.setTransactionTime(myStartTime);
     }
 
@@ -147,11 +157,20 @@ public abstract class AbstractTransaction implements Transaction
         return doValidation(myAdaptedDatabase);
     }
     
+    private void leaveWatermark()
+    {
+        myAdaptedDatabase.getDatabase()
+                         .getWatermark()
+                         .deregister(myTransactionID);
+    }
+    
     private void updateState(TransactionState state)
     {
         myState = state;
         if (myShouldUpdateRegistry) {
-            Registry.updateTransactionState(myTransactionID, myState);
+            myAdaptedDatabase.getDatabase()
+                             .getRegistry()
+                             .updateTransactionState(myTransactionID, myState);
         }
     }
     
@@ -161,9 +180,16 @@ public abstract class AbstractTransaction implements Transaction
     @Override
     public void free()
     {
+        // Transactions that fail validation are freed without being
+        // aborted.
+        if (   myAdaptedDatabase != null 
+            && myAdaptedDatabase.getDatabase() != null)
+        {
+            leaveWatermark();
+        }
         PooledObjects.freeInstance(myAdaptedDatabase);
         myShouldUpdateRegistry = false;
-        myStartTime = myEndTime = Long.MIN_VALUE;
+        myStartTime = myEndTime = myInitTime = Long.MIN_VALUE;
         myState = null;
         myTransactionID = Long.MIN_VALUE;
     }
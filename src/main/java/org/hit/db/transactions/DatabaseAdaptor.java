@@ -77,6 +77,17 @@ public class DatabaseAdaptor implements Database,Poolable
         }
     }
     
+    /**
+     * Records the access of the tables looked up by the transaction, so 
+     * that the load on them can be published to the master.
+     */
+    public void recordAccess(long latencyNanos)
+    {
+        for (TableAdaptor<?, ?> adaptor : myCachedTables.values()) {
+            adaptor.recordAccess(latencyNanos);
+        }
+    }
+    
     /**
      * Removes the updates made on the database by the transaction.
      */
@@ -174,8 +185,12 @@ public class DatabaseAdaptor implements Database,Poolable
     @Override
     public void free()
     {
+        for (TableAdaptor<?, ?> adaptor : myCachedTables.values()) {
+            PooledObjects.freeInstance(adaptor);
+        }
+        myCachedTables.clear();
         myDatabase = null;
-        myTransactionId = Long.MIN_VALUE;
+        myTransactionTime = Long.MIN_VALUE;
         myTransactionId = Long.MIN_VALUE;
     }
 }
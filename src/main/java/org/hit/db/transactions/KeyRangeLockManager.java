@@ -0,0 +1,306 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.transactions;
+
+import gnu.trove.set.TLongSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.util.LogFactory;
+
+/**
+ * Serializes the transactions that access overlapping ranges of keys. 
+ * Transactions that are local to a node acquire shared locks on the 
+ * ranges accessed by them, while the distributed transactions and the 
+ * range deletions acquire exclusive locks. A shared lock conflicts only 
+ * with an overlapping exclusive lock, so the transactions that don't touch
+ * the ranges locked by a distributed transaction continue to execute.
+ * <p>
+ * The locks are striped by table; every table has its own list of locked 
+ * ranges guarded by its own lock, so that the transactions accessing 
+ * different tables never contend with each other. A transaction spanning 
+ * several tables locks their stripes in the order of the table names.
+ * <p>
+ * A transaction that can't acquire a lock is made dependent on the 
+ * holder of the conflicting lock in the {@link Registry} and will be 
+ * rescheduled when the holder releases its locks. A transaction that 
+ * acquires an exclusive lock is made dependent on the transactions 
+ * holding the overlapping shared locks, so that it executes only after 
+ * they are done.
+ * 
+ * @author Balraja Subbiah
+ */
+public class KeyRangeLockManager
+{
+    /**
+     * Defines the lock held by a transaction on a range of keys.
+     */
+    private static class HeldLock
+    {
+        private final long myTransactionID;
+        
+        private final LockRange myRange;
+        
+        private final boolean myIsExclusive;
+
+        /**
+         * CTOR
+         */
+        public HeldLock(long transactionID, LockRange range, boolean exclusive)
+        {
+            myTransactionID = transactionID;
+            myRange = range;
+            myIsExclusive = exclusive;
+        }
+    }
+    
+    /**
+     * Defines the ranges of a table locked by the transactions.
+     */
+    private static class TableLocks
+    {
+        private final ReentrantLock myLock = new ReentrantLock();
+        
+        private final List<HeldLock> myHeldLocks = new ArrayList<>();
+    }
+    
+    /** LOGGER */
+    private static final Logger LOG =
+        LogFactory.getInstance().getLogger(KeyRangeLockManager.class);
+    
+    /** Denotes that no transaction holds a conflicting lock */
+    private static final long NO_HOLDER = Long.MIN_VALUE;
+    
+    private final Registry myRegistry;
+    
+    private final ConcurrentMap<String, TableLocks> myTableLocks;
+    
+    private final ConcurrentMap<Long, Collection<LockRange>> myLockedRanges;
+    
+    /**
+     * CTOR
+     */
+    public KeyRangeLockManager(Registry registry)
+    {
+        myRegistry = registry;
+        myTableLocks = new ConcurrentHashMap<>();
+        myLockedRanges = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Returns the stripes of the tables accessed by the given ranges, 
+     * ordered by the table names.
+     */
+    private TreeMap<String, TableLocks> getStripes(
+        Collection<LockRange> ranges)
+    {
+        TreeMap<String, TableLocks> stripes = new TreeMap<>();
+        for (LockRange range : ranges) {
+            String tableName = range.getTableName();
+            if (stripes.containsKey(tableName)) {
+                continue;
+            }
+            TableLocks tableLocks = myTableLocks.get(tableName);
+            if (tableLocks == null) {
+                tableLocks = new TableLocks();
+                TableLocks existing = 
+                    myTableLocks.putIfAbsent(tableName, tableLocks);
+                if (existing != null) {
+                    tableLocks = existing;
+                }
+            }
+            stripes.put(tableName, tableLocks);
+        }
+        return stripes;
+    }
+    
+    /** Locks the given stripes in the order of the table names */
+    private static void lock(TreeMap<String, TableLocks> stripes)
+    {
+        for (TableLocks tableLocks : stripes.values()) {
+            tableLocks.myLock.lock();
+        }
+    }
+    
+    /** Unlocks the given stripes */
+    private static void unlock(TreeMap<String, TableLocks> stripes)
+    {
+        for (TableLocks tableLocks : stripes.descendingMap().values()) {
+            tableLocks.myLock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the transaction holding an exclusive lock that overlaps 
+     * any of the given ranges or {@link #NO_HOLDER} if there is no such 
+     * transaction.
+     */
+    private static long findExclusiveHolder(
+        long                        transactionID, 
+        Collection<LockRange>       ranges,
+        TreeMap<String, TableLocks> stripes)
+    {
+        for (LockRange range : ranges) {
+            TableLocks tableLocks = stripes.get(range.getTableName());
+            for (HeldLock heldLock : tableLocks.myHeldLocks) {
+                if (   heldLock.myIsExclusive
+                    && heldLock.myTransactionID != transactionID
+                    && heldLock.myRange.overlaps(range))
+                {
+                    return heldLock.myTransactionID;
+                }
+            }
+        }
+        return NO_HOLDER;
+    }
+    
+    /**
+     * Acquires the locks on the given ranges for the transaction.
+     */
+    private boolean acquire(long                  transactionID, 
+                            Collection<LockRange> ranges,
+                            boolean               exclusive)
+    {
+        Long id = Long.valueOf(transactionID);
+        if (exclusive && myLockedRanges.containsKey(id)) {
+            return true;
+        }
+        
+        TreeMap<String, TableLocks> stripes = getStripes(ranges);
+        lock(stripes);
+        try {
+            long holder = findExclusiveHolder(transactionID, ranges, stripes);
+            if (holder != NO_HOLDER) {
+                // The dependency is added while holding the stripe, so 
+                // that the holder can't release its locks in the meantime.
+                myRegistry.addDependency(holder, transactionID);
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.fine("Transaction " + transactionID + " waits for "
+                             + holder + " to release " + ranges);
+                }
+                return false;
+            }
+            
+            // Lock holders are made dependent upon before they start, so 
+            // they have to be known to the registry by now.
+            myRegistry.register(transactionID);
+            for (LockRange range : ranges) {
+                TableLocks tableLocks = stripes.get(range.getTableName());
+                if (exclusive) {
+                    for (HeldLock heldLock : tableLocks.myHeldLocks) {
+                        if (   heldLock.myTransactionID != transactionID
+                            && heldLock.myRange.overlaps(range))
+                        {
+                            myRegistry.addDependency(
+                                heldLock.myTransactionID, transactionID);
+                        }
+                    }
+                }
+                tableLocks.myHeldLocks.add(
+                    new HeldLock(transactionID, range, exclusive));
+            }
+            myLockedRanges.put(id, ranges);
+        }
+        finally {
+            unlock(stripes);
+        }
+        
+        if (exclusive && LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Transaction " + transactionID + " has locked " + ranges);
+        }
+        return true;
+    }
+    
+    /**
+     * Acquires shared locks on the given ranges for the transaction.
+     * 
+     * @return True if the locks have been acquired, false if the 
+     *         transaction has been made to wait for the holder of a 
+     *         conflicting exclusive lock.
+     */
+    public boolean acquireShared(long                  transactionID, 
+                                 Collection<LockRange> ranges)
+    {
+        return acquire(transactionID, ranges, false);
+    }
+    
+    /**
+     * Acquires exclusive locks on the given ranges for the transaction.
+     * On successful acquisition, the transaction becomes dependent on the
+     * transactions holding overlapping shared locks.
+     * 
+     * @return True if the locks have been acquired, false if the 
+     *         transaction has been made to wait for the holder of a 
+     *         conflicting exclusive lock.
+     */
+    public boolean acquireExclusive(long                  transactionID, 
+                                    Collection<LockRange> ranges)
+    {
+        return acquire(transactionID, ranges, true);
+    }
+    
+    /**
+     * Releases the locks held by the given transaction and frees the 
+     * transactions that are dependent on it.
+     * 
+     * @return The transactions that are no longer dependent on any other
+     *         transaction.
+     */
+    public TLongSet release(long transactionID)
+    {
+        Collection<LockRange> ranges = 
+            myLockedRanges.remove(Long.valueOf(transactionID));
+        if (ranges == null) {
+            // A transaction that doesn't hold any lock can't be found as
+            // a holder, so nobody is made dependent on it concurrently.
+            return myRegistry.freeDependentTransactionsOn(transactionID);
+        }
+        
+        TreeMap<String, TableLocks> stripes = getStripes(ranges);
+        lock(stripes);
+        try {
+            for (TableLocks tableLocks : stripes.values()) {
+                Iterator<HeldLock> itr = tableLocks.myHeldLocks.iterator();
+                while (itr.hasNext()) {
+                    if (itr.next().myTransactionID == transactionID) {
+                        itr.remove();
+                    }
+                }
+            }
+            // Dependencies on the lock holders are added while holding 
+            // their stripes, hence they have to be freed while holding 
+            // them too.
+            return myRegistry.freeDependentTransactionsOn(transactionID);
+        }
+        finally {
+            unlock(stripes);
+        }
+    }
+}
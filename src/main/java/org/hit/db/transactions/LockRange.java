@@ -0,0 +1,93 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.transactions;
+
+import org.hit.util.Range;
+
+/**
+ * Defines the range of keys of a table that's accessed by a transaction. 
+ * A <code>null</code> range denotes the whole table.
+ * 
+ * @author Balraja Subbiah
+ */
+public class LockRange
+{
+    private final String myTableName;
+    
+    private final Range<?> myKeyRange;
+
+    /**
+     * CTOR
+     */
+    public LockRange(String tableName, Range<?> keyRange)
+    {
+        myTableName = tableName;
+        myKeyRange = keyRange;
+    }
+
+    /**
+     * Returns the value of tableName
+     */
+    public String getTableName()
+    {
+        return myTableName;
+    }
+
+    /**
+     * Returns the value of keyRange
+     */
+    public Range<?> getKeyRange()
+    {
+        return myKeyRange;
+    }
+    
+    /**
+     * Returns true if this range shares a key with the other range.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public boolean overlaps(LockRange other)
+    {
+        if (!myTableName.equals(other.getTableName())) {
+            return false;
+        }
+        else if (myKeyRange == null || other.getKeyRange() == null) {
+            return true;
+        }
+        else {
+            Comparable myMin = myKeyRange.getMinValue();
+            Comparable myMax = myKeyRange.getMaxValue();
+            Comparable otherMin = other.getKeyRange().getMinValue();
+            Comparable otherMax = other.getKeyRange().getMaxValue();
+            return    myMin.compareTo(otherMax) <= 0
+                   && otherMin.compareTo(myMax) <= 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return "LockRange [myTableName=" + myTableName + ", myKeyRange="
+               + myKeyRange + "]";
+    }
+}
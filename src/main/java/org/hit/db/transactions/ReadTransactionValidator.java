@@ -104,7 +104,9 @@ public class ReadTransactionValidator implements TransactionValidator
         isAcceptable(TransactionTableTrail<K, P> trail)
     {
         for (Transactable<K,P> transactable : trail.getReadSet()) {
-            if (!transactable.validate(myValidationTime, myTransactionId)
+            if (!transactable.validate(myValidationTime, 
+                                       myTransactionId,
+                                       myDatabase.getRegistry())
                              .isValid()) 
             {
                 return false;
@@ -20,20 +20,22 @@
 
 package org.hit.db.transactions;
 
-import gnu.trove.map.TLongObjectMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.TLongSet;
 import gnu.trove.set.hash.TLongHashSet;
 
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.hit.concurrent.CloseableRWLock;
 import org.hit.util.LogFactory;
 
 /**
  * Defines the contract for a type that defines context of transactions.
+ * The states of transactions are kept in a concurrent map and the 
+ * dependencies between them in per transaction concurrent sets, so that 
+ * the validation of versions doesn't contend on a single lock.
  * 
  * @author Balraja Subbiah
  */
@@ -42,71 +44,90 @@ public final class Registry
     /** LOGGER */
     private static final Logger LOG =
         LogFactory.getInstance().getLogger(Registry.class);
-        
-    private static CloseableRWLock ourLock = 
-         new CloseableRWLock(new ReentrantReadWriteLock(true));
     
-    private static TLongObjectMap<TransactionState> ourStateMap = 
-        new TLongObjectHashMap<>();
+    private final ConcurrentMap<Long, TransactionState> myStateMap;
     
-    private static TLongObjectHashMap<TLongSet> ourDependentTransactions =
-        new TLongObjectHashMap<>();
+    private final ConcurrentMap<Long, Set<Long>> myDependentTransactions;
         
-    private static TLongObjectHashMap<TLongSet> ourPrecedentTransactions =
-        new TLongObjectHashMap<>();
+    private final ConcurrentMap<Long, Set<Long>> myPrecedentTransactions;
+    
+    /**
+     * CTOR
+     */
+    public Registry()
+    {
+        myStateMap = new ConcurrentHashMap<>();
+        myDependentTransactions = new ConcurrentHashMap<>();
+        myPrecedentTransactions = new ConcurrentHashMap<>();
+    }
     
     /**
      * Returns the current {@link TransactionState} for the given id.
      */
-    public static TransactionState getState(long id)
+    public TransactionState getState(long id)
     {
-        TransactionState result = TransactionState.UNKNOWN;
-        try (CloseableRWLock l = ourLock.openReadLock()) {
-            TransactionState existing = ourStateMap.get(id);
-            if (existing != null) {
-                result = existing;
-            }
-            return result;
-        }
+        TransactionState existing = myStateMap.get(Long.valueOf(id));
+        return existing != null ? existing : TransactionState.UNKNOWN;
     }
     
     /**
      * Returns the current {@link TransactionState} for the given id.
      */
-    public static void updateTransactionState(long id, TransactionState state)
+    public void updateTransactionState(long id, TransactionState state)
+    {
+        myStateMap.put(Long.valueOf(id), state);
+    }
+    
+    /**
+     * Registers the given transaction as {@link TransactionState#NOT_STARTED}
+     * if it's not known yet, so that other transactions can be made 
+     * dependent on it before it starts.
+     */
+    public void register(long id)
+    {
+        myStateMap.putIfAbsent(Long.valueOf(id), TransactionState.NOT_STARTED);
+    }
+    
+    private static Set<Long> lookupEdges(ConcurrentMap<Long, Set<Long>> edges,
+                                         Long                           id)
     {
-        try (CloseableRWLock l = ourLock.openWriteLock()) {
-            ourStateMap.put(id, state);
+        Set<Long> result = edges.get(id);
+        if (result == null) {
+            Set<Long> newEdges = ConcurrentHashMap.<Long>newKeySet();
+            result = edges.putIfAbsent(id, newEdges);
+            if (result == null) {
+                result = newEdges;
+            }
         }
+        return result;
     }
     
     /**
      * A helper method to add dependency between two transactions.
      */
-    public static void addDependency(long from, long to)
+    public void addDependency(long from, long to)
     {
         if (LOG.isLoggable(Level.FINE)) {
             LOG.fine("Dependency " + from + " -> " + to + " has been added");
         }
         
-        try (CloseableRWLock l = ourLock.openWriteLock()) {
-            TLongSet dependentTransactions = 
-                ourDependentTransactions.get(from);
-            if (dependentTransactions == null) {
-                dependentTransactions = new TLongHashSet();
-                ourDependentTransactions.putIfAbsent(from, 
-                                                      dependentTransactions);
-            }
-            dependentTransactions.add(to);
-            
-            TLongSet dependeningTransactions = 
-                ourPrecedentTransactions.get(to);
-            if (dependeningTransactions == null) {
-                dependeningTransactions = new TLongHashSet();
-                ourPrecedentTransactions.putIfAbsent(to, 
-                                                     dependeningTransactions);
+        Long fromID = Long.valueOf(from);
+        Long toID = Long.valueOf(to);
+        Set<Long> precedents = lookupEdges(myPrecedentTransactions, toID);
+        precedents.add(fromID);
+        
+        Set<Long> dependents = lookupEdges(myDependentTransactions, fromID);
+        dependents.add(toID);
+        
+        // If the preceding transaction has been freed, either before we 
+        // looked up its edges or concurrently, then whoever removes the 
+        // edge from its dependents is responsible for it. If we get there 
+        // first, the dependency is already satisfied.
+        if (!myStateMap.containsKey(fromID) && dependents.remove(toID)) {
+            precedents.remove(fromID);
+            if (dependents.isEmpty()) {
+                myDependentTransactions.remove(fromID, dependents);
             }
-            dependeningTransactions.add(from);
         }
     }
     
@@ -114,77 +135,64 @@ public final class Registry
      * A helper method to add dependency between the given transaction to
      * all other transactions.
      */
-    public static void addDependencyToAll(long to)
+    public void addDependencyToAll(long to)
     {
-        try (CloseableRWLock l = ourLock.openWriteLock()) {
-            // We are repeating the code here but that's ok.
-            for (long from : ourStateMap.keys()) {
-                TLongSet dependentTransactions = 
-                    ourDependentTransactions.get(from);
-                if (dependentTransactions == null) {
-                    dependentTransactions = new TLongHashSet();
-                    ourDependentTransactions.putIfAbsent(from, 
-                                                         dependentTransactions);
-                }
-                dependentTransactions.add(to);
-                
-                TLongSet dependeningTransactions = 
-                    ourPrecedentTransactions.get(from);
-                if (dependeningTransactions == null) {
-                    dependeningTransactions = new TLongHashSet();
-                    ourPrecedentTransactions.putIfAbsent(to, 
-                                                         dependeningTransactions);
-                }
-                dependeningTransactions.add(from);
-                if (LOG.isLoggable(Level.FINE)) {
-                    LOG.fine("Dependency " + from + " -> " + to + " has been added");
-                }
+        for (Long from : myStateMap.keySet()) {
+            if (from.longValue() != to) {
+                addDependency(from.longValue(), to);
             }
-            
         }
     }
     
     /**
      * A helper method to update dependency graphs when a transaction is 
      * done. 
+     * 
+     * @return The transactions that are no longer dependent on any other
+     *         transaction.
      */
-    public static TLongSet freeDependentTransactionsOn(long from)
+    public TLongSet freeDependentTransactionsOn(long from)
     {
-        
         TLongSet result = new TLongHashSet();
-        try (CloseableRWLock l = ourLock.openWriteLock()) {
-            
-            ourStateMap.remove(from);
-            ourPrecedentTransactions.remove(from);
-            
-            TLongSet dependentTransactions = 
-                ourDependentTransactions.remove(from);
-            
-            if (dependentTransactions != null) {
-                for (long dependentTrn : dependentTransactions.toArray()) {
-                    TLongSet dependeningTransactions = 
-                        ourPrecedentTransactions.get(from);
-                    if (dependeningTransactions != null) {
-                        dependeningTransactions.remove(from);
-                        if (dependeningTransactions.isEmpty()) {
-                            result.add(dependentTrn);
-                        }
+        Long fromID = Long.valueOf(from);
+        myStateMap.remove(fromID);
+        myPrecedentTransactions.remove(fromID);
+        
+        Set<Long> dependentTransactions = 
+            myDependentTransactions.remove(fromID);
+        
+        if (dependentTransactions != null) {
+            for (Long dependentTrn : dependentTransactions) {
+                if (!dependentTransactions.remove(dependentTrn)) {
+                    continue;
+                }
+                Set<Long> precedents = 
+                    myPrecedentTransactions.get(dependentTrn);
+                if (precedents != null) {
+                    precedents.remove(fromID);
+                    // Only the thread that removes the empty set of 
+                    // precedents gets to schedule the dependent 
+                    // transaction.
+                    if (   precedents.isEmpty()
+                        && myPrecedentTransactions.remove(dependentTrn,
+                                                          precedents))
+                    {
+                        result.add(dependentTrn.longValue());
                     }
                 }
             }
-            
-            return result;
         }
+        return result;
     }
     
     /** 
      * Returns the list of transactions on which a given transaction 
      * is dependent upon.
      */
-    public static TLongSet getPrecedencyFor(long transactionID)
+    public TLongSet getPrecedencyFor(long transactionID)
     {
-        try (CloseableRWLock l = ourLock.openReadLock()) {
-            return ourPrecedentTransactions.get(transactionID);
-        }
+        Set<Long> precedents = 
+            myPrecedentTransactions.get(Long.valueOf(transactionID));
+        return precedents != null ? new TLongHashSet(precedents) : null;
     }
 }
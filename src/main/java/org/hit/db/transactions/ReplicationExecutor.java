@@ -56,6 +56,10 @@ public class ReplicationExecutor implements Runnable, Poolable
     {
         myReplicatedWriteTransaction.init();
         myReplicatedWriteTransaction.execute();
+        // The transaction has already been validated on the server from 
+        // which it's replicated, the validation here only assigns the 
+        // overridden end time with which the versions are committed.
+        myReplicatedWriteTransaction.validate();
         myReplicatedWriteTransaction.commit();
     }
 
@@ -79,14 +79,11 @@ public class TableAdaptor<K extends Comparable<K>, P extends Persistable<K>>
      */
     public void commit(long commitTime)
     {
-        // Close the old version.
+        // Close the old versions, including the deleted ones. They remain 
+        // visible to the transactions that started before the commit and
+        // are reclaimed by the VersionCollector once those are done.
         for (Transactable<K,P> transactable : myTableTrail.getWriteSet()) {
-            if (myTableTrail.getDeleteSet().contains(
-                    transactable.getPersistable().primaryKey()))
-            {
-                myTable.deleteVersion(transactable);
-            }
-            PooledObjects.freeInstance(transactable);
+            transactable.setEnd(commitTime);
         }
         // Update the start time of the new version to the commit time.
         for (Transactable<K,P> transactable : myTableTrail.getNewWriteSet()) {
@@ -94,6 +91,14 @@ public class TableAdaptor<K extends Comparable<K>, P extends Persistable<K>>
         }
     }
     
+    /**
+     * Records the access of the underlying table by the transaction.
+     */
+    public void recordAccess(long latencyNanos)
+    {
+        myTable.recordAccess(latencyNanos);
+    }
+    
     /**
      * A helper method to undo the updates made by the transaction.
      *
@@ -159,6 +164,44 @@ public class TableAdaptor<K extends Comparable<K>, P extends Persistable<K>>
         }
         return Collections.unmodifiableCollection(actualResult);    
     }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<P> findMatching(Predicate predicate, 
+                                      K         resumeKey, 
+                                      int       limit)
+    {
+        Collection<Transactable<K,P>> result =
+            myTable.findMatching(
+                predicate, resumeKey, limit, myStartTime, myTransactionID);
+        
+        Collection<P> actualResult = new ArrayList<>(result.size());
+        K firstKey = null;
+        K lastKey = null;
+        for (Transactable<K,P> t : result) {
+            actualResult.add((P) t.getPersistable().getCopy());
+            lastKey = t.getPersistable().primaryKey();
+            if (firstKey == null) {
+                firstKey = lastKey;
+            }
+        }
+        // The matched rows are validated as a range query over the keys 
+        // that have been returned, or as a plain query when the table has 
+        // no matching rows.
+        if (lastKey != null) {
+            myTableTrail.getPredicateToDataMap().put(
+                PredicateWrapper.<K>create(predicate, firstKey, lastKey),
+                result);
+        }
+        else if (resumeKey == null) {
+            myTableTrail.getPredicateToDataMap().put(
+                PredicateWrapper.<K>create(predicate), result);
+        }
+        return Collections.unmodifiableCollection(actualResult);    
+    }
 
     /**
      * {@inheritDoc}
@@ -224,15 +267,17 @@ public class TableAdaptor<K extends Comparable<K>, P extends Persistable<K>>
         if (tableOld != null) {
 
             ValidationResult result = 
-                tableOld.validate(myStartTime, myTransactionID);
+                tableOld.validate(myStartTime, 
+                                  myTransactionID,
+                                  myTable.getRegistry());
                 
             if (!result.isValid() && !result.isSpeculativelyValid()) {
                 return false;
             }
             
             if (result.isSpeculativelyValid()) {
-                Registry.addDependency(result.getTransactionId(), 
-                                       myTransactionID);
+                myTable.getRegistry().addDependency(
+                    result.getTransactionId(), myTransactionID);
             }
             
             // Now lock the row for this transaction
@@ -268,10 +313,13 @@ public class TableAdaptor<K extends Comparable<K>, P extends Persistable<K>>
         Transactable<K, P> result = myTable.getRow(primaryKey, 
                                                    myStartTime,
                                                    myTransactionID);
+        if (result == null) {
+            return null;
+        }
         // Acquire a write lock.
         result.setEnd(TransactionHelper.toVersionID(myTransactionID));
         myTableTrail.getDeleteSet().add(result.getPersistable().primaryKey());
-        return (P) (result != null ? result.getPersistable().getCopy() : null);
+        return (P) result.getPersistable().getCopy();
     }
 
     /**
@@ -280,10 +328,33 @@ public class TableAdaptor<K extends Comparable<K>, P extends Persistable<K>>
     @SuppressWarnings("unchecked")
     @Override
     public Collection<P> deleteRange(K primaryKey, K secondaryKey)
+    {
+        return deleteRange(primaryKey, secondaryKey, Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<P> deleteRange(Object primaryKey, Object secondaryKey)
+    {
+        return deleteRange((K) primaryKey, (K) secondaryKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<P> deleteRange(Object primaryKey, 
+                                     Object secondaryKey,
+                                     int    limit)
     {
         Collection<Transactable<K,P>> result =
-            myTable.deleteRange(primaryKey, 
-                                secondaryKey, 
+            myTable.deleteRange((K) primaryKey, 
+                                (K) secondaryKey,
+                                limit,
                                 myStartTime, 
                                 myTransactionID);
         
@@ -298,16 +369,6 @@ public class TableAdaptor<K extends Comparable<K>, P extends Persistable<K>>
         return Collections.unmodifiableCollection(actualResult);    
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @SuppressWarnings("unchecked")
-    @Override
-    public Collection<P> deleteRange(Object primaryKey, Object secondaryKey)
-    {
-        return deleteRange((K) primaryKey, (K) secondaryKey);
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -78,10 +78,11 @@ public class Transactable<K extends Comparable<K>, P extends Persistable<K>>
 
     /**
      * Returns true if the object is valid at the given time for the
-     * given transaction id.
+     * given transaction id. The states of the transactions that have 
+     * locked this version are looked up in the given {@link Registry}.
      */
     public ValidationResult 
-        validate(long time, long transactionID)
+        validate(long time, long transactionID, Registry registry)
     {
         
         if (   !TransactionHelper.isTransactionID(myStart)
@@ -106,7 +107,7 @@ public class Transactable<K extends Comparable<K>, P extends Persistable<K>>
             else if (   !TransactionHelper.isTransactionID(myStart)
                      && myStart < time
                      && TransactionHelper.toTransactionID(myEnd) < transactionID
-                     && (Registry.getState(TransactionHelper.toTransactionID(myEnd))
+                     && (registry.getState(TransactionHelper.toTransactionID(myEnd))
                               .in(TransactionState.ABORTED, 
                                   TransactionState.VALIDATE,
                                   TransactionState.COMMITTED)))
@@ -130,7 +131,7 @@ public class Transactable<K extends Comparable<K>, P extends Persistable<K>>
             // graph.
             else if (   TransactionHelper.toTransactionID(myStart)
                             < transactionID
-                     && Registry.getState(TransactionHelper.toTransactionID(
+                     && registry.getState(TransactionHelper.toTransactionID(
                             myStart)).in(
                                 TransactionState.VALIDATE,
                                 TransactionState.COMMITTED)
@@ -148,6 +149,33 @@ public class Transactable<K extends Comparable<K>, P extends Persistable<K>>
         }
     }
 
+    /**
+     * Returns true if this version has been closed by a committed
+     * transaction before the given watermark, in which case it's no longer
+     * visible to any transaction active at or after the watermark.
+     */
+    public boolean isReclaimable(long watermark)
+    {
+        return    !TransactionHelper.isTransactionID(myStart)
+               && !TransactionHelper.isTransactionID(myEnd)
+               && myEnd < watermark;
+    }
+
+    /**
+     * Returns true if this version is the one that's visible at the given
+     * time, when none of the transactions that started before that time
+     * are active. The versions that are locked by a transaction are
+     * considered visible, as such a transaction would have started and
+     * hence commit after the given time.
+     */
+    public boolean isVisibleAt(long time)
+    {
+        return    !TransactionHelper.isTransactionID(myStart)
+               && myStart <= time
+               && (   TransactionHelper.isTransactionID(myEnd)
+                   || time < myEnd);
+    }
+
     /** Sets the end time for this version */
     public void setEnd(long end)
     {
@@ -20,6 +20,8 @@
 
 package org.hit.db.transactions;
 
+import java.util.Collection;
+
 import org.hit.db.model.Persistable;
 import org.hit.db.model.HitTableSchema;
 import org.hit.event.DBStatEvent;
@@ -32,8 +34,6 @@ import org.hit.event.DBStatEvent;
  */
 public interface TransactableDatabase
 {
-    public static final long UNLOCKED_VALUE = Long.MIN_VALUE;
-    
     /** Creates a table with the specified schema in the database */
     public void createTable(HitTableSchema schema);
 
@@ -41,39 +41,23 @@ public interface TransactableDatabase
     public <K extends Comparable<K>, P extends Persistable<K>> TransactableTable<K, P>
         lookUpTable(String tableName);
     
-    /**
-     * Generates the statistics for database.
-     */
-    public DBStatEvent getStatistics();
+    /** Returns the tables that have been materialized in the database */
+    public Collection<TransactableTable<?, ?>> getTables();
     
-    /**
-     * Locks the database. By locking the database a transaction will 
-     * wait for all other transactions to complete, and once locked 
-     * will not allow any other transaction till the transaction
-     * that locked the database is done.
-     * 
-     * @return True, if we can lock the db successfully, false otherwise.
+    /** 
+     * Returns the {@link TransactionWatermark} that tracks the transactions
+     * active on this database.
      */
-    public boolean lock(long transactionID);
+    public TransactionWatermark getWatermark();
     
-    /**
-     * Unlocks the database to allow other transactions to continue
-     * their work.
-     * 
-     * @return True, if we can unlock the db successfully, false otherwise.
-     */
-    public boolean unlock(long transactionID);
-    
-    /**
-     * Returns true if the database can process a transaction, false 
-     * otherwise. Database will allow transactions to execute
-     * if it has been not locked by a transaction. Else it will allow
-     * only that transaction that locked the database to continue.
+    /** 
+     * Returns the {@link Registry} that tracks the dependencies between
+     * the transactions operating on this database.
      */
-    public boolean canProcess(long transactionID);
+    public Registry getRegistry();
     
     /**
-     * Returns the transaction that has locked the database.
+     * Generates the statistics for database.
      */
-    public long getLockedTransaction();
+    public DBStatEvent getStatistics();
 }
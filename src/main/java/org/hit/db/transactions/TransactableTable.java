@@ -21,6 +21,7 @@
 package org.hit.db.transactions;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 import org.hit.db.model.Persistable;
 import org.hit.db.model.Predicate;
@@ -49,6 +50,17 @@ public interface TransactableTable<K extends Comparable<K>, P extends Persistabl
        long      time,
        long      transactionID);
 
+    /**
+     * Returns upto <code>limit</code> objects from this table that matches
+     * the predicate and follow the given key, in the order of their keys.
+     */
+    public Collection<Transactable<K,P>> findMatching(
+       Predicate predicate,
+       K         resumeKey,
+       int       limit,
+       long      time,
+       long      transactionID);
+
     /**
      * Returns the collection of objects from this table that matches the
      * predicate.
@@ -72,15 +84,61 @@ public interface TransactableTable<K extends Comparable<K>, P extends Persistabl
                                                      K rangeEnd,
                                                      long time, 
                                                      long transactionID);
+    
+    /** 
+     * Deletes upto <code>limit</code> rows that falls between the given 
+     * key range. 
+     */
+    public Collection<Transactable<K,P>> deleteRange(K rangeStart,
+                                                     K rangeEnd,
+                                                     int  limit,
+                                                     long time, 
+                                                     long transactionID);
 
     /** Returns schema of the table */
     public HitTableSchema getSchema();
     
+    /** 
+     * Returns the {@link Registry} that tracks the transactions operating 
+     * on this table.
+     */
+    public Registry getRegistry();
+    
+    /**
+     * Returns an iterator over all the versions stored in the table. The
+     * versions are neither validated nor added as dependencies of any 
+     * transaction, hence it's upto the caller to filter them.
+     */
+    public Iterator<Transactable<K,P>> getVersions();
+    
     /** Returns the number of rows in this table */
     public long rowCount();
     
+    /**
+     * Records an access of this table by a committed transaction, which
+     * took the given time to complete.
+     */
+    public void recordAccess(long latencyNanos);
+    
+    /** Returns the number of accesses recorded on this table */
+    public long getAccessCount();
+    
+    /** 
+     * Returns the total time in nanoseconds taken by the accesses recorded
+     * on this table.
+     */
+    public long getAccessLatency();
+    
     /**
      * Removes the transactable from the table.
      */
     public void remove(Transactable<K,P> transactable);
+    
+    /**
+     * Removes upto <code>batchSize</code> versions that are reclaimable 
+     * at the given watermark from the table and returns them. Successive 
+     * invocations resume from where the previous one has stopped.
+     */
+    public Collection<Transactable<K,P>> reclaimVersions(long watermark,
+                                                         int  batchSize);
 }
@@ -0,0 +1,100 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.transactions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the start times of the transactions that are active on a
+ * {@link TransactableDatabase}. The oldest of those start times defines the
+ * watermark below which no transaction can observe a closed version, which
+ * makes such versions safe to be reclaimed.
+ * 
+ * @author Balraja Subbiah
+ */
+public class TransactionWatermark
+{
+    private final Map<Long, Long> myActiveTransactions;
+    
+    /**
+     * CTOR
+     */
+    public TransactionWatermark()
+    {
+        myActiveTransactions = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Marks the transaction with the given id as active before it's start
+     * time is known. This holds back the watermark till the start time is
+     * registered, so that the versions which the transaction might read
+     * are not reclaimed in the meantime.
+     */
+    public void reserve(long transactionID)
+    {
+        register(transactionID, Long.MIN_VALUE);
+    }
+    
+    /**
+     * Marks the transaction with the given id as active from the given
+     * start time.
+     */
+
+    public void register(long transactionID, long startTime)
+    {
+        myActiveTransactions.put(Long.valueOf(transactionID), 
+                                 Long.valueOf(startTime));
+    }
+    
+    /**
+     * Marks the transaction with the given id as done. It's safe to call
+     * this method for a transaction that's not registered.
+     */
+    public void deregister(long transactionID)
+    {
+        myActiveTransactions.remove(Long.valueOf(transactionID));
+    }
+    
+    /**
+     * Returns the number of transactions that are active currently.
+     */
+    public int getActiveCount()
+    {
+        return myActiveTransactions.size();
+    }
+    
+    /**
+     * Returns the start time of the oldest active transaction. When no 
+     * transaction is active the given current time is returned, as the
+     * transactions started later will have a start time greater than that.
+     */
+    public long getWatermark(long currentTime)
+    {
+        long watermark = currentTime;
+        for (Long startTime : myActiveTransactions.values()) {
+            if (startTime.longValue() < watermark) {
+                watermark = startTime.longValue();
+            }
+        }
+        return watermark;
+    }
+}
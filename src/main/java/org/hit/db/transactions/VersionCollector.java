@@ -0,0 +1,235 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.transactions;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hit.pool.PooledObjects;
+import org.hit.time.Clock;
+import org.hit.util.LogFactory;
+import org.hit.util.NamedThreadFactory;
+import org.hit.util.Pair;
+
+/**
+ * Reclaims the versions of rows that can no longer be read by any 
+ * transaction. A version is reclaimable when it has been closed by a 
+ * committed transaction at a time earlier than the start time of the 
+ * oldest active transaction. The collector runs periodically in the 
+ * background and removes the versions from every table in batches.
+ * <p>
+ * The scans that started before a version was removed might still be 
+ * reading it, hence the removed versions are returned to the 
+ * <code>Transactable</code> pool only by a later run, once the watermark
+ * has moved past the time of their removal.
+ * 
+ * @author Balraja Subbiah
+ */
+public class VersionCollector implements Runnable
+{
+    /** LOGGER */
+    private static final Logger LOG =
+        LogFactory.getInstance().getLogger(VersionCollector.class);
+    
+    private final TransactableDatabase myDatabase;
+    
+    private final Clock myClock;
+    
+    private final VersionCollectorConfig myConfig;
+    
+    private final ScheduledExecutorService myScheduler;
+    
+    private final AtomicLong myReclaimedVersions;
+    
+    private final AtomicLong myCollectionCount;
+    
+    private final AtomicLong myTotalPauseNanos;
+    
+    private final AtomicLong myMaxPauseNanos;
+    
+    private final Queue<Pair<Long, Collection<?>>> myRemovedVersions;
+    
+    /**
+     * CTOR
+     */
+    public VersionCollector(TransactableDatabase   database,
+                            Clock                  clock,
+                            VersionCollectorConfig config)
+    {
+        myDatabase = database;
+        myClock = clock;
+        myConfig = config;
+        myScheduler = 
+            Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(VersionCollector.class, true));
+        myReclaimedVersions = new AtomicLong(0L);
+        myCollectionCount = new AtomicLong(0L);
+        myTotalPauseNanos = new AtomicLong(0L);
+        myMaxPauseNanos = new AtomicLong(0L);
+        myRemovedVersions = new ArrayDeque<>();
+    }
+    
+    /**
+     * Schedules the collector to run periodically in the background.
+     */
+    public void start()
+    {
+        myScheduler.scheduleWithFixedDelay(
+            this,
+            myConfig.getCollectionIntervalMillis(),
+            myConfig.getCollectionIntervalMillis(),
+            TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stops the collection of versions.
+     */
+    public void stop()
+    {
+        myScheduler.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run()
+    {
+        try {
+            collect();
+        }
+        catch (Throwable e) {
+            // Don't let an exception cancel the subsequent runs.
+            LOG.log(Level.SEVERE, e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Reclaims the versions that are below the current watermark from
+     * all the tables of the database.
+     * 
+     * @return The number of versions reclaimed.
+     */
+    public synchronized long collect()
+    {
+        long watermark = 
+            myDatabase.getWatermark().getWatermark(myClock.currentTime());
+        freeRemovedVersions(watermark);
+        
+        int batchSize = myConfig.getBatchSize();
+        long reclaimedCount = 0L;
+        for (TransactableTable<?, ?> table : myDatabase.getTables()) {
+            int batchCount;
+            do {
+                long start = System.nanoTime();
+                Collection<?> reclaimed = 
+                    table.reclaimVersions(watermark, batchSize);
+                batchCount = reclaimed.size();
+                if (batchCount > 0) {
+                    myRemovedVersions.offer(
+                        new Pair<Long, Collection<?>>(
+                            Long.valueOf(myClock.currentTime()), reclaimed));
+                }
+                recordPause(System.nanoTime() - start);
+                reclaimedCount += batchCount;
+            }
+            while (batchCount >= batchSize);
+        }
+        
+        myReclaimedVersions.addAndGet(reclaimedCount);
+        myCollectionCount.incrementAndGet();
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Reclaimed " + reclaimedCount + " versions below the " 
+                     + " watermark " + watermark);
+        }
+        return reclaimedCount;
+    }
+    
+    /**
+     * Returns the versions to the pool, which have been removed before 
+     * the oldest active transaction has started. The scans that might 
+     * have been reading them are done by then.
+     */
+    private void freeRemovedVersions(long watermark)
+    {
+        while (   !myRemovedVersions.isEmpty()
+               && myRemovedVersions.peek().getFirst().longValue() 
+                      < watermark)
+        {
+            for (Object version : myRemovedVersions.poll().getSecond()) {
+                PooledObjects.freeInstance((Transactable<?, ?>) version);
+            }
+        }
+    }
+    
+    private void recordPause(long pauseNanos)
+    {
+        myTotalPauseNanos.addAndGet(pauseNanos);
+        long maxPause = myMaxPauseNanos.get();
+        while (pauseNanos > maxPause) {
+            if (myMaxPauseNanos.compareAndSet(maxPause, pauseNanos)) {
+                break;
+            }
+            maxPause = myMaxPauseNanos.get();
+        }
+    }
+
+    /**
+     * Returns the total number of versions reclaimed so far.
+     */
+    public long getReclaimedVersions()
+    {
+        return myReclaimedVersions.get();
+    }
+    
+    /**
+     * Returns the number of times the collector has run.
+     */
+    public long getCollectionCount()
+    {
+        return myCollectionCount.get();
+    }
+    
+    /**
+     * Returns the total time in nano seconds spent in reclaiming the
+     * batches of versions.
+     */
+    public long getTotalPauseNanos()
+    {
+        return myTotalPauseNanos.get();
+    }
+    
+    /**
+     * Returns the longest time in nano seconds spent in reclaiming a 
+     * single batch of versions.
+     */
+    public long getMaxPauseNanos()
+    {
+        return myMaxPauseNanos.get();
+    }
+}
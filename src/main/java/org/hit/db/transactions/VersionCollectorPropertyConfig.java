@@ -0,0 +1,66 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.db.transactions;
+
+import org.hit.util.ApplicationProperties;
+
+/**
+ * Implements {@link VersionCollectorConfig} by reading values from the
+ * <code>ApplicationProperties</code>.
+ * 
+ * @author Balraja Subbiah
+ */
+public class VersionCollectorPropertyConfig implements VersionCollectorConfig
+{
+    private static final String COLLECTION_INTERVAL_PROPERTY = 
+        "org.hit.gc.collectionIntervalInMillis";
+    
+    private static final String BATCH_SIZE_PROPERTY = 
+        "org.hit.gc.batchSize";
+    
+    private static final long DEFAULT_COLLECTION_INTERVAL = 1000L;
+    
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCollectionIntervalMillis()
+    {
+        String interval = 
+            ApplicationProperties.getProperty(COLLECTION_INTERVAL_PROPERTY);
+        return interval != null ? Long.parseLong(interval)
+                                : DEFAULT_COLLECTION_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBatchSize()
+    {
+        String batchSize = 
+            ApplicationProperties.getProperty(BATCH_SIZE_PROPERTY);
+        return batchSize != null ? Integer.parseInt(batchSize)
+                                 : DEFAULT_BATCH_SIZE;
+    }
+}
@@ -38,9 +38,9 @@ public class WriteTransaction extends ActiveTransaction
 {
     private Mutation myMutation;
     
-    private long myStartTimeOverride;
+    private long myStartTimeOverride = Long.MIN_VALUE;
     
-    private long myEndTimeOverride;
+    private long myEndTimeOverride = Long.MIN_VALUE;
 
     /**
      *   Factory method for creating an instance of <code>WriteTransaction</code> 
@@ -128,6 +128,7 @@ public class WriteTransaction extends ActiveTransaction
     @Override
     public void free()
     {
+        super.free();
         PoolUtils.free(myMutation);
         myMutation = null;
         myStartTimeOverride = myEndTimeOverride = Long.MIN_VALUE;
@@ -63,14 +63,18 @@ public class WriteTransactionValidator extends ReadTransactionValidator
         else {
             for (Transactable<K,P> transactable : trail.getWriteSet()) {
                 if (!transactable.validate(getValidationTime(),
-                                           getTransactionId()).isValid())
+                                           getTransactionId(),
+                                           getDatabase().getRegistry())
+                                 .isValid())
                 {
                     return false;
                 }
             }
             for (Transactable<K,P> transactable : trail.getNewWriteSet()) {
                 if (!transactable.validate(getValidationTime(),
-                                           getTransactionId()).isValid())
+                                           getTransactionId(),
+                                           getDatabase().getRegistry())
+                                 .isValid())
                 {
                     return false;
                 }
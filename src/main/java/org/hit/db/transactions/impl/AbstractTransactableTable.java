@@ -21,6 +21,7 @@
 package org.hit.db.transactions.impl;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hit.db.model.Persistable;
 import org.hit.db.model.HitTableSchema;
@@ -70,8 +71,8 @@ public abstract class AbstractTransactableTable<K extends Comparable<K>,
                 && input.getFirst().getTransactionId()
                        != myTransactionID)
             {
-                Registry.addDependency(input.getFirst().getTransactionId(), 
-                                      myTransactionID);
+                myRegistry.addDependency(input.getFirst().getTransactionId(), 
+                                         myTransactionID);
             }
             
             return input.getSecond();
@@ -80,12 +81,49 @@ public abstract class AbstractTransactableTable<K extends Comparable<K>,
     
     private final HitTableSchema mySchema;
     
+    private final Registry myRegistry;
+    
+    private final AtomicLong myAccessCount;
+    
+    private final AtomicLong myAccessLatency;
+    
     /**
      * CTOR
      */
-    public AbstractTransactableTable(HitTableSchema schema)
+    public AbstractTransactableTable(HitTableSchema schema, Registry registry)
     {
         mySchema = schema;
+        myRegistry = registry;
+        myAccessCount = new AtomicLong();
+        myAccessLatency = new AtomicLong();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordAccess(long latencyNanos)
+    {
+        myAccessCount.incrementAndGet();
+        myAccessLatency.addAndGet(latencyNanos);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAccessCount()
+    {
+        return myAccessCount.get();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAccessLatency()
+    {
+        return myAccessLatency.get();
     }
 
     /**
@@ -96,6 +134,15 @@ public abstract class AbstractTransactableTable<K extends Comparable<K>,
     {
         return mySchema;
     }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Registry getRegistry()
+    {
+        return myRegistry;
+    }
 
     /**
      * A helper method to get the latest version of a row for a key.
@@ -119,15 +166,15 @@ public abstract class AbstractTransactableTable<K extends Comparable<K>,
             for (int i = result.size() - 1; i >= 0; i--) {
                 Transactable<K, P> transactable = result.get(i);
                 ValidationResult validationResult = 
-                    transactable.validate(time, transactionID);
+                    transactable.validate(time, transactionID, myRegistry);
                 if (validationResult.isValid()) {
                     return transactable;
                 }
                 else if (   speculativeRead
                          && validationResult.isSpeculativelyValid()) 
                 {
-                    Registry.addDependency(validationResult.getTransactionId(),
-                                           transactionID);
+                    myRegistry.addDependency(
+                        validationResult.getTransactionId(), transactionID);
                     return transactable;
                 }
             }
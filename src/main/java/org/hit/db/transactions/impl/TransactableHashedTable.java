@@ -31,6 +31,7 @@ import org.hit.concurrent.RefinableHashTable;
 import org.hit.db.model.Persistable;
 import org.hit.db.model.Predicate;
 import org.hit.db.model.HitTableSchema;
+import org.hit.db.transactions.Registry;
 import org.hit.db.transactions.Transactable;
 import org.hit.db.transactions.ValidationResult;
 import org.hit.util.Pair;
@@ -49,6 +50,10 @@ public class TransactableHashedTable <K extends Comparable<K>,
 {
     private final HashTable<K, Transactable<K,P>> myIndex;
     
+    private volatile int myReclaimBucket;
+    
+    private volatile int myReclaimBucketCount;
+    
     private class BasicFilter implements 
         com.google.common.base.Predicate<Transactable<K,P>>
     {
@@ -104,12 +109,39 @@ public class TransactableHashedTable <K extends Comparable<K>,
         }
     }
 
+    private class FollowingKeyFilter extends BasicFilter
+    {
+        private final K myResumeKey;
+        
+        /**
+         * CTOR
+         */
+        public FollowingKeyFilter(Predicate queryPredicate, K resumeKey)
+        {
+            super(queryPredicate);
+            myResumeKey = resumeKey;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean apply(Transactable<K, P> transactable)
+        {
+            return super.apply(transactable)
+                && (   myResumeKey == null
+                    || transactable.getPersistable()
+                                   .primaryKey()
+                                   .compareTo(myResumeKey) > 0);
+        }
+    }
+
     /**
      * CTOR
      */
-    public TransactableHashedTable(HitTableSchema schema)
+    public TransactableHashedTable(HitTableSchema schema, Registry registry)
     {
-        super(schema);
+        super(schema, registry);
         myIndex = new RefinableHashTable<>();
     }
 
@@ -140,6 +172,23 @@ public class TransactableHashedTable <K extends Comparable<K>,
         
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Transactable<K, P>>
+        findMatching(Predicate predicate,
+                     K         resumeKey,
+                     int       limit,
+                     long      time,
+                     long      transactionID)
+    {
+        return doFindMatching(new FollowingKeyFilter(predicate, resumeKey),
+                              transactionID,
+                              time,
+                              limit);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -155,6 +204,21 @@ public class TransactableHashedTable <K extends Comparable<K>,
                            filteringPredicate,
                        long transactionID,
                        long time)
+    {
+        return doFindMatching(
+            filteringPredicate, transactionID, time, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Matches the rows of the table, retaining only the <code>limit</code>
+     * rows with the smallest keys as the keys aren't ordered in the index.
+     */
+    public Collection<Transactable<K, P>>
+        doFindMatching(com.google.common.base.Predicate<Transactable<K,P>>
+                           filteringPredicate,
+                       long transactionID,
+                       long time,
+                       int  limit)
     {
         Iterator<Transactable<K,P>> itr = myIndex.getAllValues();
         TreeMap<K, Pair<ValidationResult, Transactable<K,P>>> result = 
@@ -164,7 +228,7 @@ public class TransactableHashedTable <K extends Comparable<K>,
             if (filteringPredicate.apply(transactable)){
                 
                 ValidationResult validationResult = 
-                    transactable.validate(time, transactionID);
+                    transactable.validate(time, transactionID, getRegistry());
                 Pair<ValidationResult, Transactable<K,P>> sameKeyValue = 
                     result.get(transactable.getPersistable().primaryKey());
                 if (   sameKeyValue == null 
@@ -186,6 +250,9 @@ public class TransactableHashedTable <K extends Comparable<K>,
                     result.put(transactable.getPersistable().primaryKey(),
                                new Pair<>(validationResult, transactable));
                 }
+                if (result.size() > limit) {
+                    result.pollLastEntry();
+                }
             }
         }
         
@@ -245,10 +312,23 @@ public class TransactableHashedTable <K extends Comparable<K>,
                                                       K end,
                                                       long time,
                                                       long transactionID)
+    {
+        return deleteRange(start, end, Integer.MAX_VALUE, time, transactionID);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Transactable<K, P>> deleteRange(K    start,
+                                                      K    end,
+                                                      int  limit,
+                                                      long time,
+                                                      long transactionID)
     {
         List<Transactable<K,P>> result = new ArrayList<>();
         Iterator<Transactable<K,P>> iterator = myIndex.getAllValues();
-        while (iterator.hasNext()) {
+        while (iterator.hasNext() && result.size() < limit) {
             Transactable<K,P> row = iterator.next();
             if (myIndex.remove(row.getPersistable().primaryKey(), 
                                row))
@@ -273,4 +353,44 @@ public class TransactableHashedTable <K extends Comparable<K>,
         
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Transactable<K, P>> getVersions()
+    {
+        return myIndex.getAllValues();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Transactable<K, P>> reclaimVersions(long watermark,
+                                                          int  batchSize)
+    {
+        List<Transactable<K,P>> result = new ArrayList<>();
+        // The cursor is a bucket of the table when it had the remembered 
+        // number of buckets, which stays valid while the table grows.
+        int bucket = myReclaimBucket;
+        int bucketCount = 
+            bucket == 0 ? myIndex.getBucketCount() : myReclaimBucketCount;
+        while (bucket < bucketCount && result.size() < batchSize) {
+            for (Transactable<K,P> version : 
+                    myIndex.getBucket(bucket, bucketCount)) 
+            {
+                if (   version.isReclaimable(watermark)
+                    && myIndex.remove(version.getPersistable().primaryKey(),
+                                      version))
+                {
+                    result.add(version);
+                }
+            }
+            bucket++;
+        }
+        // Start from the beginning of the table once we reach it's end.
+        myReclaimBucket = bucket < bucketCount ? bucket : 0;
+        myReclaimBucketCount = bucketCount;
+        return result;
+    }
 }
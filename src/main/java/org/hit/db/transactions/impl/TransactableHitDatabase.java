@@ -20,20 +20,26 @@
 
 package org.hit.db.transactions.impl;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 import org.hit.db.keyspace.HashKeyspace;
 import org.hit.db.model.Persistable;
 import org.hit.db.model.HitTableSchema;
+import org.hit.db.transactions.Registry;
 import org.hit.db.transactions.TransactableDatabase;
 import org.hit.db.transactions.TransactableTable;
+import org.hit.db.transactions.TransactionWatermark;
 import org.hit.event.DBStatEvent;
 import org.hit.pool.PooledObjects;
 import org.hit.util.LogFactory;
 
+import com.google.inject.Inject;
+
 /**
  * Defines an implementation for the hit database that stores the
  * <code>Table</code>s
@@ -46,20 +52,33 @@ public class TransactableHitDatabase implements TransactableDatabase
     private static final Logger LOG =
         LogFactory.getInstance().getLogger(TransactableHitDatabase.class);
     
-    private final Map<String, TransactableTable<?, ?>> myDatabaseTables;
+    private final ConcurrentMap<String, TransactableTable<?, ?>> 
+        myDatabaseTables;
 
     private final Map<String, HitTableSchema> myTable2Schema;
     
-    private final AtomicLong myLock;
+    private final TransactionWatermark myWatermark;
+    
+    private final Registry myRegistry;
 
     /**
      * CTOR
      */
     public TransactableHitDatabase()
     {
-        myDatabaseTables = new HashMap<>();
+        this(new Registry());
+    }
+    
+    /**
+     * CTOR
+     */
+    @Inject
+    public TransactableHitDatabase(Registry registry)
+    {
+        myDatabaseTables = new ConcurrentHashMap<>();
         myTable2Schema = new HashMap<>();
-        myLock = new AtomicLong(UNLOCKED_VALUE);
+        myWatermark = new TransactionWatermark();
+        myRegistry = registry;
     }
 
     /**
@@ -87,20 +106,52 @@ public class TransactableHitDatabase implements TransactableDatabase
 
         if (table == null) {
             table = makeTable(myTable2Schema.get(tableName));
-            myDatabaseTables.put(tableName, table);
+            TransactableTable<K,P> existing = 
+                (TransactableTable<K,P>) 
+                    myDatabaseTables.putIfAbsent(tableName, table);
+            if (existing != null) {
+                table = existing;
+            }
         }
         return table;
     }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<TransactableTable<?, ?>> getTables()
+    {
+        return myDatabaseTables.values();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransactionWatermark getWatermark()
+    {
+        return myWatermark;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Registry getRegistry()
+    {
+        return myRegistry;
+    }
 
     private <K extends Comparable<K>, P extends Persistable<K>>
         TransactableTable<K, P> makeTable(HitTableSchema schema)
     {
         if (schema.getKeyspace() instanceof HashKeyspace)
         {
-            return new TransactableHashedTable<>(schema);
+            return new TransactableHashedTable<>(schema, myRegistry);
         }
         else {
-            return new TransactablePartitionedTable<>(schema);
+            return new TransactablePartitionedTable<>(schema, myRegistry);
         }
     }
 
@@ -115,6 +166,9 @@ public class TransactableHitDatabase implements TransactableDatabase
             TransactableTable<?, ?> table = myDatabaseTables.get(tableName);
             if (table != null) {
                 stat.addTableRowCount(tableName, table.rowCount());
+                stat.addTableAccess(tableName, 
+                                    table.getAccessCount(), 
+                                    table.getAccessLatency());
             }
             else {
                 stat.addTableRowCount(tableName, 0L);
@@ -122,44 +176,4 @@ public class TransactableHitDatabase implements TransactableDatabase
         }
         return stat;
     }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public boolean lock(long transactionID)
-    {
-        LOG.info("The transaction " + transactionID + " has requested for "
-                 + " locking the database");
-        return myLock.compareAndSet(UNLOCKED_VALUE, transactionID);   
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public boolean unlock(long transactionID)
-    {
-        return myLock.compareAndSet(transactionID, UNLOCKED_VALUE);      
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public boolean canProcess(long transactionID)
-    {
-        return (   myLock.get() == UNLOCKED_VALUE
-                || myLock.get() == transactionID);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public long getLockedTransaction()
-    {
-        return myLock.get();
-    }
 }
-
@@ -22,6 +22,7 @@ package org.hit.db.transactions.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.TreeMap;
 
@@ -29,11 +30,14 @@ import org.hit.concurrent.LocklessSkipList;
 import org.hit.db.model.Persistable;
 import org.hit.db.model.Predicate;
 import org.hit.db.model.HitTableSchema;
+import org.hit.db.transactions.Registry;
 import org.hit.db.transactions.Transactable;
 import org.hit.db.transactions.ValidationResult;
 import org.hit.util.Pair;
 
+import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.Iterators;
 
 /**
  * An implementation of a table wherein the keyspace of the table is
@@ -46,12 +50,15 @@ public class TransactablePartitionedTable<K extends Comparable<K>, P extends Per
 {
     private final LocklessSkipList<K, Transactable<K,P>> myIndex;
     
+    /** The key from which the next batch of reclamation resumes */
+    private volatile K myReclaimCursor;
+    
     /**
      * CTOR
      */
-    public TransactablePartitionedTable(HitTableSchema schema)
+    public TransactablePartitionedTable(HitTableSchema schema, Registry registry)
     {
-        super(schema);
+        super(schema, registry);
         myIndex = new LocklessSkipList<K, Transactable<K,P>>(10);
     }
 
@@ -70,14 +77,35 @@ public class TransactablePartitionedTable<K extends Comparable<K>, P extends Per
         long             transactionID,
         long             time,
         LocklessSkipList<K, Transactable<K,P>>.SkipListIterator iterator)
+    {
+        return doFindMatching(
+            predicate, transactionID, time, iterator, null, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Matches the rows in the order of their keys, skipping the ones 
+     * upto the resume key, until <code>limit</code> rows have been found. 
+     */
+    private Collection<Transactable<K, P>> doFindMatching(
+        Predicate        predicate,
+        long             transactionID,
+        long             time,
+        LocklessSkipList<K, Transactable<K,P>>.SkipListIterator iterator,
+        K                resumeKey,
+        int              limit)
     {
         TreeMap<K, Pair<ValidationResult, Transactable<K,P>>> result = 
                         new TreeMap<>();
-        while (iterator.hasNext()) {
+        while (iterator.hasNext() && result.size() < limit) {
             for (Transactable<K,P> transactable : iterator.next()) {
-                if (predicate.isInterested(transactable.getPersistable())) {
+                if (   (   resumeKey == null 
+                        || transactable.getPersistable()
+                                       .primaryKey()
+                                       .compareTo(resumeKey) > 0)
+                    && predicate.isInterested(transactable.getPersistable())) 
+                {
                     ValidationResult validationResult = 
-                        transactable.validate(time, transactionID);
+                        transactable.validate(time, transactionID, getRegistry());
                     Pair<ValidationResult, Transactable<K,P>> sameKeyValue = 
                         result.get(transactable.getPersistable().primaryKey());
                     if (   sameKeyValue == null 
@@ -137,6 +165,24 @@ public class TransactablePartitionedTable<K extends Comparable<K>, P extends Per
         return doFindMatching(predicate, transactionID, time, iterator);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Transactable<K, P>>
+        findMatching(Predicate predicate,
+                     K         resumeKey,
+                     int       limit,
+                     long      time,
+                     long      transactionID)
+    {
+        LocklessSkipList<K, Transactable<K,P>>.SkipListIterator iterator =
+            resumeKey == null ? myIndex.lookupAllValues() 
+                              : myIndex.lookupValuesFrom(resumeKey);
+        return doFindMatching(
+            predicate, transactionID, time, iterator, resumeKey, limit);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -188,15 +234,29 @@ public class TransactablePartitionedTable<K extends Comparable<K>, P extends Per
                                                       K end,
                                                       long time,
                                                       long transactionID)
+    {
+        return deleteRange(start, end, Integer.MAX_VALUE, time, transactionID);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Transactable<K, P>> deleteRange(K    start,
+                                                      K    end,
+                                                      int  limit,
+                                                      long time,
+                                                      long transactionID)
     {
         List<Transactable<K,P>> result = new ArrayList<>();
         LocklessSkipList<K, Transactable<K,P>>.SkipListIterator iterator =
             myIndex.lookupValues(start, end);
-        while (iterator.hasNext()) {
+        while (iterator.hasNext() && result.size() < limit) {
             List<Transactable<K,P>> rowVersions = iterator.next();
             Transactable<K,P> row = doGetRow(rowVersions, time, transactionID);
-            if (myIndex.remove(row.getPersistable().primaryKey(), 
-                               row))
+            // The keys whose versions have all been removed are skipped.
+            if (   row != null
+                && myIndex.remove(row.getPersistable().primaryKey(), row))
             {
                 result.add(row);
             }
@@ -213,4 +273,51 @@ public class TransactablePartitionedTable<K extends Comparable<K>, P extends Per
         myIndex.remove(deletedVersion.getPersistable().primaryKey(), 
                        deletedVersion);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Transactable<K, P>> getVersions()
+    {
+        return Iterators.concat(Iterators.transform(
+            myIndex.lookupAllValues(),
+            new Function<List<Transactable<K,P>>, 
+                         Iterator<Transactable<K,P>>>() {
+                @Override
+                public Iterator<Transactable<K, P>> apply(
+                    List<Transactable<K, P>> rowVersions)
+                {
+                    return rowVersions.iterator();
+                }
+            }));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Transactable<K, P>> reclaimVersions(long watermark,
+                                                          int  batchSize)
+    {
+        List<Transactable<K,P>> result = new ArrayList<>();
+        K cursor = myReclaimCursor;
+        LocklessSkipList<K, Transactable<K,P>>.SkipListIterator iterator =
+            cursor == null ? myIndex.lookupAllValues() 
+                           : myIndex.lookupValuesFrom(cursor);
+        
+        while (iterator.hasNext() && result.size() < batchSize) {
+            for (Transactable<K,P> version : iterator.next()) {
+                cursor = version.getPersistable().primaryKey();
+                if (   version.isReclaimable(watermark)
+                    && myIndex.remove(cursor, version))
+                {
+                    result.add(version);
+                }
+            }
+        }
+        // Start from the beginning of the table once we reach it's end.
+        myReclaimCursor = iterator.hasNext() ? cursor : null;
+        return result;
+    }
 }
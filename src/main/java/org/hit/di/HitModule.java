@@ -20,10 +20,13 @@
 
 package org.hit.di;
 
+import org.hit.communicator.BinarySerializerFactory;
 import org.hit.communicator.Communicator;
 import org.hit.communicator.ObjectStreamSerializerFactory;
 import org.hit.communicator.SerializerFactory;
 import org.hit.communicator.nio.NIOCommunicator;
+import org.hit.communicator.nio.NIOCommunicatorConfig;
+import org.hit.communicator.nio.NIOCommunicatorPropertyConfig;
 import org.hit.gms.GroupID;
 import org.hit.gms.SimpleGroupID;
 import org.hit.io.ObjectIOFactory;
@@ -33,6 +36,8 @@ import org.hit.io.buffer.BufferPropertyConfig;
 import org.hit.io.pool.PoolableIOFactory;
 import org.hit.io.pool.PoolableRegistry;
 import org.hit.pool.SimplePoolableRegistry;
+import org.hit.time.Clock;
+import org.hit.time.HybridLogicalClock;
 import org.hit.util.ApplicationProperties;
 import org.hit.zookeeper.ZooKeeperClient;
 import org.hit.zookeeper.ZooKeeperClientConfig;
@@ -40,6 +45,7 @@ import org.hit.zookeeper.ZooKeeperClientPropertyConfig;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 
@@ -54,6 +60,12 @@ public abstract class HitModule extends AbstractModule
     public static final String HIT_COMM_PORT_PROPERTY = 
         "org.hit.communicator.port";
     
+    public static final String HIT_COMM_SERIALIZER_PROPERTY = 
+        "org.hit.communicator.serializer";
+    
+    /** The value of serializer property for using the binary serializer */
+    public static final String BINARY_SERIALIZER = "binary";
+    
     /**
      * {@inheritDoc}
      */
@@ -63,8 +75,10 @@ public abstract class HitModule extends AbstractModule
         bindConstant().annotatedWith(Names.named("PreferredPort"))
                       .to(getBoundPort());
         
-        bind(SerializerFactory.class).to(ObjectStreamSerializerFactory.class);
+        bind(SerializerFactory.class).to(getSerializerFactoryType());
         bind(Communicator.class).to(NIOCommunicator.class);
+        bind(NIOCommunicatorConfig.class)
+            .to(NIOCommunicatorPropertyConfig.class);
         bind(ZooKeeperClientConfig.class)
             .to(ZooKeeperClientPropertyConfig.class);
         bind(ZooKeeperClient.class).toProvider(ZookeeperClientProvider.class);
@@ -73,6 +87,7 @@ public abstract class HitModule extends AbstractModule
         bind(BufferConfig.class).to(BufferPropertyConfig.class);
         bind(PoolableRegistry.class).to(SimplePoolableRegistry.class);
         bind(ObjectIOFactory.class).to(PoolableIOFactory.class);
+        bind(Clock.class).to(HybridLogicalClock.class).in(Singleton.class);
     }
 
     protected Integer getBoundPort()
@@ -83,6 +98,15 @@ public abstract class HitModule extends AbstractModule
                                  : getDefaultBoundPort();
     }
     
+    protected Class<? extends SerializerFactory> getSerializerFactoryType()
+    {
+        String serializer = 
+            ApplicationProperties.getProperty(HIT_COMM_SERIALIZER_PROPERTY);
+        return BINARY_SERIALIZER.equalsIgnoreCase(serializer) ?
+            BinarySerializerFactory.class 
+            : ObjectStreamSerializerFactory.class;
+    }
+    
     @Named("ServerGroupID")
     @Provides
     GroupID makeServerGroupID(@Named("ServerGroupName") String serverGroupName)
@@ -29,7 +29,11 @@ import org.hit.db.engine.EngineJanitor;
 import org.hit.db.engine.ConsensusID;
 import org.hit.db.engine.StandardAllocator;
 import org.hit.db.engine.TransactionManager;
+import org.hit.db.snapshot.SnapshotConfig;
+import org.hit.db.snapshot.SnapshotPropertyConfig;
 import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.VersionCollectorConfig;
+import org.hit.db.transactions.VersionCollectorPropertyConfig;
 import org.hit.db.transactions.impl.TransactableHitDatabase;
 import org.hit.fs.FileSystemFacacde;
 import org.hit.fs.StandardFileSystem;
@@ -37,8 +41,6 @@ import org.hit.gms.GroupID;
 import org.hit.gms.SimpleGroupID;
 import org.hit.server.ServerConfig;
 import org.hit.server.ServerPropertyConfig;
-import org.hit.time.Clock;
-import org.hit.time.SimpleSystemClock;
 
 import com.google.inject.Provides;
 import com.google.inject.name.Named;
@@ -76,7 +78,6 @@ public class HitServerModule extends HitModule
     protected void configure()
     {
         super.configure();
-        bind(Clock.class).to(SimpleSystemClock.class);
         bind(FileSystemFacacde.class).to(StandardFileSystem.class);
         bind(Allocator.class).to(StandardAllocator.class);
         bind(TransactableDatabase.class).to(TransactableHitDatabase.class);
@@ -84,6 +85,9 @@ public class HitServerModule extends HitModule
             TransactionManagerProvider.class);
         bind(EngineJanitor.class).toProvider(EngineJanitorProvider.class);
         bind(ServerConfig.class).to(ServerPropertyConfig.class);
+        bind(VersionCollectorConfig.class).to(
+            VersionCollectorPropertyConfig.class);
+        bind(SnapshotConfig.class).to(SnapshotPropertyConfig.class);
         bind(NodeID.class).toProvider(ServerIDProvider.class);
     }
 
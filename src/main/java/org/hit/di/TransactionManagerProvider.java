@@ -24,7 +24,9 @@ import org.hit.actors.EventBus;
 import org.hit.communicator.NodeID;
 import org.hit.consensus.UnitID;
 import org.hit.db.engine.TransactionManager;
+import org.hit.db.snapshot.SnapshotConfig;
 import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.VersionCollectorConfig;
 import org.hit.time.Clock;
 
 import com.google.inject.Inject;
@@ -45,13 +47,16 @@ public class TransactionManagerProvider implements Provider<TransactionManager>
      * CTOR
      */
     @Inject
-    public TransactionManagerProvider(TransactableDatabase database,
-                                      TransactableDatabase replicatedDatabase,
-                                      Clock                clock,
-                                      EventBus             eventBus,
-                                      NodeID               serverID,
-                                      @Named("ReplicationUnitID")
-                                      UnitID               replicationID)
+    public TransactionManagerProvider(
+        TransactableDatabase   database,
+        TransactableDatabase   replicatedDatabase,
+        Clock                  clock,
+        EventBus               eventBus,
+        NodeID                 serverID,
+        @Named("ReplicationUnitID")
+        UnitID                 replicationID,
+        VersionCollectorConfig collectorConfig,
+        SnapshotConfig         snapshotConfig)
     {
         myTransactionManager = 
             new TransactionManager(database, 
@@ -59,7 +64,9 @@ public class TransactionManagerProvider implements Provider<TransactionManager>
                                    clock, 
                                    eventBus, 
                                    serverID,
-                                   replicationID);
+                                   replicationID,
+                                   collectorConfig,
+                                   snapshotConfig);
     }
         
     /**
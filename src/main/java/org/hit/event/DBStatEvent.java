@@ -28,8 +28,10 @@ import org.hit.pool.Poolable;
 
 /**
  * Defines the contract for an <code>Event</code> that publishes the 
- * db statistics to other parts of the system. For now it prints the
- * number of rows in each table.
+ * db statistics to other parts of the system. It carries the number of 
+ * rows in each table along with the number of accesses of a table and the
+ * total time taken by them, which are cumulative since the start of the
+ * server.
  * 
  * @author Balraja Subbiah
  */
@@ -37,6 +39,10 @@ import org.hit.pool.Poolable;
 public class DBStatEvent implements Event, Poolable
 {
     private final TObjectLongMap<String> myTableToRowCountMap;
+    
+    private final TObjectLongMap<String> myTableToAccessCountMap;
+    
+    private final TObjectLongMap<String> myTableToAccessLatencyMap;
 
     /**
      * CTOR
@@ -45,12 +51,26 @@ public class DBStatEvent implements Event, Poolable
     {
         super();
         myTableToRowCountMap = new TObjectLongHashMap<>();
+        myTableToAccessCountMap = new TObjectLongHashMap<>();
+        myTableToAccessLatencyMap = new TObjectLongHashMap<>();
     }
     
     public void addTableRowCount(String tableName, long rowCount)
     {
         myTableToRowCountMap.put(tableName, rowCount);
     }
+    
+    /**
+     * Adds the number of accesses of a table and the total time in 
+     * nanoseconds taken by them.
+     */
+    public void addTableAccess(String tableName, 
+                               long   accessCount, 
+                               long   accessLatency)
+    {
+        myTableToAccessCountMap.put(tableName, accessCount);
+        myTableToAccessLatencyMap.put(tableName, accessLatency);
+    }
 
     /**
      * Returns the value of tableToRowCountMap
@@ -59,6 +79,22 @@ public class DBStatEvent implements Event, Poolable
     {
         return myTableToRowCountMap;
     }
+    
+    /**
+     * Returns the value of tableToAccessCountMap
+     */
+    public TObjectLongMap<String> getTableToAccessCountMap()
+    {
+        return myTableToAccessCountMap;
+    }
+    
+    /**
+     * Returns the value of tableToAccessLatencyMap
+     */
+    public TObjectLongMap<String> getTableToAccessLatencyMap()
+    {
+        return myTableToAccessLatencyMap;
+    }
 
     /**
      * {@inheritDoc}
@@ -67,6 +103,8 @@ public class DBStatEvent implements Event, Poolable
     public void free()
     {
         myTableToRowCountMap.clear();
+        myTableToAccessCountMap.clear();
+        myTableToAccessLatencyMap.clear();
     }
 
 }
@@ -0,0 +1,77 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.event;
+
+import org.hit.communicator.NodeID;
+import org.hit.db.sql.operators.MaterializedDatabase;
+
+/**
+ * Defines an <code>Event</code> that's published by the 
+ * <code>TransactionManager</code> once it has read the rows of the 
+ * joined tables held by this server, for a join requested by a client.
+ * 
+ * @author Balraja Subbiah
+ */
+public class JoinInputEvent implements Event
+{
+    private final NodeID myClientID;
+    
+    private final long mySequenceNumber;
+    
+    private final MaterializedDatabase myInputs;
+
+    /**
+     * CTOR
+     */
+    public JoinInputEvent(NodeID               clientID, 
+                          long                 sequenceNumber,
+                          MaterializedDatabase inputs)
+    {
+        super();
+        myClientID = clientID;
+        mySequenceNumber = sequenceNumber;
+        myInputs = inputs;
+    }
+
+    /**
+     * Returns the client that requested the join
+     */
+    public NodeID getClientID()
+    {
+        return myClientID;
+    }
+
+    /**
+     * Returns the sequence number assigned to the join by the client
+     */
+    public long getSequenceNumber()
+    {
+        return mySequenceNumber;
+    }
+
+    /**
+     * Returns the rows of the joined tables held by this server
+     */
+    public MaterializedDatabase getInputs()
+    {
+        return myInputs;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.event;
+
+import java.io.File;
+
+import org.hit.consensus.UnitID;
+
+/**
+ * Defines an <code>Event</code> to notify the consensus leader of an unit
+ * that a snapshot of it's data has been taken, so that the proposals 
+ * captured in the snapshot can be discarded from it's log.
+ * 
+ * @author Balraja Subbiah
+ */
+public class LogCompactionEvent implements Event
+{
+    private final UnitID myUnitID;
+    
+    private final long mySnapshotTime;
+    
+    private final File mySnapshotDirectory;
+
+    /**
+     * CTOR
+     */
+    public LogCompactionEvent(UnitID unitID, 
+                              long   snapshotTime, 
+                              File   snapshotDirectory)
+    {
+        super();
+        myUnitID = unitID;
+        mySnapshotTime = snapshotTime;
+        mySnapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * Returns the value of unitID
+     */
+    public UnitID getUnitID()
+    {
+        return myUnitID;
+    }
+
+    /**
+     * Returns the time at which the snapshot has been taken
+     */
+    public long getSnapshotTime()
+    {
+        return mySnapshotTime;
+    }
+
+    /**
+     * Returns the directory under which the snapshot has been stored
+     */
+    public File getSnapshotDirectory()
+    {
+        return mySnapshotDirectory;
+    }
+}
@@ -22,6 +22,7 @@ package org.hit.facade;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -38,6 +39,7 @@ import org.hit.communicator.CommunicatorException;
 import org.hit.communicator.Message;
 import org.hit.communicator.MessageHandler;
 import org.hit.communicator.NodeID;
+import org.hit.db.keyspace.domain.DiscreteDomain;
 import org.hit.db.model.DBOperation;
 import org.hit.db.model.HitTableSchema;
 import org.hit.db.model.Persistable;
@@ -51,6 +53,9 @@ import org.hit.db.partitioner.Partitioner;
 import org.hit.db.partitioner.TablePartitionInfo;
 import org.hit.db.sql.merger.QueryResultMerger;
 import org.hit.db.sql.merger.SimpleQueryResultMerger;
+import org.hit.db.sql.operators.Join;
+import org.hit.db.sql.operators.KeyBounds;
+import org.hit.db.sql.operators.QueryAdaptor;
 import org.hit.db.sql.operators.QueryBuildingException;
 import org.hit.db.sql.parser.QueryParser;
 import org.hit.di.HitFacadeModule;
@@ -60,6 +65,7 @@ import org.hit.messages.DBOperationFailureMessage;
 import org.hit.messages.DBOperationMessage;
 import org.hit.messages.DBOperationSuccessMessage;
 import org.hit.messages.DistributedDBOperationMessage;
+import org.hit.messages.DistributedJoinMessage;
 import org.hit.messages.FacadeInitRequest;
 import org.hit.messages.FacadeInitResponse;
 import org.hit.registry.RegistryService;
@@ -405,6 +411,8 @@ public class HitDBFacade
         
         private final NodeID myServer;
         
+        private final List<NodeID> myJoinParticipants;
+        
         /**
          * CTOR
          */
@@ -413,12 +421,30 @@ public class HitDBFacade
                                FutureCallback<Pair<NodeID, Collection<Row>>>
                                    resultCallback,
                                NodeID server)
+        {
+            this(query, sequenceNumber, resultCallback, server, null);
+        }
+        
+        /**
+         * CTOR
+         * 
+         * @param joinParticipants The servers between which the rows of
+         *        the joined tables are to be exchanged, null if the query
+         *        can be executed on the rows held by each server.
+         */
+        public SubmitQueryTask(Query query,
+                               long sequenceNumber,
+                               FutureCallback<Pair<NodeID, Collection<Row>>>
+                                   resultCallback,
+                               NodeID server,
+                               List<NodeID> joinParticipants)
         {
             super();
             myQuery = query;
             mySequenceNumber = sequenceNumber;
             myResultCallback = resultCallback;
             myServer = server;
+            myJoinParticipants = joinParticipants;
         }
 
         /**
@@ -444,10 +470,15 @@ public class HitDBFacade
             try {
                 myCommunicator.sendTo(
                     myServer,
-                    DBOperationMessage.create(
-                       myClientID,
-                       mySequenceNumber,
-                       myQuery));
+                    myJoinParticipants != null ?
+                        new DistributedJoinMessage(myClientID,
+                                                   mySequenceNumber,
+                                                   myQuery,
+                                                   myJoinParticipants)
+                        : DBOperationMessage.create(
+                            myClientID,
+                            mySequenceNumber,
+                            myQuery));
             }
             catch (CommunicatorException e) {
                 myResultCallback.onFailure(e);
@@ -487,7 +518,7 @@ public class HitDBFacade
                      mySchema);
 
             final TableCreationResponseHandler tableCreationHandler =
-                new TableCreationResponseHandler(myFuture);
+                new TableCreationResponseHandler(myFuture, mySchema);
             final SettableFuture<CreateTableResponseMessage> tableCreationFuture
                 = SettableFuture.create();
             Futures.addCallback(tableCreationFuture, tableCreationHandler);
@@ -510,14 +541,18 @@ public class HitDBFacade
         implements FutureCallback<CreateTableResponseMessage>
     {
         private final SettableFuture<TableCreationResponse> myClientFuture;
+        
+        private final HitTableSchema mySchema;
 
         /**
          * CTOR
          */
         public TableCreationResponseHandler(
-            SettableFuture<TableCreationResponse> clientFuture)
+            SettableFuture<TableCreationResponse> clientFuture,
+            HitTableSchema                        schema)
         {
             myClientFuture = clientFuture;
+            mySchema = schema;
         }
 
         /**
@@ -543,6 +578,7 @@ public class HitDBFacade
             else {
                 myTablePartitionInfo.addPartitionInfo(
                     response.getTableName(), response.getPartitioner());
+                myTablePartitionInfo.addSchema(mySchema);
 
                 myClientFuture.set(
                     new TableCreationResponse(response.getTableName()));
@@ -764,31 +800,80 @@ public class HitDBFacade
     }
     
     /**
-     * A helper method to query the database.
+     * A helper method to query the database. The query is sent only to 
+     * the nodes holding the partitions of the primary keys that satisfy
+     * the query's condition. A query joining the tables partitioned across
+     * the nodes is sent to all of them, and they exchange the rows of the
+     * joined tables before executing it.
      */
     public ListenableFuture<QueryResponse> queryDB(Query query)
     {
         SettableFuture<QueryResponse> queryResponse = SettableFuture.create();
         final long id = myOperationsCount.getAndIncrement();
+        Set<NodeID> queriedNodes = lookupQueriedNodes(query);
+        if (queriedNodes.isEmpty()) {
+            queryResponse.set(
+                new QueryResponse(Collections.<Row>emptyList()));
+            return queryResponse;
+        }
+        
+        // The results of a query built for distribution are merged by it's
+        // own merger, which aggregates and orders the partial results.
+        QueryResultMerger queryMerger = 
+            query instanceof RewritableQuery 
+            && ((RewritableQuery) query).getQueryMerger() != null ?
+                ((RewritableQuery) query).getQueryMerger()
+                : new SimpleQueryResultMerger();
+        
         FutureCallback<Pair<NodeID, Collection<Row>>> callback = 
             new RangeQueryResponserHandler(
                 id,
-                new HashSet<>(myRegistryService.getServerNodes()),
-                new SimpleQueryResultMerger(),
+                new HashSet<>(queriedNodes),
+                queryMerger,
                 queryResponse);
         
-        LOG.info("Sending query " + id + " to " 
-                 + myRegistryService.getServerNodes());
+        List<NodeID> joinParticipants = lookupJoinParticipants(query);
         
-        for (NodeID server : myRegistryService.getServerNodes()) {
+        LOG.info("Sending query " + id + " to " + queriedNodes);
+        
+        for (NodeID server : queriedNodes) {
             myExecutorService.submit(
                 new SubmitQueryTask(query,
                                     id, 
                                     callback,
-                                    server));
+                                    server,
+                                    joinParticipants));
         }
         return queryResponse;
     }
+    
+    /**
+     * A helper method to lookup the nodes between which the rows of the 
+     * tables joined by the query are to be exchanged. Returns null when 
+     * the query doesn't join more than one table that's partitioned 
+     * across the nodes, since each node then has the rows to be joined.
+     */
+    private List<NodeID> lookupJoinParticipants(Query query)
+    {
+        Join join = 
+            query instanceof QueryAdaptor ? ((QueryAdaptor) query).getJoin()
+                                          : null;
+        List<NodeID> serverNodes = 
+            new ArrayList<>(myRegistryService.getServerNodes());
+        if (join == null || serverNodes.size() < 2) {
+            return null;
+        }
+        
+        int partitionedTables = 0;
+        for (String tableName : join.getJoinedTables()) {
+            HitTableSchema schema = 
+                myTablePartitionInfo.lookupSchema(tableName);
+            if (schema == null || !schema.isReplicated()) {
+                partitionedTables++;
+            }
+        }
+        return partitionedTables > 1 ? serverNodes : null;
+    }
 
     /**
      * A helper method to query the database. The query is executed 
@@ -798,9 +883,68 @@ public class HitDBFacade
         throws QueryBuildingException, RecognitionException
     {
         LOG.info("Parsing query " + query);
-        Query queryInstance = QueryParser.parseQuery(query);
+        Query queryInstance = QueryParser.parseRewritableQuery(query);
         return queryDB(queryInstance);
     }
+    
+    /**
+     * A helper method to lookup the nodes holding the partitions of the
+     * primary keys that satisfy the condition of the query. The query is
+     * sent to all the nodes when the keys can't be bounded.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Set<NodeID> lookupQueriedNodes(Query query)
+    {
+        Set<NodeID> serverNodes = 
+            new HashSet<>(myRegistryService.getServerNodes());
+        if (!(query instanceof QueryAdaptor)) {
+            return serverNodes;
+        }
+        
+        QueryAdaptor queryAdaptor = (QueryAdaptor) query;
+        String tableName = queryAdaptor.getScannedTable();
+        HitTableSchema schema = 
+            tableName != null ? myTablePartitionInfo.lookupSchema(tableName)
+                              : null;
+        Partitioner partitioner = 
+            tableName != null ? myTablePartitionInfo.lookup(tableName) : null;
+        if (   schema == null
+            || partitioner == null
+            || schema.isReplicated()
+            || schema.getPrimaryKey() == null
+            || schema.getPrimaryKey().size() != 1)
+        {
+            return serverNodes;
+        }
+        
+        KeyBounds bounds = 
+            queryAdaptor.getKeyBounds(schema.getPrimaryKey().get(0));
+        if (bounds.isUnbounded()) {
+            return serverNodes;
+        }
+        else if (bounds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        
+        if (partitioner instanceof DistributedHashTable) {
+            // Only the point queries can be routed on a hash ring.
+            Comparable key = bounds.toPoint(schema.getKeyClass());
+            return key != null ? 
+                Collections.singleton(partitioner.lookupNode(key))
+                : serverNodes;
+        }
+        
+        DiscreteDomain domain = schema.getKeyspace().getDomain();
+        Range keyRange = bounds.toRange(schema.getKeyClass(),
+                                        domain.getMinimum(),
+                                        domain.getMaximum());
+        if (keyRange == null) {
+            return serverNodes;
+        }
+        Set<NodeID> queriedNodes = 
+            new HashSet<>(partitioner.lookupNodes(keyRange).keySet());
+        return !queriedNodes.isEmpty() ? queriedNodes : serverNodes;
+    }
 
     /**
      * {@inheritDoc}
@@ -0,0 +1,359 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.io.binary;
+
+import java.io.EOFException;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.nio.charset.StandardCharsets;
+
+import org.hit.io.pool.PoolableRegistry;
+import org.hit.pool.Internable;
+import org.hit.pool.Interner;
+import org.hit.pool.Poolable;
+import org.hit.pool.PooledObjects;
+
+/**
+ * An {@link ObjectInput} that reads the objects written by 
+ * {@link BinaryOutput}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class BinaryInput extends InputStream implements ObjectInput
+{
+    private final InputStream myIn;
+    
+    private final PoolableRegistry myRegistry;
+    
+    private final byte[] myScratch;
+    
+    private byte[] myStringBuffer;
+    
+    /**
+     * CTOR
+     */
+    public BinaryInput(InputStream in, PoolableRegistry registry)
+    {
+        myIn = in;
+        myRegistry = registry;
+        myScratch = new byte[8];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException
+    {
+        return myIn.read();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        return myIn.read(b, off, len);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readFully(byte[] b) throws IOException
+    {
+        readFully(b, 0, b.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException
+    {
+        int read = 0;
+        while (read < len) {
+            int count = myIn.read(b, off + read, len - read);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int skipBytes(int n) throws IOException
+    {
+        int skipped = 0;
+        while (skipped < n) {
+            long count = myIn.skip(n - skipped);
+            if (count <= 0) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean readBoolean() throws IOException
+    {
+        return readUnsignedByte() != 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte readByte() throws IOException
+    {
+        return (byte) readUnsignedByte();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int readUnsignedByte() throws IOException
+    {
+        int b = myIn.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public short readShort() throws IOException
+    {
+        return (short) readUnsignedShort();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int readUnsignedShort() throws IOException
+    {
+        readFully(myScratch, 0, 2);
+        return ((myScratch[0] & 0xFF) << 8) | (myScratch[1] & 0xFF);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public char readChar() throws IOException
+    {
+        return (char) readUnsignedShort();
+    }
+
+    /**
+     * Reads an int written as a zigzag encoded varint.
+     */
+    @Override
+    public int readInt() throws IOException
+    {
+        int v = readUnsignedVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Reads a long written as a zigzag encoded varint.
+     */
+    @Override
+    public long readLong() throws IOException
+    {
+        long v = readUnsignedVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float readFloat() throws IOException
+    {
+        readFully(myScratch, 0, 4);
+        return Float.intBitsToFloat(((myScratch[0] & 0xFF) << 24)
+                                    | ((myScratch[1] & 0xFF) << 16)
+                                    | ((myScratch[2] & 0xFF) << 8)
+                                    | (myScratch[3] & 0xFF));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double readDouble() throws IOException
+    {
+        readFully(myScratch, 0, 8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (myScratch[i] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Not supported as the strings are always written with their length.
+     */
+    @Override
+    public String readLine() throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String readUTF() throws IOException
+    {
+        int length = readUnsignedVarInt();
+        if (myStringBuffer == null || myStringBuffer.length < length) {
+            myStringBuffer = new byte[Math.max(length, 64)];
+        }
+        readFully(myStringBuffer, 0, length);
+        return new String(myStringBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Reads a non negative int written as a varint.
+     */
+    public int readUnsignedVarInt() throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+    
+    /**
+     * Reads a non negative long written as a varint.
+     */
+    public long readUnsignedVarLong() throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+    
+    /**
+     * Reads the type written by {@link BinaryOutput#writeType(Class)}
+     */
+    public Class<?> readType() throws IOException
+    {
+        int id = readUnsignedVarInt();
+        if (id == BinaryOutput.NULL_TAG) {
+            return null;
+        }
+        Class<?> type = myRegistry.getPoolableType(id);
+        if (type == null) {
+            throw new IOException("Unknown type identifier " + id);
+        }
+        return type;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object readObject() throws ClassNotFoundException, IOException
+    {
+        Class<?> type = readType();
+        if (type == null) {
+            return null;
+        }
+        
+        Codec<?> codec = Codec.getCodec(type);
+        if (codec != null) {
+            return codec.decode(this);
+        }
+        else if (Internable.class.isAssignableFrom(type)) {
+            return Interner.getInterner(type).readFromInput(this);
+        }
+        else if (Externalizable.class.isAssignableFrom(type)) {
+            Externalizable externalizable = newInstance(type);
+            externalizable.readExternal(this);
+            return externalizable;
+        }
+        else if (type.isEnum()) {
+            return type.getEnumConstants()[readUnsignedVarInt()];
+        }
+        else {
+            throw new IOException(
+                type.getSimpleName() + " can't be decoded as it neither has "
+                + "a codec nor is Internable, Externalizable or an enum");
+        }
+    }
+    
+    private Externalizable newInstance(Class<?> type) throws IOException
+    {
+        if (!Poolable.class.isAssignableFrom(type)) {
+            throw new IOException(
+                type.getSimpleName() + " can't be decoded as it's neither "
+                + "pooled nor has a codec for creating it's instances");
+        }
+        return (Externalizable) PooledObjects.getUnboundedInstance(type);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() throws IOException
+    {
+        return myIn.available();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+        myIn.close();
+    }
+}
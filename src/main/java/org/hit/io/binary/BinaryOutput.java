@@ -0,0 +1,354 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.io.binary;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.hit.io.pool.PoolableRegistry;
+import org.hit.pool.Internable;
+import org.hit.pool.Interner;
+import org.hit.pool.Poolable;
+import org.hit.pool.PooledObjects;
+
+/**
+ * An {@link ObjectOutput} that writes a compact binary representation of
+ * the objects. The integers and longs are written as zigzag encoded 
+ * varints and every object is prefixed with the identifier assigned to 
+ * it's type in {@link PoolableRegistry}. Writing an object of a type that 
+ * isn't registered fails, so that the type names never go on the wire.
+ * <p>
+ * The body of an object is written by it's {@link Codec} when one is 
+ * available, otherwise by it's {@link Interner} or by the 
+ * {@link Externalizable} methods. 
+ * 
+ * @author Balraja Subbiah
+ */
+public class BinaryOutput extends OutputStream implements ObjectOutput
+{
+    /** Tag written in place of a null reference */
+    static final int NULL_TAG = 0;
+    
+    private final OutputStream myOut;
+    
+    private final PoolableRegistry myRegistry;
+    
+    private final boolean myShouldFree;
+    
+    private final byte[] myScratch;
+    
+    private byte[] myStringBuffer;
+    
+    /**
+     * CTOR
+     */
+    public BinaryOutput(OutputStream out, PoolableRegistry registry)
+    {
+        this(out, registry, true);
+    }
+    
+    /**
+     * CTOR
+     * 
+     * @param shouldFree Whether the poolable objects are to be released 
+     *        after they are serialized. 
+     */
+    public BinaryOutput(OutputStream     out, 
+                        PoolableRegistry registry, 
+                        boolean          shouldFree)
+    {
+        myOut = out;
+        myRegistry = registry;
+        myShouldFree = shouldFree;
+        myScratch = new byte[10];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException
+    {
+        myOut.write(b);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        myOut.write(b, off, len);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeBoolean(boolean v) throws IOException
+    {
+        myOut.write(v ? 1 : 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeByte(int v) throws IOException
+    {
+        myOut.write(v);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeShort(int v) throws IOException
+    {
+        myScratch[0] = (byte) (v >>> 8);
+        myScratch[1] = (byte) v;
+        myOut.write(myScratch, 0, 2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeChar(int v) throws IOException
+    {
+        writeShort(v);
+    }
+
+    /**
+     * Writes the given int as a zigzag encoded varint, so that the small 
+     * values, positive or negative, take up to a byte.
+     */
+    @Override
+    public void writeInt(int v) throws IOException
+    {
+        writeUnsignedVarInt((v << 1) ^ (v >> 31));
+    }
+
+    /**
+     * Writes the given long as a zigzag encoded varint.
+     */
+    @Override
+    public void writeLong(long v) throws IOException
+    {
+        writeUnsignedVarLong((v << 1) ^ (v >> 63));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeFloat(float v) throws IOException
+    {
+        int bits = Float.floatToIntBits(v);
+        myScratch[0] = (byte) (bits >>> 24);
+        myScratch[1] = (byte) (bits >>> 16);
+        myScratch[2] = (byte) (bits >>> 8);
+        myScratch[3] = (byte) bits;
+        myOut.write(myScratch, 0, 4);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeDouble(double v) throws IOException
+    {
+        long bits = Double.doubleToLongBits(v);
+        for (int i = 0; i < 8; i++) {
+            myScratch[i] = (byte) (bits >>> (56 - (i << 3)));
+        }
+        myOut.write(myScratch, 0, 8);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeBytes(String s) throws IOException
+    {
+        for (int i = 0; i < s.length(); i++) {
+            myOut.write((byte) s.charAt(i));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeChars(String s) throws IOException
+    {
+        for (int i = 0; i < s.length(); i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    /**
+     * Writes the given string as it's length in utf-8 bytes followed by
+     * the bytes.
+     */
+    @Override
+    public void writeUTF(String s) throws IOException
+    {
+        int length = s.length();
+        boolean isAscii = true;
+        for (int i = 0; i < length && isAscii; i++) {
+            isAscii = s.charAt(i) < 0x80;
+        }
+        
+        if (isAscii) {
+            if (myStringBuffer == null || myStringBuffer.length < length) {
+                myStringBuffer = new byte[Math.max(length, 64)];
+            }
+            for (int i = 0; i < length; i++) {
+                myStringBuffer[i] = (byte) s.charAt(i);
+            }
+            writeUnsignedVarInt(length);
+            myOut.write(myStringBuffer, 0, length);
+        }
+        else {
+            byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+            writeUnsignedVarInt(encoded.length);
+            myOut.write(encoded);
+        }
+    }
+    
+    /**
+     * Writes the given non negative int as a varint.
+     */
+    public void writeUnsignedVarInt(int v) throws IOException
+    {
+        int index = 0;
+        while ((v & ~0x7F) != 0) {
+            myScratch[index++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        myScratch[index++] = (byte) v;
+        myOut.write(myScratch, 0, index);
+    }
+    
+    /**
+     * Writes the given non negative long as a varint.
+     */
+    public void writeUnsignedVarLong(long v) throws IOException
+    {
+        int index = 0;
+        while ((v & ~0x7FL) != 0) {
+            myScratch[index++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        myScratch[index++] = (byte) v;
+        myOut.write(myScratch, 0, index);
+    }
+    
+    /**
+     * Writes the identifier of the given type.
+     * 
+     * @throws IOException if the type isn't registered with the 
+     *         {@link PoolableRegistry}.
+     */
+    public void writeType(Class<?> type) throws IOException
+    {
+        if (type == null) {
+            writeUnsignedVarInt(NULL_TAG);
+            return;
+        }
+        
+        int id = myRegistry.getUniqueIdentifier(type);
+        if (id <= 0) {
+            throw new IOException(
+                type.getName() + " can't be encoded as it isn't registered "
+                + "with the " + PoolableRegistry.class.getSimpleName());
+        }
+        writeUnsignedVarInt(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeObject(Object obj) throws IOException
+    {
+        if (obj == null) {
+            writeUnsignedVarInt(NULL_TAG);
+            return;
+        }
+        
+        Class<?> type = 
+            obj instanceof Enum ? ((Enum<?>) obj).getDeclaringClass()
+                                : obj.getClass();
+        Codec<?> codec = Codec.getCodec(type);
+        if (codec != null) {
+            writeType(type);
+            codec.encodeObject(this, obj);
+        }
+        else if (obj instanceof Internable) {
+            writeType(type);
+            Interner.getInterner(type).writeToOutput(this, obj);
+        }
+        else if (obj instanceof Externalizable) {
+            writeType(type);
+            ((Externalizable) obj).writeExternal(this);
+        }
+        else if (obj instanceof Enum) {
+            writeType(type);
+            writeUnsignedVarInt(((Enum<?>) obj).ordinal());
+        }
+        else {
+            throw new IOException(
+                type.getSimpleName() + " can't be encoded as it neither has "
+                + "a codec nor is Internable, Externalizable or an enum");
+        }
+        
+        if (myShouldFree 
+            && obj instanceof Poolable 
+            && !(obj instanceof Internable)) 
+        {
+            PooledObjects.freeInstance((Poolable) obj);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        myOut.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+        flush();
+        myOut.close();
+    }
+}
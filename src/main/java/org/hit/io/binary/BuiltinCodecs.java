@@ -0,0 +1,577 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.io.binary;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Defines the {@link Codec}s of the jdk types that are commonly found in 
+ * the messages exchanged between the nodes.
+ * 
+ * @author Balraja Subbiah
+ */
+final class BuiltinCodecs
+{
+    /**
+     * A {@link Codec} for encoding the collections as their size followed
+     * by their elements.
+     */
+    @SuppressWarnings("rawtypes")
+    private abstract static class CollectionCodec<C extends Collection>
+        extends Codec<C>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void encode(ObjectOutput output, C instance) 
+            throws IOException
+        {
+            if (instance instanceof SortedSet
+                && ((SortedSet) instance).comparator() != null) 
+            {
+                throw new IOException(
+                    "Sorted sets with a comparator can't be encoded");
+            }
+            output.writeInt(instance.size());
+            for (Object element : instance) {
+                output.writeObject(element);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public C decode(ObjectInput input)
+            throws IOException, ClassNotFoundException
+        {
+            int size = input.readInt();
+            C collection = newCollection(size);
+            for (int i = 0; i < size; i++) {
+                collection.add(input.readObject());
+            }
+            return collection;
+        }
+        
+        /** Returns a new collection that can hold the given elements */
+        protected abstract C newCollection(int size);
+    }
+    
+    /**
+     * A {@link Codec} for encoding the maps as their size followed
+     * by the keys and values.
+     */
+    @SuppressWarnings("rawtypes")
+    private abstract static class MapCodec<M extends Map> extends Codec<M>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public void encode(ObjectOutput output, M instance) 
+            throws IOException
+        {
+            if (instance instanceof SortedMap
+                && ((SortedMap) instance).comparator() != null) 
+            {
+                throw new IOException(
+                    "Sorted maps with a comparator can't be encoded");
+            }
+            output.writeInt(instance.size());
+            for (Map.Entry<Object, Object> entry : 
+                    ((Map<Object, Object>) instance).entrySet())
+            {
+                output.writeObject(entry.getKey());
+                output.writeObject(entry.getValue());
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public M decode(ObjectInput input)
+            throws IOException, ClassNotFoundException
+        {
+            int size = input.readInt();
+            M map = newMap(size);
+            for (int i = 0; i < size; i++) {
+                map.put(input.readObject(), input.readObject());
+            }
+            return map;
+        }
+        
+        /** Returns a new map that can hold the given entries */
+        protected abstract M newMap(int size);
+    }
+    
+    /**
+     * Registers the codecs with {@link Codec}.
+     */
+    static void registerCodecs()
+    {
+        Codec.register(String.class, new Codec<String>() {
+            @Override
+            public void encode(ObjectOutput output, String instance)
+                throws IOException
+            {
+                output.writeUTF(instance);
+            }
+
+            @Override
+            public String decode(ObjectInput input) throws IOException
+            {
+                return input.readUTF();
+            }
+        });
+        
+        Codec.register(Boolean.class, new Codec<Boolean>() {
+            @Override
+            public void encode(ObjectOutput output, Boolean instance)
+                throws IOException
+            {
+                output.writeBoolean(instance.booleanValue());
+            }
+
+            @Override
+            public Boolean decode(ObjectInput input) throws IOException
+            {
+                return Boolean.valueOf(input.readBoolean());
+            }
+        });
+        
+        Codec.register(Byte.class, new Codec<Byte>() {
+            @Override
+            public void encode(ObjectOutput output, Byte instance)
+                throws IOException
+            {
+                output.writeByte(instance.byteValue());
+            }
+
+            @Override
+            public Byte decode(ObjectInput input) throws IOException
+            {
+                return Byte.valueOf(input.readByte());
+            }
+        });
+        
+        Codec.register(Short.class, new Codec<Short>() {
+            @Override
+            public void encode(ObjectOutput output, Short instance)
+                throws IOException
+            {
+                output.writeShort(instance.shortValue());
+            }
+
+            @Override
+            public Short decode(ObjectInput input) throws IOException
+            {
+                return Short.valueOf(input.readShort());
+            }
+        });
+        
+        Codec.register(Character.class, new Codec<Character>() {
+            @Override
+            public void encode(ObjectOutput output, Character instance)
+                throws IOException
+            {
+                output.writeChar(instance.charValue());
+            }
+
+            @Override
+            public Character decode(ObjectInput input) throws IOException
+            {
+                return Character.valueOf(input.readChar());
+            }
+        });
+        
+        Codec.register(Integer.class, new Codec<Integer>() {
+            @Override
+            public void encode(ObjectOutput output, Integer instance)
+                throws IOException
+            {
+                output.writeInt(instance.intValue());
+            }
+
+            @Override
+            public Integer decode(ObjectInput input) throws IOException
+            {
+                return Integer.valueOf(input.readInt());
+            }
+        });
+        
+        Codec.register(Long.class, new Codec<Long>() {
+            @Override
+            public void encode(ObjectOutput output, Long instance)
+                throws IOException
+            {
+                output.writeLong(instance.longValue());
+            }
+
+            @Override
+            public Long decode(ObjectInput input) throws IOException
+            {
+                return Long.valueOf(input.readLong());
+            }
+        });
+        
+        Codec.register(Float.class, new Codec<Float>() {
+            @Override
+            public void encode(ObjectOutput output, Float instance)
+                throws IOException
+            {
+                output.writeFloat(instance.floatValue());
+            }
+
+            @Override
+            public Float decode(ObjectInput input) throws IOException
+            {
+                return Float.valueOf(input.readFloat());
+            }
+        });
+        
+        Codec.register(Double.class, new Codec<Double>() {
+            @Override
+            public void encode(ObjectOutput output, Double instance)
+                throws IOException
+            {
+                output.writeDouble(instance.doubleValue());
+            }
+
+            @Override
+            public Double decode(ObjectInput input) throws IOException
+            {
+                return Double.valueOf(input.readDouble());
+            }
+        });
+        
+        Codec.register(BigInteger.class, new Codec<BigInteger>() {
+            @Override
+            public void encode(ObjectOutput output, BigInteger instance)
+                throws IOException
+            {
+                byte[] magnitude = instance.toByteArray();
+                output.writeInt(magnitude.length);
+                output.write(magnitude);
+            }
+
+            @Override
+            public BigInteger decode(ObjectInput input) throws IOException
+            {
+                byte[] magnitude = new byte[input.readInt()];
+                input.readFully(magnitude);
+                return new BigInteger(magnitude);
+            }
+        });
+        
+        Codec.register(BigDecimal.class, new Codec<BigDecimal>() {
+            @Override
+            public void encode(ObjectOutput output, BigDecimal instance)
+                throws IOException
+            {
+                byte[] unscaled = instance.unscaledValue().toByteArray();
+                output.writeInt(instance.scale());
+                output.writeInt(unscaled.length);
+                output.write(unscaled);
+            }
+
+            @Override
+            public BigDecimal decode(ObjectInput input) throws IOException
+            {
+                int scale = input.readInt();
+                byte[] unscaled = new byte[input.readInt()];
+                input.readFully(unscaled);
+                return new BigDecimal(new BigInteger(unscaled), scale);
+            }
+        });
+        
+        Codec.register(Date.class, new Codec<Date>() {
+            @Override
+            public void encode(ObjectOutput output, Date instance)
+                throws IOException
+            {
+                output.writeLong(instance.getTime());
+            }
+
+            @Override
+            public Date decode(ObjectInput input) throws IOException
+            {
+                return new Date(input.readLong());
+            }
+        });
+        
+        registerTypeCodec();
+        registerArrayCodecs();
+        registerCollectionCodecs();
+    }
+    
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static void registerTypeCodec()
+    {
+        Codec.register((Class) Class.class, new Codec<Class<?>>() {
+            @Override
+            public void encode(ObjectOutput output, Class<?> instance)
+                throws IOException
+            {
+                ((BinaryOutput) output).writeType(instance);
+            }
+
+            @Override
+            public Class<?> decode(ObjectInput input) throws IOException
+            {
+                return ((BinaryInput) input).readType();
+            }
+        });
+    }
+    
+    private static void registerArrayCodecs()
+    {
+        Codec.register(byte[].class, new Codec<byte[]>() {
+            @Override
+            public void encode(ObjectOutput output, byte[] instance)
+                throws IOException
+            {
+                output.writeInt(instance.length);
+                output.write(instance);
+            }
+
+            @Override
+            public byte[] decode(ObjectInput input) throws IOException
+            {
+                byte[] array = new byte[input.readInt()];
+                input.readFully(array);
+                return array;
+            }
+        });
+        
+        Codec.register(int[].class, new Codec<int[]>() {
+            @Override
+            public void encode(ObjectOutput output, int[] instance)
+                throws IOException
+            {
+                output.writeInt(instance.length);
+                for (int element : instance) {
+                    output.writeInt(element);
+                }
+            }
+
+            @Override
+            public int[] decode(ObjectInput input) throws IOException
+            {
+                int[] array = new int[input.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = input.readInt();
+                }
+                return array;
+            }
+        });
+        
+        Codec.register(long[].class, new Codec<long[]>() {
+            @Override
+            public void encode(ObjectOutput output, long[] instance)
+                throws IOException
+            {
+                output.writeInt(instance.length);
+                for (long element : instance) {
+                    output.writeLong(element);
+                }
+            }
+
+            @Override
+            public long[] decode(ObjectInput input) throws IOException
+            {
+                long[] array = new long[input.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = input.readLong();
+                }
+                return array;
+            }
+        });
+        
+        Codec.register(double[].class, new Codec<double[]>() {
+            @Override
+            public void encode(ObjectOutput output, double[] instance)
+                throws IOException
+            {
+                output.writeInt(instance.length);
+                for (double element : instance) {
+                    output.writeDouble(element);
+                }
+            }
+
+            @Override
+            public double[] decode(ObjectInput input) throws IOException
+            {
+                double[] array = new double[input.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = input.readDouble();
+                }
+                return array;
+            }
+        });
+        
+        Codec.register(String[].class, new Codec<String[]>() {
+            @Override
+            public void encode(ObjectOutput output, String[] instance)
+                throws IOException
+            {
+                output.writeInt(instance.length);
+                for (String element : instance) {
+                    output.writeObject(element);
+                }
+            }
+
+            @Override
+            public String[] decode(ObjectInput input)
+                throws IOException, ClassNotFoundException
+            {
+                String[] array = new String[input.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (String) input.readObject();
+                }
+                return array;
+            }
+        });
+        
+        Codec.register(Object[].class, new Codec<Object[]>() {
+            @Override
+            public void encode(ObjectOutput output, Object[] instance)
+                throws IOException
+            {
+                output.writeInt(instance.length);
+                for (Object element : instance) {
+                    output.writeObject(element);
+                }
+            }
+
+            @Override
+            public Object[] decode(ObjectInput input)
+                throws IOException, ClassNotFoundException
+            {
+                Object[] array = new Object[input.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = input.readObject();
+                }
+                return array;
+            }
+        });
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static void registerCollectionCodecs()
+    {
+        Codec.register(ArrayList.class, new CollectionCodec<ArrayList>() {
+            @Override
+            protected ArrayList newCollection(int size)
+            {
+                return new ArrayList<>(size);
+            }
+        });
+        
+        Codec.register(LinkedList.class, new CollectionCodec<LinkedList>() {
+            @Override
+            protected LinkedList newCollection(int size)
+            {
+                return new LinkedList<>();
+            }
+        });
+        
+        Codec.register(HashSet.class, new CollectionCodec<HashSet>() {
+            @Override
+            protected HashSet newCollection(int size)
+            {
+                return new HashSet<>(capacity(size));
+            }
+        });
+        
+        Codec.register(LinkedHashSet.class, 
+                       new CollectionCodec<LinkedHashSet>() {
+            @Override
+            protected LinkedHashSet newCollection(int size)
+            {
+                return new LinkedHashSet<>(capacity(size));
+            }
+        });
+        
+        Codec.register(TreeSet.class, new CollectionCodec<TreeSet>() {
+            @Override
+            protected TreeSet newCollection(int size)
+            {
+                return new TreeSet<>();
+            }
+        });
+        
+        Codec.register(HashMap.class, new MapCodec<HashMap>() {
+            @Override
+            protected HashMap newMap(int size)
+            {
+                return new HashMap<>(capacity(size));
+            }
+        });
+        
+        Codec.register(LinkedHashMap.class, new MapCodec<LinkedHashMap>() {
+            @Override
+            protected LinkedHashMap newMap(int size)
+            {
+                return new LinkedHashMap<>(capacity(size));
+            }
+        });
+        
+        Codec.register(TreeMap.class, new MapCodec<TreeMap>() {
+            @Override
+            protected TreeMap newMap(int size)
+            {
+                return new TreeMap<>();
+            }
+        });
+    }
+    
+    /** Returns the initial capacity of a hash table to hold the entries */
+    private static int capacity(int size)
+    {
+        return Math.max(16, (int) (size / 0.75f) + 1);
+    }
+    
+    private BuiltinCodecs()
+    {
+    }
+}
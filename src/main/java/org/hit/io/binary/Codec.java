@@ -0,0 +1,93 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.io.binary;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Defines the contract for a type that's responsible for encoding and
+ * decoding the objects of a given type without resorting to reflection. 
+ * Codecs of the commonly used jdk types are registered upfront, where as 
+ * the other types should register their codec through 
+ * {@link #register(Class, Codec)} before their instances are decoded.
+ * 
+ * @author Balraja Subbiah
+ */
+public abstract class Codec<T>
+{
+    private static final ConcurrentMap<Class<?>, Codec<?>> ourTypeToCodecMap =
+        new ConcurrentHashMap<>();
+    
+    static {
+        BuiltinCodecs.registerCodecs();
+    }
+    
+    /**
+     * Registers the {@link Codec} to be used for the given type.
+     */
+    public static <T> void register(Class<T> type, Codec<T> codec)
+    {
+        ourTypeToCodecMap.put(type, codec);
+    }
+    
+    /**
+     * Returns the {@link Codec} registered for the given type or null if 
+     * the type doesn't have a registered codec.
+     */
+    public static Codec<?> getCodec(Class<?> type)
+    {
+        return ourTypeToCodecMap.get(type);
+    }
+    
+    /**
+     * CTOR
+     */
+    public Codec()
+    {
+    }
+    
+    /**
+     * Takes an instance of object and casts it to the type handled by 
+     * this codec.
+     */
+    @SuppressWarnings("unchecked")
+    public void encodeObject(ObjectOutput output, Object instance) 
+        throws IOException
+    {
+        encode(output, (T) instance);
+    }
+    
+    /**
+     * Writes the value of given instance to the {@link ObjectOutput}
+     */
+    public abstract void encode(ObjectOutput output, T instance) 
+        throws IOException;
+    
+    /**
+     * Reads an instance from the {@link ObjectInput}
+     */
+    public abstract T decode(ObjectInput input) 
+        throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,64 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.io.binary;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * A {@link Codec} for the {@link Externalizable} types, that creates the 
+ * instance to be read through an explicit factory method instead of 
+ * instantiating the type reflectively.
+ * 
+ * @author Balraja Subbiah
+ */
+public abstract class ExternalizableCodec<T extends Externalizable>
+    extends Codec<T>
+{
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(ObjectOutput output, T instance) throws IOException
+    {
+        instance.writeExternal(output);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T decode(ObjectInput input)
+        throws IOException, ClassNotFoundException
+    {
+        T instance = newInstance();
+        instance.readExternal(input);
+        return instance;
+    }
+    
+    /**
+     * Returns a new instance of the type handled by this codec, into 
+     * which the serialized state is read.
+     */
+    protected abstract T newInstance();
+}
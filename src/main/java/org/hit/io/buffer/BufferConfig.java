@@ -28,7 +28,13 @@ public interface BufferConfig
 {
     /**
      * Returns the size of memory to be managed by the memory manager
-     * for the given namespace.
+     * for the given namespace, in terms of the smallest buffers.
      */
     public int getBufferSize(String namespace);
+    
+    /**
+     * Returns true if the buffers in use are to be tracked for detecting
+     * the leaks in the given namespace.
+     */
+    public boolean isLeakDetectionEnabled(String namespace);
 }
@@ -17,143 +17,353 @@
     You should have received a copy of the GNU General Public License
     along with this program.  If not, see <http://www.gnu.org/licenses/>.
 */
+
 package org.hit.io.buffer;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.hit.util.LogFactory;
 
 /**
- * This class preallocates memory outside jvm's heap and manages that memory.
+ * This class manages the memory allocated outside jvm's heap as a slab
+ * allocator.
+ * <p>
+ * The buffers are grouped into size classes, from 
+ * {@link #BUFFER_SIZE} to {@link #MAX_BUFFER_SIZE}, with each class 
+ * being four times the size of the previous one. A request is served 
+ * from the smallest class that fits it. The buffers of a class are carved
+ * out of a slab of direct memory, which is allocated only when the class 
+ * runs out of free buffers and the total memory allocated is within the 
+ * capacity. Beyond the capacity, the buffers are allocated on the heap 
+ * and are left to the garbage collector after being freed. Hence the 
+ * allocation never blocks.
+ * <p>
+ * The freed buffers are cached per thread up to a limit and the rest are
+ * returned to a lock free list per class, shared across the threads.
+ * <p>
+ * When the leak detection is enabled, the buffers in use are tracked 
+ * along with the place where they have been allocated, so that the 
+ * buffers that haven't been freed for long can be reported. It also 
+ * catches the buffers that are freed more than once.
  * 
  * @author Balraja Subbiah
  */
 public class BufferManager
 { 
+    /** The size of the smallest buffer */
     public static final int BUFFER_SIZE = 1024;
     
+    /** The size of the largest buffer */
+    public static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
     private static final Logger LOG =
          LogFactory.getInstance().getLogger(BufferManager.class);
     
-    private final List<ByteBuffer> myBuffers;
+    /** The ratio between the sizes of two consecutive size classes */
+    private static final int SIZE_CLASS_SHIFT = 2;
     
-    private final Lock myBufferPoolLock;
+    /** The size of the memory allocated at once for a size class */
+    private static final int SLAB_SIZE = MAX_BUFFER_SIZE;
     
-    private final Condition myAwaitingFreeSpaceCondition;
+    /** The bytes worth of buffers cached per thread for a size class */
+    private static final int THREAD_CACHE_SIZE = 256 * 1024;
+    
+    /** The capacity used when it's not configured */
+    private static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+    
+    /**
+     * Keeps track of the free buffers of a single size.
+     */
+    private static class SizeClass
+    {
+        private final int myBufferSize;
+        
+        private final int myThreadCacheLimit;
+        
+        private final Queue<ByteBuffer> myFreeBuffers;
+        
+        /**
+         * CTOR
+         */
+        public SizeClass(int bufferSize)
+        {
+            myBufferSize = bufferSize;
+            myThreadCacheLimit = Math.max(1, THREAD_CACHE_SIZE / bufferSize);
+            myFreeBuffers = new ConcurrentLinkedQueue<>();
+        }
+    }
+    
+    /**
+     * Captures where and when a buffer in use has been allocated.
+     */
+    private static class Allocation
+    {
+        private final long myTime;
+        
+        private final Throwable mySite;
+
+        /**
+         * CTOR
+         */
+        public Allocation()
+        {
+            myTime = System.currentTimeMillis();
+            mySite = new Throwable("Allocated at");
+        }
+    }
+    
+    private final SizeClass[] mySizeClasses;
+    
+    private final ThreadLocal<List<ArrayDeque<ByteBuffer>>> myThreadCaches;
+    
+    private final long myCapacity;
+    
+    private final AtomicLong myAllocatedBytes;
+    
+    private final AtomicLong myUsedBytes;
+    
+    private final AtomicLong myHeapAllocations;
+    
+    private final Map<ByteBuffer, Allocation> myBuffersInUse;
     
     /**
      * CTOR
      */
     public BufferManager(String namespace, BufferConfig config)
     {
-        this(config.getBufferSize(namespace));
+        this(config.getBufferSize(namespace) * (long) BUFFER_SIZE,
+             config.isLeakDetectionEnabled(namespace));
         LOG.info("For Namespace " + namespace);
     }
-
+    
     /**
      * CTOR
+     * 
+     * @param numBuffers The capacity in terms of the smallest buffers.
      */
     public BufferManager(int numBuffers)
     {
-        myBuffers = new LinkedList<>();
-        for (int i = 1; i <= numBuffers; i++) {
-            myBuffers.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
-        }
-        LOG.info("Initialized buffer with " + myBuffers.size() + " blocks ");
-        myBufferPoolLock = new ReentrantLock();
-        myAwaitingFreeSpaceCondition = myBufferPoolLock.newCondition();
+        this(numBuffers * (long) BUFFER_SIZE, false);
     }
     
     /**
-     * Returns a chunk of preallocated {@link ByteBuffer} of size 1KB.
+     * CTOR
+     * 
+     * @param capacity The maximum number of bytes to be allocated outside
+     *                 the heap. The default capacity is used when it's not
+     *                 positive.
+     * @param detectLeaks Whether to track the buffers in use.
      */
-    public ByteBuffer getBuffer()
+    public BufferManager(long capacity, boolean detectLeaks)
     {
-        try {
-            myBufferPoolLock.lock();
-            if (myBuffers.isEmpty()) {
-                myAwaitingFreeSpaceCondition.await();
-            }
-            else {
-                ByteBuffer buffer = myBuffers.remove(0);
-                if (LOG.isLoggable(Level.FINEST)) {
-                    LOG.finest("ALLOC : Current size of buffer pool " + myBuffers.size());
+        int numClasses = 1;
+        for (int size = BUFFER_SIZE; 
+             size < MAX_BUFFER_SIZE; 
+             size <<= SIZE_CLASS_SHIFT) 
+        {
+            numClasses++;
+        }
+        mySizeClasses = new SizeClass[numClasses];
+        for (int i = 0; i < numClasses; i++) {
+            mySizeClasses[i] = 
+                new SizeClass(BUFFER_SIZE << (i * SIZE_CLASS_SHIFT));
+        }
+        myThreadCaches = new ThreadLocal<List<ArrayDeque<ByteBuffer>>>() {
+            @Override
+            protected List<ArrayDeque<ByteBuffer>> initialValue()
+            {
+                List<ArrayDeque<ByteBuffer>> caches = 
+                    new ArrayList<>(mySizeClasses.length);
+                for (int i = 0; i < mySizeClasses.length; i++) {
+                    caches.add(new ArrayDeque<ByteBuffer>());
                 }
-                return buffer;
+                return caches;
+            }
+        };
+        myCapacity = capacity > 0 ? capacity : DEFAULT_CAPACITY;
+        myAllocatedBytes = new AtomicLong(0L);
+        myUsedBytes = new AtomicLong(0L);
+        myHeapAllocations = new AtomicLong(0L);
+        myBuffersInUse = 
+            detectLeaks ? new IdentityHashMap<ByteBuffer, Allocation>() 
+                        : null;
+        LOG.info("Initialized buffer with a capacity of " + myCapacity 
+                 + " bytes in " + numClasses + " size classes");
+    }
+    
+    /**
+     * Returns the size of the buffer to be requested after a buffer of
+     * the given size has been filled, so that the large data is held in 
+     * progressively larger buffers.
+     */
+    public static int nextBufferSize(int size)
+    {
+        return size >= (MAX_BUFFER_SIZE >> SIZE_CLASS_SHIFT) 
+            ? MAX_BUFFER_SIZE 
+            : size << SIZE_CLASS_SHIFT;
+    }
+    
+    private int classOf(int size)
+    {
+        for (int i = 0; i < mySizeClasses.length; i++) {
+            if (size <= mySizeClasses[i].myBufferSize) {
+                return i;
             }
         }
-        catch (InterruptedException e) {
-            // Do nothing.
+        return mySizeClasses.length - 1;
+    }
+    
+    private int exactClassOf(int size)
+    {
+        int index = classOf(size);
+        return mySizeClasses[index].myBufferSize == size ? index : -1;
+    }
+    
+    /**
+     * Returns a buffer of the smallest size class that can hold the given
+     * number of bytes. The largest buffer is returned when the size 
+     * exceeds {@link #MAX_BUFFER_SIZE}.
+     */
+    public ByteBuffer allocate(int size)
+    {
+        int index = classOf(size);
+        SizeClass sizeClass = mySizeClasses[index];
+        ByteBuffer buffer = myThreadCaches.get().get(index).pollLast();
+        if (buffer == null) {
+            buffer = sizeClass.myFreeBuffers.poll();
+        }
+        if (buffer == null) {
+            buffer = grow(sizeClass);
         }
-        finally {
-            myBufferPoolLock.unlock();
+        if (buffer == null) {
+            myHeapAllocations.incrementAndGet();
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("The capacity of " + myCapacity + " bytes is " 
+                         + " exhausted, allocating " + sizeClass.myBufferSize 
+                         + " bytes on the heap");
+            }
+            return ByteBuffer.allocate(sizeClass.myBufferSize);
+        }
+        
+        myUsedBytes.addAndGet(sizeClass.myBufferSize);
+        if (myBuffersInUse != null) {
+            synchronized (myBuffersInUse) {
+                myBuffersInUse.put(buffer, new Allocation());
+            }
         }
-        return null;
+        return buffer;
     }
     
     /**
-     * Returns a chunks of preallocated {@link ByteBuffer} of size 1KB to 
-     * match the expected size.
+     * Carves out the buffers of the given size class from a new slab and
+     * returns one of them. Returns null if the capacity is exhausted.
      */
-    public List<ByteBuffer> getBuffer(int bufferSize)
+    private ByteBuffer grow(SizeClass sizeClass)
     {
-        try {
-            int maxBuffers = bufferSize / BUFFER_SIZE;
-            if (bufferSize % BUFFER_SIZE > 0) {
-                maxBuffers++;
-            }
-            myBufferPoolLock.lock();
-            if (myBuffers.isEmpty()) {
-                myAwaitingFreeSpaceCondition.await();
+        int bufferSize = sizeClass.myBufferSize;
+        int count;
+        while (true) {
+            long allocated = myAllocatedBytes.get();
+            count = (int) Math.min(SLAB_SIZE / bufferSize, 
+                                   (myCapacity - allocated) / bufferSize);
+            if (count <= 0) {
+                return null;
             }
-            else if (myBuffers.size() < maxBuffers) {
-                myAwaitingFreeSpaceCondition.await();
-            }
-            else {
-                List<ByteBuffer> removedValues = new ArrayList<>();
-                for (int i = 0; i < maxBuffers; i++) {
-                    removedValues.add(myBuffers.remove(0));
-                }
-                if (LOG.isLoggable(Level.FINEST)) {
-                    LOG.finest("ALLOC : Current size of buffer pool " + myBuffers.size());
-                }
-                return removedValues;
+            if (myAllocatedBytes.compareAndSet(
+                    allocated, allocated + (long) count * bufferSize))
+            {
+                break;
             }
         }
-        catch (InterruptedException e) {
-            // Do nothing.
+        
+        ByteBuffer slab = ByteBuffer.allocateDirect(count * bufferSize);
+        for (int i = 1; i < count; i++) {
+            slab.limit((i + 1) * bufferSize);
+            slab.position(i * bufferSize);
+            sizeClass.myFreeBuffers.offer(slab.slice());
         }
-        finally {
-            myBufferPoolLock.unlock();
+        slab.clear();
+        slab.limit(bufferSize);
+        
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Allocated a slab of " + count + " buffers of "
+                     + bufferSize + " bytes. The allocated memory is " 
+                     + getAllocatedBytes() + " bytes");
         }
-        return null;
+        return slab.slice();
     }
     
+    /**
+     * Returns a chunk of preallocated {@link ByteBuffer} of size 1KB.
+     */
+    public ByteBuffer getBuffer()
+    {
+        return allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Returns the {@link ByteBuffer}s, of the largest size if needed, to
+     * match the expected size.
+     */
+    public List<ByteBuffer> getBuffer(int bufferSize)
+    {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        int remaining = bufferSize;
+        do {
+            ByteBuffer buffer = allocate(remaining);
+            buffers.add(buffer);
+            remaining -= buffer.capacity();
+        }
+        while (remaining > 0);
+        return buffers;
+    }
+
     /**
      * Returns the {@link ByteBuffer} back to the pool.
      */
     public void free(ByteBuffer buffer)
     {
-        try {
-            myBufferPoolLock.lock();
-            buffer.clear();
-            myBuffers.add(buffer);
-            if (LOG.isLoggable(Level.FINEST)) {
-                LOG.finest("Current size of buffer pool " + myBuffers.size());
+        if (!buffer.isDirect()) {
+            // Allocated on the heap after exhausting the capacity.
+            return;
+        }
+        int index = exactClassOf(buffer.capacity());
+        if (index < 0) {
+            LOG.warning("Ignoring a buffer of " + buffer.capacity() 
+                        + " bytes that's not allocated by this manager");
+            return;
+        }
+        if (myBuffersInUse != null) {
+            synchronized (myBuffersInUse) {
+                if (myBuffersInUse.remove(buffer) == null) {
+                    LOG.log(Level.SEVERE, 
+                            "A buffer is freed more than once", 
+                            new Throwable("Freed at"));
+                    return;
+                }
             }
-            myAwaitingFreeSpaceCondition.signal();
         }
-        finally {
-            myBufferPoolLock.unlock();
+        
+        SizeClass sizeClass = mySizeClasses[index];
+        myUsedBytes.addAndGet(-sizeClass.myBufferSize);
+        buffer.clear();
+        ArrayDeque<ByteBuffer> cache = myThreadCaches.get().get(index);
+        if (cache.size() < sizeClass.myThreadCacheLimit) {
+            cache.addLast(buffer);
+        }
+        else {
+            sizeClass.myFreeBuffers.offer(buffer);
         }
     }
     
@@ -162,20 +372,82 @@ public class BufferManager
      */
     public void free(Collection<ByteBuffer> buffers)
     {
-        try {
-            myBufferPoolLock.lock();
-            for (ByteBuffer buffer : buffers) {
-                buffer.clear();
-                myBuffers.add(buffer);
-            }
-            buffers.clear();
-            if (LOG.isLoggable(Level.FINEST)) {
-                LOG.finest("FREE Current size of buffer pool" + myBuffers.size());
-            }
-            myAwaitingFreeSpaceCondition.signal();
+        for (ByteBuffer buffer : buffers) {
+            free(buffer);
+        }
+        buffers.clear();
+    }
+    
+    /**
+     * Returns the maximum number of bytes that can be allocated outside
+     * the heap.
+     */
+    public long getCapacity()
+    {
+        return myCapacity;
+    }
+    
+    /**
+     * Returns the number of bytes allocated outside the heap so far.
+     */
+    public long getAllocatedBytes()
+    {
+        return myAllocatedBytes.get();
+    }
+    
+    /**
+     * Returns the number of bytes in the buffers that are in use.
+     */
+    public long getUsedBytes()
+    {
+        return myUsedBytes.get();
+    }
+    
+    /**
+     * Returns the fraction of the allocated memory that's in use.
+     */
+    public double getOccupancy()
+    {
+        long allocated = getAllocatedBytes();
+        return allocated > 0 ? ((double) getUsedBytes()) / allocated : 0.0D;
+    }
+    
+    /**
+     * Returns the number of buffers that have been allocated on the heap
+     * for want of capacity.
+     */
+    public long getHeapAllocationCount()
+    {
+        return myHeapAllocations.get();
+    }
+    
+    /**
+     * Logs the buffers that are in use for more than the given time, 
+     * along with the place where they have been allocated, and returns 
+     * their count. Returns -1 if the leak detection is not enabled.
+     */
+    public int reportLeaks(long minAgeMillis)
+    {
+        if (myBuffersInUse == null) {
+            return -1;
         }
-        finally {
-            myBufferPoolLock.unlock();
+        long now = System.currentTimeMillis();
+        int leaks = 0;
+        synchronized (myBuffersInUse) {
+            for (Map.Entry<ByteBuffer, Allocation> entry : 
+                    myBuffersInUse.entrySet())
+            {
+                Allocation allocation = entry.getValue();
+                if (now - allocation.myTime >= minAgeMillis) {
+                    leaks++;
+                    LOG.log(Level.WARNING, 
+                            "A buffer of " + entry.getKey().capacity() 
+                            + " bytes is in use for " 
+                            + (now - allocation.myTime) + " ms", 
+                            allocation.mySite);
+                }
+            }
         }
+        return leaks;
     }
 }
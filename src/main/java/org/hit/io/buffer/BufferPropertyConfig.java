@@ -30,6 +30,9 @@ import org.hit.util.ApplicationProperties;
 public class BufferPropertyConfig implements BufferConfig
 {
     private static final String NS_PREFIX = "org.hit.buffer.size";
+    
+    private static final String LEAK_DETECTION_PREFIX = 
+        "org.hit.buffer.leakDetection";
 
     /**
      * {@inheritDoc}
@@ -41,4 +44,14 @@ public class BufferPropertyConfig implements BufferConfig
         String buf_size = ApplicationProperties.getProperty(full_ns);
         return buf_size != null ? Integer.parseInt(buf_size) : -1;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLeakDetectionEnabled(String namespace)
+    {
+        return Boolean.parseBoolean(ApplicationProperties.getProperty(
+            LEAK_DETECTION_PREFIX + '.' + namespace));
+    }
 }
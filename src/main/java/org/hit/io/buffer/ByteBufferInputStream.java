@@ -0,0 +1,80 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.io.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Extends {@link InputStream} to support reading the remaining bytes of
+ * a {@link ByteBuffer}, which may be a direct or a mapped buffer.
+ * 
+ * @author Balraja Subbiah
+ */
+public class ByteBufferInputStream extends InputStream
+{
+    private static final int EOF = -1;
+    
+    private final ByteBuffer myBuffer;
+    
+    /**
+     * CTOR
+     */
+    public ByteBufferInputStream(ByteBuffer buffer)
+    {
+        myBuffer = buffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read()
+    {
+        return myBuffer.hasRemaining() ? (myBuffer.get() & 0xff) : EOF;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] bytes, int offset, int length)
+    {
+        if (length == 0) {
+            return 0;
+        }
+        if (!myBuffer.hasRemaining()) {
+            return EOF;
+        }
+        int count = Math.min(length, myBuffer.remaining());
+        myBuffer.get(bytes, offset, count);
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available()
+    {
+        return myBuffer.remaining();
+    }
+}
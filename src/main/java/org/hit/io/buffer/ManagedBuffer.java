@@ -21,6 +21,7 @@ package org.hit.io.buffer;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
@@ -74,15 +75,58 @@ public class ManagedBuffer implements BinaryMessage
         return myBinaryData;
     }
 
+    /**
+     * Returns the number of bytes that are yet to be written from the 
+     * buffers.
+     */
+    public long getSize()
+    {
+        long size = 0L;
+        for (ByteBuffer buffer : myBinaryData) {
+            size += buffer.remaining();
+        }
+        return size;
+    }
+    
+    /**
+     * Returns true if some of the bytes are yet to be written from the 
+     * buffers.
+     */
+    public boolean hasRemaining()
+    {
+        for (int i = myBinaryData.size() - 1; i >= 0; i--) {
+            if (myBinaryData.get(i).hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * Writes all the buffers before freeing them, which means that it 
+     * doesn't return till a nonblocking channel has accepted the whole 
+     * data. Hence the writes to such channels should rather be gathered 
+     * from the buffers as and when the channel is ready.
      */
     @Override
     public void writeTo(WritableByteChannel channel) throws IOException
     {
         if (!myBinaryData.isEmpty()) {
-            for (ByteBuffer buffer : myBinaryData) {
-                channel.write(buffer);
+            if (channel instanceof GatheringByteChannel) {
+                ByteBuffer[] buffers = 
+                    myBinaryData.toArray(new ByteBuffer[myBinaryData.size()]);
+                while (hasRemaining()) {
+                    ((GatheringByteChannel) channel).write(buffers);
+                }
+            }
+            else {
+                for (ByteBuffer buffer : myBinaryData) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
             }
             myBufferManager.free(myBinaryData);
         }
@@ -105,7 +149,9 @@ public class ManagedBuffer implements BinaryMessage
             if (!buffer.hasRemaining()) {
                 buffer.flip();
                 myBinaryData.add(buffer);
-                buffer = myBufferManager.getBuffer();
+                // Read the rest of a large message into larger buffers.
+                buffer = myBufferManager.allocate(
+                    BufferManager.nextBufferSize(buffer.capacity()));
             }
         }
         
@@ -17,45 +17,72 @@
     You should have received a copy of the GNU General Public License
     along with this program.  If not, see <http://www.gnu.org/licenses/>.
 */
+
 package org.hit.io.buffer;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
-import org.hit.util.LogFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * Extends {@link InputStream} to support reading from 
- * {@link ManagedBuffer}.
+ * {@link ManagedBuffer}. The bytes are read directly from the buffers
+ * and the stream can be reused for reading other {@link ManagedBuffer}s 
+ * once it's closed.
  * 
  * @author Balraja Subbiah
  */
 public class ManagedBufferInputStream extends InputStream
 {
-    private static final Logger LOG =
-        LogFactory.getInstance().getLogger(ManagedBufferInputStream.class);
-            
-    private final int EOF = -1;
+    private static final int EOF = -1;
     
-    private final ManagedBuffer myBuffer;
+    private ManagedBuffer myBuffer;
+    
+    private List<ByteBuffer> myBinaryData;
      
     private int myBufferIndex;
     
-    private int myMark;
+    private ByteBuffer myCurrentBuffer;
     
-    private int myReadBytes;
+    private int myMark;
     
     /**
      * CTOR
      */
-    private ManagedBufferInputStream(ManagedBuffer buffer)
+    public ManagedBufferInputStream()
+    {
+        myBuffer = null;
+        myBinaryData = null;
+        myBufferIndex = 0;
+        myCurrentBuffer = null;
+        myMark = EOF;
+    }
+    
+    /**
+     * Starts reading from the given {@link ManagedBuffer}.
+     */
+    public void wrap(ManagedBuffer buffer)
     {
         myBuffer = buffer;
+        myBinaryData = buffer.getBinaryData();
         myBufferIndex = 0;
-        myMark = -1;
-        myReadBytes = 0;
+        myCurrentBuffer = myBinaryData.isEmpty() ? null : myBinaryData.get(0);
+        myMark = EOF;
+    }
+    
+    /** 
+     * Returns the buffer from which the bytes are to be read, moving on to
+     * the next buffer when the current one has been read fully.
+     */
+    private ByteBuffer currentBuffer()
+    {
+        while (myCurrentBuffer != null && !myCurrentBuffer.hasRemaining()) {
+            myBufferIndex++;
+            myCurrentBuffer = myBufferIndex < myBinaryData.size() ? 
+                myBinaryData.get(myBufferIndex) : null;
+        }
+        return myCurrentBuffer;
     }
 
     /**
@@ -64,60 +91,118 @@ public class ManagedBufferInputStream extends InputStream
     @Override
     public int read() throws IOException
     {
-        if (myMark > EOF) {
-            myReadBytes++;
-            if (myReadBytes > myMark) {
-                if (LOG.isLoggable(Level.FINEST)) {
-                    LOG.finest("We have read upto the mark");
-                }
-                return EOF;
-            }
+        if (myMark == 0) {
+            return EOF;
         }
         
-        if (myBufferIndex < myBuffer.getBinaryData().size()) {
-            byte val = myBuffer.getBinaryData().get(myBufferIndex).get();
-            if (!myBuffer.getBinaryData().get(myBufferIndex).hasRemaining()) {
-                if (LOG.isLoggable(Level.FINEST)) {
-                    LOG.finest("The current buffer has " 
-                             + myBuffer.getBinaryData().get(myBufferIndex));
-                    LOG.finest("Increasing the buffer index " + myBufferIndex + 1);
-                }
-                myBufferIndex += 1;
+        ByteBuffer buffer = currentBuffer();
+        if (buffer == null) {
+            return EOF;
+        }
+        if (myMark > 0) {
+            myMark--;
+        }
+        return buffer.get() & 0xff;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException
+    {
+        if (length == 0) {
+            return 0;
+        }
+        
+        int read = 0;
+        while (read < length && myMark != 0) {
+            ByteBuffer buffer = currentBuffer();
+            if (buffer == null) {
+                break;
             }
-            return (val & 0xff);
+            int count = Math.min(length - read, buffer.remaining());
+            if (myMark > 0) {
+                count = Math.min(count, myMark);
+                myMark -= count;
+            }
+            buffer.get(bytes, offset + read, count);
+            read += count;
         }
-        else {
-            return EOF;
+        return read > 0 ? read : EOF;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long skipped = 0L;
+        while (skipped < n && myMark != 0) {
+            ByteBuffer buffer = currentBuffer();
+            if (buffer == null) {
+                break;
+            }
+            int count = (int) Math.min(n - skipped, buffer.remaining());
+            if (myMark > 0) {
+                count = Math.min(count, myMark);
+                myMark -= count;
+            }
+            buffer.position(buffer.position() + count);
+            skipped += count;
+        }
+        return skipped;
+    }
+    
+    /**
+     * Reads a big endian int, returns EOF if the stream has fewer than 
+     * four bytes left.
+     */
+    public int readInt() throws IOException
+    {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = read();
+            if (b == EOF) {
+                return EOF;
+            }
+            value = (value << 8) | b;
         }
+        return value;
     }
     
     /** Sets the end of this stream after n bytes */
     public void setEOFMark(int nBytes)
     {
         myMark = nBytes;
-        myReadBytes = 0;
-        if (LOG.isLoggable(Level.FINE)) {
-            LOG.finest("Setting mark to " + myMark);
-        }
     }
     
-    /** Removes mark from the input stream */
-    public void unsetEOFMark()
+    /** 
+     * Removes mark from the input stream, after skipping the bytes before
+     * the mark that haven't been read.
+     */
+    public void unsetEOFMark() throws IOException
     {
-        if (LOG.isLoggable(Level.FINEST)) {
-            LOG.finest("UnSetting mark @ " + myMark + " read bytes " + myReadBytes);
+        if (myMark > 0) {
+            skip(myMark);
         }
         myMark = EOF;
-        myReadBytes = 0;
     }
     
     /**
-     * {@inheritDoc}
+     * Frees the buffers of the {@link ManagedBuffer} being read.
      */
     @Override
     public void close() throws IOException
     {
-        myBuffer.free();
+        if (myBuffer != null) {
+            myBuffer.free();
+        }
+        myBuffer = null;
+        myBinaryData = null;
+        myCurrentBuffer = null;
+        myMark = EOF;
         super.close();
     }
 
@@ -128,6 +213,8 @@ public class ManagedBufferInputStream extends InputStream
     public static ManagedBufferInputStream wrapSerializedData(
         ManagedBuffer data)
     {
-        return new ManagedBufferInputStream(data);
+        ManagedBufferInputStream stream = new ManagedBufferInputStream();
+        stream.wrap(data);
+        return stream;
     }
 }
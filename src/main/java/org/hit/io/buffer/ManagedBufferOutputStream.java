@@ -39,6 +39,8 @@ public class ManagedBufferOutputStream extends OutputStream
     
     private ByteBuffer myLastBuffer;
     
+    private int myNextBufferSize;
+    
     private int myByteCount;
     
     private int myInitialOffset;
@@ -63,6 +65,7 @@ public class ManagedBufferOutputStream extends OutputStream
         myBufferManager = bufferManager;
         myWrittenBuffers = new ArrayList<>();
         myLastBuffer = null;
+        myNextBufferSize = BufferManager.BUFFER_SIZE;
         myByteCount = 0;
         myInitialOffset = initialOffset;
         myRewriteBufferIndex = -1;
@@ -76,16 +79,20 @@ public class ManagedBufferOutputStream extends OutputStream
     {
         if (myInitialOffset > 0) {
             
-            myWrittenBuffers.addAll(myBufferManager.getBuffer(myInitialOffset));
-            
-            int bufferIndex = myInitialOffset / BufferManager.BUFFER_SIZE;
-            if (myInitialOffset % BufferManager.BUFFER_SIZE > 0) {
-                myLastBuffer = myWrittenBuffers.remove(bufferIndex);
-                myLastBuffer.position(
-                    myInitialOffset % BufferManager.BUFFER_SIZE);
-            }
-            else {
-                myLastBuffer = myWrittenBuffers.get(bufferIndex - 1);
+            // Skip the initial offset in the buffers, of which only the 
+            // last one will have some space left.
+            for (ByteBuffer buffer : 
+                    myBufferManager.getBuffer(myInitialOffset))
+            {
+                if (myLastBuffer != null) {
+                    cacheCurrentBuffer();
+                }
+                int skipped = Math.min(myInitialOffset, buffer.capacity());
+                buffer.position(skipped);
+                myInitialOffset -= skipped;
+                myLastBuffer = buffer;
+                myNextBufferSize = 
+                    BufferManager.nextBufferSize(buffer.capacity());
             }
             
             myInitialOffset = -1;
@@ -97,7 +104,10 @@ public class ManagedBufferOutputStream extends OutputStream
             }
             
             if (myRewriteBufferIndex < 0) {
-                myLastBuffer = myBufferManager.getBuffer();
+                // The data is held in progressively larger buffers.
+                myLastBuffer = myBufferManager.allocate(myNextBufferSize);
+                myNextBufferSize = 
+                    BufferManager.nextBufferSize(myLastBuffer.capacity());
             }
             else {
                 if (myRewriteBufferIndex >= myWrittenBuffers.size()) {
@@ -116,7 +126,7 @@ public class ManagedBufferOutputStream extends OutputStream
     {
         // Flip the buffers so that they can be read easily.
         myLastBuffer.flip();
-        myByteCount += (myLastBuffer.limit() + 1);
+        myByteCount += myLastBuffer.limit();
         myWrittenBuffers.add(myLastBuffer);
     }
     
@@ -71,7 +71,9 @@ public class PoolableInput extends DataInputStream
             hasIdentifier ? myRegistry.getPoolableType(readInt())
                           : Class.forName(readUTF());
         
-        LOG.info("Reading object of " + type);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Reading object of " + type);
+        }
             
         if (Internable.class.isAssignableFrom(type)) {
            Interner<?> interner = Interner.getInterner(type);
@@ -44,15 +44,32 @@ public class PoolableOutput extends DataOutputStream
     private final PoolableRegistry myRegistry;
     
     private final ObjectOutputStream mySerializableOutputStream;
+    
+    private final boolean myShouldFree;
 
     /**
      * CTOR
      */
     public PoolableOutput(OutputStream out, PoolableRegistry registry) 
         throws IOException
+    {
+        this(out, registry, true);
+    }
+    
+    /**
+     * CTOR
+     * 
+     * @param shouldFree Whether the poolable objects are to be released 
+     *        after they are serialized. 
+     */
+    public PoolableOutput(OutputStream     out, 
+                          PoolableRegistry registry, 
+                          boolean          shouldFree) 
+        throws IOException
     {
         super(out);
         myRegistry = registry;
+        myShouldFree = shouldFree;
         mySerializableOutputStream = new ObjectOutputStream(this);
     }
 
@@ -92,12 +109,17 @@ public class PoolableOutput extends DataOutputStream
             
             Externalizable externalizable = (Externalizable) obj;
             externalizable.writeExternal(this);
-            if (isPoolable) {
+            if (isPoolable && myShouldFree) {
                 PooledObjects.freeInstance((Poolable) obj); 
             }
         }
         else if (obj instanceof Serializable) {
+            // The type is written upfront as PoolableInput expects it 
+            // before every object.
+            writeBoolean(false);
+            writeUTF(obj.getClass().getName());
             mySerializableOutputStream.writeObject(obj);
+            mySerializableOutputStream.flush();
         }
         else {
             throw new IOException(
@@ -66,6 +66,7 @@ public class DBOperationFailureMessage extends Message implements Poolable
         DBOperationFailureMessage dbfm = 
             PooledObjects.getInstance(DBOperationFailureMessage.class);
         dbfm.setSenderID(nodeID);
+        dbfm.setMessage(message);
         dbfm.setException(exception);
         dbfm.setSequenceNumber(sequenceNumber);
         return dbfm;
@@ -139,7 +140,9 @@ public class DBOperationFailureMessage extends Message implements Poolable
         super.readExternal(in);
         mySequenceNumber = in.readLong();
         myMessage     = in.readUTF();
-        myException   = (Throwable) in.readObject();
+        // Only the description of the exception is sent, since it's
+        // type needn't be known to the client.
+        myException   = new DatabaseException(in.readUTF());
     }
 
     /**
@@ -150,8 +153,11 @@ public class DBOperationFailureMessage extends Message implements Poolable
     {
         super.writeExternal(out);
         out.writeLong(mySequenceNumber);
-        out.writeUTF(myMessage);
-        out.writeObject(myException);
+        String message = myMessage != null ? myMessage : "";
+        out.writeUTF(message);
+        out.writeUTF(
+            myException != null && myException.getMessage() != null ?
+                myException.getMessage() : message);
     }
 
     /**
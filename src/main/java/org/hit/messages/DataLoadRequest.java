@@ -30,7 +30,9 @@ import org.hit.util.Range;
 
 /**
  * THe message that will be generated by a newly started server to load data
- * alloted to it by master from another node.
+ * alloted to it by master from another node. The data is fetched in chunks,
+ * each request asking for the chunk with the given sequence number which 
+ * resumes from the last key of the previous chunk.
  * 
  * @author Balraja Subbiah
  */
@@ -40,24 +42,36 @@ public class DataLoadRequest extends Message
     
     private Range<?> myNodeRange;
     
+    private long myChunkSequenceNumber;
+    
+    private Comparable<?> myResumeKey;
+    
+    private int myChunkSize;
+    
     /**
      * CTOR
      */
     public DataLoadRequest()
     {
-        this(null, null, null);
+        this(null, null, null, 0L, null, 0);
     }
 
     /**
      * CTOR
      */
-    public DataLoadRequest(NodeID senderID, 
-                           String tableName,
-                           Range<?> nodeRange)
+    public DataLoadRequest(NodeID        senderID, 
+                           String        tableName,
+                           Range<?>      nodeRange,
+                           long          chunkSequenceNumber,
+                           Comparable<?> resumeKey,
+                           int           chunkSize)
     {
         super(senderID);
         myTableName = tableName;
         myNodeRange = nodeRange;
+        myChunkSequenceNumber = chunkSequenceNumber;
+        myResumeKey = resumeKey;
+        myChunkSize = chunkSize;
     }
     
     /**
@@ -76,6 +90,31 @@ public class DataLoadRequest extends Message
         return myNodeRange;
     }
 
+    /**
+     * Returns the sequence number of the chunk being requested
+     */
+    public long getChunkSequenceNumber()
+    {
+        return myChunkSequenceNumber;
+    }
+
+    /**
+     * Returns the key after which the chunk starts, null for the first
+     * chunk.
+     */
+    public Comparable<?> getResumeKey()
+    {
+        return myResumeKey;
+    }
+
+    /**
+     * Returns the maximum number of rows to be sent in the chunk
+     */
+    public int getChunkSize()
+    {
+        return myChunkSize;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -86,6 +125,9 @@ public class DataLoadRequest extends Message
         super.readExternal(in);
         myTableName = in.readUTF();
         myNodeRange = (Range<?>) in.readObject();
+        myChunkSequenceNumber = in.readLong();
+        myResumeKey = (Comparable<?>) in.readObject();
+        myChunkSize = in.readInt();
     }
 
     /**
@@ -97,5 +139,8 @@ public class DataLoadRequest extends Message
         super.writeExternal(out);
         out.writeUTF(myTableName);
         out.writeObject(myNodeRange);
+        out.writeLong(myChunkSequenceNumber);
+        out.writeObject(myResumeKey);
+        out.writeInt(myChunkSize);
     }
 }
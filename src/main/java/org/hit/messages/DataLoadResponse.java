@@ -23,14 +23,17 @@ package org.hit.messages;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.List;
 
 import org.hit.communicator.Message;
 import org.hit.communicator.NodeID;
-import org.hit.db.model.Mutation;
+import org.hit.db.model.Persistable;
 
 /**
  * THe message that will be generated by a newly started slave to load data
- * alloted to it by master from another node.
+ * alloted to it by master from another node. Each response carries a chunk
+ * of the rows in the order of their keys, tagged with the sequence number 
+ * of the request it answers.
  * 
  * @author Balraja Subbiah
  */
@@ -38,26 +41,34 @@ public class DataLoadResponse extends Message
 {
     private String myTableName;
     
-    private Mutation myDataLoadResponseMutation;
+    private long myChunkSequenceNumber;
+    
+    private List<? extends Persistable<?>> myRows;
+    
+    private boolean myIsLastChunk;
     
     /**
      * CTOR
      */
     public DataLoadResponse()
     {
-        this(null, null, null);
+        this(null, null, 0L, null, false);
     }
 
     /**
      * CTOR
      */
-    public DataLoadResponse(NodeID senderID, 
-                            String tableName,
-                            Mutation dataLoadResponse)
+    public DataLoadResponse(NodeID                         senderID, 
+                            String                         tableName,
+                            long                           chunkSequenceNumber,
+                            List<? extends Persistable<?>> rows,
+                            boolean                        isLastChunk)
     {
         super(senderID);
         myTableName = tableName;
-        myDataLoadResponseMutation = dataLoadResponse;
+        myChunkSequenceNumber = chunkSequenceNumber;
+        myRows = rows;
+        myIsLastChunk = isLastChunk;
     }
     
     /**
@@ -69,23 +80,42 @@ public class DataLoadResponse extends Message
     }
 
     /**
-     * Returns the value of dataLoadResponseMutation
+     * Returns the sequence number of the chunk
+     */
+    public long getChunkSequenceNumber()
+    {
+        return myChunkSequenceNumber;
+    }
+
+    /**
+     * Returns the rows of the chunk
+     */
+    public List<? extends Persistable<?>> getRows()
+    {
+        return myRows;
+    }
+
+    /**
+     * Returns true if this is the last chunk of the requested range
      */
-    public Mutation getDataLoadResponseMutation()
+    public boolean isLastChunk()
     {
-        return myDataLoadResponseMutation;
+        return myIsLastChunk;
     }
 
     /**
      * {@inheritDoc}
      */
+    @SuppressWarnings("unchecked")
     @Override
     public void readExternal(ObjectInput in)
         throws IOException, ClassNotFoundException
     {
         super.readExternal(in);
         myTableName = in.readUTF();
-        myDataLoadResponseMutation = (Mutation) in.readObject();
+        myChunkSequenceNumber = in.readLong();
+        myRows = (List<? extends Persistable<?>>) in.readObject();
+        myIsLastChunk = in.readBoolean();
     }
 
     /**
@@ -96,6 +126,8 @@ public class DataLoadResponse extends Message
     {
         super.writeExternal(out);
         out.writeUTF(myTableName);
-        out.writeObject(myDataLoadResponseMutation);
+        out.writeLong(myChunkSequenceNumber);
+        out.writeObject(myRows);
+        out.writeBoolean(myIsLastChunk);
     }
 }
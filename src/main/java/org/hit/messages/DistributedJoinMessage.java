@@ -0,0 +1,120 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.messages;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+import org.hit.communicator.Message;
+import org.hit.communicator.NodeID;
+import org.hit.db.model.Query;
+
+/**
+ * The message sent by a client to the servers for executing a query that 
+ * joins tables partitioned across them. The servers exchange the rows of 
+ * the joined tables among themselves, so that each server holds all the
+ * rows that join with each other, before executing the query.
+ * 
+ * @author Balraja Subbiah
+ */
+public class DistributedJoinMessage extends Message
+{
+    private long mySequenceNumber;
+    
+    private Query myQuery;
+    
+    private List<NodeID> myParticipants;
+    
+    /**
+     * CTOR
+     */
+    public DistributedJoinMessage()
+    {
+        this(null, -1L, null, null);
+    }
+
+    /**
+     * CTOR
+     */
+    public DistributedJoinMessage(NodeID       clientID, 
+                                  long         sequenceNumber,
+                                  Query        query,
+                                  List<NodeID> participants)
+    {
+        super(clientID);
+        mySequenceNumber = sequenceNumber;
+        myQuery = query;
+        myParticipants = participants;
+    }
+
+    /**
+     * Returns the value of sequenceNumber
+     */
+    public long getSequenceNumber()
+    {
+        return mySequenceNumber;
+    }
+
+    /**
+     * Returns the query to be executed
+     */
+    public Query getQuery()
+    {
+        return myQuery;
+    }
+
+    /**
+     * Returns the servers participating in the join, in the same order 
+     * for every server.
+     */
+    public List<NodeID> getParticipants()
+    {
+        return myParticipants;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        mySequenceNumber = in.readLong();
+        myQuery = (Query) in.readObject();
+        myParticipants = (List<NodeID>) in.readObject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeLong(mySequenceNumber);
+        out.writeObject(myQuery);
+        out.writeObject(myParticipants);
+    }
+}
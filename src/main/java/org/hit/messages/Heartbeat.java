@@ -35,6 +35,9 @@ import org.hit.pool.PooledObjects;
 
 /**
  * Defines the heart beat to be published by client nodes to the master.
+ * Along with the number of rows in each table, it carries the cumulative 
+ * number of accesses of a table and the total time taken by them from 
+ * which the master derives the load on the partitions held by a node.
  * 
  * @author Balraja Subbiah
  */
@@ -43,30 +46,47 @@ public class Heartbeat extends Message implements Poolable
 {
     private final TObjectLongHashMap<String> myTableToRowCountMap;
     
+    private final TObjectLongHashMap<String> myTableToAccessCountMap;
+    
+    private final TObjectLongHashMap<String> myTableToAccessLatencyMap;
+    
     /**
      * CTOR
      */
     public Heartbeat()
     {
         myTableToRowCountMap = new TObjectLongHashMap<>();
+        myTableToAccessCountMap = new TObjectLongHashMap<>();
+        myTableToAccessLatencyMap = new TObjectLongHashMap<>();
     }
 
     /**
      * Factory method for creating an instance of <code>Heartbeat</code> 
      * and populating with various parameters.
      */
-    public static Heartbeat create(NodeID from, 
-                                   TObjectLongMap<String> tableRowCountMap)
+    public static Heartbeat create(
+        NodeID                 from, 
+        TObjectLongMap<String> tableRowCountMap,
+        TObjectLongMap<String> tableAccessCountMap,
+        TObjectLongMap<String> tableAccessLatencyMap)
     {
         Heartbeat heartbeat = PooledObjects.getInstance(Heartbeat.class);
         heartbeat.setSenderID(from);
-        Object[] keys = tableRowCountMap.keys();
-        long[] values = tableRowCountMap.values();
-        for (int i = 0; i < tableRowCountMap.size(); i++) {
-            heartbeat.myTableToRowCountMap.put(keys[i].toString(), values[i]);
-        }
+        copy(tableRowCountMap, heartbeat.myTableToRowCountMap);
+        copy(tableAccessCountMap, heartbeat.myTableToAccessCountMap);
+        copy(tableAccessLatencyMap, heartbeat.myTableToAccessLatencyMap);
         return heartbeat;
     }
+    
+    private static void copy(TObjectLongMap<String>     source,
+                             TObjectLongHashMap<String> target)
+    {
+        Object[] keys = source.keys();
+        long[] values = source.values();
+        for (int i = 0; i < keys.length; i++) {
+            target.put(keys[i].toString(), values[i]);
+        }
+    }
 
     /**
      * Returns the value of tableToRowCountMap
@@ -76,6 +96,22 @@ public class Heartbeat extends Message implements Poolable
         return myTableToRowCountMap;
     }
     
+    /**
+     * Returns the value of tableToAccessCountMap
+     */
+    public TObjectLongHashMap<String> getTableToAccessCountMap()
+    {
+        return myTableToAccessCountMap;
+    }
+    
+    /**
+     * Returns the value of tableToAccessLatencyMap
+     */
+    public TObjectLongHashMap<String> getTableToAccessLatencyMap()
+    {
+        return myTableToAccessLatencyMap;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -84,17 +120,24 @@ public class Heartbeat extends Message implements Poolable
             ClassNotFoundException
     {
         super.readExternal(in);
+        readMap(in, myTableToRowCountMap);
+        readMap(in, myTableToAccessCountMap);
+        readMap(in, myTableToAccessLatencyMap);
+    }
+    
+    private static void readMap(ObjectInput                in,
+                                TObjectLongHashMap<String> map)
+        throws IOException
+    {
+        map.clear();
         if (in.readBoolean()) {
             int size = in.readInt();
             for (int i = 0; i < size; i++) {
                 String key = in.readUTF();
                 long value = in.readLong();
-                myTableToRowCountMap.put(key, value);
+                map.put(key, value);
             }
         }
-        else {
-            myTableToRowCountMap.clear();
-        }
     }
     
     /**
@@ -104,12 +147,21 @@ public class Heartbeat extends Message implements Poolable
     public void writeExternal(ObjectOutput out) throws IOException
     {
         super.writeExternal(out);
-        if (!myTableToRowCountMap.isEmpty()) {
+        writeMap(out, myTableToRowCountMap);
+        writeMap(out, myTableToAccessCountMap);
+        writeMap(out, myTableToAccessLatencyMap);
+    }
+    
+    private static void writeMap(ObjectOutput               out,
+                                 TObjectLongHashMap<String> map)
+        throws IOException
+    {
+        if (!map.isEmpty()) {
             out.writeBoolean(true);
-            out.writeInt(myTableToRowCountMap.size());
-            Object[] keys = myTableToRowCountMap.keys();
-            long[] values = myTableToRowCountMap.values();
-            for (int i = 0; i < myTableToRowCountMap.size(); i++) {
+            out.writeInt(map.size());
+            Object[] keys = map.keys();
+            long[] values = map.values();
+            for (int i = 0; i < keys.length; i++) {
                 out.writeUTF(keys[i].toString());
                 out.writeLong(values[i]);
             }
@@ -127,5 +179,7 @@ public class Heartbeat extends Message implements Poolable
     {
         setSenderID(null);
         myTableToRowCountMap.clear();
+        myTableToAccessCountMap.clear();
+        myTableToAccessLatencyMap.clear();
     }
 }
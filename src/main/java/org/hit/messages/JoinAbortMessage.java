@@ -0,0 +1,88 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.messages;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.hit.communicator.NodeID;
+
+/**
+ * The message with which a server tells the other servers executing a 
+ * join that it has failed, so that they stop exchanging the rows of the 
+ * joined tables and fail the join too.
+ * 
+ * @author Balraja Subbiah
+ */
+public class JoinAbortMessage extends JoinExchangeMessage
+{
+    private String myReason;
+    
+    /**
+     * CTOR
+     */
+    public JoinAbortMessage()
+    {
+        this(null, null, -1L, null);
+    }
+
+    /**
+     * CTOR
+     */
+    public JoinAbortMessage(NodeID senderID, 
+                            NodeID clientID,
+                            long   sequenceNumber,
+                            String reason)
+    {
+        super(senderID, clientID, sequenceNumber);
+        myReason = reason;
+    }
+
+    /**
+     * Returns the reason for which the join has failed
+     */
+    public String getReason()
+    {
+        return myReason;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        myReason = in.readUTF();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeUTF(myReason != null ? myReason : "");
+    }
+}
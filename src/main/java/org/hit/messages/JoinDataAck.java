@@ -0,0 +1,87 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.messages;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.hit.communicator.NodeID;
+
+/**
+ * The message with which a server acknowledges a {@link JoinDataMessage},
+ * allowing the sender to send it another batch of rows.
+ * 
+ * @author Balraja Subbiah
+ */
+public class JoinDataAck extends JoinExchangeMessage
+{
+    private long myBatchSequenceNumber;
+    
+    /**
+     * CTOR
+     */
+    public JoinDataAck()
+    {
+        this(null, null, -1L, 0L);
+    }
+
+    /**
+     * CTOR
+     */
+    public JoinDataAck(NodeID senderID, 
+                       NodeID clientID,
+                       long   sequenceNumber,
+                       long   batchSequenceNumber)
+    {
+        super(senderID, clientID, sequenceNumber);
+        myBatchSequenceNumber = batchSequenceNumber;
+    }
+
+    /**
+     * Returns the sequence number of the acknowledged batch
+     */
+    public long getBatchSequenceNumber()
+    {
+        return myBatchSequenceNumber;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        myBatchSequenceNumber = in.readLong();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeLong(myBatchSequenceNumber);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.messages;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+import org.hit.communicator.NodeID;
+import org.hit.db.model.Persistable;
+
+/**
+ * The message that carries a batch of the rows of a joined table from 
+ * one server to another. Each batch is acknowledged by the receiver with
+ * a {@link JoinDataAck}, and a sender never has more than a bounded 
+ * number of batches waiting for acknowledgement.
+ * 
+ * @author Balraja Subbiah
+ */
+public class JoinDataMessage extends JoinExchangeMessage
+{
+    private long myBatchSequenceNumber;
+    
+    private String myTableName;
+    
+    private List<? extends Persistable<?>> myRows;
+    
+    private boolean myIsLastBatch;
+    
+    /**
+     * CTOR
+     */
+    public JoinDataMessage()
+    {
+        this(null, null, -1L, 0L, null, null, false);
+    }
+
+    /**
+     * CTOR
+     */
+    public JoinDataMessage(NodeID                         senderID, 
+                           NodeID                         clientID,
+                           long                           sequenceNumber,
+                           long                           batchSequenceNumber,
+                           String                         tableName,
+                           List<? extends Persistable<?>> rows,
+                           boolean                        isLastBatch)
+    {
+        super(senderID, clientID, sequenceNumber);
+        myBatchSequenceNumber = batchSequenceNumber;
+        myTableName = tableName;
+        myRows = rows;
+        myIsLastBatch = isLastBatch;
+    }
+
+    /**
+     * Returns the sequence number of the batch
+     */
+    public long getBatchSequenceNumber()
+    {
+        return myBatchSequenceNumber;
+    }
+
+    /**
+     * Returns the table to which the rows belong
+     */
+    public String getTableName()
+    {
+        return myTableName;
+    }
+
+    /**
+     * Returns the rows of the batch
+     */
+    public List<? extends Persistable<?>> getRows()
+    {
+        return myRows;
+    }
+
+    /**
+     * Returns true if this is the last batch sent by the sender
+     */
+    public boolean isLastBatch()
+    {
+        return myIsLastBatch;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        myBatchSequenceNumber = in.readLong();
+        myTableName = in.readUTF();
+        myRows = (List<? extends Persistable<?>>) in.readObject();
+        myIsLastBatch = in.readBoolean();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeLong(myBatchSequenceNumber);
+        out.writeUTF(myTableName);
+        out.writeObject(myRows);
+        out.writeBoolean(myIsLastBatch);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.messages;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.hit.communicator.Message;
+import org.hit.communicator.NodeID;
+
+/**
+ * Defines the base class for the messages exchanged between the servers
+ * while executing a {@link DistributedJoinMessage}. The join is 
+ * identified by the client that requested it and the sequence number 
+ * assigned to it by the client.
+ * 
+ * @author Balraja Subbiah
+ */
+public abstract class JoinExchangeMessage extends Message
+{
+    private NodeID myClientID;
+    
+    private long mySequenceNumber;
+    
+    /**
+     * CTOR
+     */
+    public JoinExchangeMessage()
+    {
+        this(null, null, -1L);
+    }
+
+    /**
+     * CTOR
+     */
+    public JoinExchangeMessage(NodeID senderID, 
+                               NodeID clientID, 
+                               long   sequenceNumber)
+    {
+        super(senderID);
+        myClientID = clientID;
+        mySequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Returns the client that requested the join
+     */
+    public NodeID getClientID()
+    {
+        return myClientID;
+    }
+
+    /**
+     * Returns the sequence number assigned to the join by the client
+     */
+    public long getSequenceNumber()
+    {
+        return mySequenceNumber;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        myClientID = (NodeID) in.readObject();
+        mySequenceNumber = in.readLong();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeObject(myClientID);
+        out.writeLong(mySequenceNumber);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.messages;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hit.communicator.NodeID;
+
+/**
+ * The message with which a server shares the number of rows it holds of 
+ * each of the joined tables with the other servers, so that all the 
+ * servers agree on the tables to be broadcast and the tables to be 
+ * repartitioned.
+ * 
+ * @author Balraja Subbiah
+ */
+public class JoinStatisticsMessage extends JoinExchangeMessage
+{
+    private Map<String, Long> myTableToRowCountMap;
+    
+    /**
+     * CTOR
+     */
+    public JoinStatisticsMessage()
+    {
+        this(null, null, -1L, new HashMap<String, Long>());
+    }
+
+    /**
+     * CTOR
+     */
+    public JoinStatisticsMessage(NodeID            senderID, 
+                                 NodeID            clientID,
+                                 long              sequenceNumber,
+                                 Map<String, Long> tableToRowCountMap)
+    {
+        super(senderID, clientID, sequenceNumber);
+        myTableToRowCountMap = tableToRowCountMap;
+    }
+
+    /**
+     * Returns the number of rows of each table held by the sender
+     */
+    public Map<String, Long> getTableToRowCountMap()
+    {
+        return myTableToRowCountMap;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        int size = in.readInt();
+        myTableToRowCountMap = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            myTableToRowCountMap.put(in.readUTF(), 
+                                     Long.valueOf(in.readLong()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeInt(myTableToRowCountMap.size());
+        for (Map.Entry<String, Long> entry : myTableToRowCountMap.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().longValue());
+        }
+    }
+}
@@ -20,6 +20,10 @@
 
 package org.hit.messages;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 import org.hit.communicator.Message;
 import org.hit.communicator.NodeID;
 
@@ -31,19 +35,51 @@ import org.hit.communicator.NodeID;
  */
 public class NodeAdvertisement extends Message
 {
+    private int myCapacity;
+    
     /**
      * CTOR
      */
     public NodeAdvertisement()
     {
-        super();
+        this(null, 1);
     }
     
     /**
      * CTOR
      */
-    public NodeAdvertisement(NodeID nodeID)
+    public NodeAdvertisement(NodeID nodeID, int capacity)
     {
         super(nodeID);
+        myCapacity = capacity;
+    }
+
+    /**
+     * Returns the capacity of the node relative to the other nodes.
+     */
+    public int getCapacity()
+    {
+        return myCapacity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        myCapacity = in.readInt();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeInt(myCapacity);
     }
 }
\ No newline at end of file
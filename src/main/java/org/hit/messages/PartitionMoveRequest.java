@@ -0,0 +1,118 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.messages;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.hit.communicator.Message;
+import org.hit.communicator.NodeID;
+import org.hit.util.Range;
+
+/**
+ * The message sent by the master to a server to take over a range of keys
+ * of a table from another server. The partitions have already been 
+ * updated to route the range to the server by the time it receives this
+ * message, so the server holds back the transactions on the range till 
+ * its data has been fetched from the other server.
+ * 
+ * @author Balraja Subbiah
+ */
+public class PartitionMoveRequest extends Message
+{
+    private String myTableName;
+    
+    private Range<?> myRange;
+    
+    private NodeID mySourceNode;
+    
+    /**
+     * CTOR
+     */
+    public PartitionMoveRequest()
+    {
+        this(null, null, null, null);
+    }
+
+    /**
+     * CTOR
+     */
+    public PartitionMoveRequest(NodeID   senderID, 
+                                String   tableName,
+                                Range<?> range,
+                                NodeID   sourceNode)
+    {
+        super(senderID);
+        myTableName = tableName;
+        myRange = range;
+        mySourceNode = sourceNode;
+    }
+
+    /**
+     * Returns the value of tableName
+     */
+    public String getTableName()
+    {
+        return myTableName;
+    }
+
+    /**
+     * Returns the range of keys to be moved
+     */
+    public Range<?> getRange()
+    {
+        return myRange;
+    }
+
+    /**
+     * Returns the node from which the range is to be moved
+     */
+    public NodeID getSourceNode()
+    {
+        return mySourceNode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        myTableName = in.readUTF();
+        myRange = (Range<?>) in.readObject();
+        mySourceNode = (NodeID) in.readObject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeUTF(myTableName);
+        out.writeObject(myRange);
+        out.writeObject(mySourceNode);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.messages;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.hit.communicator.Message;
+import org.hit.communicator.NodeID;
+
+/**
+ * The message sent by a server to the master once it has fetched the 
+ * range of keys moved to it from another server.
+ * 
+ * @author Balraja Subbiah
+ */
+public class PartitionMoveResponse extends Message
+{
+    private String myTableName;
+    
+    private long myMovedRowCount;
+    
+    /**
+     * CTOR
+     */
+    public PartitionMoveResponse()
+    {
+        this(null, null, 0L);
+    }
+
+    /**
+     * CTOR
+     */
+    public PartitionMoveResponse(NodeID senderID, 
+                                 String tableName,
+                                 long   movedRowCount)
+    {
+        super(senderID);
+        myTableName = tableName;
+        myMovedRowCount = movedRowCount;
+    }
+
+    /**
+     * Returns the value of tableName
+     */
+    public String getTableName()
+    {
+        return myTableName;
+    }
+
+    /**
+     * Returns the number of rows moved to the server
+     */
+    public long getMovedRowCount()
+    {
+        return myMovedRowCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in)
+        throws IOException, ClassNotFoundException
+    {
+        super.readExternal(in);
+        myTableName = in.readUTF();
+        myMovedRowCount = in.readLong();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        super.writeExternal(out);
+        out.writeUTF(myTableName);
+        out.writeLong(myMovedRowCount);
+    }
+}
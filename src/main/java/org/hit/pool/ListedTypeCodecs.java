@@ -0,0 +1,640 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.pool;
+
+import org.hit.db.engine.DeleteRangeMutation;
+import org.hit.db.keyspace.HashKeyspace;
+import org.hit.db.keyspace.LinearKeyspace;
+import org.hit.db.keyspace.domain.BigIntegerDomain;
+import org.hit.db.keyspace.domain.ComposedDomain;
+import org.hit.db.keyspace.domain.DateDomain;
+import org.hit.db.keyspace.domain.IntegerDomain;
+import org.hit.db.keyspace.domain.LongDomain;
+import org.hit.db.keyspace.domain.SetDomain;
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.model.TableSchema;
+import org.hit.db.model.mutations.AddRowMutation;
+import org.hit.db.model.mutations.BatchAddMutation;
+import org.hit.db.partitioner.DistributedHashTable;
+import org.hit.db.partitioner.Partitioner;
+import org.hit.db.partitioner.TablePartitionInfo;
+import org.hit.db.sql.operators.AggregationResult;
+import org.hit.db.sql.operators.ColumnComparison;
+import org.hit.db.sql.operators.ConjugateCondition;
+import org.hit.db.sql.operators.GroupBy;
+import org.hit.db.sql.operators.GroupingColumnsKey;
+import org.hit.db.sql.operators.Having;
+import org.hit.db.sql.operators.Join;
+import org.hit.db.sql.operators.NumericComparison;
+import org.hit.db.sql.operators.QueryAdaptor;
+import org.hit.db.sql.operators.RewritableQueryAdapter;
+import org.hit.db.sql.operators.Select;
+import org.hit.db.sql.operators.SelectAggregateKey;
+import org.hit.db.sql.operators.Sort;
+import org.hit.db.sql.operators.StringComparison;
+import org.hit.db.sql.operators.TopN;
+import org.hit.db.sql.operators.Where;
+import org.hit.gms.SimpleGroupID;
+import org.hit.gossip.Digest;
+import org.hit.io.binary.Codec;
+import org.hit.io.binary.ExternalizableCodec;
+import org.hit.messages.Allocation;
+import org.hit.messages.CreateTableMessage;
+import org.hit.messages.CreateTableResponseMessage;
+import org.hit.messages.DataLoadRequest;
+import org.hit.messages.DataLoadResponse;
+import org.hit.messages.DistributedJoinMessage;
+import org.hit.messages.FacadeInitRequest;
+import org.hit.messages.FacadeInitResponse;
+import org.hit.messages.JoinAbortMessage;
+import org.hit.messages.JoinDataAck;
+import org.hit.messages.JoinDataMessage;
+import org.hit.messages.JoinStatisticsMessage;
+import org.hit.messages.NodeAdvertisement;
+import org.hit.messages.NodeAdvertisementResponse;
+import org.hit.messages.PartitionMoveAbort;
+import org.hit.messages.PartitionMoveRequest;
+import org.hit.messages.PartitionMoveResponse;
+import org.hit.messages.ReconcillationRequest;
+import org.hit.messages.ReconcilliationResponse;
+import org.hit.util.Range;
+
+/**
+ * Registers the {@link Codec}s of the types listed in 
+ * {@link SimplePoolableRegistry} that aren't pooled, so that their 
+ * instances are created through an explicit factory method instead of 
+ * reflection when they are decoded.
+ * 
+ * @author Balraja Subbiah
+ */
+final class ListedTypeCodecs
+{
+    /**
+     * Registers the codecs with {@link Codec}.
+     */
+    @SuppressWarnings("rawtypes")
+    static void registerCodecs()
+    {
+        Codec.register(
+            DeleteRangeMutation.class, 
+            new ExternalizableCodec<DeleteRangeMutation>() {
+                @Override
+                protected DeleteRangeMutation newInstance()
+                {
+                    return new DeleteRangeMutation();
+                }
+            });
+
+        Codec.register(
+            HashKeyspace.class, 
+            new ExternalizableCodec<HashKeyspace>() {
+                @Override
+                protected HashKeyspace newInstance()
+                {
+                    return new HashKeyspace();
+                }
+            });
+
+        Codec.register(
+            LinearKeyspace.class, 
+            new ExternalizableCodec<LinearKeyspace>() {
+                @Override
+                protected LinearKeyspace newInstance()
+                {
+                    return new LinearKeyspace();
+                }
+            });
+
+        Codec.register(
+            BigIntegerDomain.class, 
+            new ExternalizableCodec<BigIntegerDomain>() {
+                @Override
+                protected BigIntegerDomain newInstance()
+                {
+                    return new BigIntegerDomain();
+                }
+            });
+
+        Codec.register(
+            ComposedDomain.class, 
+            new ExternalizableCodec<ComposedDomain>() {
+                @Override
+                protected ComposedDomain newInstance()
+                {
+                    return new ComposedDomain();
+                }
+            });
+
+        Codec.register(
+            DateDomain.class, 
+            new ExternalizableCodec<DateDomain>() {
+                @Override
+                protected DateDomain newInstance()
+                {
+                    return new DateDomain();
+                }
+            });
+
+        Codec.register(
+            IntegerDomain.class, 
+            new ExternalizableCodec<IntegerDomain>() {
+                @Override
+                protected IntegerDomain newInstance()
+                {
+                    return new IntegerDomain();
+                }
+            });
+
+        Codec.register(
+            LongDomain.class, 
+            new ExternalizableCodec<LongDomain>() {
+                @Override
+                protected LongDomain newInstance()
+                {
+                    return new LongDomain();
+                }
+            });
+
+        Codec.register(
+            SetDomain.class, 
+            new ExternalizableCodec<SetDomain>() {
+                @Override
+                protected SetDomain newInstance()
+                {
+                    return new SetDomain();
+                }
+            });
+
+        Codec.register(
+            HitTableSchema.class, 
+            new ExternalizableCodec<HitTableSchema>() {
+                @Override
+                protected HitTableSchema newInstance()
+                {
+                    return new HitTableSchema();
+                }
+            });
+
+        Codec.register(
+            TableSchema.class, 
+            new ExternalizableCodec<TableSchema>() {
+                @Override
+                protected TableSchema newInstance()
+                {
+                    return new TableSchema();
+                }
+            });
+
+        Codec.register(
+            AddRowMutation.class, 
+            new ExternalizableCodec<AddRowMutation>() {
+                @Override
+                protected AddRowMutation newInstance()
+                {
+                    return new AddRowMutation();
+                }
+            });
+
+        Codec.register(
+            BatchAddMutation.class, 
+            new ExternalizableCodec<BatchAddMutation>() {
+                @Override
+                protected BatchAddMutation newInstance()
+                {
+                    return new BatchAddMutation();
+                }
+            });
+
+        Codec.register(
+            DistributedHashTable.class, 
+            new ExternalizableCodec<DistributedHashTable>() {
+                @Override
+                protected DistributedHashTable newInstance()
+                {
+                    return new DistributedHashTable();
+                }
+            });
+
+        Codec.register(
+            Partitioner.class, 
+            new ExternalizableCodec<Partitioner>() {
+                @Override
+                protected Partitioner newInstance()
+                {
+                    return new Partitioner();
+                }
+            });
+
+        Codec.register(
+            TablePartitionInfo.class, 
+            new ExternalizableCodec<TablePartitionInfo>() {
+                @Override
+                protected TablePartitionInfo newInstance()
+                {
+                    return new TablePartitionInfo();
+                }
+            });
+
+        Codec.register(
+            ColumnComparison.class, 
+            new ExternalizableCodec<ColumnComparison>() {
+                @Override
+                protected ColumnComparison newInstance()
+                {
+                    return new ColumnComparison();
+                }
+            });
+
+        Codec.register(
+            ConjugateCondition.class, 
+            new ExternalizableCodec<ConjugateCondition>() {
+                @Override
+                protected ConjugateCondition newInstance()
+                {
+                    return new ConjugateCondition();
+                }
+            });
+
+        Codec.register(
+            GroupBy.class, 
+            new ExternalizableCodec<GroupBy>() {
+                @Override
+                protected GroupBy newInstance()
+                {
+                    return new GroupBy();
+                }
+            });
+
+        Codec.register(
+            GroupingColumnsKey.class, 
+            new ExternalizableCodec<GroupingColumnsKey>() {
+                @Override
+                protected GroupingColumnsKey newInstance()
+                {
+                    return new GroupingColumnsKey();
+                }
+            });
+
+        Codec.register(
+            Having.class, 
+            new ExternalizableCodec<Having>() {
+                @Override
+                protected Having newInstance()
+                {
+                    return new Having();
+                }
+            });
+
+        Codec.register(
+            Join.class, 
+            new ExternalizableCodec<Join>() {
+                @Override
+                protected Join newInstance()
+                {
+                    return new Join();
+                }
+            });
+
+        Codec.register(
+            NumericComparison.class, 
+            new ExternalizableCodec<NumericComparison>() {
+                @Override
+                protected NumericComparison newInstance()
+                {
+                    return new NumericComparison();
+                }
+            });
+
+        Codec.register(
+            QueryAdaptor.class, 
+            new ExternalizableCodec<QueryAdaptor>() {
+                @Override
+                protected QueryAdaptor newInstance()
+                {
+                    return new QueryAdaptor();
+                }
+            });
+
+        Codec.register(
+            RewritableQueryAdapter.class, 
+            new ExternalizableCodec<RewritableQueryAdapter>() {
+                @Override
+                protected RewritableQueryAdapter newInstance()
+                {
+                    return new RewritableQueryAdapter();
+                }
+            });
+
+        Codec.register(
+            Select.class, 
+            new ExternalizableCodec<Select>() {
+                @Override
+                protected Select newInstance()
+                {
+                    return new Select();
+                }
+            });
+
+        Codec.register(
+            SelectAggregateKey.class, 
+            new ExternalizableCodec<SelectAggregateKey>() {
+                @Override
+                protected SelectAggregateKey newInstance()
+                {
+                    return new SelectAggregateKey();
+                }
+            });
+
+        Codec.register(
+            StringComparison.class, 
+            new ExternalizableCodec<StringComparison>() {
+                @Override
+                protected StringComparison newInstance()
+                {
+                    return new StringComparison();
+                }
+            });
+
+        Codec.register(
+            Where.class, 
+            new ExternalizableCodec<Where>() {
+                @Override
+                protected Where newInstance()
+                {
+                    return new Where();
+                }
+            });
+
+        Codec.register(
+            SimpleGroupID.class, 
+            new ExternalizableCodec<SimpleGroupID>() {
+                @Override
+                protected SimpleGroupID newInstance()
+                {
+                    return new SimpleGroupID();
+                }
+            });
+
+        Codec.register(
+            Digest.class, 
+            new ExternalizableCodec<Digest>() {
+                @Override
+                protected Digest newInstance()
+                {
+                    return new Digest();
+                }
+            });
+
+        Codec.register(
+            Allocation.class, 
+            new ExternalizableCodec<Allocation>() {
+                @Override
+                protected Allocation newInstance()
+                {
+                    return new Allocation();
+                }
+            });
+
+        Codec.register(
+            CreateTableMessage.class, 
+            new ExternalizableCodec<CreateTableMessage>() {
+                @Override
+                protected CreateTableMessage newInstance()
+                {
+                    return new CreateTableMessage();
+                }
+            });
+
+        Codec.register(
+            CreateTableResponseMessage.class, 
+            new ExternalizableCodec<CreateTableResponseMessage>() {
+                @Override
+                protected CreateTableResponseMessage newInstance()
+                {
+                    return new CreateTableResponseMessage();
+                }
+            });
+
+        Codec.register(
+            DataLoadRequest.class, 
+            new ExternalizableCodec<DataLoadRequest>() {
+                @Override
+                protected DataLoadRequest newInstance()
+                {
+                    return new DataLoadRequest();
+                }
+            });
+
+        Codec.register(
+            DataLoadResponse.class, 
+            new ExternalizableCodec<DataLoadResponse>() {
+                @Override
+                protected DataLoadResponse newInstance()
+                {
+                    return new DataLoadResponse();
+                }
+            });
+
+        Codec.register(
+            FacadeInitRequest.class, 
+            new ExternalizableCodec<FacadeInitRequest>() {
+                @Override
+                protected FacadeInitRequest newInstance()
+                {
+                    return new FacadeInitRequest();
+                }
+            });
+
+        Codec.register(
+            FacadeInitResponse.class, 
+            new ExternalizableCodec<FacadeInitResponse>() {
+                @Override
+                protected FacadeInitResponse newInstance()
+                {
+                    return new FacadeInitResponse();
+                }
+            });
+
+        Codec.register(
+            NodeAdvertisement.class, 
+            new ExternalizableCodec<NodeAdvertisement>() {
+                @Override
+                protected NodeAdvertisement newInstance()
+                {
+                    return new NodeAdvertisement();
+                }
+            });
+
+        Codec.register(
+            NodeAdvertisementResponse.class, 
+            new ExternalizableCodec<NodeAdvertisementResponse>() {
+                @Override
+                protected NodeAdvertisementResponse newInstance()
+                {
+                    return new NodeAdvertisementResponse();
+                }
+            });
+
+        Codec.register(
+            ReconcillationRequest.class, 
+            new ExternalizableCodec<ReconcillationRequest>() {
+                @Override
+                protected ReconcillationRequest newInstance()
+                {
+                    return new ReconcillationRequest();
+                }
+            });
+
+        Codec.register(
+            ReconcilliationResponse.class, 
+            new ExternalizableCodec<ReconcilliationResponse>() {
+                @Override
+                protected ReconcilliationResponse newInstance()
+                {
+                    return new ReconcilliationResponse();
+                }
+            });
+
+        Codec.register(
+            Range.class, 
+            new ExternalizableCodec<Range>() {
+                @Override
+                protected Range newInstance()
+                {
+                    return new Range();
+                }
+            });
+
+        Codec.register(
+            PartitionMoveRequest.class, 
+            new ExternalizableCodec<PartitionMoveRequest>() {
+                @Override
+                protected PartitionMoveRequest newInstance()
+                {
+                    return new PartitionMoveRequest();
+                }
+            });
+
+        Codec.register(
+            PartitionMoveResponse.class, 
+            new ExternalizableCodec<PartitionMoveResponse>() {
+                @Override
+                protected PartitionMoveResponse newInstance()
+                {
+                    return new PartitionMoveResponse();
+                }
+            });
+
+        Codec.register(
+            DistributedJoinMessage.class, 
+            new ExternalizableCodec<DistributedJoinMessage>() {
+                @Override
+                protected DistributedJoinMessage newInstance()
+                {
+                    return new DistributedJoinMessage();
+                }
+            });
+
+        Codec.register(
+            JoinStatisticsMessage.class, 
+            new ExternalizableCodec<JoinStatisticsMessage>() {
+                @Override
+                protected JoinStatisticsMessage newInstance()
+                {
+                    return new JoinStatisticsMessage();
+                }
+            });
+
+        Codec.register(
+            JoinDataMessage.class, 
+            new ExternalizableCodec<JoinDataMessage>() {
+                @Override
+                protected JoinDataMessage newInstance()
+                {
+                    return new JoinDataMessage();
+                }
+            });
+
+        Codec.register(
+            JoinDataAck.class, 
+            new ExternalizableCodec<JoinDataAck>() {
+                @Override
+                protected JoinDataAck newInstance()
+                {
+                    return new JoinDataAck();
+                }
+            });
+
+        Codec.register(
+            AggregationResult.class, 
+            new ExternalizableCodec<AggregationResult>() {
+                @Override
+                protected AggregationResult newInstance()
+                {
+                    return new AggregationResult();
+                }
+            });
+
+        Codec.register(
+            Sort.class, 
+            new ExternalizableCodec<Sort>() {
+                @Override
+                protected Sort newInstance()
+                {
+                    return new Sort();
+                }
+            });
+
+        Codec.register(
+            TopN.class, 
+            new ExternalizableCodec<TopN>() {
+                @Override
+                protected TopN newInstance()
+                {
+                    return new TopN();
+                }
+            });
+
+        Codec.register(
+            PartitionMoveAbort.class, 
+            new ExternalizableCodec<PartitionMoveAbort>() {
+                @Override
+                protected PartitionMoveAbort newInstance()
+                {
+                    return new PartitionMoveAbort();
+                }
+            });
+
+        Codec.register(
+            JoinAbortMessage.class, 
+            new ExternalizableCodec<JoinAbortMessage>() {
+                @Override
+                protected JoinAbortMessage newInstance()
+                {
+                    return new JoinAbortMessage();
+                }
+            });
+    }
+    
+    private ListedTypeCodecs()
+    {
+    }
+}
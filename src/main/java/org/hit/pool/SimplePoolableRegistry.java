@@ -19,22 +19,242 @@
 */
 package org.hit.pool;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.hit.communicator.nio.IPNodeID;
+import org.hit.consensus.raft.ProposalBatch;
+import org.hit.consensus.raft.RaftInstallSnapshotAck;
+import org.hit.consensus.raft.RaftInstallSnapshotMessage;
+import org.hit.consensus.raft.RaftReplayMessage;
+import org.hit.consensus.raft.RaftReplicationMessage;
+import org.hit.consensus.raft.RaftReplicationResponse;
+import org.hit.consensus.twopc.CommitRequest;
+import org.hit.consensus.twopc.ConsensusAcceptMessage;
+import org.hit.consensus.twopc.SolicitConsensusMessage;
+import org.hit.db.engine.ConsensusID;
+import org.hit.db.engine.DeleteRangeMutation;
+import org.hit.db.engine.DistributedTrnProposal;
+import org.hit.db.engine.ReplicationProposal;
+import org.hit.db.keyspace.HashKeyspace;
+import org.hit.db.keyspace.LinearKeyspace;
+import org.hit.db.keyspace.domain.BigIntegerDomain;
+import org.hit.db.keyspace.domain.ComposedDomain;
+import org.hit.db.keyspace.domain.DateDomain;
+import org.hit.db.keyspace.domain.IntegerDomain;
+import org.hit.db.keyspace.domain.LongDomain;
+import org.hit.db.keyspace.domain.SetDomain;
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.model.TableSchema;
+import org.hit.db.model.mutations.AddRowMutation;
+import org.hit.db.model.mutations.BatchAddMutation;
+import org.hit.db.partitioner.DistributedHashTable;
+import org.hit.db.partitioner.Partitioner;
+import org.hit.db.partitioner.TablePartitionInfo;
+import org.hit.db.sql.operators.AggregationID;
+import org.hit.db.sql.operators.AggregationResult;
+import org.hit.db.sql.operators.ColumnComparison;
+import org.hit.db.sql.operators.ComparisionOperator;
+import org.hit.db.sql.operators.ConjugateCondition;
+import org.hit.db.sql.operators.GroupBy;
+import org.hit.db.sql.operators.GroupingColumnsKey;
+import org.hit.db.sql.operators.Having;
+import org.hit.db.sql.operators.Join;
+import org.hit.db.sql.operators.NumericComparison;
+import org.hit.db.sql.operators.QueryAdaptor;
+import org.hit.db.sql.operators.RewritableQueryAdapter;
+import org.hit.db.sql.operators.Select;
+import org.hit.db.sql.operators.SelectAggregateKey;
+import org.hit.db.sql.operators.Sort;
+import org.hit.db.sql.operators.StringComparison;
+import org.hit.db.sql.operators.TopN;
+import org.hit.db.sql.operators.Where;
+import org.hit.gms.SimpleGroupID;
+import org.hit.gossip.Digest;
 import org.hit.io.pool.PoolableRegistry;
+import org.hit.messages.Allocation;
+import org.hit.messages.CreateTableMessage;
+import org.hit.messages.CreateTableResponseMessage;
+import org.hit.messages.DBOperationFailureMessage;
+import org.hit.messages.DBOperationMessage;
+import org.hit.messages.DBOperationSuccessMessage;
+import org.hit.messages.DataLoadRequest;
+import org.hit.messages.DataLoadResponse;
+import org.hit.messages.DistributedDBOperationMessage;
+import org.hit.messages.DistributedJoinMessage;
+import org.hit.messages.FacadeInitRequest;
+import org.hit.messages.FacadeInitResponse;
+import org.hit.messages.Heartbeat;
+import org.hit.messages.JoinAbortMessage;
+import org.hit.messages.JoinDataAck;
+import org.hit.messages.JoinDataMessage;
+import org.hit.messages.JoinStatisticsMessage;
+import org.hit.messages.NodeAdvertisement;
+import org.hit.messages.NodeAdvertisementResponse;
+import org.hit.messages.PartitionMoveAbort;
+import org.hit.messages.PartitionMoveRequest;
+import org.hit.messages.PartitionMoveResponse;
+import org.hit.messages.ReconcillationRequest;
+import org.hit.messages.ReconcilliationResponse;
+import org.hit.server.ServerNodeID;
+import org.hit.util.ApplicationProperties;
+import org.hit.util.LogFactory;
+import org.hit.util.Range;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.google.common.hash.Funnels;
 
 /**
  * @author Balraja Subbiah
  */
 public class SimplePoolableRegistry implements PoolableRegistry
 {
-    private static final List<Class<? extends Poolable>> OUR_LISTED_CLASSES =
+    private static final Logger LOG = 
+        LogFactory.getInstance().getLogger(SimplePoolableRegistry.class);
+    
+    /** 
+     * The property for specifying the comma separated names of the
+     * application types, that are registered after the listed classes.
+     */
+    public static final String REGISTERED_TYPES_PROPERTY = 
+        "org.hit.pool.registeredTypes";
+    
+    /** 
+     * The types that are assigned an identifier, in the order of their 
+     * identifiers. As the identifiers are used in place of type names when 
+     * serializing the objects, new types should always be appended to the 
+     * end of this list.
+     */
+    private static final List<Class<?>> OUR_LISTED_CLASSES =
         new ArrayList<>();
     
+    static {
+        Collections.addAll(
+            OUR_LISTED_CLASSES,
+            String.class,
+            Boolean.class,
+            Byte.class,
+            Short.class,
+            Character.class,
+            Integer.class,
+            Long.class,
+            Float.class,
+            Double.class,
+            BigInteger.class,
+            BigDecimal.class,
+            Date.class,
+            Class.class,
+            byte[].class,
+            int[].class,
+            long[].class,
+            double[].class,
+            String[].class,
+            Object[].class,
+            ArrayList.class,
+            LinkedList.class,
+            HashSet.class,
+            LinkedHashSet.class,
+            TreeSet.class,
+            HashMap.class,
+            LinkedHashMap.class,
+            TreeMap.class,
+            IPNodeID.class,
+            ProposalBatch.class,
+            RaftInstallSnapshotAck.class,
+            RaftInstallSnapshotMessage.class,
+            RaftReplayMessage.class,
+            RaftReplicationMessage.class,
+            RaftReplicationResponse.class,
+            CommitRequest.class,
+            ConsensusAcceptMessage.class,
+            SolicitConsensusMessage.class,
+            ConsensusID.class,
+            DeleteRangeMutation.class,
+            DistributedTrnProposal.class,
+            ReplicationProposal.class,
+            HashKeyspace.class,
+            LinearKeyspace.class,
+            BigIntegerDomain.class,
+            ComposedDomain.class,
+            DateDomain.class,
+            IntegerDomain.class,
+            LongDomain.class,
+            SetDomain.class,
+            HitTableSchema.class,
+            TableSchema.class,
+            AddRowMutation.class,
+            BatchAddMutation.class,
+            DistributedHashTable.class,
+            Partitioner.class,
+            TablePartitionInfo.class,
+            ColumnComparison.class,
+            ConjugateCondition.class,
+            GroupBy.class,
+            GroupingColumnsKey.class,
+            Having.class,
+            Join.class,
+            NumericComparison.class,
+            QueryAdaptor.class,
+            RewritableQueryAdapter.class,
+            Select.class,
+            SelectAggregateKey.class,
+            StringComparison.class,
+            Where.class,
+            SimpleGroupID.class,
+            Digest.class,
+            Allocation.class,
+            CreateTableMessage.class,
+            CreateTableResponseMessage.class,
+            DBOperationFailureMessage.class,
+            DBOperationMessage.class,
+            DBOperationSuccessMessage.class,
+            DataLoadRequest.class,
+            DataLoadResponse.class,
+            DistributedDBOperationMessage.class,
+            FacadeInitRequest.class,
+            FacadeInitResponse.class,
+            Heartbeat.class,
+            NodeAdvertisement.class,
+            NodeAdvertisementResponse.class,
+            ReconcillationRequest.class,
+            ReconcilliationResponse.class,
+            ServerNodeID.class,
+            Range.class,
+            PartitionMoveRequest.class,
+            PartitionMoveResponse.class,
+            DistributedJoinMessage.class,
+            JoinStatisticsMessage.class,
+            JoinDataMessage.class,
+            JoinDataAck.class,
+            AggregationResult.class,
+            Sort.class,
+            TopN.class,
+            AggregationID.class,
+            ComparisionOperator.class,
+            ((Enum<?>) Funnels.byteArrayFunnel()).getDeclaringClass(),
+            ((Enum<?>) Funnels.integerFunnel()).getDeclaringClass(),
+            ((Enum<?>) Funnels.longFunnel()).getDeclaringClass(),
+            ((Enum<?>) Funnels.stringFunnel()).getDeclaringClass(),
+            PartitionMoveAbort.class,
+            JoinAbortMessage.class);
+        
+        ListedTypeCodecs.registerCodecs();
+    }
+    
     private final BiMap<Class<?>, Integer> myTypeToIdentifierMap;
     
     /**
@@ -48,6 +268,21 @@ public class SimplePoolableRegistry implements PoolableRegistry
             myTypeToIdentifierMap.put(poolableType, 
                                       Integer.valueOf(identifier++));
         }
+        
+        String registeredTypes = 
+            ApplicationProperties.getProperty(REGISTERED_TYPES_PROPERTY);
+        if (registeredTypes != null) {
+            for (String typeName : registeredTypes.split(",")) {
+                try {
+                    myTypeToIdentifierMap.put(
+                        Class.forName(typeName.trim()),
+                        Integer.valueOf(identifier++));
+                }
+                catch (ClassNotFoundException e) {
+                    LOG.log(Level.SEVERE, e.getMessage(), e);
+                }
+            }
+        }
     }
 
     /**
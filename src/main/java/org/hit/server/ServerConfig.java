@@ -64,4 +64,75 @@ public interface ServerConfig
      * be published.
      */
     public int getGossipUpdateSecs();
+    
+    /**
+     * Returns the maximum number of rows to be fetched in a chunk while
+     * loading the data allocated to this server from another node.
+     */
+    public int getDataLoadChunkSize();
+    
+    /**
+     * Returns the interval in seconds at which the master looks for the 
+     * partitions to be moved between the servers.
+     */
+    public int getRebalanceIntervalSecs();
+    
+    /**
+     * Returns the factor by which the load on a server should exceed the 
+     * average load on the servers holding a table, for its partition of
+     * the table to be split and moved.
+     */
+    public double getRebalanceLoadFactor();
+    
+    /**
+     * Returns the minimum interval in seconds between the start of two 
+     * partition moves.
+     */
+    public int getPartitionMoveIntervalSecs();
+    
+    /**
+     * Returns the time in seconds after which a partition move that 
+     * hasn't completed is given up, so that the other moves aren't held
+     * up forever.
+     */
+    public int getPartitionMoveTimeoutSecs();
+    
+    /**
+     * Returns the number of tokens claimed by a server of unit capacity on
+     * the ring of a table whose keys are hashed.
+     */
+    public int getVirtualNodeCount();
+    
+    /**
+     * Returns the capacity of this server relative to the other servers.
+     * A server claims tokens on the ring proportional to it's capacity.
+     */
+    public int getCapacity();
+    
+    /**
+     * Returns the maximum number of rows of the tables being joined, 
+     * other than the largest of them, for those tables to be sent to every 
+     * server instead of repartitioning all the tables on the join key.
+     */
+    public long getJoinBroadcastThreshold();
+    
+    /**
+     * Returns the maximum number of rows sent in a batch while exchanging
+     * the rows of the joined tables between the servers.
+     */
+    public int getJoinBatchSize();
+    
+    /**
+     * Returns the maximum number of batches of rows that a server sends 
+     * to another server without being acknowledged, while exchanging the 
+     * rows of the joined tables.
+     */
+    public int getJoinWindowSize();
+    
+    /**
+     * Returns the time in seconds within which the servers should finish
+     * exchanging the rows of the joined tables, after which the join is
+     * failed.
+     */
+    public int getJoinTimeoutSecs();
 }
@@ -48,6 +48,61 @@ public  class ServerPropertyConfig implements ServerConfig
     
     public static final String GOSSIP_INTERVAL_PROPERTY= 
         "org.hit.server.gossipIntervalInSecs";
+    
+    public static final String DATA_LOAD_CHUNK_SIZE_PROPERTY = 
+        "org.hit.server.dataLoadChunkSize";
+    
+    public static final String REBALANCE_INTERVAL_PROPERTY = 
+        "org.hit.server.rebalanceIntervalInSecs";
+    
+    public static final String REBALANCE_LOAD_FACTOR_PROPERTY = 
+        "org.hit.server.rebalanceLoadFactor";
+    
+    public static final String PARTITION_MOVE_INTERVAL_PROPERTY = 
+        "org.hit.server.partitionMoveIntervalInSecs";
+    
+    public static final String PARTITION_MOVE_TIMEOUT_PROPERTY = 
+        "org.hit.server.partitionMoveTimeoutInSecs";
+    
+    public static final String VIRTUAL_NODE_COUNT_PROPERTY = 
+        "org.hit.server.virtualNodeCount";
+    
+    public static final String CAPACITY_PROPERTY = 
+        "org.hit.server.capacity";
+    
+    public static final String JOIN_BROADCAST_THRESHOLD_PROPERTY = 
+        "org.hit.server.joinBroadcastThreshold";
+    
+    public static final String JOIN_BATCH_SIZE_PROPERTY = 
+        "org.hit.server.joinBatchSize";
+    
+    public static final String JOIN_WINDOW_SIZE_PROPERTY = 
+        "org.hit.server.joinWindowSize";
+    
+    public static final String JOIN_TIMEOUT_PROPERTY = 
+        "org.hit.server.joinTimeoutSecs";
+    
+    private static final int DEFAULT_DATA_LOAD_CHUNK_SIZE = 10000;
+    
+    private static final int DEFAULT_REBALANCE_INTERVAL = 30;
+    
+    private static final double DEFAULT_REBALANCE_LOAD_FACTOR = 1.5;
+    
+    private static final int DEFAULT_PARTITION_MOVE_INTERVAL = 60;
+    
+    private static final int DEFAULT_PARTITION_MOVE_TIMEOUT = 600;
+    
+    private static final int DEFAULT_VIRTUAL_NODE_COUNT = 64;
+    
+    private static final int DEFAULT_CAPACITY = 1;
+    
+    private static final long DEFAULT_JOIN_BROADCAST_THRESHOLD = 10000L;
+    
+    private static final int DEFAULT_JOIN_BATCH_SIZE = 1000;
+    
+    private static final int DEFAULT_JOIN_WINDOW_SIZE = 4;
+    
+    private static final int DEFAULT_JOIN_TIMEOUT = 300;
 
     /**
      * {@inheritDoc}
@@ -117,4 +172,136 @@ public  class ServerPropertyConfig implements ServerConfig
             ApplicationProperties.getProperty(GOSSIP_INTERVAL_PROPERTY));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDataLoadChunkSize()
+    {
+        String chunkSize = 
+            ApplicationProperties.getProperty(DATA_LOAD_CHUNK_SIZE_PROPERTY);
+        return chunkSize != null ? Integer.parseInt(chunkSize)
+                                 : DEFAULT_DATA_LOAD_CHUNK_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRebalanceIntervalSecs()
+    {
+        String interval = 
+            ApplicationProperties.getProperty(REBALANCE_INTERVAL_PROPERTY);
+        return interval != null ? Integer.parseInt(interval)
+                                : DEFAULT_REBALANCE_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getRebalanceLoadFactor()
+    {
+        String factor = 
+            ApplicationProperties.getProperty(REBALANCE_LOAD_FACTOR_PROPERTY);
+        return factor != null ? Double.parseDouble(factor)
+                              : DEFAULT_REBALANCE_LOAD_FACTOR;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPartitionMoveIntervalSecs()
+    {
+        String interval = 
+            ApplicationProperties.getProperty(PARTITION_MOVE_INTERVAL_PROPERTY);
+        return interval != null ? Integer.parseInt(interval)
+                                : DEFAULT_PARTITION_MOVE_INTERVAL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPartitionMoveTimeoutSecs()
+    {
+        String timeout = 
+            ApplicationProperties.getProperty(PARTITION_MOVE_TIMEOUT_PROPERTY);
+        return timeout != null ? Integer.parseInt(timeout)
+                               : DEFAULT_PARTITION_MOVE_TIMEOUT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getVirtualNodeCount()
+    {
+        String virtualNodeCount = 
+            ApplicationProperties.getProperty(VIRTUAL_NODE_COUNT_PROPERTY);
+        return virtualNodeCount != null ? Integer.parseInt(virtualNodeCount)
+                                        : DEFAULT_VIRTUAL_NODE_COUNT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCapacity()
+    {
+        String capacity = ApplicationProperties.getProperty(CAPACITY_PROPERTY);
+        return capacity != null ? Integer.parseInt(capacity)
+                                : DEFAULT_CAPACITY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getJoinBroadcastThreshold()
+    {
+        String threshold = 
+            ApplicationProperties.getProperty(
+                JOIN_BROADCAST_THRESHOLD_PROPERTY);
+        return threshold != null ? Long.parseLong(threshold)
+                                 : DEFAULT_JOIN_BROADCAST_THRESHOLD;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getJoinBatchSize()
+    {
+        String batchSize = 
+            ApplicationProperties.getProperty(JOIN_BATCH_SIZE_PROPERTY);
+        return batchSize != null ? Integer.parseInt(batchSize)
+                                 : DEFAULT_JOIN_BATCH_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getJoinWindowSize()
+    {
+        String windowSize = 
+            ApplicationProperties.getProperty(JOIN_WINDOW_SIZE_PROPERTY);
+        return windowSize != null ? Integer.parseInt(windowSize)
+                                  : DEFAULT_JOIN_WINDOW_SIZE;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getJoinTimeoutSecs()
+    {
+        String timeout = 
+            ApplicationProperties.getProperty(JOIN_TIMEOUT_PROPERTY);
+        return timeout != null ? Integer.parseInt(timeout)
+                               : DEFAULT_JOIN_TIMEOUT;
+    }
+
 }
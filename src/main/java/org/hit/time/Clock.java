@@ -30,4 +30,11 @@ public interface Clock
 {
     /** Returns the current time as seen by this database */
     public long currentTime();
+    
+    /** 
+     * Advances the clock on observing a time stamp generated by another 
+     * instance of database, so that the time stamps generated afterwards 
+     * are ordered after it.
+     */
+    public void observe(long remoteTime);
 }
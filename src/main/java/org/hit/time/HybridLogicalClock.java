@@ -0,0 +1,122 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.time;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hit.util.NamedThreadFactory;
+
+/**
+ * Implements {@link Clock} as a hybrid logical clock. The time is a 
+ * combination of the physical time in milliseconds, stored in the upper 
+ * bits, and a logical counter, stored in the lower 
+ * {@link #LOGICAL_BITS} bits. Every call to {@link #currentTime()} returns 
+ * a unique value that's greater than all the values returned earlier and 
+ * than the timestamps observed from the other nodes, so that the time 
+ * stamps are causally ordered across the cluster while staying close to 
+ * the physical time.
+ * <p>
+ * The physical time is sampled by a background thread every millisecond, 
+ * so generating a timestamp doesn't incur a system call.
+ * 
+ * @author Balraja Subbiah
+ */
+public class HybridLogicalClock implements Clock
+{
+    /** The number of bits reserved for the logical counter */
+    public static final int LOGICAL_BITS = 16;
+    
+    private final AtomicLong myTime;
+    
+    private volatile long myPhysicalTime;
+    
+    private final ScheduledExecutorService myTicker;
+    
+    /**
+     * CTOR
+     */
+    public HybridLogicalClock()
+    {
+        myPhysicalTime = System.currentTimeMillis();
+        myTime = new AtomicLong(myPhysicalTime << LOGICAL_BITS);
+        myTicker = 
+            Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(HybridLogicalClock.class, true));
+        myTicker.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run()
+            {
+                myPhysicalTime = System.currentTimeMillis();
+            }
+        }, 1L, 1L, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long currentTime()
+    {
+        long physicalTime = myPhysicalTime << LOGICAL_BITS;
+        while (true) {
+            long time = myTime.get();
+            long next = Math.max(time + 1, physicalTime);
+            if (myTime.compareAndSet(time, next)) {
+                return next;
+            }
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void observe(long remoteTime)
+    {
+        while (true) {
+            long time = myTime.get();
+            if (remoteTime <= time || myTime.compareAndSet(time, remoteTime)) 
+            {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Returns the physical time in milliseconds encoded in the given 
+     * timestamp.
+     */
+    public static long toPhysicalTime(long timestamp)
+    {
+        return timestamp >>> LOGICAL_BITS;
+    }
+    
+    /**
+     * Stops sampling the physical time.
+     */
+    public void stop()
+    {
+        myTicker.shutdownNow();
+    }
+}
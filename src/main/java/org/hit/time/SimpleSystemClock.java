@@ -36,4 +36,13 @@ public class SimpleSystemClock implements Clock
     {
         return System.currentTimeMillis();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void observe(long remoteTime)
+    {
+        // The system clocks aren't synchronized by the database.
+    }
 }
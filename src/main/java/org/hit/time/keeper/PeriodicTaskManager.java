@@ -19,13 +19,17 @@
 */
 package org.hit.time.keeper;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 
 import org.hit.actors.Actor;
 import org.hit.actors.ActorID;
 import org.hit.actors.EventBus;
 import org.hit.event.Event;
+import org.hit.event.PeriodicTaskCancelRequest;
 import org.hit.event.PeriodicTaskNotification;
 import org.hit.event.PeriodicTaskScheduleRequest;
 import org.hit.util.NamedThreadFactory;
@@ -42,6 +46,8 @@ public class PeriodicTaskManager extends Actor
 {
     private final ScheduledExecutorService myScheduler;
     
+    private final Map<Runnable, ScheduledFuture<?>> myScheduledTasks;
+    
     /**
      * Implements {@link Runnable} to support publishing the task to the 
      * target actors at periodic interval as specified.
@@ -87,6 +93,7 @@ public class PeriodicTaskManager extends Actor
             Executors.newScheduledThreadPool(
                 1, 
                 new NamedThreadFactory(PeriodicTaskManager.class));
+        myScheduledTasks = new HashMap<>();
     }
 
     /**
@@ -99,13 +106,23 @@ public class PeriodicTaskManager extends Actor
             PeriodicTaskScheduleRequest scheduleRequest = 
                 (PeriodicTaskScheduleRequest) event;
             
-            myScheduler.scheduleAtFixedRate(
-                new ScheduledTaskPublisher(
-                    scheduleRequest.getTargetActor(),
-                    scheduleRequest.getRunnable()),
-                scheduleRequest.getTime(),
-                scheduleRequest.getTime(),
-                scheduleRequest.getTimeUnit());
+            myScheduledTasks.put(
+                scheduleRequest.getRunnable(),
+                myScheduler.scheduleAtFixedRate(
+                    new ScheduledTaskPublisher(
+                        scheduleRequest.getTargetActor(),
+                        scheduleRequest.getRunnable()),
+                    scheduleRequest.getTime(),
+                    scheduleRequest.getTime(),
+                    scheduleRequest.getTimeUnit()));
+        }
+        else if (event instanceof PeriodicTaskCancelRequest) {
+            ScheduledFuture<?> scheduledTask = 
+                myScheduledTasks.remove(
+                    ((PeriodicTaskCancelRequest) event).getRunnable());
+            if (scheduledTask != null) {
+                scheduledTask.cancel(false);
+            }
         }
     }
 
@@ -117,6 +134,8 @@ public class PeriodicTaskManager extends Actor
     {
         getEventBus().registerForEvent(PeriodicTaskScheduleRequest.class,
                                        getActorID());
+        getEventBus().registerForEvent(PeriodicTaskCancelRequest.class,
+                                       getActorID());
     }
     
 }
@@ -0,0 +1,246 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hit.communicator.BinaryMessage;
+import org.hit.communicator.MessageSerializer;
+import org.hit.communicator.NodeID;
+import org.hit.communicator.ObjectStreamSerializer;
+import org.hit.communicator.nio.IPNodeID;
+import org.hit.db.keyspace.HashKeyspace;
+import org.hit.db.keyspace.HashKeyspace.HashFunctionID;
+import org.hit.db.sql.operators.AggregationID;
+import org.hit.db.sql.operators.ComparisionOperator;
+import org.hit.db.sql.operators.NumericComparison;
+import org.hit.io.binary.BinaryIOFactory;
+import org.hit.io.binary.BinaryInput;
+import org.hit.io.binary.BinaryOutput;
+import org.hit.io.buffer.BufferManager;
+import org.hit.io.buffer.ManagedBuffer;
+import org.hit.io.pool.PoolableIOFactory;
+import org.hit.messages.DBOperationFailureMessage;
+import org.hit.pool.SimplePoolableRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.hash.Funnels;
+
+/**
+ * Defines the testcase for testing the serialization of messages using
+ * {@link BinaryIOFactory}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class BinarySerializerTest
+{
+    @BeforeClass
+    public static void registerTestMessages()
+    {
+        TestMessageCodecs.register();
+    }
+    
+    @AfterClass
+    public static void unregisterTestMessages()
+    {
+        TestMessageCodecs.unregister();
+    }
+    
+    private MessageSerializer makeSerializer()
+    {
+        return new ObjectStreamSerializer(
+            new BufferManager(20), 
+            new BinaryIOFactory(new SimplePoolableRegistry()));
+    }
+    
+    @Test
+    public void testMessage()
+    {
+        NodeID nodeID = new IPNodeID(10000);
+        TestMessage message = new TestMessage(nodeID, -1001);
+        MessageSerializer serializer = makeSerializer();
+        BinaryMessage binaryMessage = serializer.serialize(message);
+        TestMessage deserializedMessage =
+            (TestMessage) serializer.parse(binaryMessage).iterator().next();
+        
+        assertNotNull(deserializedMessage);
+        assertEquals(nodeID, deserializedMessage.getSenderId());
+        assertEquals(-1001, deserializedMessage.getValue());
+    }
+    
+    @Test
+    public void testMessageWithSerializables()
+    {
+        NodeID nodeID = new IPNodeID(10000);
+        Map<String,String> testData = new HashMap<>();
+        testData.put("hello", "world");
+        MessageWithSerializable mws = 
+            new MessageWithSerializable(nodeID, testData);
+        MessageSerializer serializer = makeSerializer();
+        BinaryMessage binaryMessage = serializer.serialize(mws);
+        MessageWithSerializable deserializedMessage =
+            (MessageWithSerializable) 
+                serializer.parse(binaryMessage).iterator().next();
+        
+        assertNotNull(deserializedMessage);
+        assertEquals(nodeID, deserializedMessage.getSenderId());
+        assertEquals(testData, deserializedMessage.getTestData());
+    }
+    
+    @Test
+    public void testBigMessage()
+    {
+        NodeID nodeID = new IPNodeID(10000);
+        BigTestMessage message = new BigTestMessage(nodeID);
+        MessageSerializer serializer = makeSerializer();
+        BinaryMessage binaryMessage = serializer.serialize(message);
+        BigTestMessage deserializedMessage =
+            (BigTestMessage) serializer.parse(binaryMessage).iterator().next();
+        
+        assertNotNull(deserializedMessage);
+        assertEquals(nodeID, deserializedMessage.getSenderId());
+        assertArrayEquals(message.getTestData(), 
+                          deserializedMessage.getTestData());
+    }
+    
+    @Test
+    public void testCompactness()
+    {
+        NodeID nodeID = new IPNodeID(10000);
+        SimplePoolableRegistry registry = new SimplePoolableRegistry();
+        ManagedBuffer binary = 
+            (ManagedBuffer) makeSerializer().serialize(
+                new TestMessage(nodeID, 1001));
+        ManagedBuffer objectStream = 
+            (ManagedBuffer) new ObjectStreamSerializer(
+                new BufferManager(20), new PoolableIOFactory(registry))
+                    .serialize(new TestMessage(nodeID, 1001));
+        assertTrue(binary.getSize() < objectStream.getSize());
+    }
+    
+    @Test
+    public void testObjects() throws IOException, ClassNotFoundException
+    {
+        SimplePoolableRegistry registry = new SimplePoolableRegistry();
+        List<Object> values = new ArrayList<>();
+        values.add("hit");
+        values.add(Long.valueOf(Long.MIN_VALUE));
+        values.add(null);
+        values.add(new String[] {"airport", "name"});
+        values.add(String.class);
+        values.add(AggregationID.SUM);
+        values.add(new IPNodeID(10000));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bytes, registry);
+        out.writeInt(-1);
+        out.writeObject(values);
+        out.writeObject(
+            new NumericComparison(new String[] {"airport", "id"}, 
+                                  ComparisionOperator.GT, 
+                                  10.0));
+        out.writeObject(ComparisionOperator.LT);
+        out.close();
+        
+        String encoded = new String(bytes.toByteArray(), 
+                                    StandardCharsets.ISO_8859_1);
+        assertFalse(encoded.contains("org.hit"));
+        assertFalse(encoded.contains("java."));
+        
+        BinaryInput in = 
+            new BinaryInput(new ByteArrayInputStream(bytes.toByteArray()),
+                            registry);
+        assertEquals(-1, in.readInt());
+        List<?> readValues = (List<?>) in.readObject();
+        assertEquals(values.size(), readValues.size());
+        assertEquals("hit", readValues.get(0));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), readValues.get(1));
+        assertNull(readValues.get(2));
+        assertArrayEquals((String[]) values.get(3), 
+                          (String[]) readValues.get(3));
+        assertEquals(String.class, readValues.get(4));
+        assertEquals(AggregationID.SUM, readValues.get(5));
+        assertEquals(values.get(6), readValues.get(6));
+        assertTrue(in.readObject() instanceof NumericComparison);
+        assertEquals(ComparisionOperator.LT, in.readObject());
+    }
+    
+    @Test
+    public void testListedTypes() throws IOException, ClassNotFoundException
+    {
+        SimplePoolableRegistry registry = new SimplePoolableRegistry();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryOutput out = new BinaryOutput(bytes, registry, false);
+        out.writeObject(
+            new HashKeyspace<>(HashFunctionID.GOOD_FAST_HASH, 
+                               Funnels.longFunnel()));
+        out.writeObject(
+            DBOperationFailureMessage.create(new IPNodeID(10000), 
+                                             7L, 
+                                             "Table doesn't exist"));
+        out.close();
+        
+        BinaryInput in = 
+            new BinaryInput(new ByteArrayInputStream(bytes.toByteArray()),
+                            registry);
+        HashKeyspace<?> keyspace = (HashKeyspace<?>) in.readObject();
+        assertEquals(Funnels.longFunnel(), keyspace.getFunnel());
+        DBOperationFailureMessage failure = 
+            (DBOperationFailureMessage) in.readObject();
+        assertEquals(7L, failure.getSequenceNumber());
+        assertEquals("Table doesn't exist", failure.getMessage());
+        assertEquals("Table doesn't exist", 
+                     failure.getException().getMessage());
+    }
+    
+    @Test
+    public void testUnregisteredType()
+    {
+        BinaryOutput out = 
+            new BinaryOutput(new ByteArrayOutputStream(), 
+                             new SimplePoolableRegistry());
+        try {
+            out.writeObject(TimeUnit.SECONDS);
+            fail("An unregistered type shouldn't be encoded");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains(TimeUnit.class.getName()));
+        }
+    }
+}
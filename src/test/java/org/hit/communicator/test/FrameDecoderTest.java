@@ -0,0 +1,135 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hit.communicator.BinarySerializer;
+import org.hit.communicator.Message;
+import org.hit.communicator.MessageSerializer;
+import org.hit.communicator.NodeID;
+import org.hit.communicator.nio.FrameDecoder;
+import org.hit.communicator.nio.IPNodeID;
+import org.hit.io.buffer.BufferManager;
+import org.hit.io.buffer.ManagedBuffer;
+import org.hit.pool.SimplePoolableRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Defines the testcase for testing the decoding of frames that straddle 
+ * the reads by {@link FrameDecoder}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class FrameDecoderTest
+{
+    @BeforeClass
+    public static void registerTestMessages()
+    {
+        TestMessageCodecs.register();
+    }
+    
+    @AfterClass
+    public static void unregisterTestMessages()
+    {
+        TestMessageCodecs.unregister();
+    }
+    
+    private static byte[] toBytes(ManagedBuffer binaryMessage)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer buffer : binaryMessage.getBinaryData()) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer.get());
+            }
+        }
+        binaryMessage.free();
+        return out.toByteArray();
+    }
+    
+    @Test
+    public void testFramesStraddlingReads() throws IOException
+    {
+        BufferManager manager = new BufferManager(8L * 1024 * 1024, true);
+        MessageSerializer serializer = 
+            new BinarySerializer(manager, new SimplePoolableRegistry());
+        NodeID nodeID = new IPNodeID(10000);
+        BigTestMessage bigMessage = new BigTestMessage(nodeID);
+        
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(toBytes((ManagedBuffer) serializer.serialize(
+            new TestMessage(nodeID, 1))));
+        stream.write(toBytes((ManagedBuffer) serializer.serialize(
+            bigMessage)));
+        stream.write(toBytes((ManagedBuffer) serializer.serialize(
+            new TestMessage(nodeID, 2))));
+        byte[] data = stream.toByteArray();
+        
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        FrameDecoder decoder = new FrameDecoder(manager);
+        List<Message> messages = new ArrayList<>();
+        int chunkSize = 7;
+        int offset = 0;
+        while (offset < data.length) {
+            int length = Math.min(chunkSize, data.length - offset);
+            pipe.sink().write(ByteBuffer.wrap(data, offset, length));
+            offset += length;
+            ManagedBuffer frames = decoder.read(pipe.source());
+            if (frames != null) {
+                messages.addAll(serializer.parse(frames));
+            }
+            // Read the large message in bigger chunks.
+            chunkSize = Math.min(chunkSize * 2, 4096);
+        }
+        
+        assertNull(decoder.read(pipe.source()));
+        assertEquals(3, messages.size());
+        assertEquals(1, ((TestMessage) messages.get(0)).getValue());
+        assertArrayEquals(bigMessage.getTestData(),
+                          ((BigTestMessage) messages.get(1)).getTestData());
+        assertEquals(2, ((TestMessage) messages.get(2)).getValue());
+        
+        pipe.sink().close();
+        try {
+            decoder.read(pipe.source());
+            throw new AssertionError("The closed channel wasn't detected");
+        }
+        catch (EOFException e) {
+            // Expected.
+        }
+        decoder.close();
+        pipe.source().close();
+        assertEquals(0, manager.reportLeaks(0L));
+    }
+}
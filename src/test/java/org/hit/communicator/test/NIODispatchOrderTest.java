@@ -0,0 +1,254 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hit.communicator.BinarySerializerFactory;
+import org.hit.communicator.CommunicatorException;
+import org.hit.communicator.Message;
+import org.hit.communicator.MessageHandler;
+import org.hit.communicator.NodeID;
+import org.hit.communicator.nio.IPNodeID;
+import org.hit.communicator.nio.NIOCommunicator;
+import org.hit.communicator.nio.NIOCommunicatorConfig;
+import org.hit.io.buffer.BufferManager;
+import org.hit.pool.SimplePoolableRegistry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Defines the testcase for verifying that the messages received on a 
+ * session are dispatched in the order in which they have been sent, 
+ * when the sessions are spread over multiple reactors and dispatchers.
+ * 
+ * @author Balraja Subbiah
+ */
+public class NIODispatchOrderTest
+{
+    /**
+     * Implements <code>MessageHandler</code> to record the messages 
+     * received from every sender and the threads handling them.
+     */
+    private static class RecordingHandler implements MessageHandler
+    {
+        private final Map<NodeID, List<Integer>> mySenderToValuesMap;
+        
+        private final Map<NodeID, Set<String>> mySenderToThreadsMap;
+        
+        private final CountDownLatch myLatch;
+        
+        /**
+         * CTOR
+         */
+        public RecordingHandler(int expectedCount)
+        {
+            mySenderToValuesMap = new HashMap<>();
+            mySenderToThreadsMap = new HashMap<>();
+            myLatch = new CountDownLatch(expectedCount);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized void handle(Message message)
+        {
+            NodeID senderID = message.getSenderId();
+            List<Integer> values = mySenderToValuesMap.get(senderID);
+            if (values == null) {
+                values = new ArrayList<>();
+                mySenderToValuesMap.put(senderID, values);
+                mySenderToThreadsMap.put(senderID, new HashSet<String>());
+            }
+            values.add(Integer.valueOf(((TestMessage) message).getValue()));
+            mySenderToThreadsMap.get(senderID).add(
+                Thread.currentThread().getName());
+            myLatch.countDown();
+        }
+        
+        /**
+         * Waits till all the expected messages have been received.
+         */
+        public boolean await(long millis) throws InterruptedException
+        {
+            return myLatch.await(millis, TimeUnit.MILLISECONDS);
+        }
+        
+        /**
+         * Returns the values received from the given sender.
+         */
+        public synchronized List<Integer> getValues(NodeID senderID)
+        {
+            return new ArrayList<>(mySenderToValuesMap.get(senderID));
+        }
+        
+        /**
+         * Returns the names of the threads that handled the messages of 
+         * the given sender.
+         */
+        public synchronized Set<String> getThreads(NodeID senderID)
+        {
+            return new HashSet<>(mySenderToThreadsMap.get(senderID));
+        }
+    }
+    
+    /**
+     * Implements <code>NIOCommunicatorConfig</code> to spread the 
+     * sessions over multiple reactors and dispatchers.
+     */
+    private static class TestCommunicatorConfig 
+        implements NIOCommunicatorConfig
+    {
+        @Override
+        public int getReactorCount()
+        {
+            return 2;
+        }
+
+        @Override
+        public int getDispatcherCount()
+        {
+            return 2;
+        }
+
+        @Override
+        public long getMaxPendingBytesPerSession()
+        {
+            return 16L * 1024;
+        }
+    }
+    
+    private static final int SENDER_COUNT = 3;
+    
+    private static final int MESSAGE_COUNT = 2000;
+    
+    private static final int BASE_PORT = 25100;
+    
+    @BeforeClass
+    public static void registerTestMessages()
+    {
+        TestMessageCodecs.register();
+    }
+    
+    @AfterClass
+    public static void unregisterTestMessages()
+    {
+        TestMessageCodecs.unregister();
+    }
+    
+    private static NIOCommunicator makeCommunicator(NodeID nodeID)
+    {
+        BufferManager bufferManager = 
+            new BufferManager(8L * 1024 * 1024, false);
+        return new NIOCommunicator(
+            new BinarySerializerFactory(bufferManager, 
+                                        new SimplePoolableRegistry()),
+            bufferManager,
+            nodeID,
+            new TestCommunicatorConfig());
+    }
+    
+    @Test
+    public void testOrderPerSession() 
+        throws CommunicatorException, InterruptedException
+    {
+        final NodeID receiverID = new IPNodeID(BASE_PORT);
+        NIOCommunicator receiver = makeCommunicator(receiverID);
+        RecordingHandler handler = 
+            new RecordingHandler(SENDER_COUNT * MESSAGE_COUNT);
+        receiver.addMessageHandler(handler);
+        receiver.start();
+        
+        List<NIOCommunicator> senders = new ArrayList<>();
+        List<NodeID> senderIDs = new ArrayList<>();
+        List<Thread> producers = new ArrayList<>();
+        final AtomicReference<CommunicatorException> error = 
+            new AtomicReference<>();
+        try {
+            for (int i = 1; i <= SENDER_COUNT; i++) {
+                final NodeID senderID = new IPNodeID(BASE_PORT + i);
+                final NIOCommunicator sender = makeCommunicator(senderID);
+                sender.start();
+                senders.add(sender);
+                senderIDs.add(senderID);
+                producers.add(new Thread(new Runnable() {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            for (int j = 0; j < MESSAGE_COUNT; j++) {
+                                sender.sendTo(receiverID, 
+                                              new TestMessage(senderID, j));
+                            }
+                        }
+                        catch (CommunicatorException e) {
+                            error.set(e);
+                        }
+                    }
+                }));
+            }
+            
+            // The senders write concurrently to the sessions pinned to 
+            // different reactors of the receiver.
+            for (Thread producer : producers) {
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            
+            assertEquals(null, error.get());
+            assertTrue(handler.await(30000L));
+            for (NodeID senderID : senderIDs) {
+                List<Integer> values = handler.getValues(senderID);
+                assertEquals(MESSAGE_COUNT, values.size());
+                for (int j = 0; j < MESSAGE_COUNT; j++) {
+                    assertEquals(j, values.get(j).intValue());
+                }
+                // A session is read by a single reactor and dispatched by
+                // a single dispatcher.
+                Set<String> threads = handler.getThreads(senderID);
+                assertEquals(1, threads.size());
+                assertTrue(
+                    threads.iterator().next().startsWith("DispatchTask"));
+            }
+        }
+        finally {
+            for (NIOCommunicator sender : senders) {
+                sender.stop();
+            }
+            receiver.stop();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hit.communicator.BinarySerializer;
+import org.hit.communicator.CommunicatorException;
+import org.hit.communicator.Message;
+import org.hit.communicator.MessageSerializer;
+import org.hit.communicator.NodeID;
+import org.hit.communicator.nio.Connection;
+import org.hit.communicator.nio.FrameDecoder;
+import org.hit.communicator.nio.IPNodeID;
+import org.hit.communicator.nio.Session;
+import org.hit.io.buffer.BufferManager;
+import org.hit.io.buffer.ManagedBuffer;
+import org.hit.pool.SimplePoolableRegistry;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Defines the testcase for testing the gathered writes of a 
+ * {@link Session} on a channel that accepts only a part of the data at a
+ * time, along with the selection of the session for writing and the 
+ * backpressure on its senders.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SessionTest
+{
+    /**
+     * Extends <code>BufferManager</code> to count the buffers that are 
+     * freed before their data has been written.
+     */
+    private static class WriteCheckingBufferManager extends BufferManager
+    {
+        private final AtomicInteger myUnwrittenFrees;
+        
+        private volatile boolean myIsWriting;
+        
+        /**
+         * CTOR
+         */
+        public WriteCheckingBufferManager()
+        {
+            super(8L * 1024 * 1024, true);
+            myUnwrittenFrees = new AtomicInteger(0);
+            myIsWriting = false;
+        }
+        
+        /**
+         * Starts checking the freed buffers once the messages have been 
+         * serialized.
+         */
+        public void startWriting()
+        {
+            myIsWriting = true;
+        }
+        
+        /**
+         * Returns the number of buffers freed before being written.
+         */
+        public int getUnwrittenFrees()
+        {
+            return myUnwrittenFrees.get();
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void free(ByteBuffer buffer)
+        {
+            if (myIsWriting && buffer.hasRemaining()) {
+                myUnwrittenFrees.incrementAndGet();
+            }
+            super.free(buffer);
+        }
+    }
+    
+    /** The size of the socket buffers, which limits the data written */
+    private static final int SOCKET_BUFFER_SIZE = 4096;
+    
+    private static final int MESSAGE_COUNT = 64;
+    
+    private static final long WAIT_MILLIS = 10000L;
+    
+    private final NodeID myNodeID = new IPNodeID(10000);
+    
+    private ServerSocketChannel myServerChannel;
+    
+    private SocketChannel mySender;
+    
+    private SocketChannel myReceiver;
+    
+    @BeforeClass
+    public static void registerTestMessages()
+    {
+        TestMessageCodecs.register();
+    }
+    
+    @AfterClass
+    public static void unregisterTestMessages()
+    {
+        TestMessageCodecs.unregister();
+    }
+    
+    @Before
+    public void connect() throws IOException
+    {
+        myServerChannel = ServerSocketChannel.open();
+        myServerChannel.socket().setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+        myServerChannel.socket().bind(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        
+        mySender = SocketChannel.open();
+        mySender.socket().setSendBufferSize(SOCKET_BUFFER_SIZE);
+        mySender.connect(myServerChannel.socket().getLocalSocketAddress());
+        mySender.configureBlocking(false);
+        
+        myReceiver = myServerChannel.accept();
+        myReceiver.configureBlocking(false);
+    }
+    
+    @After
+    public void disconnect() throws IOException
+    {
+        mySender.close();
+        myReceiver.close();
+        myServerChannel.close();
+    }
+    
+    private Message makeMessage(int index)
+    {
+        return index % 2 == 0 ? new BigTestMessage(myNodeID) 
+                              : new TestMessage(myNodeID, index);
+    }
+    
+    /**
+     * Reads and discards the data that has reached the receiver.
+     */
+    private void drain() throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(SOCKET_BUFFER_SIZE);
+        while (myReceiver.read(buffer) > 0) {
+            buffer.clear();
+        }
+    }
+    
+    @Test
+    public void testPartialGatheredWrites() 
+        throws IOException, InterruptedException
+    {
+        WriteCheckingBufferManager manager = new WriteCheckingBufferManager();
+        MessageSerializer serializer = 
+            new BinarySerializer(manager, new SimplePoolableRegistry());
+        Connection connection = new Connection(mySender, manager);
+        long totalBytes = 0L;
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            ManagedBuffer binaryMessage = 
+                (ManagedBuffer) serializer.serialize(makeMessage(i));
+            totalBytes += binaryMessage.getSize();
+            connection.send(binaryMessage);
+        }
+        manager.startWriting();
+        
+        // The receiver hasn't read anything, hence the socket buffers 
+        // accept only a part of the messages.
+        long writtenBytes = connection.flush();
+        assertTrue(writtenBytes > 0L);
+        assertTrue(writtenBytes < totalBytes);
+        assertTrue(connection.hasPendingWrites());
+        
+        BufferManager receiverManager = 
+            new BufferManager(8L * 1024 * 1024, true);
+        MessageSerializer parser = 
+            new BinarySerializer(receiverManager, new SimplePoolableRegistry());
+        FrameDecoder decoder = new FrameDecoder(receiverManager);
+        List<Message> messages = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (   messages.size() < MESSAGE_COUNT 
+               && System.currentTimeMillis() < deadline)
+        {
+            ManagedBuffer frames = decoder.read(myReceiver);
+            if (frames != null) {
+                messages.addAll(parser.parse(frames));
+            }
+            writtenBytes += connection.flush();
+            Thread.sleep(1);
+        }
+        
+        assertFalse(connection.hasPendingWrites());
+        assertEquals(totalBytes, writtenBytes);
+        assertEquals(MESSAGE_COUNT, messages.size());
+        int[] testData = new BigTestMessage(myNodeID).getTestData();
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            if (i % 2 == 0) {
+                assertArrayEquals(
+                    testData, ((BigTestMessage) messages.get(i)).getTestData());
+            }
+            else {
+                assertEquals(i, ((TestMessage) messages.get(i)).getValue());
+            }
+        }
+        assertNull(decoder.read(myReceiver));
+        
+        // Every buffer has been released, but only after being written.
+        assertEquals(0, manager.getUnwrittenFrees());
+        assertEquals(0, manager.reportLeaks(0L));
+        decoder.close();
+        assertEquals(0, receiverManager.reportLeaks(0L));
+    }
+    
+    @Test
+    public void testWriteInterestToggling() 
+        throws IOException, CommunicatorException
+    {
+        BufferManager manager = new BufferManager(8L * 1024 * 1024, true);
+        Session session = 
+            new Session(mySender,
+                        new BinarySerializer(manager, 
+                                             new SimplePoolableRegistry()),
+                        manager,
+                        8L * 1024 * 1024);
+        Selector selector = Selector.open();
+        try {
+            // A message cached before the session is registered selects it 
+            // for writing once it's registered.
+            session.cacheForWrite(new TestMessage(myNodeID, 1));
+            SelectionKey key =
+                mySender.register(selector, SelectionKey.OP_READ);
+            session.setSelectionKey(key);
+            assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, 
+                         key.interestOps());
+            
+            session.write();
+            assertEquals(SelectionKey.OP_READ, key.interestOps());
+            assertEquals(0L, session.getPendingBytes());
+            
+            session.cacheForWrite(new TestMessage(myNodeID, 2));
+            assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, 
+                         key.interestOps());
+            session.write();
+            assertEquals(SelectionKey.OP_READ, key.interestOps());
+            
+            // The session stays selected for writing while the channel 
+            // can't accept all the messages.
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                session.cacheForWrite(makeMessage(i));
+            }
+            session.write();
+            assertTrue(session.hasMessagesToBeSent());
+            assertTrue(session.getPendingBytes() > 0L);
+            assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, 
+                         key.interestOps());
+            
+            long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+            while (   session.hasMessagesToBeSent()
+                   && System.currentTimeMillis() < deadline)
+            {
+                drain();
+                session.write();
+            }
+            assertFalse(session.hasMessagesToBeSent());
+            assertEquals(0L, session.getPendingBytes());
+            assertEquals(SelectionKey.OP_READ, key.interestOps());
+        }
+        finally {
+            session.close();
+            selector.close();
+        }
+        assertEquals(0, manager.reportLeaks(0L));
+    }
+    
+    @Test
+    public void testBackpressure() 
+        throws IOException, CommunicatorException, InterruptedException
+    {
+        BufferManager manager = new BufferManager(8L * 1024 * 1024, true);
+        final Session session = 
+            new Session(mySender,
+                        new BinarySerializer(manager, 
+                                             new SimplePoolableRegistry()),
+                        manager,
+                        1L);
+        Selector selector = Selector.open();
+        try {
+            SelectionKey key =
+                mySender.register(selector, SelectionKey.OP_READ);
+            session.setSelectionKey(key);
+            
+            // A message is let through when nothing else is waiting, 
+            // even if it's larger than the limit.
+            session.cacheForWrite(new TestMessage(myNodeID, 1));
+            
+            final CountDownLatch cachedLatch = new CountDownLatch(1);
+            final AtomicReference<CommunicatorException> error = 
+                new AtomicReference<>();
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run()
+                {
+                    try {
+                        session.cacheForWrite(new TestMessage(myNodeID, 2));
+                    }
+                    catch (CommunicatorException e) {
+                        error.set(e);
+                    }
+                    cachedLatch.countDown();
+                }
+            });
+            producer.start();
+            
+            // The second producer waits till the reactor writes the 
+            // message waiting already.
+            assertFalse(cachedLatch.await(300L, TimeUnit.MILLISECONDS));
+            assertTrue(session.getPendingBytes() > 0L);
+            
+            session.write();
+            assertTrue(cachedLatch.await(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+            assertNull(error.get());
+            producer.join();
+            
+            assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, 
+                         key.interestOps());
+            session.write();
+            assertEquals(0L, session.getPendingBytes());
+            assertEquals(SelectionKey.OP_READ, key.interestOps());
+        }
+        finally {
+            session.close();
+            selector.close();
+        }
+        assertEquals(0, manager.reportLeaks(0L));
+    }
+}
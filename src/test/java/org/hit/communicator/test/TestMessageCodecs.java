@@ -0,0 +1,86 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.communicator.test;
+
+import org.hit.io.binary.Codec;
+import org.hit.io.binary.ExternalizableCodec;
+import org.hit.pool.SimplePoolableRegistry;
+
+/**
+ * Registers the messages used by the tests, so that they can be encoded 
+ * by the binary serializer.
+ * 
+ * @author Balraja Subbiah
+ */
+public final class TestMessageCodecs
+{
+    /**
+     * Registers the test messages with the registry created after this 
+     * call and their codecs with {@link Codec}.
+     */
+    public static void register()
+    {
+        System.setProperty(SimplePoolableRegistry.REGISTERED_TYPES_PROPERTY,
+                           TestMessage.class.getName() + ","
+                           + MessageWithSerializable.class.getName() + ","
+                           + BigTestMessage.class.getName());
+        Codec.register(
+            TestMessage.class, 
+            new ExternalizableCodec<TestMessage>() {
+                @Override
+                protected TestMessage newInstance()
+                {
+                    return new TestMessage();
+                }
+            });
+        Codec.register(
+            MessageWithSerializable.class, 
+            new ExternalizableCodec<MessageWithSerializable>() {
+                @Override
+                protected MessageWithSerializable newInstance()
+                {
+                    return new MessageWithSerializable();
+                }
+            });
+        Codec.register(
+            BigTestMessage.class, 
+            new ExternalizableCodec<BigTestMessage>() {
+                @Override
+                protected BigTestMessage newInstance()
+                {
+                    return new BigTestMessage();
+                }
+            });
+    }
+    
+    /**
+     * Stops registering the test messages with the registries created 
+     * after this call.
+     */
+    public static void unregister()
+    {
+        System.clearProperty(SimplePoolableRegistry.REGISTERED_TYPES_PROPERTY);
+    }
+    
+    private TestMessageCodecs()
+    {
+    }
+}
@@ -0,0 +1,111 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.test;
+
+import org.hit.consensus.ConsensusType;
+import org.hit.consensus.UnitID;
+import org.hit.consensus.raft.ProposalBatch;
+import org.hit.consensus.raft.ProposalBatchConfig;
+import org.hit.consensus.raft.ProposalBatcher;
+import org.hit.db.engine.ConsensusID;
+import org.hit.db.engine.ReplicationProposal;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Defines a test case for verifying the coalescing of proposals by
+ * {@link ProposalBatcher}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class ProposalBatcherTest
+{
+    private static final UnitID UNIT_ID = 
+        new ConsensusID(ConsensusType.RAFT, "test");
+    
+    private static ProposalBatcher makeBatcher()
+    {
+        return new ProposalBatcher(UNIT_ID, new ProposalBatchConfig() {
+            @Override
+            public int getBatchWindowMillis()
+            {
+                return 1;
+            }
+
+            @Override
+            public int getMaxBatchSize()
+            {
+                return 3;
+            }
+
+            @Override
+            public int getMaxInFlightBatches()
+            {
+                return 4;
+            }
+        });
+    }
+    
+    @Test
+    public void testBatching()
+    {
+        ProposalBatcher batcher = makeBatcher();
+        Assert.assertNull(batcher.drain());
+        Assert.assertFalse(
+            batcher.add(ReplicationProposal.create(UNIT_ID, null, 1L, 2L)));
+        Assert.assertFalse(
+            batcher.add(ReplicationProposal.create(UNIT_ID, null, 3L, 4L)));
+        Assert.assertTrue(
+            batcher.add(ReplicationProposal.create(UNIT_ID, null, 5L, 6L)));
+        
+        ProposalBatch batch = batcher.drain();
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals(UNIT_ID, batch.getUnitID());
+        Assert.assertTrue(batcher.isEmpty());
+        
+        Assert.assertFalse(
+            batcher.add(ReplicationProposal.create(UNIT_ID, null, 7L, 8L)));
+        Assert.assertEquals(1, batcher.drain().size());
+        
+        Assert.assertEquals(2L, batcher.getBatchCount());
+        Assert.assertEquals(4L, batcher.getProposalCount());
+        Assert.assertEquals(2.0D, batcher.getAverageBatchSize(), 0.001D);
+    }
+    
+    @Test
+    public void testDelayAfterPartialDrain() throws InterruptedException
+    {
+        ProposalBatcher batcher = makeBatcher();
+        for (long i = 0; i < 3; i++) {
+            batcher.add(ReplicationProposal.create(UNIT_ID, null, i, i));
+        }
+        Thread.sleep(50L);
+        batcher.add(ReplicationProposal.create(UNIT_ID, null, 3L, 3L));
+        
+        Assert.assertEquals(3, batcher.drain().size());
+        Assert.assertEquals(1, batcher.drain().size());
+        // The proposal left behind has hardly waited, so it shouldn't be 
+        // charged with the delay of the batch drained before it.
+        Assert.assertTrue(batcher.getMaxDelayMicros() >= 50000L);
+        Assert.assertTrue(batcher.getAverageDelayMicros() 
+                          < 3 * batcher.getMaxDelayMicros() / 4);
+    }
+}
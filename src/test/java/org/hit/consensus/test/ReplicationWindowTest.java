@@ -0,0 +1,79 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.test;
+
+import java.util.List;
+
+import org.hit.consensus.raft.ReplicationWindow;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Defines a test case for verifying the commit of the entries in flight
+ * by {@link ReplicationWindow}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class ReplicationWindowTest
+{
+    @Test
+    public void testQuorumCommit()
+    {
+        ReplicationWindow<String> window = new ReplicationWindow<>(3, -1L);
+        Assert.assertEquals(4, window.getCapacity());
+        for (long seqNo = 0; seqNo < 4; seqNo++) {
+            window.add(seqNo, "entry" + seqNo);
+        }
+        Assert.assertTrue(window.isFull());
+        Assert.assertEquals("entry2", window.get(2L));
+        
+        // One node acknowledges everything and the other lags behind.
+        window.acknowledge(Long.MIN_VALUE, 3L);
+        window.acknowledge(Long.MIN_VALUE, 1L);
+        Assert.assertEquals("entry0", window.pollCommitted(2));
+        Assert.assertEquals("entry1", window.pollCommitted(2));
+        Assert.assertNull(window.pollCommitted(2));
+        Assert.assertEquals(1L, window.getCommittedSeqNo());
+        Assert.assertNull(window.get(1L));
+        
+        // The slots freed are reused for the following entries.
+        window.add(4L, "entry4");
+        window.acknowledge(1L, 4L);
+        Assert.assertEquals("entry2", window.pollCommitted(2));
+        Assert.assertEquals("entry3", window.pollCommitted(2));
+        Assert.assertNull(window.pollCommitted(2));
+        Assert.assertEquals(1, window.size());
+        
+        List<String> abandoned = window.reset(10L);
+        Assert.assertEquals(1, abandoned.size());
+        Assert.assertEquals("entry4", abandoned.get(0));
+        Assert.assertEquals(0, window.size());
+        window.add(11L, "entry11");
+        Assert.assertEquals(11L, window.getLastSeqNo());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testOutOfOrderAdd()
+    {
+        ReplicationWindow<String> window = new ReplicationWindow<>(4, -1L);
+        window.add(1L, "entry1");
+    }
+}
@@ -0,0 +1,127 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.test;
+
+import java.io.File;
+
+import org.hit.consensus.raft.log.WALConfig;
+
+/**
+ * Defines the {@link WALConfig} of the logs created by the tests under a
+ * given directory. The segments are kept small by default, so that the 
+ * logs roll over to several segments.
+ * 
+ * @author Balraja Subbiah
+ */
+public class TestWALConfig implements WALConfig
+{
+    private final File myDirectory;
+    
+    private final String myLogName;
+    
+    private final long mySegmentSize;
+    
+    private final int myIndexInterval;
+    
+    private final int myReplayChunkSize;
+    
+    private final int mySnapshotChunkSize;
+    
+    /**
+     * CTOR
+     */
+    public TestWALConfig(File directory, String logName)
+    {
+        this(directory, logName, 4096L, 256, 16, 1024);
+    }
+
+    /**
+     * CTOR
+     */
+    public TestWALConfig(File   directory, 
+                         String logName,
+                         long   segmentSize,
+                         int    indexInterval,
+                         int    replayChunkSize,
+                         int    snapshotChunkSize)
+    {
+        myDirectory = directory;
+        myLogName = logName;
+        mySegmentSize = segmentSize;
+        myIndexInterval = indexInterval;
+        myReplayChunkSize = replayChunkSize;
+        mySnapshotChunkSize = snapshotChunkSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLogName()
+    {
+        return myLogName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getBaseDirectoryPath()
+    {
+        return myDirectory.getAbsolutePath();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSegmentSize()
+    {
+        return mySegmentSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIndexInterval()
+    {
+        return myIndexInterval;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getReplayChunkSize()
+    {
+        return myReplayChunkSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSnapshotChunkSize()
+    {
+        return mySnapshotChunkSize;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.consensus.test;
+
+import gnu.trove.map.TLongObjectMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.RandomAccessFile;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.hit.consensus.ConsensusType;
+import org.hit.consensus.Proposal;
+import org.hit.consensus.UnitID;
+import org.hit.consensus.raft.log.DurabilityCallback;
+import org.hit.consensus.raft.log.WAL;
+import org.hit.consensus.raft.log.WALConfig;
+import org.hit.consensus.raft.log.WALCursor;
+import org.hit.db.engine.ConsensusID;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Defines a test case for verifying the persistence of proposals to the
+ * {@link WAL}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class WALTest
+{
+    private static final UnitID UNIT_ID = 
+        new ConsensusID(ConsensusType.RAFT, "test");
+    
+    /**
+     * A simple {@link Proposal} for testing the log.
+     */
+    public static class TestProposal implements Proposal
+    {
+        private UnitID myUnitID;
+        
+        private long myValue;
+        
+        /**
+         * CTOR
+         */
+        public TestProposal()
+        {
+            this(null, -1L);
+        }
+        
+        /**
+         * CTOR
+         */
+        public TestProposal(UnitID unitID, long value)
+        {
+            myUnitID = unitID;
+            myValue = value;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public UnitID getUnitID()
+        {
+            return myUnitID;
+        }
+
+        /**
+         * Returns the value of value
+         */
+        public long getValue()
+        {
+            return myValue;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException
+        {
+            out.writeObject(myUnitID);
+            out.writeLong(myValue);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void readExternal(ObjectInput in)
+            throws IOException, ClassNotFoundException
+        {
+            myUnitID = (UnitID) in.readObject();
+            myValue = in.readLong();
+        }
+    }
+    
+    @Rule
+    public TemporaryFolder myFolder = new TemporaryFolder();
+    
+    private WALConfig makeConfig()
+    {
+        return new TestWALConfig(myFolder.getRoot(), "test");
+    }
+    
+    @Test
+    public void testAppendAndRead() throws Exception
+    {
+        WAL wal = new WAL(makeConfig());
+        final CountDownLatch latch = new CountDownLatch(200);
+        for (long i = 1; i <= 200; i++) {
+            wal.addProposal(1L, 
+                            i, 
+                            new TestProposal(UNIT_ID, i * 10),
+                            new DurabilityCallback() {
+                @Override
+                public void onDurable(long termID, long sequenceNo)
+                {
+                    latch.countDown();
+                }
+                
+                @Override
+                public void onFailure(long        termID, 
+                                      long        sequenceNo,
+                                      IOException cause)
+                {
+                    Assert.fail("Unable to persist " + sequenceNo);
+                }
+            });
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        
+        // The proposals should have been spread across segments.
+        Assert.assertTrue(
+            new File(myFolder.getRoot(), "test").listFiles().length > 1);
+        
+        TLongObjectMap<Proposal> proposals = 
+            wal.openCursor(1L, 50L, 150L).nextChunk(Integer.MAX_VALUE);
+        Assert.assertEquals(101, proposals.size());
+        Assert.assertEquals(
+            500L, ((TestProposal) proposals.get(50L)).getValue());
+        Assert.assertEquals(
+            1500L, ((TestProposal) proposals.get(150L)).getValue());
+        Assert.assertFalse(wal.openCursor(2L, 1L, 10L).hasNext());
+        wal.close();
+    }
+    
+    @Test
+    public void testFailureNotified() throws Exception
+    {
+        WAL wal = new WAL(makeConfig());
+        final BlockingQueue<Long> failures = new LinkedBlockingQueue<>();
+        DurabilityCallback callback = new DurabilityCallback() {
+            @Override
+            public void onDurable(long termID, long sequenceNo)
+            {
+            }
+            
+            @Override
+            public void onFailure(long        termID, 
+                                  long        sequenceNo,
+                                  IOException cause)
+            {
+                failures.add(Long.valueOf(sequenceNo));
+            }
+        };
+        
+        // A proposal that can't be serialized.
+        wal.addProposal(1L, 
+                        1L, 
+                        new TestProposal(UNIT_ID, 1L) {
+                            @Override
+                            public void writeExternal(ObjectOutput out)
+                                throws IOException
+                            {
+                                throw new IOException("Not serializable");
+                            }
+                        },
+                        callback);
+        Assert.assertEquals(Long.valueOf(1L), 
+                            failures.poll(10, TimeUnit.SECONDS));
+        
+        // A proposal appended after the log has been closed.
+        wal.close();
+        wal.addProposal(1L, 2L, new TestProposal(UNIT_ID, 2L), callback);
+        Assert.assertEquals(Long.valueOf(2L), 
+                            failures.poll(10, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testChunkedReplay() throws Exception
+    {
+        WAL wal = new WAL(makeConfig());
+        for (long i = 1; i <= 100; i++) {
+            wal.addProposal(1L, i, new TestProposal(UNIT_ID, i));
+        }
+        wal.close();
+        
+        // Reopening the log should index the older segments lazily 
+        // through their memory mapped contents.
+        wal = new WAL(makeConfig());
+        WALCursor cursor = wal.openCursor(1L, 11L, 100L);
+        long expected = 11L;
+        int chunks = 0;
+        while (cursor.hasNext()) {
+            TLongObjectMap<Proposal> chunk = cursor.nextChunk(16);
+            Assert.assertTrue(chunk.size() <= 16);
+            for (int i = 0; i < chunk.size(); i++) {
+                Assert.assertEquals(
+                    expected, 
+                    ((TestProposal) chunk.get(expected)).getValue());
+                expected++;
+            }
+            chunks++;
+        }
+        Assert.assertEquals(101L, expected);
+        Assert.assertEquals(6, chunks);
+        wal.close();
+    }
+    
+    @Test
+    public void testRecovery() throws Exception
+    {
+        WAL wal = new WAL(makeConfig());
+        for (long i = 1; i <= 10; i++) {
+            wal.addProposal(1L, i, new TestProposal(UNIT_ID, i));
+        }
+        wal.close();
+        
+        // Corrupt the last record as if it was torn by a crash.
+        File[] segments = new File(myFolder.getRoot(), "test").listFiles();
+        Assert.assertEquals(1, segments.length);
+        long recordSize;
+        try (RandomAccessFile raf = new RandomAccessFile(segments[0], "rw")) 
+        {
+            recordSize = 24 + raf.readInt();
+            raf.seek(9 * recordSize + 30);
+            raf.writeLong(0xDEADBEEFL);
+        }
+        
+        wal = new WAL(makeConfig());
+        Assert.assertEquals(
+            9, 
+            wal.openCursor(1L, 1L, 10L).nextChunk(Integer.MAX_VALUE).size());
+        
+        wal.addProposal(1L, 10L, new TestProposal(UNIT_ID, 100L));
+        wal.addProposal(1L, 11L, new TestProposal(UNIT_ID, 110L));
+        TLongObjectMap<Proposal> proposals = 
+            wal.openCursor(1L, 1L, 11L).nextChunk(Integer.MAX_VALUE);
+        Assert.assertEquals(11, proposals.size());
+        Assert.assertEquals(
+            100L, ((TestProposal) proposals.get(10L)).getValue());
+        wal.close();
+    }
+    
+    @Test
+    public void testCompaction() throws Exception
+    {
+        WAL wal = new WAL(makeConfig());
+        for (long i = 1; i <= 200; i++) {
+            wal.addProposal(1L, i, new TestProposal(UNIT_ID, i));
+        }
+        int segmentCount = wal.getSegmentCount();
+        long size = wal.getSizeOnDisk();
+        Assert.assertTrue(segmentCount > 2);
+        Assert.assertFalse(wal.isCompacted(1L, 1L));
+        
+        wal.truncateBefore(1L, 150L);
+        wal.close();
+        
+        wal = new WAL(makeConfig());
+        Assert.assertTrue(wal.getSegmentCount() < segmentCount);
+        Assert.assertTrue(wal.getSizeOnDisk() < size);
+        Assert.assertTrue(wal.isCompacted(1L, 1L));
+        Assert.assertFalse(wal.isCompacted(1L, 150L));
+        
+        // The records from the position of truncation should be 
+        // retained.
+        WALCursor cursor = wal.openCursor(1L, 1L, 200L);
+        long first = cursor.next().getSequenceNo();
+        Assert.assertTrue(first > 1L && first <= 150L);
+        Assert.assertEquals(
+            200L - first, 
+            cursor.nextChunk(Integer.MAX_VALUE).size());
+        wal.close();
+    }
+}
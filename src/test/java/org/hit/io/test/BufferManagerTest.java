@@ -0,0 +1,102 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.io.test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.hit.io.buffer.BufferManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Defines a test case for verifying the allocation of the buffers by
+ * {@link BufferManager}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class BufferManagerTest
+{
+    @Test
+    public void testSizeClasses()
+    {
+        BufferManager manager = new BufferManager(8L * 1024 * 1024, false);
+        ByteBuffer small = manager.allocate(10);
+        Assert.assertTrue(small.isDirect());
+        Assert.assertEquals(BufferManager.BUFFER_SIZE, small.capacity());
+        Assert.assertEquals(4 * 1024, manager.allocate(1025).capacity());
+        Assert.assertEquals(BufferManager.MAX_BUFFER_SIZE, 
+                            manager.allocate(Integer.MAX_VALUE).capacity());
+        
+        List<ByteBuffer> buffers = 
+            manager.getBuffer(BufferManager.MAX_BUFFER_SIZE + 1);
+        Assert.assertEquals(2, buffers.size());
+        Assert.assertEquals(BufferManager.MAX_BUFFER_SIZE, 
+                            buffers.get(0).capacity());
+        Assert.assertEquals(BufferManager.BUFFER_SIZE, 
+                            buffers.get(1).capacity());
+        
+        long used = manager.getUsedBytes();
+        manager.free(small);
+        Assert.assertEquals(used - BufferManager.BUFFER_SIZE, 
+                            manager.getUsedBytes());
+        // The freed buffer is reused by the same thread.
+        Assert.assertSame(small, manager.allocate(BufferManager.BUFFER_SIZE));
+        Assert.assertTrue(manager.getOccupancy() > 0.0D);
+    }
+    
+    @Test
+    public void testCapacity()
+    {
+        BufferManager manager = new BufferManager(2);
+        manager.allocate(BufferManager.BUFFER_SIZE);
+        manager.allocate(BufferManager.BUFFER_SIZE);
+        Assert.assertEquals(2 * BufferManager.BUFFER_SIZE, 
+                            manager.getAllocatedBytes());
+        
+        // Doesn't block once the capacity is exhausted.
+        ByteBuffer buffer = manager.allocate(BufferManager.BUFFER_SIZE);
+        Assert.assertFalse(buffer.isDirect());
+        Assert.assertEquals(1L, manager.getHeapAllocationCount());
+        manager.free(buffer);
+        Assert.assertEquals(2 * BufferManager.BUFFER_SIZE, 
+                            manager.getUsedBytes());
+    }
+    
+    @Test
+    public void testLeakDetection()
+    {
+        BufferManager manager = new BufferManager(0L, true);
+        ByteBuffer leaked = manager.allocate(BufferManager.BUFFER_SIZE);
+        ByteBuffer freed = manager.allocate(BufferManager.BUFFER_SIZE);
+        manager.free(freed);
+        Assert.assertEquals(1, manager.reportLeaks(0L));
+        Assert.assertEquals(0, manager.reportLeaks(Long.MAX_VALUE));
+        
+        // Freeing it again doesn't put it back into the pool.
+        manager.free(freed);
+        Assert.assertEquals(BufferManager.BUFFER_SIZE, 
+                            manager.getUsedBytes());
+        manager.free(leaked);
+        Assert.assertEquals(0, manager.reportLeaks(0L));
+        Assert.assertEquals(-1, new BufferManager(1).reportLeaks(0L));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.partitioner.test;
+
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.hit.communicator.NodeID;
+import org.hit.db.keyspace.HashKeyspace;
+import org.hit.db.keyspace.HashKeyspace.HashFunctionID;
+import org.hit.db.partitioner.DistributedHashTable;
+import org.hit.transactions.test.TestID;
+import org.hit.util.Pair;
+import org.hit.util.Range;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.hash.Funnels;
+
+/**
+ * Defines a test case for verifying the lookups on the ring of tokens
+ * claimed by the nodes and the ranges handed over when a node joins 
+ * the ring.
+ * 
+ * @author Balraja Subbiah
+ */
+public class DistributedHashTableTest
+{
+    private static final String TABLE_NAME = "ring";
+    
+    private static final NodeID NODE_A = new TestID("A");
+    
+    private static final NodeID NODE_B = new TestID("B");
+    
+    private static final NodeID NODE_C = new TestID("C");
+    
+    private static final int TOKEN_COUNT = 64;
+    
+    private static final int KEY_COUNT = 20000;
+    
+    private final HashKeyspace<Long> myKeyspace = 
+        new HashKeyspace<>(HashFunctionID.GOOD_FAST_HASH, Funnels.longFunnel());
+    
+    private DistributedHashTable<Long, BigInteger> makeRing()
+    {
+        DistributedHashTable<Long, BigInteger> ring = 
+            (DistributedHashTable<Long, BigInteger>) 
+                myKeyspace.makePartitioner(TABLE_NAME);
+        ring.addNode(NODE_A, TOKEN_COUNT);
+        ring.addNode(NODE_B, TOKEN_COUNT);
+        return ring;
+    }
+    
+    @Test
+    public void testLookup()
+    {
+        DistributedHashTable<Long, BigInteger> ring = makeRing();
+        TreeMap<BigInteger, NodeID> tokens = new TreeMap<>();
+        for (NodeID node : new NodeID[] {NODE_A, NODE_B}) {
+            for (Pair<Range<BigInteger>, NodeID> handoff : 
+                    ring.getHandoffs(node))
+            {
+                tokens.put(handoff.getFirst().getMaxValue(), node);
+            }
+        }
+        tokens.remove(myKeyspace.getDomain().getMaximum());
+        Assert.assertEquals(2 * TOKEN_COUNT, tokens.size());
+        
+        Random random = new Random(7L);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            long key = random.nextLong();
+            Map.Entry<BigInteger, NodeID> holder = 
+                tokens.ceilingEntry(myKeyspace.map(key));
+            Assert.assertEquals(
+                holder != null ? holder.getValue() 
+                               : tokens.firstEntry().getValue(),
+                ring.lookupNode(key));
+        }
+    }
+    
+    @Test
+    public void testMinimalMovement()
+    {
+        DistributedHashTable<Long, BigInteger> ring = makeRing();
+        DistributedHashTable<Long, BigInteger> newRing = 
+            (DistributedHashTable<Long, BigInteger>) ring.copy();
+        newRing.addNode(NODE_C, 2 * TOKEN_COUNT);
+        
+        TObjectIntMap<NodeID> keyCount = new TObjectIntHashMap<>();
+        for (long key = 0; key < KEY_COUNT; key++) {
+            NodeID oldNode = ring.lookupNode(key);
+            NodeID newNode = newRing.lookupNode(key);
+            keyCount.adjustOrPutValue(newNode, 1, 1);
+            if (!oldNode.equals(newNode)) {
+                // Only the keys taken over by the new node are moved.
+                Assert.assertEquals(NODE_C, newNode);
+                Assert.assertTrue(isHandedOver(newRing, key, oldNode));
+            }
+        }
+        
+        // The node with twice the capacity takes over about half the keys.
+        Assert.assertTrue(keyCount.get(NODE_C) > KEY_COUNT / 3);
+        Assert.assertTrue(keyCount.get(NODE_A) > KEY_COUNT / 6);
+        Assert.assertTrue(keyCount.get(NODE_B) > KEY_COUNT / 6);
+        
+        // The tokens are derived from the node, hence claiming them again 
+        // doesn't move any keys and removing them restores the old ring.
+        DistributedHashTable<Long, BigInteger> sameRing = 
+            (DistributedHashTable<Long, BigInteger>) newRing.copy();
+        sameRing.addNode(NODE_C, 2 * TOKEN_COUNT);
+        for (long key = 0; key < KEY_COUNT; key += 7) {
+            Assert.assertEquals(newRing.lookupNode(key), 
+                                sameRing.lookupNode(key));
+        }
+        newRing.removeNode(NODE_C);
+        for (long key = 0; key < KEY_COUNT; key += 7) {
+            Assert.assertEquals(ring.lookupNode(key), 
+                                newRing.lookupNode(key));
+        }
+    }
+    
+    private boolean isHandedOver(DistributedHashTable<Long, BigInteger> ring,
+                                 long                                   key,
+                                 NodeID                                 from)
+    {
+        BigInteger hash = myKeyspace.map(key);
+        for (Pair<Range<BigInteger>, NodeID> handoff : 
+                ring.getHandoffs(NODE_C))
+        {
+            if (   handoff.getFirst().getMinValue().compareTo(hash) <= 0
+                && handoff.getFirst().getMaxValue().compareTo(hash) >= 0)
+            {
+                return handoff.getSecond().equals(from);
+            }
+        }
+        return false;
+    }
+}
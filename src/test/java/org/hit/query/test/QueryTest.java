@@ -22,16 +22,35 @@ package org.hit.query.test;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.antlr.runtime.RecognitionException;
+import org.hit.db.model.Persistable;
 import org.hit.db.model.Query;
 import org.hit.db.model.Row;
+import org.hit.db.model.query.RewritableQuery;
+import org.hit.db.sql.merger.QueryResultMerger;
 import org.hit.db.sql.operators.ColumnNameUtil;
+import org.hit.db.sql.operators.Join;
+import org.hit.db.sql.operators.KeyBounds;
+import org.hit.db.sql.operators.MatchAllPredicate;
+import org.hit.db.sql.operators.MaterializedDatabase;
+import org.hit.db.sql.operators.QueryAdaptor;
 import org.hit.db.sql.operators.QueryBuildingException;
 import org.hit.db.sql.parser.QueryParser;
+import org.hit.example.Airline;
 import org.hit.example.Airport;
 import org.hit.example.HitDbTest;
+import org.hit.example.Route;
+import org.hit.util.Range;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -112,6 +131,150 @@ public class QueryTest
         assertEquals(8844L, maxID.longValue());
     }
     
+    /**
+     * Tests the group by query.
+     */
+    @Test
+    public void testGroupBy() 
+        throws RecognitionException, QueryBuildingException
+    {
+        assertEquals(countByCountry(), groupByCountry());
+    }
+    
+    /**
+     * Tests the group by query whose groups are spilled to the disk.
+     */
+    @Test
+    public void testSpilledGroupBy() 
+        throws RecognitionException, QueryBuildingException
+    {
+        System.setProperty("org.hit.query.maxGroupsInMemory", "10");
+        System.setProperty("org.hit.query.spillPartitions", "3");
+        try {
+            assertEquals(countByCountry(), groupByCountry());
+        }
+        finally {
+            System.clearProperty("org.hit.query.maxGroupsInMemory");
+            System.clearProperty("org.hit.query.spillPartitions");
+        }
+    }
+    
+    private Map<Object, Double> groupByCountry() 
+        throws RecognitionException, QueryBuildingException
+    {
+        Query query = 
+            QueryParser.parseQuery(
+                "select country, count(*) from " + HitDbTest.TABLE_NAME 
+                + " group by country");
+        
+        @SuppressWarnings("unchecked")
+        Collection<Row> result = 
+            (Collection<Row>) query.query(myTestDB);
+        
+        Map<Object, Double> counts = new HashMap<>();
+        for (Row row : result) {
+            assertNull(counts.put(
+                row.getFieldValue("country"),
+                (Double) row.getFieldValue(ColumnNameUtil.ALL_COLUMNS)));
+        }
+        return counts;
+    }
+    
+    private Map<Object, Double> countByCountry()
+    {
+        Map<Object, Double> counts = new HashMap<>();
+        for (Persistable<?> airport : 
+                myTestDB.lookUpTable(HitDbTest.TABLE_NAME)
+                        .findMatching(MatchAllPredicate.INSTANCE))
+        {
+            Double count = counts.get(airport.getFieldValue("country"));
+            counts.put(airport.getFieldValue("country"), 
+                       count == null ? 1.0D : count + 1.0D);
+        }
+        return counts;
+    }
+    
+    /**
+     * Tests the bounds on the primary key derived from the where clause.
+     */
+    @Test
+    public void testKeyBounds() 
+        throws RecognitionException, QueryBuildingException
+    {
+        QueryAdaptor pointQuery = 
+            (QueryAdaptor) QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME + " where id = 42");
+        assertEquals(HitDbTest.TABLE_NAME, pointQuery.getScannedTable());
+        assertEquals(Long.valueOf(42L), 
+                     pointQuery.getKeyBounds("id").toPoint(Long.class));
+        
+        QueryAdaptor rangeQuery = 
+            (QueryAdaptor) QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME 
+                + " where (id > 1000 and id <= 2000 and altitude > 10)");
+        Range<Long> range = 
+            rangeQuery.getKeyBounds("id").toRange(Long.class, 0L, 10000L);
+        assertEquals(Long.valueOf(1001L), range.getMinValue());
+        assertEquals(Long.valueOf(2000L), range.getMaxValue());
+        
+        KeyBounds emptyBounds = 
+            ((QueryAdaptor) QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME 
+                + " where id > 10 and id < 5")).getKeyBounds("id");
+        assertTrue(emptyBounds.isEmpty());
+        
+        KeyBounds orBounds = 
+            ((QueryAdaptor) QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME 
+                + " where (id = 3 or altitude > 10)")).getKeyBounds("id");
+        assertTrue(orBounds.isUnbounded());
+        
+        QueryAdaptor joinQuery = 
+            (QueryAdaptor) QueryParser.parseQuery(
+               "select count(*) from airports join routes " 
+               + "on airports.id = routes.src_airport_id");
+        assertNull(joinQuery.getScannedTable());
+    }
+    
+    /**
+     * Tests the queries whose scans are limited by the primary key.
+     */
+    @Test
+    public void testKeyScan() 
+        throws RecognitionException, QueryBuildingException
+    {
+        @SuppressWarnings("unchecked")
+        Collection<Airport> allAirports = 
+            (Collection<Airport>) QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME).query(myTestDB);
+        int expectedCount = 0;
+        for (Airport airport : allAirports) {
+            if (   airport.primaryKey() > 3000L 
+                && airport.primaryKey() <= 3100L
+                && airport.getAltitude() > 100)
+            {
+                expectedCount++;
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        Collection<Airport> rangeResult = 
+            (Collection<Airport>) QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME 
+                + " where (id > 3000 and id <= 3100 and altitude > 100)")
+                .query(myTestDB);
+        assertEquals(expectedCount, rangeResult.size());
+        
+        @SuppressWarnings("unchecked")
+        Collection<Airport> pointResult = 
+            (Collection<Airport>) QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME + " where id = 3093")
+                .query(myTestDB);
+        assertEquals(1, pointResult.size());
+        assertEquals(Long.valueOf(3093L), 
+                     pointResult.iterator().next().primaryKey());
+    }
+    
     /**
      * Tests the select max(column_name) query.
      */
@@ -137,4 +300,288 @@ public class QueryTest
         assertEquals(4.0D, 
                      firstRow.getFieldValue(ColumnNameUtil.ALL_COLUMNS_SYMBOLIC));
     }
+    
+    /** Tests joining the tables on a column that isn't a key */
+    @Test
+    public void testHashJoin() 
+        throws RecognitionException, QueryBuildingException
+    {
+        Query query = 
+            QueryParser.parseQuery(
+               "select count(*) " +
+               "from airports join routes " +
+               "on airports.id = routes.src_airport_id");
+                    
+        @SuppressWarnings("unchecked")
+        Collection<Row> result = 
+            (Collection<Row>) query.query(myTestDB);
+        
+        Set<Double> airportIDs = 
+            columnValues(HitDbTest.TABLE_NAME, "id");
+        int expected = 0;
+        for (Persistable<?> route : 
+                myTestDB.lookUpTable(Route.TABLE_NAME).findMatching(
+                    MatchAllPredicate.INSTANCE))
+        {
+            Object airportID = route.getFieldValue("src_airport_id");
+            if (   airportID != null
+                && airportIDs.contains(((Number) airportID).doubleValue()))
+            {
+                expected++;
+            }
+        }
+        
+        assertEquals(1, result.size());
+        Row firstRow = result.iterator().next();
+        assertEquals((double) expected, 
+                     firstRow.getFieldValue(ColumnNameUtil.ALL_COLUMNS_SYMBOLIC));
+    }
+    
+    /** Tests joining the tables on their primary keys */
+    @Test
+    public void testMergeJoin() 
+        throws RecognitionException, QueryBuildingException
+    {
+        Query query = 
+            QueryParser.parseQuery(
+               "select count(*) " +
+               "from airports join airlines " +
+               "on airports.id = airlines.airline_id" +
+               " where airports.id < 1000");
+                    
+        @SuppressWarnings("unchecked")
+        Collection<Row> result = 
+            (Collection<Row>) query.query(myTestDB);
+        
+        Set<Double> airportIDs = 
+            columnValues(HitDbTest.TABLE_NAME, "id");
+        int expected = 0;
+        for (Double airlineID : columnValues(Airline.TABLE_NAME, 
+                                             "airline_id"))
+        {
+            if (airlineID < 1000 && airportIDs.contains(airlineID)) {
+                expected++;
+            }
+        }
+        
+        assertTrue(expected > 0);
+        assertEquals(1, result.size());
+        Row firstRow = result.iterator().next();
+        assertEquals((double) expected, 
+                     firstRow.getFieldValue(ColumnNameUtil.ALL_COLUMNS_SYMBOLIC));
+    }
+    
+    /** 
+     * Tests that the join yields the same rows when the tables are 
+     * repartitioned on the join columns.
+     */
+    @Test
+    public void testRepartitionedJoin() 
+        throws RecognitionException, QueryBuildingException
+    {
+        Query query = 
+            QueryParser.parseQuery(
+               "select count(*) " +
+               "from airports join routes " +
+               "on airports.id = routes.src_airport_id");
+        Join join = ((QueryAdaptor) query).getJoin();
+        assertNotNull(join);
+        
+        Map<String, String[]> joinColumns = 
+            join.getJoinColumns(join.getJoinedTables());
+        assertNotNull(joinColumns);
+        assertEquals("src_airport_id", joinColumns.get(Route.TABLE_NAME)[1]);
+        
+        int partitions = 3;
+        List<MaterializedDatabase> databases = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            MaterializedDatabase database = new MaterializedDatabase();
+            for (String tableName : join.getJoinedTables()) {
+                database.createTable(
+                    myTestDB.lookUpTable(tableName).getSchema());
+            }
+            databases.add(database);
+        }
+        for (String tableName : join.getJoinedTables()) {
+            for (Persistable<?> row : 
+                    myTestDB.lookUpTable(tableName).findMatching(
+                        MatchAllPredicate.INSTANCE))
+            {
+                Object value = 
+                    Join.getJoinValue(row, joinColumns.get(tableName));
+                if (value != null) {
+                    databases.get((value.hashCode() & Integer.MAX_VALUE) 
+                                      % partitions)
+                             .addRows(tableName, 
+                                      Collections.singletonList(row));
+                }
+            }
+        }
+        
+        double count = 0.0D;
+        for (MaterializedDatabase database : databases) {
+            @SuppressWarnings("unchecked")
+            Collection<Row> result = 
+                (Collection<Row>) query.query(database);
+            count += (Double) result.iterator().next().getFieldValue(
+                ColumnNameUtil.ALL_COLUMNS_SYMBOLIC);
+        }
+        
+        @SuppressWarnings("unchecked")
+        Collection<Row> result = (Collection<Row>) query.query(myTestDB);
+        assertEquals(result.iterator().next().getFieldValue(
+                         ColumnNameUtil.ALL_COLUMNS_SYMBOLIC), 
+                     count);
+    }
+    
+    /**
+     * Tests the order by query.
+     */
+    @Test
+    public void testOrderBy() 
+        throws RecognitionException, QueryBuildingException
+    {
+        Query query = 
+            QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME 
+                + " order by altitude desc, id");
+        
+        @SuppressWarnings("unchecked")
+        Collection<Row> result = 
+            (Collection<Row>) query.query(myTestDB);
+        assertEquals(topAirports(Integer.MAX_VALUE), idValues(result));
+    }
+    
+    /**
+     * Tests the order by query with a limit on the number of rows.
+     */
+    @Test
+    public void testTopN() 
+        throws RecognitionException, QueryBuildingException
+    {
+        Query query = 
+            QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME 
+                + " order by altitude desc, id limit 10");
+        
+        @SuppressWarnings("unchecked")
+        Collection<Row> result = 
+            (Collection<Row>) query.query(myTestDB);
+        assertEquals(topAirports(10), idValues(result));
+        
+        query = 
+            QueryParser.parseQuery(
+                "select * from " + HitDbTest.TABLE_NAME 
+                + " where id > 100 order by id limit 5");
+        @SuppressWarnings("unchecked")
+        Collection<Row> ordered = 
+            (Collection<Row>) query.query(myTestDB);
+        List<Object> ids = idValues(ordered);
+        assertEquals(5, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue((Long) ids.get(i - 1) < (Long) ids.get(i));
+            assertTrue((Long) ids.get(i - 1) > 100L);
+        }
+    }
+    
+    /**
+     * Tests merging the ordered results of the nodes holding the 
+     * partitions of a table.
+     */
+    @Test
+    public void testSortedMerge() 
+        throws RecognitionException, QueryBuildingException
+    {
+        RewritableQuery query = 
+            QueryParser.parseRewritableQuery(
+                "select * from " + HitDbTest.TABLE_NAME 
+                + " order by altitude desc, id limit 10");
+        QueryResultMerger merger = query.getQueryMerger();
+        assertNotNull(merger);
+        
+        int partitions = 3;
+        List<MaterializedDatabase> databases = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            MaterializedDatabase database = new MaterializedDatabase();
+            database.createTable(
+                myTestDB.lookUpTable(HitDbTest.TABLE_NAME).getSchema());
+            databases.add(database);
+        }
+        for (Persistable<?> row : 
+                myTestDB.lookUpTable(HitDbTest.TABLE_NAME).findMatching(
+                    MatchAllPredicate.INSTANCE))
+        {
+            databases.get((row.hashCode() & Integer.MAX_VALUE) % partitions)
+                     .addRows(HitDbTest.TABLE_NAME, 
+                              Collections.singletonList(row));
+        }
+        
+        for (MaterializedDatabase database : databases) {
+            @SuppressWarnings("unchecked")
+            Collection<Row> result = 
+                (Collection<Row>) query.query(database);
+            assertTrue(result.size() <= 10);
+            merger.addPartialResult(result);
+        }
+        assertEquals(topAirports(10), 
+                     idValues(merger.getMergedResult()));
+    }
+    
+    /** 
+     * Returns the ids of the airports with the highest altitudes, ordered 
+     * by their ids when the altitudes are same.
+     */
+    private List<Object> topAirports(int limit)
+    {
+        List<Persistable<?>> airports = 
+            new ArrayList<Persistable<?>>(
+                myTestDB.lookUpTable(HitDbTest.TABLE_NAME).findMatching(
+                    MatchAllPredicate.INSTANCE));
+        Collections.sort(airports, new Comparator<Persistable<?>>() {
+            @Override
+            public int compare(Persistable<?> airport1, 
+                               Persistable<?> airport2)
+            {
+                int result = 
+                    Double.compare(
+                        (Double) airport2.getFieldValue("altitude"), 
+                        (Double) airport1.getFieldValue("altitude"));
+                return result != 0 ? 
+                    result 
+                    : Long.compare((Long) airport1.getFieldValue("id"), 
+                                   (Long) airport2.getFieldValue("id"));
+            }
+        });
+        List<Object> ids = new ArrayList<>();
+        for (Persistable<?> airport : 
+                airports.subList(0, Math.min(limit, airports.size())))
+        {
+            ids.add(airport.getFieldValue("id"));
+        }
+        return ids;
+    }
+    
+    private List<Object> idValues(Collection<Row> rows)
+    {
+        List<Object> ids = new ArrayList<>();
+        for (Row row : rows) {
+            ids.add(row.getFieldValue("id"));
+        }
+        return ids;
+    }
+    
+    private Set<Double> columnValues(String tableName, String columnName)
+    {
+        Set<Double> values = new HashSet<>();
+        for (Persistable<?> row : 
+                myTestDB.lookUpTable(tableName).findMatching(
+                    MatchAllPredicate.INSTANCE))
+        {
+            Object value = row.getFieldValue(columnName);
+            if (value != null) {
+                values.add(((Number) value).doubleValue());
+            }
+        }
+        return values;
+    }
 }
@@ -20,6 +20,8 @@
 
 package org.hit.query.test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -57,6 +59,7 @@ public class TestDB implements Database
                            new TestTable<>(HitDbTest.TABLE_NAME, 
                                            Airport.class, 
                                            Long.class,
+                                           Collections.singletonList("id"),
                                            new LinearKeyspace<>(
                                                new LongDomain(1, 7000)), 
                                            new AirportDataLoader()));
@@ -64,6 +67,8 @@ public class TestDB implements Database
                            new TestTable<>(Airline.TABLE_NAME, 
                                            Airline.class, 
                                            Long.class,
+                                           Collections.singletonList(
+                                               "airline_id"),
                                            new LinearKeyspace<>(
                                                new LongDomain(1, 7000)), 
                                            new AirlineDataLoader()));
@@ -71,6 +76,7 @@ public class TestDB implements Database
                            new TestTable<>(Route.TABLE_NAME, 
                                            Route.class, 
                                            Long.class,
+                                           new ArrayList<String>(),
                                            new LinearKeyspace<>(
                                                new LongDomain(1, 7000)), 
                                            new RouteDataLoader()));
@@ -50,6 +50,7 @@ public class TestTable<K extends Comparable<K>, P extends Persistable<K>>
     public TestTable(String             tableName, 
                      Class<? extends P> tableClass,
                      Class<? extends K> keyClass,
+                     List<String>       primaryKey,
                      LinearKeyspace<K>  keySpace,
                      DataLoader<P>      dataLoader)
     {
@@ -58,7 +59,7 @@ public class TestTable<K extends Comparable<K>, P extends Persistable<K>>
             new HitTableSchema(
                   tableName,
                   new ArrayList<String>(),
-                  new ArrayList<String>(),
+                  primaryKey,
                   tableClass,
                   keyClass,
                   keySpace);
@@ -91,7 +92,29 @@ public class TestTable<K extends Comparable<K>, P extends Persistable<K>>
     public Collection<P> findMatching(Predicate predicate, K start, K end)
     {
         List<P> result = new ArrayList<>();
-        for (P persistable : myData.subMap(start, end).values()) {
+        for (P persistable : myData.subMap(start, true, end, true).values()) {
+            if (predicate.isInterested(persistable)) {
+                result.add(persistable);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<P> findMatching(Predicate predicate, 
+                                      K         resumeKey, 
+                                      int       limit)
+    {
+        List<P> result = new ArrayList<>();
+        for (P persistable : resumeKey == null ? myData.values() 
+                                 : myData.tailMap(resumeKey, false).values())
+        {
+            if (result.size() >= limit) {
+                break;
+            }
             if (predicate.isInterested(persistable)) {
                 result.add(persistable);
             }
@@ -136,6 +159,17 @@ public class TestTable<K extends Comparable<K>, P extends Persistable<K>>
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<P> deleteRange(Object primaryKey, 
+                                     Object secondaryKey,
+                                     int    limit)
+    {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,73 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.time.test;
+
+import org.hit.time.HybridLogicalClock;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Defines a test case for verifying the timestamps generated by 
+ * {@link HybridLogicalClock}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class HybridLogicalClockTest
+{
+    @Test
+    public void testMonotonicity()
+    {
+        long before = System.currentTimeMillis();
+        HybridLogicalClock clock = new HybridLogicalClock();
+        try {
+            long previous = clock.currentTime();
+            Assert.assertTrue(
+                HybridLogicalClock.toPhysicalTime(previous) >= before);
+            for (int i = 0; i < 100000; i++) {
+                long current = clock.currentTime();
+                Assert.assertTrue(current > previous);
+                previous = current;
+            }
+        }
+        finally {
+            clock.stop();
+        }
+    }
+    
+    @Test
+    public void testObserve()
+    {
+        HybridLogicalClock clock = new HybridLogicalClock();
+        try {
+            long local = clock.currentTime();
+            long remote = local + (1000L << HybridLogicalClock.LOGICAL_BITS);
+            clock.observe(remote);
+            Assert.assertTrue(clock.currentTime() > remote);
+            
+            // Observing an older time stamp shouldn't move the clock back.
+            clock.observe(local);
+            Assert.assertTrue(clock.currentTime() > remote);
+        }
+        finally {
+            clock.stop();
+        }
+    }
+}
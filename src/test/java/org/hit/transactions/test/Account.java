@@ -20,6 +20,10 @@
 
 package org.hit.transactions.test;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -37,7 +41,7 @@ import com.google.common.collect.Lists;
  * 
  * @author Balraja Subbiah
  */
-public class Account implements Persistable<Long>, Row
+public class Account implements Persistable<Long>, Row, Externalizable
 {
     public static final String TABLE_NAME = "account";
     
@@ -165,6 +169,26 @@ public class Account implements Persistable<Long>, Row
         return Lists.newArrayList(ACCOUNT_ID, BALANCE);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeLong(myAccountID);
+        out.writeDouble(myBalance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException
+    {
+        myAccountID = in.readLong();
+        myBalance = in.readDouble();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,227 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.transactions.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hit.db.engine.TransactionManager;
+import org.hit.db.keyspace.HashKeyspace;
+import org.hit.db.keyspace.HashKeyspace.HashFunctionID;
+import org.hit.db.keyspace.domain.BigIntegerDomain;
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.model.Persistable;
+import org.hit.db.transactions.VersionCollectorPropertyConfig;
+import org.hit.db.transactions.impl.TransactableHitDatabase;
+import org.hit.event.Event;
+import org.hit.event.SendMessageEvent;
+import org.hit.messages.DataLoadRequest;
+import org.hit.messages.DataLoadResponse;
+import org.hit.pool.PooledObjects;
+import org.hit.time.SimpleSystemClock;
+
+import org.hit.util.Range;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.hash.Funnels;
+
+/**
+ * Defines a test case for verifying that the data of a range is moved 
+ * between the servers in chunks.
+ * 
+ * @author Balraja Subbiah
+ */
+public class DataLoadTest
+{
+    private static final int ROW_COUNT = 25;
+    
+    private static final int CHUNK_SIZE = 10;
+    
+    private static final Range<Long> RANGE = 
+        new Range<>(Long.valueOf(1L), Long.valueOf(7000L));
+    
+    private static final HitTableSchema HASHED_SCHEMA = 
+        new HitTableSchema(
+            Account.TABLE_NAME,
+            new ArrayList<String>(),
+            new ArrayList<String>(),
+            Account.class, 
+            Long.class,
+            new HashKeyspace<>(HashFunctionID.GOOD_FAST_HASH, 
+                               Funnels.longFunnel()));
+    
+    private static final BigIntegerDomain HASH_RING = 
+        new BigIntegerDomain(
+            HashFunctionID.GOOD_FAST_HASH.getHashFunction().bits());
+    
+    private final CountDownLatch myLatch = new CountDownLatch(1);
+    
+    private final List<DataLoadResponse> myResponses = new ArrayList<>();
+    
+    private TransactionManager mySourceManager;
+    
+    private TransactionManager myTargetManager;
+    
+    private Range<?> myRange;
+    
+    @Test
+    public void chunkedLoadTest() throws InterruptedException
+    {
+        TransactableHitDatabase sourceDatabase = 
+            checkChunkedLoad(Account.SCHEMA, RANGE);
+        Assert.assertEquals(
+            0L, sourceDatabase.lookUpTable(Account.TABLE_NAME).rowCount());
+        
+        long expectedKey = 1L;
+        for (DataLoadResponse response : myResponses) {
+            for (Persistable<?> row : response.getRows()) {
+                Assert.assertEquals(Long.valueOf(expectedKey++), 
+                                    row.primaryKey());
+            }
+        }
+        Assert.assertEquals(ROW_COUNT + 1, expectedKey);
+    }
+    
+    /**
+     * Tests the loading of a range on the hash ring, whose rows are 
+     * handed over in the order in which they have been found. The deleted
+     * rows are left behind as versions to be reclaimed by the collector.
+     */
+    @Test
+    public void hashedChunkedLoadTest() throws InterruptedException
+    {
+        checkChunkedLoad(
+            HASHED_SCHEMA, 
+            new Range<>(HASH_RING.getMinimum(), HASH_RING.getMaximum()));
+        
+        Set<Object> keys = new HashSet<>();
+        for (DataLoadResponse response : myResponses) {
+            for (Persistable<?> row : response.getRows()) {
+                Assert.assertTrue(keys.add(row.primaryKey()));
+            }
+        }
+        Assert.assertEquals(ROW_COUNT, keys.size());
+    }
+    
+    private TransactableHitDatabase checkChunkedLoad(HitTableSchema schema, 
+                                                     Range<?>       range) 
+        throws InterruptedException
+    {
+        myRange = range;
+        TransactableHitDatabase sourceDatabase = new TransactableHitDatabase();
+        TransactableHitDatabase targetDatabase = new TransactableHitDatabase();
+        RecordingEventBus recordingEventBus = 
+            new RecordingEventBus(
+                Collections.<Class<? extends Event>>singleton(
+                    SendMessageEvent.class),
+                new EventNotificationListener() {
+                    @Override
+                    public void handleEvent(Event recordedEvent)
+                    {
+                        SendMessageEvent sendMessageEvent = 
+                            (SendMessageEvent) recordedEvent;
+                        Assert.assertTrue(
+                            sendMessageEvent.getMessage() 
+                                instanceof DataLoadResponse);
+                        DataLoadResponse response = 
+                            (DataLoadResponse) sendMessageEvent.getMessage();
+                        myResponses.add(response);
+                        myTargetManager.bulkLoad(response.getTableName(), 
+                                                 response.getRows());
+                        if (response.isLastChunk()) {
+                            myLatch.countDown();
+                        }
+                        else {
+                            List<? extends Persistable<?>> rows = 
+                                response.getRows();
+                            requestChunk(
+                                response.getChunkSequenceNumber() + 1,
+                                rows.get(rows.size() - 1).primaryKey());
+                        }
+                    }
+                });
+        
+        mySourceManager = 
+            makeManager(sourceDatabase, recordingEventBus, schema);
+        myTargetManager = 
+            makeManager(targetDatabase, recordingEventBus, schema);
+        
+        List<Account> accounts = new ArrayList<>();
+        for (long i = ROW_COUNT; i > 0; i--) {
+            accounts.add(PooledObjects.getInstance(Account.class)
+                                      .initialize(i, 100.0D));
+        }
+        mySourceManager.bulkLoad(Account.TABLE_NAME, accounts);
+        Assert.assertEquals(
+            ROW_COUNT, 
+            sourceDatabase.lookUpTable(Account.TABLE_NAME).rowCount());
+        
+        requestChunk(0L, null);
+        Assert.assertTrue(myLatch.await(30, TimeUnit.SECONDS));
+        
+        Assert.assertEquals(3, myResponses.size());
+        for (int i = 0; i < myResponses.size(); i++) {
+            DataLoadResponse response = myResponses.get(i);
+            Assert.assertEquals(i, response.getChunkSequenceNumber());
+            Assert.assertEquals(i == myResponses.size() - 1, 
+                                response.isLastChunk());
+            Assert.assertTrue(response.getRows().size() <= CHUNK_SIZE);
+        }
+        Assert.assertEquals(
+            ROW_COUNT, 
+            targetDatabase.lookUpTable(Account.TABLE_NAME).rowCount());
+        return sourceDatabase;
+    }
+    
+    private TransactionManager makeManager(TransactableHitDatabase database,
+                                           RecordingEventBus       eventBus,
+                                           HitTableSchema          schema)
+    {
+        TransactionManager manager = 
+            new TransactionManager(
+                database, 
+                new TransactableHitDatabase(),
+                new SimpleSystemClock(),
+                eventBus,
+                TestID.SERVER_NODE_ID, 
+                null,
+                new VersionCollectorPropertyConfig());
+        manager.createTable(schema);
+        return manager;
+    }
+    
+    private void requestChunk(long sequenceNumber, Comparable<?> resumeKey)
+    {
+        mySourceManager.processQueryAndDeleteOperation(
+            new DataLoadRequest(TestID.CLIENT_NODE_ID, 
+                                Account.TABLE_NAME, 
+                                myRange,
+                                sequenceNumber,
+                                resumeKey,
+                                CHUNK_SIZE));
+    }
+}
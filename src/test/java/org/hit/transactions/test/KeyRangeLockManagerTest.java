@@ -0,0 +1,131 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.transactions.test;
+
+import gnu.trove.set.TLongSet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hit.db.transactions.KeyRangeLockManager;
+import org.hit.db.transactions.LockRange;
+import org.hit.db.transactions.Registry;
+import org.hit.util.Range;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Defines a test case for verifying the locking of key ranges by the
+ * {@link KeyRangeLockManager}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class KeyRangeLockManagerTest
+{
+    private static List<LockRange> makeRange(long start, long end)
+    {
+        return Collections.singletonList(
+            new LockRange(Account.TABLE_NAME, 
+                          new Range<Long>(Long.valueOf(start), 
+                                          Long.valueOf(end))));
+    }
+    
+    @Test
+    public void testLocking()
+    {
+        Registry registry = new Registry();
+        KeyRangeLockManager lockManager = new KeyRangeLockManager(registry);
+        
+        Assert.assertTrue(lockManager.acquireShared(1L, makeRange(1, 10)));
+        Assert.assertTrue(lockManager.acquireShared(2L, makeRange(50, 60)));
+        
+        // The distributed transaction should wait only for the overlapping 
+        // transaction.
+        Assert.assertTrue(lockManager.acquireExclusive(3L, makeRange(5, 20)));
+        Assert.assertEquals(1, registry.getPrecedencyFor(3L).size());
+        Assert.assertTrue(registry.getPrecedencyFor(3L).contains(1L));
+        
+        // Non overlapping transactions continue, while the overlapping 
+        // ones wait for the lock to be released.
+        Assert.assertTrue(lockManager.acquireShared(4L, makeRange(30, 40)));
+        Assert.assertFalse(lockManager.acquireShared(5L, makeRange(20, 25)));
+        Assert.assertFalse(lockManager.acquireExclusive(6L, makeRange(1, 5)));
+        Assert.assertFalse(
+            lockManager.acquireShared(
+                7L, 
+                Arrays.asList(new LockRange("other", null),
+                              new LockRange(Account.TABLE_NAME, null))));
+        Assert.assertTrue(
+            lockManager.acquireShared(
+                8L, 
+                Collections.singletonList(
+                    new LockRange("other", new Range<Long>(1L, 10L)))));
+        
+        TLongSet freed = lockManager.release(1L);
+        Assert.assertEquals(1, freed.size());
+        Assert.assertTrue(freed.contains(3L));
+        
+        freed = lockManager.release(3L);
+        Assert.assertEquals(3, freed.size());
+        Assert.assertTrue(freed.contains(5L));
+        Assert.assertTrue(freed.contains(6L));
+        Assert.assertTrue(freed.contains(7L));
+        Assert.assertTrue(lockManager.acquireShared(5L, makeRange(20, 25)));
+    }
+    
+    @Test
+    public void testLockingAcrossTables()
+    {
+        Registry registry = new Registry();
+        KeyRangeLockManager lockManager = new KeyRangeLockManager(registry);
+        
+        // A distributed transaction locking ranges of two tables.
+        List<LockRange> ranges = 
+            Arrays.asList(
+                new LockRange("other", new Range<Long>(1L, 10L)),
+                new LockRange(Account.TABLE_NAME, 
+                              new Range<Long>(100L, 200L)));
+        Assert.assertTrue(lockManager.acquireExclusive(1L, ranges));
+        Assert.assertTrue(lockManager.acquireExclusive(1L, ranges));
+        
+        // Only the transactions overlapping either of the ranges wait.
+        Assert.assertTrue(lockManager.acquireShared(2L, makeRange(1, 10)));
+        Assert.assertFalse(lockManager.acquireShared(3L, makeRange(150, 150)));
+        Assert.assertFalse(
+            lockManager.acquireExclusive(
+                4L, 
+                Collections.singletonList(new LockRange("other", null))));
+        
+        TLongSet freed = lockManager.release(1L);
+        Assert.assertEquals(2, freed.size());
+        Assert.assertTrue(freed.contains(3L));
+        Assert.assertTrue(freed.contains(4L));
+        
+        // The exclusive lock on the whole table waits for nothing, since 
+        // the shared lock on the other table doesn't overlap it.
+        Assert.assertTrue(
+            lockManager.acquireExclusive(
+                4L, 
+                Collections.singletonList(new LockRange("other", null))));
+        Assert.assertNull(registry.getPrecedencyFor(4L));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.transactions.test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import org.hit.consensus.ConsensusType;
+import org.hit.consensus.UnitID;
+import org.hit.consensus.raft.log.WAL;
+import org.hit.consensus.raft.log.WALConfig;
+import org.hit.consensus.test.TestWALConfig;
+import org.hit.db.engine.ConsensusID;
+import org.hit.db.engine.RecoveryManager;
+import org.hit.db.engine.ReplicationProposal;
+import org.hit.db.model.mutations.AddRowMutation;
+import org.hit.db.snapshot.SchemaCatalog;
+import org.hit.db.snapshot.SnapshotConfig;
+import org.hit.db.snapshot.SnapshotDirectory;
+import org.hit.db.snapshot.SnapshotManifest;
+import org.hit.db.transactions.IDAssigner;
+import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.TransactableTable;
+import org.hit.db.transactions.impl.TransactableHitDatabase;
+import org.hit.io.pool.PoolableOutput;
+import org.hit.pool.PooledObjects;
+import org.hit.pool.SimplePoolableRegistry;
+import org.hit.time.SimpleSystemClock;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Defines a test case for verifying the recovery of a database from the
+ * snapshot and the log by the {@link RecoveryManager}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class RecoveryTest
+{
+    private static final String LOG_NAME = "recovery";
+    
+    private static final UnitID UNIT_ID = 
+        new ConsensusID(ConsensusType.RAFT, LOG_NAME);
+    
+    private static final long SNAPSHOT_TIME = 100L;
+    
+    @Rule
+    public TemporaryFolder myFolder = new TemporaryFolder();
+    
+    private SnapshotConfig makeSnapshotConfig()
+    {
+        return new TestSnapshotConfig(myFolder.getRoot(), 4);
+    }
+    
+    private WALConfig makeWALConfig()
+    {
+        return new TestWALConfig(myFolder.getRoot(), LOG_NAME);
+    }
+    
+    private static Account makeAccount(long accountID, double balance)
+    {
+        return PooledObjects.getInstance(Account.class)
+                            .initialize(accountID, balance);
+    }
+    
+    private static ReplicationProposal makeProposal(
+        long accountID, double balance, long start, long end)
+    {
+        return ReplicationProposal.create(
+            UNIT_ID,
+            new AddRowMutation<Long, Account>(
+                makeAccount(accountID, balance), Account.TABLE_NAME),
+            start,
+            end);
+    }
+    
+    private static void writeSnapshot(SnapshotDirectory directory) 
+        throws IOException
+    {
+        File snapshot = directory.getSnapshotDirectory(SNAPSHOT_TIME);
+        snapshot.mkdirs();
+        try (PoolableOutput out = 
+                 new PoolableOutput(
+                     new BufferedOutputStream(
+                         new FileOutputStream(
+                             SnapshotDirectory.getTableFile(
+                                 snapshot, Account.TABLE_NAME))),
+                     new SimplePoolableRegistry()))
+        {
+            for (long i = 1; i <= 10; i++) {
+                out.writeBoolean(true);
+                makeAccount(i, i * 10.0D).writeExternal(out);
+            }
+            out.writeBoolean(false);
+        }
+        new SnapshotManifest(
+            SNAPSHOT_TIME, 
+            Collections.singletonList(Account.TABLE_NAME)).writeTo(snapshot);
+    }
+    
+    private static double getBalance(
+        TransactableTable<Long, Account> table, long accountID)
+    {
+        return table.getRow(Long.valueOf(accountID), 10000L, 1000000L)
+                    .getPersistable()
+                    .getBalance();
+    }
+    
+    @Test
+    public void testRecoverFromSnapshotAndLog() throws Exception
+    {
+        SnapshotConfig snapshotConfig = makeSnapshotConfig();
+        WALConfig walConfig = makeWALConfig();
+        SnapshotDirectory snapshotDirectory = 
+            new SnapshotDirectory(snapshotConfig, LOG_NAME);
+        new SchemaCatalog(snapshotDirectory).add(Account.SCHEMA);
+        writeSnapshot(snapshotDirectory);
+        
+        WAL wal = new WAL(walConfig);
+        // Committed before the snapshot, so it should be skipped.
+        wal.addProposal(1L, 1L, makeProposal(1L, 1000.0D, 40L, 50L));
+        // Committed after the snapshot.
+        wal.addProposal(1L, 2L, makeProposal(2L, 2000.0D, 110L, 120L));
+        for (long i = 11; i <= 50; i++) {
+            wal.addProposal(1L, 
+                            i, 
+                            makeProposal(i, i * 10.0D, 
+                                         200L + 2 * i, 
+                                         201L + 2 * i));
+        }
+        wal.addProposal(1L, 51L, makeProposal(2L, 3000.0D, 400L, 410L));
+        wal.close();
+        
+        TransactableDatabase database = new TransactableHitDatabase();
+        Set<String> recoveredTables = 
+            new RecoveryManager(snapshotConfig, 
+                                new SimpleSystemClock(), 
+                                new IDAssigner())
+                .recover(database, walConfig);
+        
+        Assert.assertEquals(
+            Collections.singleton(Account.TABLE_NAME), recoveredTables);
+        TransactableTable<Long, Account> table = 
+            database.lookUpTable(Account.TABLE_NAME);
+        Assert.assertEquals(10.0D, getBalance(table, 1L), 0.0D);
+        Assert.assertEquals(3000.0D, getBalance(table, 2L), 0.0D);
+        for (long i = 3; i <= 50; i++) {
+            Assert.assertEquals(i * 10.0D, getBalance(table, i), 0.0D);
+        }
+    }
+    
+    @Test
+    public void testNothingToRecover() throws Exception
+    {
+        Set<String> recoveredTables = 
+            new RecoveryManager(makeSnapshotConfig(), 
+                                new SimpleSystemClock(), 
+                                new IDAssigner())
+                .recover(new TransactableHitDatabase(), 
+                         makeWALConfig());
+        Assert.assertTrue(recoveredTables.isEmpty());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.transactions.test;
+
+import gnu.trove.set.TLongSet;
+
+import org.hit.db.transactions.Registry;
+import org.hit.db.transactions.TransactionState;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Defines a test case for verifying the tracking of dependencies between
+ * transactions in the {@link Registry}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class RegistryTest
+{
+    @Test
+    public void testDependencies()
+    {
+        Registry registry = new Registry();
+        registry.updateTransactionState(1L, TransactionState.VALIDATE);
+        registry.updateTransactionState(2L, TransactionState.COMMITTED);
+        Assert.assertEquals(TransactionState.VALIDATE, registry.getState(1L));
+        Assert.assertEquals(TransactionState.UNKNOWN, registry.getState(4L));
+        
+        registry.addDependency(1L, 3L);
+        registry.addDependencyToAll(4L);
+        Assert.assertEquals(1, registry.getPrecedencyFor(3L).size());
+        Assert.assertEquals(2, registry.getPrecedencyFor(4L).size());
+        
+        TLongSet freed = registry.freeDependentTransactionsOn(1L);
+        Assert.assertEquals(1, freed.size());
+        Assert.assertTrue(freed.contains(3L));
+        Assert.assertEquals(TransactionState.UNKNOWN, registry.getState(1L));
+        
+        freed = registry.freeDependentTransactionsOn(2L);
+        Assert.assertEquals(1, freed.size());
+        Assert.assertTrue(freed.contains(4L));
+        Assert.assertNull(registry.getPrecedencyFor(4L));
+    }
+    
+    @Test
+    public void testDependencyOnFreedTransaction()
+    {
+        Registry registry = new Registry();
+        registry.updateTransactionState(1L, TransactionState.COMMITTED);
+        registry.register(2L);
+        Assert.assertEquals(TransactionState.NOT_STARTED, 
+                            registry.getState(2L));
+        Assert.assertTrue(registry.freeDependentTransactionsOn(1L).isEmpty());
+        
+        // A dependency on a transaction that is already done is satisfied.
+        registry.addDependency(1L, 3L);
+        Assert.assertTrue(registry.getPrecedencyFor(3L).isEmpty());
+        Assert.assertTrue(registry.freeDependentTransactionsOn(1L).isEmpty());
+        
+        registry.addDependency(2L, 3L);
+        Assert.assertEquals(1, registry.getPrecedencyFor(3L).size());
+        TLongSet freed = registry.freeDependentTransactionsOn(2L);
+        Assert.assertEquals(1, freed.size());
+        Assert.assertTrue(freed.contains(3L));
+    }
+    
+    @Test
+    public void testIsolation()
+    {
+        Registry first = new Registry();
+        Registry second = new Registry();
+        first.updateTransactionState(1L, TransactionState.COMMITTED);
+        Assert.assertEquals(TransactionState.UNKNOWN, second.getState(1L));
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.hit.db.engine.TransactionManager;
+import org.hit.db.transactions.VersionCollectorPropertyConfig;
 import org.hit.db.transactions.impl.TransactableHitDatabase;
 import org.hit.event.Event;
 import org.hit.event.SendMessageEvent;
@@ -94,7 +95,8 @@ public class SimpleWorkflowTest
                 new SimpleSystemClock(),
                 recordingEventBus,
                 TestID.SERVER_NODE_ID, 
-                null);
+                null,
+                new VersionCollectorPropertyConfig());
         myTransactionManager.createTable(Account.SCHEMA);
         myTransactionManager.processOperation(TestID.CLIENT_NODE_ID, 
                                  new UpdateBalanceTransaction(1L, 100.0D), 
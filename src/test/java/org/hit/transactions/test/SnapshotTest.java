@@ -0,0 +1,265 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.transactions.test;
+
+import java.util.Collections;
+
+import org.hit.db.snapshot.SnapshotConfig;
+import org.hit.db.snapshot.SnapshotDirectory;
+import org.hit.db.snapshot.SnapshotManifest;
+import org.hit.db.snapshot.SnapshotReader;
+import org.hit.db.snapshot.SnapshotWriter;
+import org.hit.db.transactions.IDAssigner;
+import org.hit.db.transactions.Transactable;
+import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.TransactableTable;
+import org.hit.db.transactions.TransactionHelper;
+import org.hit.db.transactions.impl.TransactableHitDatabase;
+import org.hit.pool.PooledObjects;
+import org.hit.time.SimpleSystemClock;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Defines a test case for verifying the point in time snapshots of a 
+ * database taken by the {@link SnapshotWriter}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class SnapshotTest
+{
+    private static final String DATABASE_NAME = "snapshot";
+    
+    @Rule
+    public TemporaryFolder myFolder = new TemporaryFolder();
+    
+    private SnapshotConfig makeSnapshotConfig()
+    {
+        return new TestSnapshotConfig(myFolder.getRoot(), 2);
+    }
+    
+    private static void addVersion(TransactableTable<Long, Account> table,
+                                   long accountID,
+                                   double balance,
+                                   long start,
+                                   long end)
+    {
+        Transactable<Long, Account> version = 
+            Transactable.create(PooledObjects.getInstance(Account.class)
+                                             .initialize(accountID, balance));
+        version.setStart(start);
+        version.setEnd(end);
+        table.addToTable(version);
+    }
+    
+    @Test
+    public void testSnapshotRoundTrip() throws Exception
+    {
+        SnapshotConfig config = makeSnapshotConfig();
+        SnapshotDirectory snapshotDirectory = 
+            new SnapshotDirectory(config, DATABASE_NAME);
+        TransactableDatabase database = new TransactableHitDatabase();
+        database.createTable(Account.SCHEMA);
+        TransactableTable<Long, Account> table = 
+            database.lookUpTable(Account.SCHEMA.getTableName());
+        
+        long lockingTransaction = TransactionHelper.toVersionID(10L);
+        addVersion(table, 1L, 10.0D, 10L, TransactionHelper.INFINITY);
+        // An old version closed before the snapshot and the version 
+        // that has replaced it.
+        addVersion(table, 2L, 20.0D, 10L, 50L);
+        addVersion(table, 2L, 25.0D, 50L, TransactionHelper.INFINITY);
+        // A version created by a transaction that has not committed.
+        addVersion(table, 3L, 30.0D, lockingTransaction, 
+                   TransactionHelper.INFINITY);
+        // A version locked by a transaction that has not committed.
+        addVersion(table, 4L, 40.0D, 10L, lockingTransaction);
+        
+        SnapshotWriter writer = 
+            new SnapshotWriter(database, 
+                               snapshotDirectory, 
+                               config, 
+                               new SimpleSystemClock(), 
+                               new IDAssigner());
+        SnapshotManifest manifest = writer.takeSnapshot();
+        Assert.assertEquals(
+            Collections.singletonList(Account.SCHEMA.getTableName()),
+            manifest.getTableNames());
+        
+        SnapshotReader reader = 
+            new SnapshotReader(snapshotDirectory, config.getParallelism());
+        SnapshotManifest latest = reader.readLatestManifest();
+        Assert.assertEquals(manifest.getTime(), latest.getTime());
+        
+        TransactableDatabase recovered = new TransactableHitDatabase();
+        recovered.createTable(Account.SCHEMA);
+        reader.load(latest, recovered);
+        TransactableTable<Long, Account> recoveredTable = 
+            recovered.lookUpTable(Account.SCHEMA.getTableName());
+        Assert.assertEquals(3L, recoveredTable.rowCount());
+        long time = latest.getTime() + 1;
+        Assert.assertEquals(
+            10.0D, 
+            recoveredTable.getRow(1L, time, 1L).getPersistable()
+                          .getBalance(),
+            0.0D);
+        Assert.assertEquals(
+            25.0D, 
+            recoveredTable.getRow(2L, time, 1L).getPersistable()
+                          .getBalance(),
+            0.0D);
+        Assert.assertNull(recoveredTable.getRow(3L, time, 1L));
+        Assert.assertEquals(
+            40.0D, 
+            recoveredTable.getRow(4L, time, 1L).getPersistable()
+                          .getBalance(),
+            0.0D);
+    }
+    
+    @Test
+    public void testInstallSnapshot() throws Exception
+    {
+        SnapshotConfig config = makeSnapshotConfig();
+        SnapshotDirectory snapshotDirectory = 
+            new SnapshotDirectory(config, DATABASE_NAME);
+        TransactableDatabase database = new TransactableHitDatabase();
+        database.createTable(Account.SCHEMA);
+        TransactableTable<Long, Account> table = 
+            database.lookUpTable(Account.SCHEMA.getTableName());
+        addVersion(table, 1L, 100.0D, 10L, TransactionHelper.INFINITY);
+        addVersion(table, 2L, 200.0D, 10L, TransactionHelper.INFINITY);
+        SnapshotManifest manifest = 
+            new SnapshotWriter(database, 
+                               snapshotDirectory, 
+                               config, 
+                               new SimpleSystemClock(), 
+                               new IDAssigner()).takeSnapshot();
+        
+        // The database to which the snapshot is installed has an 
+        // older version of a row and a row that's not in the snapshot.
+        TransactableDatabase replica = new TransactableHitDatabase();
+        replica.createTable(Account.SCHEMA);
+        TransactableTable<Long, Account> replicaTable = 
+            replica.lookUpTable(Account.SCHEMA.getTableName());
+        addVersion(replicaTable, 1L, 50.0D, 5L, TransactionHelper.INFINITY);
+        addVersion(replicaTable, 3L, 30.0D, 5L, TransactionHelper.INFINITY);
+        
+        new SnapshotReader(snapshotDirectory, config.getParallelism())
+            .install(snapshotDirectory.getSnapshotDirectory(
+                         manifest.getTime()), 
+                     replica);
+        
+        long time = manifest.getTime() + 1;
+        Assert.assertEquals(
+            100.0D, 
+            replicaTable.getRow(1L, time, 1L).getPersistable()
+                        .getBalance(),
+            0.0D);
+        Assert.assertEquals(
+            200.0D, 
+            replicaTable.getRow(2L, time, 1L).getPersistable()
+                        .getBalance(),
+            0.0D);
+        Assert.assertNull(replicaTable.getRow(3L, time, 1L));
+        Assert.assertEquals(
+            50.0D, 
+            replicaTable.getRow(1L, 6L, 1L).getPersistable()
+                        .getBalance(),
+            0.0D);
+        Assert.assertEquals(
+            30.0D, 
+            replicaTable.getRow(3L, 6L, 1L).getPersistable()
+                        .getBalance(),
+            0.0D);
+    }
+    
+    @Test
+    public void testInstallSnapshotDropsDeletedRows() throws Exception
+    {
+        SnapshotConfig config = makeSnapshotConfig();
+        SnapshotDirectory snapshotDirectory = 
+            new SnapshotDirectory(config, DATABASE_NAME);
+        TransactableDatabase database = new TransactableHitDatabase();
+        database.createTable(Account.SCHEMA);
+        TransactableTable<Long, Account> table = 
+            database.lookUpTable(Account.SCHEMA.getTableName());
+        addVersion(table, 1L, 100.0D, 10L, TransactionHelper.INFINITY);
+        // A row that has been deleted before the snapshot.
+        addVersion(table, 2L, 200.0D, 10L, 20L);
+        SnapshotManifest manifest = 
+            new SnapshotWriter(database, 
+                               snapshotDirectory, 
+                               config, 
+                               new SimpleSystemClock(), 
+                               new IDAssigner()).takeSnapshot();
+        
+        // The replica has missed the deletion of the row.
+        TransactableDatabase replica = new TransactableHitDatabase();
+        replica.createTable(Account.SCHEMA);
+        TransactableTable<Long, Account> replicaTable = 
+            replica.lookUpTable(Account.SCHEMA.getTableName());
+        addVersion(replicaTable, 1L, 100.0D, 10L, TransactionHelper.INFINITY);
+        addVersion(replicaTable, 2L, 200.0D, 10L, TransactionHelper.INFINITY);
+        
+        new SnapshotReader(snapshotDirectory, config.getParallelism())
+            .install(snapshotDirectory.getSnapshotDirectory(
+                         manifest.getTime()), 
+                     replica);
+        
+        long time = manifest.getTime() + 1;
+        Assert.assertEquals(
+            100.0D, 
+            replicaTable.getRow(1L, time, 1L).getPersistable()
+                        .getBalance(),
+            0.0D);
+        Assert.assertNull(replicaTable.getRow(2L, time, 1L));
+        Assert.assertEquals(
+            200.0D, 
+            replicaTable.getRow(2L, 15L, 1L).getPersistable()
+                        .getBalance(),
+            0.0D);
+    }
+    
+    @Test
+    public void testOldSnapshotsAreDeleted() throws Exception
+    {
+        SnapshotConfig config = makeSnapshotConfig();
+        SnapshotDirectory snapshotDirectory = 
+            new SnapshotDirectory(config, DATABASE_NAME);
+        TransactableDatabase database = new TransactableHitDatabase();
+        database.createTable(Account.SCHEMA);
+        SnapshotWriter writer = 
+            new SnapshotWriter(database, 
+                               snapshotDirectory, 
+                               config, 
+                               new SimpleSystemClock(), 
+                               new IDAssigner());
+        for (int i = 0; i < 4; i++) {
+            writer.takeSnapshot();
+            Thread.sleep(5L);
+        }
+        Assert.assertEquals(
+            config.getRetainedSnapshotCount(),
+            snapshotDirectory.listSnapshotDirectories().length);
+    }
+}
@@ -0,0 +1,317 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.transactions.test;
+
+import gnu.trove.map.TObjectLongMap;
+import gnu.trove.map.hash.TObjectLongHashMap;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.hit.communicator.NodeID;
+import org.hit.db.engine.StandardAllocator;
+import org.hit.db.partitioner.Partitioner;
+import org.hit.event.DBStatEvent;
+import org.hit.messages.Heartbeat;
+import org.hit.messages.PartitionMoveAbort;
+import org.hit.messages.PartitionMoveRequest;
+import org.hit.pool.PooledObjects;
+import org.hit.server.ServerConfig;
+import org.hit.util.Pair;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Defines a test case for verifying that the partitions are rebalanced
+ * based on the load published by the nodes.
+ * 
+ * @author Balraja Subbiah
+ */
+public class StandardAllocatorTest
+{
+    private static class TestServerConfig implements ServerConfig
+    {
+        private final int myPartitionMoveTimeoutSecs;
+        
+        /**
+         * CTOR
+         */
+        public TestServerConfig(int partitionMoveTimeoutSecs)
+        {
+            myPartitionMoveTimeoutSecs = partitionMoveTimeoutSecs;
+        }
+        
+        @Override
+        public String getServerName()
+        {
+            return TestID.SERVER_NODE_ID.getID();
+        }
+
+        @Override
+        public int getInitialServerCount()
+        {
+            return 2;
+        }
+
+        @Override
+        public int getReplicationFactor()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getReplicationGroup()
+        {
+            return null;
+        }
+
+        @Override
+        public boolean isMaster()
+        {
+            return true;
+        }
+
+        @Override
+        public int getHeartBeatIntervalSecs()
+        {
+            return 1;
+        }
+
+        @Override
+        public int getGossipUpdateSecs()
+        {
+            return 1;
+        }
+
+        @Override
+        public int getDataLoadChunkSize()
+        {
+            return 10;
+        }
+
+        @Override
+        public int getRebalanceIntervalSecs()
+        {
+            return 1;
+        }
+
+        @Override
+        public double getRebalanceLoadFactor()
+        {
+            return 1.5;
+        }
+
+        @Override
+        public int getPartitionMoveIntervalSecs()
+        {
+            return 0;
+        }
+
+        @Override
+        public int getPartitionMoveTimeoutSecs()
+        {
+            return myPartitionMoveTimeoutSecs;
+        }
+
+        @Override
+        public int getVirtualNodeCount()
+        {
+            return 64;
+        }
+
+        @Override
+        public int getCapacity()
+        {
+            return 1;
+        }
+
+        @Override
+        public long getJoinBroadcastThreshold()
+        {
+            return 10000L;
+        }
+
+        @Override
+        public int getJoinBatchSize()
+        {
+            return 1000;
+        }
+
+        @Override
+        public int getJoinWindowSize()
+        {
+            return 4;
+        }
+
+        @Override
+        public int getJoinTimeoutSecs()
+        {
+            return 300;
+        }
+    }
+    
+    private static final NodeID SLAVE_NODE_ID = new TestID("SLAVE");
+    
+    private static final Long SLAVE_BOUND = Long.valueOf(3501L);
+    
+    private static final Long MOVED_BOUND = Long.valueOf(5250L);
+    
+    private StandardAllocator makeAllocator()
+    {
+        return makeAllocator(600);
+    }
+    
+    private StandardAllocator makeAllocator(int partitionMoveTimeoutSecs)
+    {
+        StandardAllocator allocator = 
+            new StandardAllocator(
+                new TestServerConfig(partitionMoveTimeoutSecs), 
+                TestID.SERVER_NODE_ID);
+        allocator.initialize(Collections.singleton(SLAVE_NODE_ID));
+        allocator.addSchema(Account.SCHEMA);
+        return allocator;
+    }
+    
+    private void publishLoad(StandardAllocator allocator,
+                             long              masterLatency,
+                             long              slaveLatency)
+    {
+        DBStatEvent dbStats = PooledObjects.getInstance(DBStatEvent.class);
+        dbStats.addTableRowCount(Account.TABLE_NAME, 100L);
+        dbStats.addTableAccess(
+            Account.TABLE_NAME, masterLatency / 1000L, masterLatency);
+        allocator.listenTO(dbStats);
+        
+        TObjectLongMap<String> rowCountMap = new TObjectLongHashMap<>();
+        TObjectLongMap<String> accessCountMap = new TObjectLongHashMap<>();
+        TObjectLongMap<String> accessLatencyMap = new TObjectLongHashMap<>();
+        rowCountMap.put(Account.TABLE_NAME, 100L);
+        accessCountMap.put(Account.TABLE_NAME, slaveLatency / 1000L);
+        accessLatencyMap.put(Account.TABLE_NAME, slaveLatency);
+        allocator.listenTO(SLAVE_NODE_ID, 
+                           Heartbeat.create(SLAVE_NODE_ID, 
+                                            rowCountMap, 
+                                            accessCountMap, 
+                                            accessLatencyMap));
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testMoveOfHotRange() throws InterruptedException
+    {
+        StandardAllocator allocator = makeAllocator();
+        publishLoad(allocator, 0L, 0L);
+        Thread.sleep(20);
+        publishLoad(allocator, 
+                    TimeUnit.MILLISECONDS.toNanos(10), 
+                    TimeUnit.MILLISECONDS.toNanos(1));
+        
+        Partitioner<Long, ?> oldPartitioner = 
+            (Partitioner<Long, ?>) 
+                allocator.getPartitions().get(Account.TABLE_NAME);
+        Pair<NodeID, PartitionMoveRequest> move = allocator.rebalance();
+        Assert.assertNotNull(move);
+        Assert.assertEquals(SLAVE_NODE_ID, move.getFirst());
+        
+        PartitionMoveRequest request = move.getSecond();
+        Assert.assertEquals(Account.TABLE_NAME, request.getTableName());
+        Assert.assertEquals(TestID.SERVER_NODE_ID, request.getSourceNode());
+        Assert.assertEquals(SLAVE_BOUND, request.getRange().getMinValue());
+        Assert.assertEquals(MOVED_BOUND, request.getRange().getMaxValue());
+        
+        // The partitioner is replaced rather than being updated.
+        Partitioner<Long, ?> newPartitioner = 
+            (Partitioner<Long, ?>) 
+                allocator.getPartitions().get(Account.TABLE_NAME);
+        Assert.assertNotSame(oldPartitioner, newPartitioner);
+        Assert.assertEquals(TestID.SERVER_NODE_ID, 
+                            oldPartitioner.lookupNode(MOVED_BOUND));
+        Assert.assertEquals(SLAVE_NODE_ID, 
+                            newPartitioner.lookupNode(MOVED_BOUND));
+        Assert.assertEquals(TestID.SERVER_NODE_ID, 
+                            newPartitioner.lookupNode(MOVED_BOUND + 1));
+        
+        // Only one range is moved at a time.
+        Assert.assertNull(allocator.rebalance());
+        Assert.assertNull(allocator.abortTimedOutMove());
+        allocator.partitionMoved(Account.TABLE_NAME, SLAVE_NODE_ID);
+        Assert.assertNull(allocator.rebalance());
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAbortOfTimedOutMove() throws InterruptedException
+    {
+        StandardAllocator allocator = makeAllocator(0);
+        publishLoad(allocator, 0L, 0L);
+        Thread.sleep(20);
+        publishLoad(allocator, 
+                    TimeUnit.MILLISECONDS.toNanos(10), 
+                    TimeUnit.MILLISECONDS.toNanos(1));
+        
+        Pair<NodeID, PartitionMoveRequest> move = allocator.rebalance();
+        Assert.assertNotNull(move);
+        Partitioner<Long, ?> movedPartitioner = 
+            (Partitioner<Long, ?>) 
+                allocator.getPartitions().get(Account.TABLE_NAME);
+        
+        // The response from a node other than the one taking the range
+        // doesn't complete the move.
+        allocator.partitionMoved(Account.TABLE_NAME, TestID.SERVER_NODE_ID);
+        Pair<NodeID, PartitionMoveAbort> abort = 
+            allocator.abortTimedOutMove();
+        Assert.assertNotNull(abort);
+        Assert.assertEquals(SLAVE_NODE_ID, abort.getFirst());
+        Assert.assertEquals(Account.TABLE_NAME, 
+                            abort.getSecond().getTableName());
+        Assert.assertEquals(TestID.SERVER_NODE_ID, 
+                            abort.getSecond().getSourceNode());
+        Assert.assertEquals(SLAVE_BOUND, 
+                            abort.getSecond().getRange().getMinValue());
+        Assert.assertEquals(MOVED_BOUND, 
+                            abort.getSecond().getRange().getMaxValue());
+        
+        // The range is routed back by a newer copy of the partitioner.
+        Partitioner<Long, ?> restoredPartitioner = 
+            (Partitioner<Long, ?>) 
+                allocator.getPartitions().get(Account.TABLE_NAME);
+        Assert.assertNotSame(movedPartitioner, restoredPartitioner);
+        Assert.assertEquals(SLAVE_NODE_ID, 
+                            restoredPartitioner.lookupNode(SLAVE_BOUND));
+        Assert.assertEquals(TestID.SERVER_NODE_ID, 
+                            restoredPartitioner.lookupNode(SLAVE_BOUND + 1));
+        Assert.assertEquals(TestID.SERVER_NODE_ID, 
+                            restoredPartitioner.lookupNode(MOVED_BOUND));
+        Assert.assertNull(allocator.abortTimedOutMove());
+    }
+    
+    @Test
+    public void testBalancedLoad() throws InterruptedException
+    {
+        StandardAllocator allocator = makeAllocator();
+        publishLoad(allocator, 0L, 0L);
+        Thread.sleep(20);
+        publishLoad(allocator, 
+                    TimeUnit.MILLISECONDS.toNanos(5), 
+                    TimeUnit.MILLISECONDS.toNanos(4));
+        Assert.assertNull(allocator.rebalance());
+    }
+}
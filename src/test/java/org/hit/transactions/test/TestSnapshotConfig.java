@@ -0,0 +1,83 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.transactions.test;
+
+import java.io.File;
+
+import org.hit.db.snapshot.SnapshotConfig;
+
+/**
+ * Defines the {@link SnapshotConfig} of the snapshots taken by the tests
+ * under a given directory. The snapshots are taken only when asked for.
+ * 
+ * @author Balraja Subbiah
+ */
+public class TestSnapshotConfig implements SnapshotConfig
+{
+    private final File myDirectory;
+    
+    private final int myParallelism;
+    
+    /**
+     * CTOR
+     */
+    public TestSnapshotConfig(File directory, int parallelism)
+    {
+        myDirectory = directory;
+        myParallelism = parallelism;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getBaseDirectoryPath()
+    {
+        return myDirectory.getAbsolutePath();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getParallelism()
+    {
+        return myParallelism;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSnapshotIntervalSecs()
+    {
+        return 0L;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getRetainedSnapshotCount()
+    {
+        return 2;
+    }
+}
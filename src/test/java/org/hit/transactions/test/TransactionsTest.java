@@ -19,8 +19,18 @@
 */
 package org.hit.transactions.test;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hit.db.model.Database;
 import org.hit.db.model.Mutation;
 import org.hit.db.model.Query;
+import org.hit.db.model.Table;
+import org.hit.db.sql.operators.MatchAllPredicate;
 import org.hit.db.transactions.AbstractTransaction;
 import org.hit.db.transactions.ReadTransaction;
 import org.hit.db.transactions.TransactableDatabase;
@@ -39,6 +49,61 @@ import org.junit.Test;
  */
 public class TransactionsTest
 {
+    /**
+     * Returns the keys of the accounts that follow the given key.
+     */
+    private static class ResumedScanQuery implements Query
+    {
+        private final Long myResumeKey;
+        
+        private final int myLimit;
+        
+        /**
+         * CTOR
+         */
+        public ResumedScanQuery(Long resumeKey, int limit)
+        {
+            myResumeKey = resumeKey;
+            myLimit = limit;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException
+        {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void readExternal(ObjectInput in)
+            throws IOException, ClassNotFoundException
+        {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object query(Database database)
+        {
+            Table<Long,Account> accountTable = 
+                database.lookUpTable(Account.TABLE_NAME);
+            List<Long> keys = new ArrayList<>();
+            for (Account account : 
+                     accountTable.findMatching(MatchAllPredicate.INSTANCE, 
+                                               myResumeKey, 
+                                               myLimit))
+            {
+                keys.add(account.primaryKey());
+            }
+            return keys;
+        }
+    }
+    
     private TransactableDatabase myDatabase;
     
     private Clock                myClock;
@@ -66,6 +131,7 @@ public class TransactionsTest
         transaction.init();
         transaction.execute();
         if (isCommit) {
+            transaction.validate();
             transaction.commit();
         }
         else {
@@ -95,6 +161,20 @@ public class TransactionsTest
         Assert.assertEquals(100.0D, (Double) result, 0.0D);
     }
     
+    @Test
+    public void resumedScanTest()
+    {
+        for (long i = 25L; i > 0; i--) {
+            apply(new UpdateBalanceTransaction(i, 100.0D), true);
+        }
+        Assert.assertEquals(Arrays.asList(11L, 12L, 13L, 14L, 15L),
+                            execute(new ResumedScanQuery(10L, 5)));
+        Assert.assertEquals(Arrays.asList(24L, 25L),
+                            execute(new ResumedScanQuery(23L, 5)));
+        Assert.assertEquals(Arrays.asList(1L, 2L),
+                            execute(new ResumedScanQuery(null, 2)));
+    }
+    
     @Test
     public void abortQueryTest()
     {
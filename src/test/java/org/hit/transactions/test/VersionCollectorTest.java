@@ -0,0 +1,176 @@
+/*
+    Hit is a high speed transactional database for handling millions
+    of updates with comfort and ease.
+
+    Copyright (C) 2013  Balraja Subbiah
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package org.hit.transactions.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hit.db.keyspace.HashKeyspace;
+import org.hit.db.keyspace.HashKeyspace.HashFunctionID;
+import org.hit.db.model.HitTableSchema;
+import org.hit.db.transactions.Transactable;
+import org.hit.db.transactions.TransactableDatabase;
+import org.hit.db.transactions.TransactableTable;
+import org.hit.db.transactions.VersionCollector;
+import org.hit.db.transactions.VersionCollectorConfig;
+import org.hit.db.transactions.impl.TransactableHitDatabase;
+import org.hit.time.Clock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.hash.Funnels;
+
+/**
+ * Defines a test case for verifying the reclamation of versions by the
+ * {@link VersionCollector}.
+ * 
+ * @author Balraja Subbiah
+ */
+public class VersionCollectorTest
+{
+    private static final long COMMIT_TIME = 20L;
+    
+    private static final long CURRENT_TIME = 30L;
+    
+    private static final int NUM_ROWS = 10;
+    
+    private static final int NUM_HASHED_ROWS = 1500;
+    
+    /**
+     * Tests the reclamation of versions from a table partitioned on a
+     * linear keyspace.
+     */
+    @Test
+    public void testCollection()
+    {
+        checkCollection(Account.SCHEMA, NUM_ROWS);
+    }
+    
+    /**
+     * Tests the reclamation of versions from a table partitioned on a
+     * hash ring, which is visited one bucket at a time. 
+     */
+    @Test
+    public void testHashedCollection()
+    {
+        checkCollection(
+            new HitTableSchema(
+                Account.TABLE_NAME,
+                new ArrayList<String>(),
+                new ArrayList<String>(),
+                Account.class, 
+                Long.class,
+                new HashKeyspace<>(HashFunctionID.GOOD_FAST_HASH, 
+                                   Funnels.longFunnel())),
+            NUM_HASHED_ROWS);
+    }
+    
+    private void checkCollection(HitTableSchema schema, int numRows)
+    {
+        TransactableDatabase database = new TransactableHitDatabase();
+        database.createTable(schema);
+        TransactableTable<Long, Account> table = 
+            database.lookUpTable(Account.TABLE_NAME);
+        List<Transactable<Long, Account>> oldVersions = new ArrayList<>();
+        for (long i = 1; i <= numRows; i++) {
+            Transactable<Long, Account> oldVersion = 
+                Transactable.create(new Account().initialize(i, 10.0D));
+            oldVersion.setStart(COMMIT_TIME - 10L);
+            oldVersion.setEnd(COMMIT_TIME);
+            table.addToTable(oldVersion);
+            oldVersions.add(oldVersion);
+            
+            Transactable<Long, Account> newVersion = 
+                Transactable.create(new Account().initialize(i, 20.0D));
+            newVersion.setStart(COMMIT_TIME);
+            newVersion.setEnd(Long.MAX_VALUE);
+            table.addToTable(newVersion);
+        }
+        
+        final AtomicLong time = new AtomicLong(CURRENT_TIME);
+        VersionCollector collector = 
+            new VersionCollector(
+                database,
+                new Clock() {
+                    @Override
+                    public long currentTime()
+                    {
+                        return time.get();
+                    }
+
+                    @Override
+                    public void observe(long remoteTime)
+                    {
+                    }
+                },
+                new VersionCollectorConfig() {
+                    @Override
+                    public long getCollectionIntervalMillis()
+                    {
+                        return 1000L;
+                    }
+
+                    @Override
+                    public int getBatchSize()
+                    {
+                        return 3;
+                    }
+                });
+        
+        // The old versions are still visible to a transaction that 
+        // started before the commit.
+        database.getWatermark().register(1L, COMMIT_TIME - 5L);
+        Assert.assertEquals(0L, collector.collect());
+        Assert.assertEquals(2 * numRows, table.rowCount());
+        
+        database.getWatermark().deregister(1L);
+        Assert.assertEquals(numRows, collector.collect());
+        Assert.assertEquals(numRows, table.rowCount());
+        Assert.assertEquals(numRows, collector.getReclaimedVersions());
+        Assert.assertEquals(2L, collector.getCollectionCount());
+        
+        for (long i = 1; i <= numRows; i++) {
+            Transactable<Long, Account> row = 
+                table.getRow(Long.valueOf(i), CURRENT_TIME, 1L);
+            Assert.assertNotNull(row);
+            Assert.assertEquals(20.0D, row.getPersistable().getBalance(), 0.0D);
+        }
+        
+        // The removed versions aren't recycled while a scan that started
+        // before their removal might still be reading them.
+        database.getWatermark().register(2L, CURRENT_TIME - 1L);
+        time.set(CURRENT_TIME + 10L);
+        Assert.assertEquals(0L, collector.collect());
+        for (Transactable<Long, Account> oldVersion : oldVersions) {
+            Assert.assertNotNull(oldVersion.getPersistable());
+            Assert.assertEquals(10.0D, 
+                                oldVersion.getPersistable().getBalance(), 
+                                0.0D);
+        }
+        
+        database.getWatermark().deregister(2L);
+        Assert.assertEquals(0L, collector.collect());
+        for (Transactable<Long, Account> oldVersion : oldVersions) {
+            Assert.assertNull(oldVersion.getPersistable());
+        }
+    }
+}